@@ -0,0 +1,151 @@
+package com.screenrecorderapp;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Length-prefixed, checksummed record log. Records are only ever appended; a
+ * torn or corrupt tail left by a crash is cut off on replay, and callers compact
+ * the log by rewriting the live records into a fresh file.
+ *
+ * With {@code syncOnAppend}, every append is forced to storage before it
+ * returns, so a record survives a power cut once append returns. Without it,
+ * appends only reach the OS: the log survives the process dying at any point,
+ * but a power cut may lose the last records. Either way, what is left replays
+ * as a prefix of what was written.
+ */
+public class AppendOnlyJournal implements Closeable {
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    public interface RecordVisitor {
+        void onRecord(byte[] record) throws IOException;
+    }
+
+    private final File file;
+    private final boolean syncOnAppend;
+    private FileOutputStream out;
+    private long validLength;
+
+    public AppendOnlyJournal(File file, boolean syncOnAppend) {
+        this.file = file;
+        this.syncOnAppend = syncOnAppend;
+    }
+
+    public synchronized void replay(RecordVisitor visitor) throws IOException {
+        closeOutput();
+        validLength = 0;
+        if (!file.exists()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                int length;
+                int checksum;
+                byte[] record;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD_SIZE) {
+                        break;
+                    }
+                    record = new byte[length];
+                    in.readFully(record);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                crc.reset();
+                crc.update(record, 0, record.length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                visitor.onRecord(record);
+                validLength += HEADER_SIZE + length;
+            }
+        }
+
+        // Drop whatever a crash left half-written after the last good record
+        if (file.length() > validLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    public synchronized void append(byte[] record) throws IOException {
+        if (out == null) {
+            File dir = file.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            out = new FileOutputStream(file, true);
+        }
+
+        out.write(frame(record));
+        if (syncOnAppend) {
+            // Data only: the file's size is forced with it, its timestamps need not be
+            out.getChannel().force(false);
+        }
+        validLength += HEADER_SIZE + record.length;
+    }
+
+    public synchronized void rewrite(List<byte[]> records) throws IOException {
+        closeOutput();
+
+        File tmp = new File(file.getPath() + ".compact");
+        long length = 0;
+        try (FileOutputStream compacted = new FileOutputStream(tmp)) {
+            DataOutputStream data = new DataOutputStream(compacted);
+            for (byte[] record : records) {
+                data.write(frame(record));
+                length += HEADER_SIZE + record.length;
+            }
+            data.flush();
+            compacted.getChannel().force(false);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace journal " + file);
+        }
+        validLength = length;
+    }
+
+    public synchronized long length() {
+        return validLength;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeOutput();
+    }
+
+    private void closeOutput() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private static byte[] frame(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        ByteBuffer framed = ByteBuffer.allocate(HEADER_SIZE + record.length);
+        framed.putInt(record.length);
+        framed.putInt((int) crc.getValue());
+        framed.put(record);
+        return framed.array();
+    }
+}
@@ -0,0 +1,23 @@
+package com.screenrecorderapp;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter, so retries from many jobs that failed
+ * together do not hit the server again in lockstep.
+ */
+public class Backoff {
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public Backoff(long baseDelayMs, long maxDelayMs) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public long delayMillis(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << shift);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
@@ -0,0 +1,141 @@
+package com.screenrecorderapp;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Joins MP4 segments from the same encoder session into one file by copying
+ * their samples, without decoding or re-encoding anything.
+ *
+ * Each segment starts on a key frame and carries the same track formats, so
+ * the output takes its tracks from the first segment used and appends every
+ * segment's samples shifted onto one continuous timeline. A clip limited to
+ * the last part of the segments starts at the key frame just before the cut.
+ */
+public class ClipStitcher {
+    private static final int DEFAULT_MAX_SAMPLE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Writes the last {@code maxDurationUs} of {@code segments} (all of them if
+     * 0) to {@code output}.
+     *
+     * @return the duration of the clip in microseconds
+     */
+    public static long stitch(List<File> segments, long maxDurationUs, File output) throws IOException {
+        if (segments.isEmpty()) {
+            throw new IOException("Nothing to stitch");
+        }
+        long[] durationsUs = new long[segments.size()];
+        long totalUs = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            durationsUs[i] = Mp4Parser.parse(segments.get(i)).durationUs;
+            totalUs += durationsUs[i];
+        }
+        long skipUs = maxDurationUs > 0 ? Math.max(0, totalUs - maxDurationUs) : 0;
+
+        MediaMuxer muxer = new MediaMuxer(output.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        boolean finished = false;
+        try {
+            // Output tracks by kind ("video", "audio"), fixed by the first segment used
+            Map<String, Integer> outputTracks = null;
+            ByteBuffer buffer = null;
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            long baseUs = 0;
+
+            for (int i = 0; i < segments.size(); i++) {
+                if (skipUs >= durationsUs[i]) {
+                    skipUs -= durationsUs[i];
+                    continue;
+                }
+                MediaExtractor extractor = new MediaExtractor();
+                try {
+                    extractor.setDataSource(segments.get(i).getAbsolutePath());
+                    int[] trackMap = new int[extractor.getTrackCount()];
+                    if (outputTracks == null) {
+                        outputTracks = new HashMap<>();
+                        int maxSampleSize = 0;
+                        for (int t = 0; t < trackMap.length; t++) {
+                            MediaFormat format = extractor.getTrackFormat(t);
+                            String kind = kindOf(format);
+                            if (kind != null && !outputTracks.containsKey(kind)) {
+                                outputTracks.put(kind, muxer.addTrack(format));
+                            }
+                            if (format.containsKey(MediaFormat.KEY_MAX_INPUT_SIZE)) {
+                                maxSampleSize = Math.max(maxSampleSize, format.getInteger(MediaFormat.KEY_MAX_INPUT_SIZE));
+                            }
+                        }
+                        buffer = ByteBuffer.allocateDirect(Math.max(maxSampleSize, DEFAULT_MAX_SAMPLE_SIZE));
+                        muxer.start();
+                    }
+                    for (int t = 0; t < trackMap.length; t++) {
+                        Integer track = outputTracks.get(kindOf(extractor.getTrackFormat(t)));
+                        trackMap[t] = track != null ? track : -1;
+                        if (track != null) {
+                            extractor.selectTrack(t);
+                        }
+                    }
+
+                    if (skipUs > 0) {
+                        extractor.seekTo(skipUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+                    }
+                    long firstUs = Math.max(0, extractor.getSampleTime());
+                    copySamples(extractor, trackMap, muxer, buffer, info, firstUs, baseUs);
+                    baseUs += durationsUs[i] - firstUs;
+                    skipUs = 0;
+                } finally {
+                    extractor.release();
+                }
+            }
+
+            muxer.stop();
+            finished = true;
+            return baseUs;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Could not stitch clip", e);
+        } finally {
+            muxer.release();
+            if (!finished) {
+                output.delete();
+            }
+        }
+    }
+
+    private static void copySamples(MediaExtractor extractor, int[] trackMap, MediaMuxer muxer, ByteBuffer buffer,
+                                    MediaCodec.BufferInfo info, long firstUs, long baseUs) {
+        while (true) {
+            int size = extractor.readSampleData(buffer, 0);
+            if (size < 0) {
+                break;
+            }
+            int track = trackMap[extractor.getSampleTrackIndex()];
+            long timeUs = extractor.getSampleTime();
+            // After a seek, audio may start a little before the video key frame
+            if (track >= 0 && timeUs >= firstUs) {
+                int flags = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                        ? MediaCodec.BUFFER_FLAG_KEY_FRAME : 0;
+                info.set(0, size, baseUs + timeUs - firstUs, flags);
+                muxer.writeSampleData(track, buffer, info);
+            }
+            extractor.advance();
+        }
+    }
+
+    private static String kindOf(MediaFormat format) {
+        String mime = format.getString(MediaFormat.KEY_MIME);
+        if (mime == null) {
+            return null;
+        }
+        if (mime.startsWith("video/")) {
+            return "video";
+        }
+        return mime.startsWith("audio/") ? "audio" : null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.screenrecorderapp;
+
+import android.content.Context;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+import android.util.Log;
+import android.util.Range;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Probes MediaCodecList for the video encoders' limits at a ladder of sizes
+ * derived from the screen, and caches the result on disk. Walking the codec
+ * list is slow, so later launches on the same build and screen read the cache.
+ */
+public class CodecCapabilityProbe {
+    private static final String TAG = "CodecCapabilityProbe";
+    private static final String CACHE_FILE = "encoder_capabilities.json";
+    private static final String AVC = "video/avc";
+    private static final double[] SCALES = {1.0, 0.75, 2.0 / 3.0, 0.5, 1.0 / 3.0, 0.25};
+
+    private final Context context;
+    private final Gson gson = new Gson();
+
+    public CodecCapabilityProbe(Context context) {
+        this.context = context;
+    }
+
+    public EncoderCapabilities load(int screenWidth, int screenHeight) {
+        String cacheKey = Build.FINGERPRINT + "|" + screenWidth + "x" + screenHeight;
+        File cacheFile = new File(context.getFilesDir(), CACHE_FILE);
+
+        EncoderCapabilities cached = readCache(cacheFile);
+        if (cached != null && cacheKey.equals(cached.cacheKey)) {
+            return cached;
+        }
+
+        long startNanos = System.nanoTime();
+        EncoderCapabilities capabilities = probe(screenWidth, screenHeight);
+        capabilities.cacheKey = cacheKey;
+        Log.d(TAG, "Probed " + capabilities.encoders.size() + " encoders in "
+                + (System.nanoTime() - startNanos) / 1000000 + " ms");
+
+        writeCache(cacheFile, capabilities);
+        return capabilities;
+    }
+
+    private EncoderCapabilities probe(int screenWidth, int screenHeight) {
+        EncoderCapabilities capabilities = new EncoderCapabilities();
+        MediaCodecInfo[] codecs = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+
+        for (MediaCodecInfo info : codecs) {
+            if (!info.isEncoder() || !supportsAvc(info)) {
+                continue;
+            }
+            try {
+                MediaCodecInfo.CodecCapabilities codecCaps = info.getCapabilitiesForType(AVC);
+                MediaCodecInfo.VideoCapabilities video = codecCaps.getVideoCapabilities();
+                MediaCodecInfo.EncoderCapabilities encoderCaps = codecCaps.getEncoderCapabilities();
+                if (video == null || encoderCaps == null) {
+                    continue;
+                }
+
+                EncoderCapabilities.Encoder encoder = new EncoderCapabilities.Encoder();
+                encoder.name = info.getName();
+                encoder.mimeType = AVC;
+                encoder.hardwareAccelerated = isHardwareAccelerated(info);
+                Range<Integer> bitrates = video.getBitrateRange();
+                encoder.minBitRate = bitrates.getLower();
+                encoder.maxBitRate = bitrates.getUpper();
+                encoder.supportsVbr = encoderCaps.isBitrateModeSupported(
+                        MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR);
+                encoder.supportsCbr = encoderCaps.isBitrateModeSupported(
+                        MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR);
+
+                int widthAlignment = Math.max(2, video.getWidthAlignment());
+                int heightAlignment = Math.max(2, video.getHeightAlignment());
+                for (double scale : SCALES) {
+                    int width = align((int) (screenWidth * scale), widthAlignment);
+                    int height = align((int) (screenHeight * scale), heightAlignment);
+                    if (width <= 0 || height <= 0 || !video.isSizeSupported(width, height)) {
+                        continue;
+                    }
+                    Range<Double> rates = video.getSupportedFrameRatesFor(width, height);
+                    encoder.sizes.add(new EncoderCapabilities.SizeSupport(width, height,
+                            (int) Math.floor(rates.getUpper())));
+                }
+                capabilities.encoders.add(encoder);
+            } catch (IllegalArgumentException e) {
+                // Some vendor codecs advertise AVC but throw on capability queries
+                Log.w(TAG, "Skipping " + info.getName(), e);
+            }
+        }
+        return capabilities;
+    }
+
+    private static boolean supportsAvc(MediaCodecInfo info) {
+        for (String type : info.getSupportedTypes()) {
+            if (AVC.equalsIgnoreCase(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHardwareAccelerated(MediaCodecInfo info) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return info.isHardwareAccelerated();
+        }
+        // Before Q the platform's own software codecs can only be told apart by name
+        String name = info.getName().toLowerCase(Locale.US);
+        return !name.startsWith("omx.google.") && !name.startsWith("c2.android.");
+    }
+
+    private static int align(int value, int alignment) {
+        return value / alignment * alignment;
+    }
+
+    private EncoderCapabilities readCache(File cacheFile) {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, EncoderCapabilities.class);
+        } catch (IOException | JsonParseException e) {
+            Log.w(TAG, "Ignoring unreadable capability cache", e);
+            return null;
+        }
+    }
+
+    private void writeCache(File cacheFile, EncoderCapabilities capabilities) {
+        File tmp = new File(cacheFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(capabilities, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write capability cache", e);
+            return;
+        }
+        if (!tmp.renameTo(cacheFile)) {
+            tmp.delete();
+        }
+    }
+}
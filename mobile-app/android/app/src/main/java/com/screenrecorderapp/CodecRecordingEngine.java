@@ -0,0 +1,684 @@
+package com.screenrecorderapp;
+
+import android.graphics.PixelFormat;
+import android.hardware.HardwareBuffer;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioPlaybackCaptureConfiguration;
+import android.media.AudioRecord;
+import android.media.Image;
+import android.media.ImageReader;
+import android.media.ImageWriter;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.media.MediaRecorder;
+import android.media.projection.MediaProjection;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+import android.view.Surface;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records through MediaCodec and MediaMuxer. The H.264 encoder's input surface
+ * feeds the VirtualDisplay, and encoded samples are drained on dedicated threads
+ * so listeners see every sample as it is written.
+ *
+ * Audio is captured from the microphone and, when given a projection on
+ * Android 10 and up, from other apps' playback. Each capture thread only
+ * copies what it reads into its own {@link PcmRingBuffer}; a mixing thread
+ * combines them at 48 kHz stereo, paced by the microphone's clock, and feeds
+ * the AAC encoder. None of these threads allocates or locks once running.
+ *
+ * With {@link RecordingConfig#skipStaticFrames} on Android 10 and up, the
+ * VirtualDisplay renders into an ImageReader instead. Each frame is compared
+ * with the last through a {@link StaticFrameFilter}, and only frames that
+ * changed are handed to the encoder's surface, without a copy, through an
+ * ImageWriter. Timestamps carry over, so the result is variable frame rate.
+ * Should the encoder keep refusing those frames, filtering stops and the
+ * VirtualDisplay is moved onto the encoder's surface, through the
+ * {@link RecordingEngine.InputSurfaceListener}.
+ */
+public class CodecRecordingEngine implements RecordingEngine {
+    private static final String TAG = "CodecRecordingEngine";
+    private static final String VIDEO_MIME = MediaFormat.MIMETYPE_VIDEO_AVC;
+    private static final String AUDIO_MIME = MediaFormat.MIMETYPE_AUDIO_AAC;
+    private static final int MIC_SAMPLE_RATE = 44100;
+    private static final int PLAYBACK_SAMPLE_RATE = 48000;
+    private static final int AUDIO_SAMPLE_RATE = 48000;
+    private static final int AUDIO_CHANNELS = 2;
+    private static final int AUDIO_BIT_RATE = 128000;
+    // One AAC frame per input buffer
+    private static final int MIX_BLOCK_FRAMES = 1024;
+    // Enough for the bursts capture arrives in, without adding audible delay
+    private static final int MIX_TARGET_LATENCY_MS = 40;
+    private static final int MIX_MAX_LATENCY_MS = 200;
+    private static final int RING_MS = 500;
+    private static final long MIX_POLL_NANOS = 5000000;
+    private static final long INPUT_TIMEOUT_US = 10000;
+    private static final long STOP_TIMEOUT_MS = 3000;
+    // 32 px tiles sampled every 4 px: 64 pixels hashed per tile
+    private static final int FRAME_TILE_SIZE = 32;
+    private static final int FRAME_SAMPLE_STEP = 4;
+    // A key frame per interval on a static screen, matching the one-second key frame interval
+    private static final long MAX_STATIC_MS = 1000;
+    private static final int FRAME_BUFFERS = 4;
+    // Refused this many times in a row, frames go to the encoder unfiltered for the rest of the recording
+    private static final int MAX_REFUSED_FRAMES = 10;
+
+    private MediaCodec videoEncoder;
+    private MediaCodec audioEncoder;
+    private AudioRecord micRecord;
+    private AudioRecord playbackRecord;
+    private PcmRingBuffer micRing;
+    private PcmRingBuffer playbackRing;
+    private PcmMixer mixer;
+    private PcmMixer.Source micSource;
+    private PcmMixer.Source playbackSource;
+    private MediaProjection playbackProjection;
+    private Surface inputSurface;
+    private ImageReader frameReader;
+    private ImageWriter frameWriter;
+    private StaticFrameFilter frameFilter;
+    private HandlerThread frameThread;
+    private int refusedFrames;
+    private volatile boolean frameFilterBypassed;
+    private InputSurfaceListener inputSurfaceListener;
+    private LatencyHistogram frameDiffHistogram;
+    private SampleMuxer<MediaFormat> muxer;
+    private SampleDrainer<MediaFormat> videoDrainer;
+    private SampleDrainer<MediaFormat> audioDrainer;
+    private Thread videoThread;
+    private Thread audioThread;
+    private Thread micThread;
+    private Thread playbackThread;
+    private Thread mixThread;
+    private SampleDrainer.Listener sampleListener;
+    private SegmentListener segmentListener;
+    private RecordingConfig config;
+    private MetricsRegistry metrics;
+    private volatile boolean audioRunning;
+
+    @Override
+    public void prepare(RecordingConfig config) throws IOException {
+        this.config = config;
+
+        // AVC encoders reject odd dimensions
+        int width = config.width & ~1;
+        int height = config.height & ~1;
+
+        MediaFormat videoFormat = MediaFormat.createVideoFormat(VIDEO_MIME, width, height);
+        videoFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        videoFormat.setInteger(MediaFormat.KEY_BIT_RATE, config.bitRate);
+        videoFormat.setInteger(MediaFormat.KEY_FRAME_RATE, config.frameRate);
+        videoFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, config.keyFrameIntervalSec);
+        if (config.bitrateMode != EncoderProfile.BITRATE_MODE_DEFAULT) {
+            videoFormat.setInteger(MediaFormat.KEY_BITRATE_MODE, config.bitrateMode);
+        }
+
+        try {
+            videoEncoder = config.encoderName != null
+                    ? MediaCodec.createByCodecName(config.encoderName)
+                    : MediaCodec.createEncoderByType(VIDEO_MIME);
+            videoEncoder.configure(videoFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            inputSurface = videoEncoder.createInputSurface();
+            if (config.skipStaticFrames) {
+                prepareFrameFilter(width, height);
+            }
+
+            if (config.recordAudio) {
+                prepareAudio();
+            }
+
+            int tracks = config.recordAudio ? 2 : 1;
+            if (config.isSegmented()) {
+                muxer = new SampleMuxer<>(this::createMuxerBackend, tracks,
+                        config.segmentDurationMs * 1000, config.segmentMaxBytes, this::onSegmentFinished);
+            } else {
+                muxer = new SampleMuxer<>(createMuxerBackend(0), tracks);
+            }
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+
+        videoDrainer = new SampleDrainer<>(new CodecOutput(videoEncoder), muxer, true);
+        videoDrainer.setListener(sampleListener);
+        if (audioEncoder != null) {
+            audioDrainer = new SampleDrainer<>(new CodecOutput(audioEncoder), muxer, false);
+            audioDrainer.setListener(sampleListener);
+        }
+        if (metrics != null) {
+            setMetrics(metrics);
+        }
+    }
+
+    private SampleMuxer.Backend<MediaFormat> createMuxerBackend(int segmentIndex) throws IOException {
+        MediaMuxer mediaMuxer = new MediaMuxer(config.segmentFile(segmentIndex).getAbsolutePath(),
+                MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        return new MediaMuxerBackend(mediaMuxer);
+    }
+
+    private void onSegmentFinished(int segmentIndex, boolean finalSegment, boolean playable) {
+        File segmentFile = config.segmentFile(segmentIndex);
+        if (!playable) {
+            Log.w(TAG, "Dropping empty segment " + segmentFile.getName());
+            segmentFile.delete();
+            return;
+        }
+        SegmentListener listener = segmentListener;
+        if (listener != null) {
+            listener.onSegmentFinished(segmentFile, segmentIndex, finalSegment);
+        }
+    }
+
+    private void prepareAudio() throws IOException {
+        MediaFormat audioFormat = MediaFormat.createAudioFormat(AUDIO_MIME, AUDIO_SAMPLE_RATE, AUDIO_CHANNELS);
+        audioFormat.setInteger(MediaFormat.KEY_AAC_PROFILE, MediaCodecInfo.CodecProfileLevel.AACObjectLC);
+        audioFormat.setInteger(MediaFormat.KEY_BIT_RATE, AUDIO_BIT_RATE);
+
+        audioEncoder = MediaCodec.createEncoderByType(AUDIO_MIME);
+        audioEncoder.configure(audioFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+
+        int minBuffer = AudioRecord.getMinBufferSize(MIC_SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        micRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, MIC_SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT, minBuffer * 4);
+        if (micRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+            throw new IOException("Microphone is not available");
+        }
+
+        micRing = new PcmRingBuffer(MIC_SAMPLE_RATE * RING_MS / 1000, 1);
+        mixer = new PcmMixer(AUDIO_SAMPLE_RATE, AUDIO_CHANNELS, MIX_BLOCK_FRAMES,
+                MIX_TARGET_LATENCY_MS, MIX_MAX_LATENCY_MS);
+        micSource = mixer.addSource(micRing, MIC_SAMPLE_RATE, 1f);
+    }
+
+    /**
+     * Sets up capture of other apps' audio, or leaves the recording on the
+     * microphone alone if this device or the projection cannot provide it.
+     */
+    private void preparePlaybackCapture() {
+        if (playbackProjection == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        AudioFormat format = new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(PLAYBACK_SAMPLE_RATE)
+                .setChannelMask(AudioFormat.CHANNEL_IN_STEREO)
+                .build();
+        int minBuffer = AudioRecord.getMinBufferSize(PLAYBACK_SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_STEREO, AudioFormat.ENCODING_PCM_16BIT);
+        try {
+            AudioPlaybackCaptureConfiguration capture =
+                    new AudioPlaybackCaptureConfiguration.Builder(playbackProjection)
+                            .addMatchingUsage(AudioAttributes.USAGE_MEDIA)
+                            .addMatchingUsage(AudioAttributes.USAGE_GAME)
+                            .addMatchingUsage(AudioAttributes.USAGE_UNKNOWN)
+                            .build();
+            playbackRecord = new AudioRecord.Builder()
+                    .setAudioFormat(format)
+                    .setBufferSizeInBytes(minBuffer * 4)
+                    .setAudioPlaybackCaptureConfig(capture)
+                    .build();
+        } catch (UnsupportedOperationException | IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "Playback capture unavailable, recording the microphone only", e);
+            return;
+        }
+        playbackRing = new PcmRingBuffer(PLAYBACK_SAMPLE_RATE * RING_MS / 1000, 2);
+        playbackSource = mixer.addSource(playbackRing, PLAYBACK_SAMPLE_RATE, 1f);
+    }
+
+    private void prepareFrameFilter(int width, int height) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            // Handing reader buffers straight to the encoder needs the usage flags and writer format of Android 10
+            return;
+        }
+        try {
+            frameReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, FRAME_BUFFERS,
+                    HardwareBuffer.USAGE_CPU_READ_OFTEN | HardwareBuffer.USAGE_VIDEO_ENCODE);
+            frameWriter = ImageWriter.newInstance(inputSurface, FRAME_BUFFERS, PixelFormat.RGBA_8888);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            Log.w(TAG, "Static frame skipping unavailable, encoding every frame", e);
+            releaseFrameFilter();
+            return;
+        }
+        frameFilter = new StaticFrameFilter(new TileDiff(width, height, FRAME_TILE_SIZE, FRAME_SAMPLE_STEP),
+                MAX_STATIC_MS);
+    }
+
+    @Override
+    public Surface getInputSurface() {
+        return frameReader != null && !frameFilterBypassed ? frameReader.getSurface() : inputSurface;
+    }
+
+    @Override
+    public void start() {
+        videoEncoder.start();
+        videoThread = new Thread(videoDrainer, "video-drain");
+        videoThread.start();
+        if (frameReader != null) {
+            frameThread = new HandlerThread("frame-filter", Process.THREAD_PRIORITY_DISPLAY);
+            frameThread.start();
+            frameReader.setOnImageAvailableListener(this::onFrameAvailable, new Handler(frameThread.getLooper()));
+        }
+
+        if (audioEncoder != null) {
+            // Needs the projection, which only exists once capture is granted, long after prepare()
+            preparePlaybackCapture();
+            audioEncoder.start();
+            audioRunning = true;
+            micRecord.startRecording();
+            micThread = startCapture(micRecord, micRing, "mic-capture");
+            if (playbackRecord != null) {
+                playbackRecord.startRecording();
+                playbackThread = startCapture(playbackRecord, playbackRing, "playback-capture");
+            }
+            mixThread = new Thread(this::mixAudio, "audio-mix");
+            mixThread.start();
+            audioThread = new Thread(audioDrainer, "audio-drain");
+            audioThread.start();
+        }
+    }
+
+    private void onFrameAvailable(ImageReader reader) {
+        Image image;
+        try {
+            // Frames that queued up behind a slow comparison are stale; only the newest matters
+            image = reader.acquireLatestImage();
+        } catch (IllegalStateException e) {
+            // Every buffer is still with the encoder; the next callback tries again
+            return;
+        }
+        if (image == null) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        Image.Plane plane = image.getPlanes()[0];
+        boolean changed = frameFilter.accept(plane.getBuffer(), plane.getRowStride(), image.getTimestamp());
+        if (frameDiffHistogram != null) {
+            frameDiffHistogram.record((System.nanoTime() - startNanos) / 1000);
+        }
+        if (!changed) {
+            image.close();
+            return;
+        }
+        try {
+            // Attaches the buffer to the encoder's surface as is; the writer closes the image
+            frameWriter.queueInputImage(image);
+            refusedFrames = 0;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            Log.w(TAG, "Frame not accepted by the encoder", e);
+            image.close();
+            if (++refusedFrames >= MAX_REFUSED_FRAMES) {
+                bypassFrameFilter();
+            }
+        }
+    }
+
+    /**
+     * Hands the encoder's surface back to the VirtualDisplay, so every frame
+     * is encoded again. Runs on the frame thread.
+     */
+    private void bypassFrameFilter() {
+        InputSurfaceListener listener = inputSurfaceListener;
+        if (listener == null) {
+            // Nobody to move the display; keep trying with the frames that come
+            return;
+        }
+        Log.w(TAG, "Encoder refused " + refusedFrames + " frames in a row, encoding every frame from now on");
+        frameFilterBypassed = true;
+        frameReader.setOnImageAvailableListener(null, null);
+        // A surface takes one producer at a time; the display can only connect once the writer is gone
+        frameWriter.close();
+        frameWriter = null;
+        if (metrics != null) {
+            metrics.counter("video.frame_filter_bypassed").increment();
+        }
+        listener.onInputSurfaceChanged(inputSurface);
+    }
+
+    private Thread startCapture(AudioRecord record, PcmRingBuffer ring, String name) {
+        Thread thread = new Thread(() -> capture(record, ring), name);
+        thread.start();
+        return thread;
+    }
+
+    private void capture(AudioRecord record, PcmRingBuffer ring) {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        MetricsRegistry.Counter readErrors = metrics != null ? metrics.counter("audio.read_errors") : null;
+        int channels = ring.getChannels();
+        // About 20 ms per read, the size capture is usually delivered in
+        short[] scratch = new short[record.getSampleRate() / 50 * channels];
+
+        while (audioRunning) {
+            // Blocks until audio arrives; stop() unblocks it by stopping the record
+            int read = record.read(scratch, 0, scratch.length);
+            if (read < 0) {
+                if (readErrors != null) {
+                    readErrors.increment();
+                }
+                LockSupport.parkNanos(MIX_POLL_NANOS);
+                continue;
+            }
+            ring.write(scratch, 0, read / channels);
+        }
+    }
+
+    private void mixAudio() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        // Audio timestamps share the VirtualDisplay's monotonic clock so both tracks line up
+        long startUs = System.nanoTime() / 1000;
+        long framesMixed = 0;
+        short[] block = new short[MIX_BLOCK_FRAMES * AUDIO_CHANNELS];
+        LatencyHistogram micBuffered = metrics != null ? metrics.histogram("audio.mic.buffered_us") : null;
+        LatencyHistogram playbackBuffered = metrics != null && playbackSource != null
+                ? metrics.histogram("audio.playback.buffered_us") : null;
+
+        while (audioRunning) {
+            if (mixer.mixableFrames() < MIX_BLOCK_FRAMES) {
+                // The microphone delivers every 20 ms or so; no point spinning in between
+                LockSupport.parkNanos(MIX_POLL_NANOS);
+                continue;
+            }
+            int index = audioEncoder.dequeueInputBuffer(INPUT_TIMEOUT_US);
+            if (index < 0) {
+                continue;
+            }
+            ByteBuffer input = audioEncoder.getInputBuffer(index);
+            input.clear();
+            input.order(ByteOrder.nativeOrder());
+            int frames = Math.min(mixer.mixableFrames(), input.capacity() / (2 * AUDIO_CHANNELS));
+            if (micBuffered != null) {
+                micBuffered.record(micSource.getBufferedMicros());
+            }
+            if (playbackBuffered != null) {
+                playbackBuffered.record(playbackSource.getBufferedMicros());
+            }
+            mixer.mix(block, frames);
+            int samples = frames * AUDIO_CHANNELS;
+            for (int i = 0; i < samples; i++) {
+                input.putShort(block[i]);
+            }
+            long presentationTimeUs = startUs + framesMixed * 1000000L / AUDIO_SAMPLE_RATE;
+            audioEncoder.queueInputBuffer(index, 0, samples * 2, presentationTimeUs, 0);
+            framesMixed += frames;
+        }
+
+        long endUs = startUs + framesMixed * 1000000L / AUDIO_SAMPLE_RATE;
+        int index = audioEncoder.dequeueInputBuffer(STOP_TIMEOUT_MS * 1000);
+        if (index >= 0) {
+            audioEncoder.queueInputBuffer(index, 0, 0, endUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+        }
+    }
+
+    @Override
+    public boolean stop() {
+        if (videoThread == null) {
+            return false;
+        }
+
+        // No frame may reach the encoder after its end of stream
+        stopFrameFilter();
+        videoEncoder.signalEndOfInputStream();
+        audioRunning = false;
+        // Unblocks the capture threads' reads
+        stopRecord(micRecord);
+        stopRecord(playbackRecord);
+
+        // The drain threads exit on their own once the end-of-stream sample comes through
+        join(micThread);
+        join(playbackThread);
+        join(mixThread);
+        join(videoThread, videoDrainer);
+        join(audioThread, audioDrainer);
+        videoThread = null;
+
+        boolean finalized = muxer.stop();
+        if (metrics != null) {
+            metrics.gauge("muxer.samples_written").set(muxer.getSamplesWritten());
+            metrics.gauge("muxer.bytes_written").set(muxer.getBytesWritten());
+            metrics.gauge("muxer.samples_dropped").set(muxer.getSamplesDropped());
+            metrics.gauge("muxer.segments").set(muxer.getSegmentIndex() + 1);
+            if (frameFilter != null) {
+                metrics.gauge("video.frames_captured").set(frameFilter.getFramesSeen());
+                metrics.gauge("video.frames_skipped").set(frameFilter.getFramesSkipped());
+            }
+            recordAudioMetrics();
+        }
+        Log.d(TAG, "Recording finalized: " + finalized + " (" + muxer.getSamplesWritten() + " samples, "
+                + muxer.getBytesWritten() + " bytes)");
+        return finalized;
+    }
+
+    private void stopFrameFilter() {
+        if (frameThread == null) {
+            return;
+        }
+        frameReader.setOnImageAvailableListener(null, null);
+        frameThread.quitSafely();
+        join(frameThread);
+        frameThread = null;
+    }
+
+    private void releaseFrameFilter() {
+        stopFrameFilter();
+        if (frameWriter != null) {
+            frameWriter.close();
+            frameWriter = null;
+        }
+        if (frameReader != null) {
+            frameReader.close();
+            frameReader = null;
+        }
+    }
+
+    private void recordAudioMetrics() {
+        if (micRing == null) {
+            return;
+        }
+        metrics.gauge("audio.mic.dropped_frames").set(micRing.getDroppedFrames());
+        if (playbackSource != null) {
+            metrics.gauge("audio.playback.drift_ppm").set(Math.round(playbackSource.getDriftPpm()));
+            metrics.gauge("audio.playback.dropped_frames").set(playbackRing.getDroppedFrames());
+            metrics.gauge("audio.playback.underrun_frames").set(playbackSource.getUnderrunFrames());
+            metrics.gauge("audio.playback.skipped_frames").set(playbackSource.getSkippedFrames());
+        }
+    }
+
+    private static void stopRecord(AudioRecord record) {
+        if (record == null || record.getRecordingState() != AudioRecord.RECORDSTATE_RECORDING) {
+            return;
+        }
+        try {
+            record.stop();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Audio capture did not stop cleanly", e);
+        }
+    }
+
+    private static void join(Thread thread) {
+        join(thread, null);
+    }
+
+    private static void join(Thread thread, SampleDrainer<?> drainer) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(STOP_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive() && drainer != null) {
+            Log.w(TAG, thread.getName() + " did not reach end of stream in time");
+            drainer.cancel();
+        }
+    }
+
+    @Override
+    public void release() {
+        if (muxer != null) {
+            muxer.stop();
+            muxer = null;
+        }
+        if (videoEncoder != null) {
+            videoEncoder.release();
+            videoEncoder = null;
+        }
+        if (audioEncoder != null) {
+            audioEncoder.release();
+            audioEncoder = null;
+        }
+        if (micRecord != null) {
+            micRecord.release();
+            micRecord = null;
+        }
+        if (playbackRecord != null) {
+            playbackRecord.release();
+            playbackRecord = null;
+        }
+        releaseFrameFilter();
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+    }
+
+    @Override
+    public void setSampleListener(SampleDrainer.Listener listener) {
+        sampleListener = listener;
+        if (videoDrainer != null) {
+            videoDrainer.setListener(listener);
+        }
+        if (audioDrainer != null) {
+            audioDrainer.setListener(listener);
+        }
+    }
+
+    @Override
+    public void setSegmentListener(SegmentListener listener) {
+        segmentListener = listener;
+    }
+
+    @Override
+    public void setInputSurfaceListener(InputSurfaceListener listener) {
+        inputSurfaceListener = listener;
+    }
+
+    @Override
+    public boolean requestSegmentBreak() {
+        if (muxer == null || videoThread == null || !config.isSegmented()) {
+            return false;
+        }
+        muxer.requestRoll();
+        if (frameFilter != null) {
+            frameFilter.forceNext();
+        }
+        // Segments roll on key frames, so ask for one now instead of waiting out the interval
+        Bundle parameters = new Bundle();
+        parameters.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+        videoEncoder.setParameters(parameters);
+        return true;
+    }
+
+    @Override
+    public void setPlaybackCapture(MediaProjection projection) {
+        playbackProjection = projection;
+    }
+
+    @Override
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        if (videoDrainer != null) {
+            // Skipped static frames are deliberate, not gaps
+            videoDrainer.setMetrics(metrics, "video",
+                    frameFilter != null ? 0 : 1000000L / Math.max(1, config.frameRate));
+        }
+        if (frameFilter != null) {
+            frameDiffHistogram = metrics.histogram("video.frame_diff_us");
+        }
+        if (audioDrainer != null) {
+            audioDrainer.setMetrics(metrics, "audio", 0);
+        }
+    }
+
+    private static class CodecOutput implements EncoderOutput<MediaFormat> {
+        private final MediaCodec codec;
+        private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        CodecOutput(MediaCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public int dequeueOutput(EncodedSample sample, long timeoutUs) {
+            int index = codec.dequeueOutputBuffer(info, timeoutUs);
+            if (index >= 0) {
+                sample.set(info.offset, info.size, info.presentationTimeUs, info.flags);
+            }
+            return index;
+        }
+
+        @Override
+        public ByteBuffer getOutputBuffer(int index) {
+            return codec.getOutputBuffer(index);
+        }
+
+        @Override
+        public MediaFormat getOutputFormat() {
+            return codec.getOutputFormat();
+        }
+
+        @Override
+        public void releaseOutput(int index) {
+            codec.releaseOutputBuffer(index, false);
+        }
+    }
+
+    private static class MediaMuxerBackend implements SampleMuxer.Backend<MediaFormat> {
+        private final MediaMuxer mediaMuxer;
+        // SampleMuxer serializes every call, so one BufferInfo serves all tracks
+        private final MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+
+        MediaMuxerBackend(MediaMuxer mediaMuxer) {
+            this.mediaMuxer = mediaMuxer;
+        }
+
+        @Override
+        public int addTrack(MediaFormat format) {
+            return mediaMuxer.addTrack(format);
+        }
+
+        @Override
+        public void start() {
+            mediaMuxer.start();
+        }
+
+        @Override
+        public void writeSampleData(int trackIndex, ByteBuffer data, EncodedSample sample) {
+            info.set(sample.offset, sample.size, sample.presentationTimeUs, sample.flags);
+            mediaMuxer.writeSampleData(trackIndex, data, info);
+        }
+
+        @Override
+        public void stop() {
+            mediaMuxer.stop();
+        }
+
+        @Override
+        public void release() {
+            mediaMuxer.release();
+        }
+    }
+}
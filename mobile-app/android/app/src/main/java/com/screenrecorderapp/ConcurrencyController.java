@@ -0,0 +1,146 @@
+package com.screenrecorderapp;
+
+/**
+ * Picks how many uploads run in parallel, AIMD style.
+ *
+ * Time is cut into windows. At the end of each window the controller looks at
+ * the bytes sent and the transfers that failed in it:
+ * <ul>
+ * <li>too many failures: halve the concurrency (multiplicative decrease)</li>
+ * <li>every slot was busy: add one (additive increase)</li>
+ * <li>the last step up did not raise throughput by at least
+ * {@link #MIN_GAIN}: go back down and hold there for a few windows, since the
+ * link, not the number of transfers, is the limit</li>
+ * </ul>
+ * Windows with free slots say nothing about whether more parallelism helps,
+ * so they never cause an increase.
+ *
+ * All times are passed in, so the controller can be driven by a simulated clock.
+ */
+public class ConcurrencyController {
+    public static final long WINDOW_MS = 10000;
+    private static final double MIN_GAIN = 1.1;
+    private static final double MAX_FAILURE_RATE = 0.2;
+    private static final int HOLD_WINDOWS = 6;
+
+    public interface Sink {
+        void setConcurrency(int concurrency);
+    }
+
+    private final int minConcurrency;
+    private final Sink sink;
+    private final int maxConcurrency;
+    private int ceiling;
+    private int concurrency;
+
+    private long windowStartMs = -1;
+    private long windowBytes;
+    private int windowSucceeded;
+    private int windowFailed;
+    private int active;
+    private int windowPeakActive;
+
+    // Throughput measured just before the last increase, to judge whether it helped
+    private double throughputBeforeIncrease = -1;
+    private int holdWindows;
+
+    public ConcurrencyController(int minConcurrency, int maxConcurrency, int initialConcurrency, Sink sink) {
+        this.minConcurrency = Math.max(1, minConcurrency);
+        this.maxConcurrency = Math.max(this.minConcurrency, maxConcurrency);
+        this.ceiling = this.maxConcurrency;
+        this.concurrency = clamp(initialConcurrency);
+        this.sink = sink;
+    }
+
+    /**
+     * Caps the concurrency below the configured maximum, e.g. to a single
+     * transfer on a metered link. {@code 0} lifts the cap again.
+     */
+    public synchronized void setCeiling(int ceiling) {
+        this.ceiling = ceiling > 0 ? Math.max(minConcurrency, Math.min(ceiling, maxConcurrency)) : maxConcurrency;
+        if (concurrency > this.ceiling) {
+            apply(this.ceiling);
+        }
+        throughputBeforeIncrease = -1;
+    }
+
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    public synchronized void onTransferStarted(long nowMs) {
+        roll(nowMs);
+        active++;
+        windowPeakActive = Math.max(windowPeakActive, active);
+    }
+
+    public synchronized void onBytesSent(long bytes, long nowMs) {
+        roll(nowMs);
+        windowBytes += bytes;
+    }
+
+    public synchronized void onTransferFinished(boolean succeeded, long nowMs) {
+        roll(nowMs);
+        active = Math.max(0, active - 1);
+        if (succeeded) {
+            windowSucceeded++;
+        } else {
+            windowFailed++;
+        }
+    }
+
+    /**
+     * Closes the window if it has run its course. Every event calls this; a
+     * stalled link still produces events, as its transfers time out.
+     */
+    public synchronized void roll(long nowMs) {
+        if (windowStartMs < 0) {
+            windowStartMs = nowMs;
+            return;
+        }
+        long elapsed = nowMs - windowStartMs;
+        if (elapsed < WINDOW_MS) {
+            return;
+        }
+
+        double throughput = windowBytes * 1000.0 / elapsed;
+        int finished = windowSucceeded + windowFailed;
+        boolean saturated = windowPeakActive >= concurrency;
+
+        if (windowFailed > 0 && windowFailed >= finished * MAX_FAILURE_RATE) {
+            throughputBeforeIncrease = -1;
+            holdWindows = HOLD_WINDOWS;
+            apply(concurrency / 2);
+        } else if (throughputBeforeIncrease >= 0) {
+            // The window right after an increase decides whether it stays
+            if (throughput < throughputBeforeIncrease * MIN_GAIN) {
+                holdWindows = HOLD_WINDOWS;
+                apply(concurrency - 1);
+            }
+            throughputBeforeIncrease = -1;
+        } else if (holdWindows > 0) {
+            holdWindows--;
+        } else if (saturated && windowBytes > 0 && concurrency < ceiling) {
+            throughputBeforeIncrease = throughput;
+            apply(concurrency + 1);
+        }
+
+        windowStartMs = nowMs;
+        windowBytes = 0;
+        windowSucceeded = 0;
+        windowFailed = 0;
+        windowPeakActive = active;
+    }
+
+    private void apply(int next) {
+        next = clamp(next);
+        if (next != concurrency) {
+            concurrency = next;
+            sink.setConcurrency(next);
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(minConcurrency, Math.min(value, ceiling));
+    }
+}
@@ -0,0 +1,51 @@
+package com.screenrecorderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of a file in one pass over memory-mapped windows, so the digest
+ * reads straight from the page cache without copying the file through heap
+ * buffers.
+ */
+public class ContentHash {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public static String sha256(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, size - position));
+                digest.update(window);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
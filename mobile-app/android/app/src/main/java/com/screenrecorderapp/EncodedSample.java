@@ -0,0 +1,37 @@
+package com.screenrecorderapp;
+
+/**
+ * Metadata for one encoded access unit. Instances are reused for every sample a
+ * drainer sees, so listeners must copy anything they want to keep.
+ */
+public class EncodedSample {
+    // Same bit values as MediaCodec.BUFFER_FLAG_*
+    public static final int FLAG_KEY_FRAME = 1;
+    public static final int FLAG_CODEC_CONFIG = 2;
+    public static final int FLAG_END_OF_STREAM = 4;
+
+    public int trackIndex = -1;
+    public int offset;
+    public int size;
+    public long presentationTimeUs;
+    public int flags;
+
+    public void set(int offset, int size, long presentationTimeUs, int flags) {
+        this.offset = offset;
+        this.size = size;
+        this.presentationTimeUs = presentationTimeUs;
+        this.flags = flags;
+    }
+
+    public boolean isKeyFrame() {
+        return (flags & FLAG_KEY_FRAME) != 0;
+    }
+
+    public boolean isCodecConfig() {
+        return (flags & FLAG_CODEC_CONFIG) != 0;
+    }
+
+    public boolean isEndOfStream() {
+        return (flags & FLAG_END_OF_STREAM) != 0;
+    }
+}
@@ -0,0 +1,41 @@
+package com.screenrecorderapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the device's video encoders can do at the sizes we would record at.
+ * Plain data so it can be cached as JSON and fed to {@link EncoderProfilePlanner}
+ * without touching MediaCodecList.
+ */
+public class EncoderCapabilities {
+    // Build fingerprint plus screen size; a mismatch means the cache is stale
+    public String cacheKey;
+    public List<Encoder> encoders = new ArrayList<>();
+
+    public static class Encoder {
+        public String name;
+        public String mimeType;
+        public boolean hardwareAccelerated;
+        public int minBitRate;
+        public int maxBitRate;
+        public boolean supportsVbr;
+        public boolean supportsCbr;
+        public List<SizeSupport> sizes = new ArrayList<>();
+    }
+
+    public static class SizeSupport {
+        public int width;
+        public int height;
+        public int maxFrameRate;
+
+        public SizeSupport() {
+        }
+
+        public SizeSupport(int width, int height, int maxFrameRate) {
+            this.width = width;
+            this.height = height;
+            this.maxFrameRate = maxFrameRate;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.screenrecorderapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The output side of an encoder, shaped after MediaCodec so the drain loop can
+ * run against a real codec on a device or against synthetic samples on the JVM.
+ *
+ * @param <F> the encoder's format type (MediaFormat on Android)
+ */
+public interface EncoderOutput<F> {
+    // Same values as MediaCodec.INFO_*
+    int INFO_TRY_AGAIN_LATER = -1;
+    int INFO_OUTPUT_FORMAT_CHANGED = -2;
+    int INFO_OUTPUT_BUFFERS_CHANGED = -3;
+
+    /**
+     * Returns a buffer index and fills {@code sample}, or one of the INFO_ codes.
+     */
+    int dequeueOutput(EncodedSample sample, long timeoutUs);
+
+    ByteBuffer getOutputBuffer(int index);
+
+    F getOutputFormat();
+
+    void releaseOutput(int index);
+}
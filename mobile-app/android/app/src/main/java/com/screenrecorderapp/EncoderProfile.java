@@ -0,0 +1,33 @@
+package com.screenrecorderapp;
+
+/**
+ * The encoder settings {@link EncoderProfilePlanner} settled on.
+ */
+public class EncoderProfile {
+    public static final int BITRATE_MODE_DEFAULT = -1;
+    // Same values as MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_*
+    public static final int BITRATE_MODE_VBR = 1;
+    public static final int BITRATE_MODE_CBR = 2;
+
+    public final String encoderName;
+    public final int width;
+    public final int height;
+    public final int frameRate;
+    public final int bitRate;
+    public final int bitrateMode;
+
+    public EncoderProfile(String encoderName, int width, int height, int frameRate, int bitRate, int bitrateMode) {
+        this.encoderName = encoderName;
+        this.width = width;
+        this.height = height;
+        this.frameRate = frameRate;
+        this.bitRate = bitRate;
+        this.bitrateMode = bitrateMode;
+    }
+
+    @Override
+    public String toString() {
+        return (encoderName != null ? encoderName : "default encoder") + " " + width + "x" + height
+                + " @" + frameRate + "fps " + bitRate + "bps";
+    }
+}
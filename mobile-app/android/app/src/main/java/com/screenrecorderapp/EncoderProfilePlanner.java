@@ -0,0 +1,105 @@
+package com.screenrecorderapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Picks resolution, frame rate and bitrate from probed encoder capabilities and
+ * a quality/size budget. Pure Java, so the decisions can be checked against
+ * capability snapshots recorded on real devices.
+ */
+public class EncoderProfilePlanner {
+    private static final String AVC = "video/avc";
+
+    public static class Target {
+        public final int preferredFrameRate;
+        public final int minFrameRate;
+        public final int maxBitRate;
+        // Screen content compresses well; ~0.1 bits per pixel per frame looks clean for UI
+        public final double bitsPerPixel;
+
+        public Target(int preferredFrameRate, int minFrameRate, int maxBitRate, double bitsPerPixel) {
+            this.preferredFrameRate = preferredFrameRate;
+            this.minFrameRate = minFrameRate;
+            this.maxBitRate = maxBitRate;
+            this.bitsPerPixel = bitsPerPixel;
+        }
+
+        public static Target standard() {
+            return new Target(30, 15, 6000000, 0.1);
+        }
+    }
+
+    public EncoderProfile plan(EncoderCapabilities capabilities, int screenWidth, int screenHeight, Target target) {
+        List<EncoderCapabilities.Encoder> candidates = new ArrayList<>();
+        if (capabilities != null) {
+            for (EncoderCapabilities.Encoder encoder : capabilities.encoders) {
+                if (AVC.equalsIgnoreCase(encoder.mimeType) && !encoder.sizes.isEmpty()) {
+                    candidates.add(encoder);
+                }
+            }
+        }
+        // Hardware encoders first; the sort is stable, so MediaCodecList order breaks ties
+        Collections.sort(candidates, (a, b) -> Boolean.compare(b.hardwareAccelerated, a.hardwareAccelerated));
+
+        for (EncoderCapabilities.Encoder encoder : candidates) {
+            EncoderProfile profile = planFor(encoder, target);
+            if (profile != null) {
+                return profile;
+            }
+        }
+
+        // Nothing was probed; ask for the screen size and let the engine fall back if it must
+        int bitRate = (int) Math.min(target.maxBitRate,
+                (long) (screenWidth * (long) screenHeight * target.preferredFrameRate * target.bitsPerPixel));
+        return new EncoderProfile(null, screenWidth & ~1, screenHeight & ~1, target.preferredFrameRate,
+                bitRate, EncoderProfile.BITRATE_MODE_DEFAULT);
+    }
+
+    private EncoderProfile planFor(EncoderCapabilities.Encoder encoder, Target target) {
+        List<EncoderCapabilities.SizeSupport> sizes = new ArrayList<>(encoder.sizes);
+        Collections.sort(sizes, (a, b) -> Long.compare((long) b.width * b.height, (long) a.width * a.height));
+
+        EncoderCapabilities.SizeSupport smallestUsable = null;
+        for (EncoderCapabilities.SizeSupport size : sizes) {
+            int frameRate = Math.min(target.preferredFrameRate, size.maxFrameRate);
+            if (frameRate < target.minFrameRate) {
+                continue;
+            }
+            smallestUsable = size;
+
+            // Largest size whose natural bitrate fits the budget wins
+            long naturalBitRate = naturalBitRate(size, frameRate, target);
+            if (naturalBitRate <= target.maxBitRate) {
+                return profile(encoder, size, frameRate, naturalBitRate);
+            }
+        }
+
+        if (smallestUsable == null) {
+            return null;
+        }
+        // Even the smallest size wants more than the budget; cap it and accept softer output
+        int frameRate = Math.min(target.preferredFrameRate, smallestUsable.maxFrameRate);
+        return profile(encoder, smallestUsable, frameRate, target.maxBitRate);
+    }
+
+    private static long naturalBitRate(EncoderCapabilities.SizeSupport size, int frameRate, Target target) {
+        return (long) ((long) size.width * size.height * frameRate * target.bitsPerPixel);
+    }
+
+    private static EncoderProfile profile(EncoderCapabilities.Encoder encoder, EncoderCapabilities.SizeSupport size,
+                                          int frameRate, long bitRate) {
+        long clamped = bitRate;
+        if (encoder.maxBitRate > 0) {
+            clamped = Math.min(clamped, encoder.maxBitRate);
+        }
+        clamped = Math.max(clamped, encoder.minBitRate);
+
+        // Mostly-static screens waste bits at a constant rate, so VBR is preferred
+        int mode = encoder.supportsVbr ? EncoderProfile.BITRATE_MODE_VBR
+                : encoder.supportsCbr ? EncoderProfile.BITRATE_MODE_CBR
+                : EncoderProfile.BITRATE_MODE_DEFAULT;
+        return new EncoderProfile(encoder.name, size.width, size.height, frameRate, (int) clamped, mode);
+    }
+}
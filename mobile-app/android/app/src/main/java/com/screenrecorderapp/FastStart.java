@@ -0,0 +1,143 @@
+package com.screenrecorderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Moves an MP4's moov box in front of its media data so playback can start
+ * before the whole file has downloaded.
+ *
+ * Only moov passes through the heap, where its stco/co64 chunk offsets are
+ * shifted by the space it now takes up front. Every other box, mdat included,
+ * is copied channel to channel with transferTo, so the sample data is never
+ * touched. The result goes to a temporary file that then replaces the original.
+ */
+public class FastStart {
+    private static final int STCO = Mp4Parser.fourcc("stco");
+    private static final int CO64 = Mp4Parser.fourcc("co64");
+
+    /**
+     * Rewrites {@code file} in place with moov first.
+     *
+     * @return false if the file already was fast-start and was left alone
+     */
+    public static boolean process(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".faststart");
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel source = in.getChannel();
+            List<Mp4Parser.Box> boxes = Mp4Parser.readTopLevelBoxes(source);
+
+            Mp4Parser.Box moov = null;
+            int firstMdat = -1;
+            for (int i = 0; i < boxes.size(); i++) {
+                Mp4Parser.Box box = boxes.get(i);
+                if (box.type == Mp4Parser.MOOV) {
+                    moov = box;
+                } else if (box.type == Mp4Parser.MDAT && firstMdat < 0) {
+                    firstMdat = i;
+                }
+            }
+            if (moov == null) {
+                throw new IOException("No moov box; the file was not finalized");
+            }
+            if (firstMdat < 0 || moov.offset < boxes.get(firstMdat).offset) {
+                return false;
+            }
+            if (moov.size > Mp4Parser.MAX_MOOV_SIZE) {
+                throw new IOException("moov box too large: " + moov.size);
+            }
+
+            ByteBuffer moovData = ByteBuffer.allocate((int) moov.size);
+            Mp4Parser.readFully(source, moovData, moov.offset);
+            // Everything between the first mdat and the old moov moves back by the size of moov
+            long insertAt = boxes.get(firstMdat).offset;
+            try {
+                shiftChunkOffsets(moovData, moov.headerSize, (int) moov.size, insertAt, moov.offset, moov.size);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Malformed moov box", e);
+            }
+            moovData.rewind();
+
+            try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+                FileChannel target = out.getChannel();
+                target.truncate(0);
+                for (int i = 0; i < firstMdat; i++) {
+                    copy(source, boxes.get(i), target);
+                }
+                while (moovData.hasRemaining()) {
+                    target.write(moovData);
+                }
+                for (int i = firstMdat; i < boxes.size(); i++) {
+                    if (boxes.get(i) != moov) {
+                        copy(source, boxes.get(i), target);
+                    }
+                }
+                target.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file.getName());
+        }
+        return true;
+    }
+
+    private static void copy(FileChannel source, Mp4Parser.Box box, FileChannel target) throws IOException {
+        long position = box.offset;
+        long remaining = box.size;
+        while (remaining > 0) {
+            long sent = source.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                throw new IOException("Short copy at " + position);
+            }
+            position += sent;
+            remaining -= sent;
+        }
+    }
+
+    private static void shiftChunkOffsets(ByteBuffer buffer, int start, int end, long insertAt,
+                                          long moovOffset, long moovSize) throws IOException {
+        for (int position = start; position + 8 <= end; ) {
+            int size = Mp4Parser.boxSize(buffer, position, end);
+            int type = buffer.getInt(position + 4);
+            int body = position + 8;
+
+            if (type == Mp4Parser.TRAK || type == Mp4Parser.MDIA || type == Mp4Parser.MINF
+                    || type == Mp4Parser.STBL) {
+                shiftChunkOffsets(buffer, body, position + size, insertAt, moovOffset, moovSize);
+            } else if (type == STCO) {
+                int count = buffer.getInt(body + 4);
+                Mp4Parser.checkCount(count, 4, body + 8, position + size);
+                for (int i = 0; i < count; i++) {
+                    int entry = body + 8 + i * 4;
+                    long offset = shift(buffer.getInt(entry) & 0xffffffffL, insertAt, moovOffset, moovSize);
+                    if (offset > 0xffffffffL) {
+                        // Would need stco upgraded to co64, which changes moov's size; not worth it for our segments
+                        throw new IOException("Chunk offset no longer fits in stco");
+                    }
+                    buffer.putInt(entry, (int) offset);
+                }
+            } else if (type == CO64) {
+                int count = buffer.getInt(body + 4);
+                Mp4Parser.checkCount(count, 8, body + 8, position + size);
+                for (int i = 0; i < count; i++) {
+                    int entry = body + 8 + i * 8;
+                    buffer.putLong(entry, shift(buffer.getLong(entry), insertAt, moovOffset, moovSize));
+                }
+            }
+            position += size;
+        }
+    }
+
+    private static long shift(long offset, long insertAt, long moovOffset, long moovSize) {
+        return offset >= insertAt && offset < moovOffset ? offset + moovSize : offset;
+    }
+}
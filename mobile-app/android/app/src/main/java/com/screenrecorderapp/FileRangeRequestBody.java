@@ -0,0 +1,74 @@
+package com.screenrecorderapp;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streams a byte range of a file straight from its FileChannel into the request,
+ * reporting progress as bytes actually leave for the socket. With a
+ * {@link TokenBucket}, every step waits for its share of the upload bandwidth.
+ */
+public class FileRangeRequestBody extends RequestBody {
+    private static final long TRANSFER_STEP = 64 * 1024;
+
+    public interface ProgressListener {
+        void onBytesWritten(long bytesWritten);
+    }
+
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+    private final MediaType contentType;
+    private final ProgressListener listener;
+    private final TokenBucket throttle;
+
+    public FileRangeRequestBody(FileChannel channel, long position, long length,
+                                MediaType contentType, ProgressListener listener) {
+        this(channel, position, length, contentType, listener, null);
+    }
+
+    public FileRangeRequestBody(FileChannel channel, long position, long length,
+                                MediaType contentType, ProgressListener listener, TokenBucket throttle) {
+        this.channel = channel;
+        this.position = position;
+        this.length = length;
+        this.contentType = contentType;
+        this.listener = listener;
+        this.throttle = throttle;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        // Positional transfers leave the channel position alone, so OkHttp may
+        // safely replay this body on a retried connection
+        long written = 0;
+        while (written < length) {
+            long step = Math.min(TRANSFER_STEP, length - written);
+            if (throttle != null) {
+                throttle.acquire(step);
+            }
+            long transferred = channel.transferTo(position + written, step, sink);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of file at " + (position + written));
+            }
+            written += transferred;
+            if (listener != null) {
+                listener.onBytesWritten(written);
+            }
+        }
+        sink.flush();
+    }
+}
@@ -0,0 +1,97 @@
+package com.screenrecorderapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative values, in the style of HdrHistogram.
+ *
+ * Values below 64 get a bucket each. Above that, every power-of-two range is
+ * split into 32 equal buckets, so a reported percentile is within about 3% of
+ * the recorded value at any magnitude. The bucket array is allocated up front
+ * and recording is a handful of atomic adds, so it is safe to call from the
+ * drain threads on every sample. Values past {@link #MAX_VALUE} are clamped.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    // 2^36 us is about 19 hours, and 2^36 ms far longer than any recording
+    public static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+
+        long current;
+        while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+            // Lost a race with another recorder; re-read and try again
+        }
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Lost a race with another recorder; re-read and try again
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * The value below which {@code percentile} percent of recordings fall,
+     * reported as the upper bound of its bucket. Concurrent recording may skew
+     * the answer by the samples that land while it is computed.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketIndex(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < 2 << SUB_BUCKET_BITS) {
+            return index;
+        }
+        int shift = (index >> SUB_BUCKET_BITS) - 1;
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
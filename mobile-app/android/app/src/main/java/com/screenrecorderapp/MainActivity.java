@@ -1,22 +1,19 @@
 package com.screenrecorderapp;
 
 import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Context;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.media.projection.MediaProjectionManager;
 import android.os.Bundle;
+import android.os.IBinder;
 import android.view.View;
 import android.widget.Button;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
-import android.media.MediaRecorder;
-import android.media.projection.MediaProjection;
-import android.hardware.display.VirtualDisplay;
-import android.hardware.display.DisplayManager;
-import android.util.DisplayMetrics;
-import android.view.WindowManager;
 import java.io.File;
-import java.io.IOException;
 
 public class MainActivity extends Activity {
     
@@ -24,14 +21,27 @@ public class MainActivity extends Activity {
     
     private Button startButton;
     private Button stopButton;
+    private Button replayButton;
+    private Button saveClipButton;
     private TextView statusText;
-    private boolean isRecording = false;
     
-    // Screen recording variables
-    private MediaProjection mediaProjection;
-    private MediaRecorder mediaRecorder;
-    private VirtualDisplay virtualDisplay;
-    private String recordingPath;
+    // Capture itself lives in RecordingService; the activity only drives it
+    private RecordingService recordingService;
+    
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            recordingService = ((RecordingService.LocalBinder) binder).getService();
+            recordingService.setListener(state -> onSessionStateChanged(state));
+            updateUI();
+        }
+        
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            recordingService = null;
+            updateUI();
+        }
+    };
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -67,9 +77,15 @@ public class MainActivity extends Activity {
         // Add start button
         startButton = new Button(this);
         startButton.setText("Start Recording");
-        startButton.setOnClickListener(v -> startRecording());
+        startButton.setOnClickListener(v -> startRecording(false));
         layout.addView(startButton);
         
+        // Add replay buffer button: keeps only the last minute until Save Clip is tapped
+        replayButton = new Button(this);
+        replayButton.setText("Start Replay Buffer");
+        replayButton.setOnClickListener(v -> startRecording(true));
+        layout.addView(replayButton);
+        
         // Add stop button
         stopButton = new Button(this);
         stopButton.setText("Stop Recording");
@@ -77,18 +93,31 @@ public class MainActivity extends Activity {
         stopButton.setOnClickListener(v -> stopRecording());
         layout.addView(stopButton);
         
+        // Add save clip button
+        saveClipButton = new Button(this);
+        saveClipButton.setText("Save Clip");
+        saveClipButton.setEnabled(false);
+        saveClipButton.setOnClickListener(v -> saveClip());
+        layout.addView(saveClipButton);
+        
         setContentView(layout);
         
         // Disable IME for all views to prevent keyboard interactions
         disableIMEForView(layout);
         
+        // Bind early so the service is ready to prewarm by the time Start is tapped
+        bindService(new Intent(this, RecordingService.class), serviceConnection, Context.BIND_AUTO_CREATE);
+        
         updateUI();
     }
     
-    private void startRecording() {
-        if (!isRecording) {
+    private void startRecording(boolean replayBuffer) {
+        if (recordingService != null && !recordingService.getSession().isActive()) {
             // Hide keyboard before starting recording
             hideKeyboardSafely();
+            
+            // Prepare the encoder while the consent dialog is up, so accepting only has to start it
+            recordingService.prewarm(System.nanoTime(), replayBuffer);
                 
             // Request screen capture permission
             MediaProjectionManager mediaProjectionManager = 
@@ -99,61 +128,29 @@ public class MainActivity extends Activity {
     }
     
     private void stopRecording() {
-        if (isRecording) {
-            // Set recording to false first to prevent multiple calls
-            isRecording = false;
-            updateUI();
-            
+        if (recordingService != null) {
             // Hide keyboard before stopping recording
             hideKeyboardSafely();
             
-            // Use a background thread for cleanup to avoid blocking UI
-            new Thread(() -> {
-                try {
-                    // Stop MediaRecorder first
-                    if (mediaRecorder != null) {
-                        try {
-                            mediaRecorder.stop();
-                        } catch (Exception e) {
-                            System.out.println("MediaRecorder stop error: " + e.getMessage());
-                        }
-                    }
-                    
-                    // Wait a bit before cleaning up other resources
-                    Thread.sleep(500);
-                    
-                    // Clean up VirtualDisplay
-                    if (virtualDisplay != null) {
-                        try {
-                            virtualDisplay.release();
-                        } catch (Exception e) {
-                            System.out.println("VirtualDisplay release error: " + e.getMessage());
-                        }
-                    }
-                    
-                    // Wait a bit more
-                    Thread.sleep(500);
-                    
-                    // Clean up MediaProjection
-                    if (mediaProjection != null) {
-                        try {
-                            mediaProjection.stop();
-                        } catch (Exception e) {
-                            System.out.println("MediaProjection stop error: " + e.getMessage());
-                        }
-                    }
-                    
-                    // Update UI on main thread
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, "Recording stopped and saved locally", Toast.LENGTH_SHORT).show();
-                    });
-                    
-                } catch (Exception e) {
-                    runOnUiThread(() -> {
-                        Toast.makeText(MainActivity.this, "Recording stopped (with warnings)", Toast.LENGTH_SHORT).show();
-                    });
+            recordingService.stopCapture();
+        }
+    }
+    
+    private void saveClip() {
+        if (recordingService != null) {
+            recordingService.saveClip(new RecordingService.ClipCallback() {
+                @Override
+                public void onClipSaved(File clip, long durationMs) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                            "Saved last " + durationMs / 1000 + " s as " + clip.getName(), Toast.LENGTH_SHORT).show());
+                }
+                
+                @Override
+                public void onClipFailed(String error) {
+                    runOnUiThread(() -> Toast.makeText(MainActivity.this,
+                            "Could not save clip: " + error, Toast.LENGTH_LONG).show());
                 }
-            }).start();
+            });
         }
     }
     
@@ -161,80 +158,29 @@ public class MainActivity extends Activity {
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         
-        if (requestCode == REQUEST_SCREEN_CAPTURE) {
+        if (requestCode == REQUEST_SCREEN_CAPTURE && recordingService != null) {
             if (resultCode == RESULT_OK) {
-                startScreenRecording(data);
+                recordingService.startCapture(resultCode, data);
             } else {
+                recordingService.cancelPrewarm();
                 Toast.makeText(this, "Screen recording permission denied", Toast.LENGTH_SHORT).show();
             }
         }
     }
     
-    private void startScreenRecording(Intent data) {
-        try {
-            // Create MediaRecorder
-            mediaRecorder = new MediaRecorder();
-            mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-            mediaRecorder.setVideoSource(MediaRecorder.VideoSource.SURFACE);
-            mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-            mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-            mediaRecorder.setVideoEncoder(MediaRecorder.VideoEncoder.H264);
-            
-            // Set video properties
-            DisplayMetrics metrics = getResources().getDisplayMetrics();
-            int screenWidth = metrics.widthPixels;
-            int screenHeight = metrics.heightPixels;
-            int screenDensity = metrics.densityDpi;
-            
-            mediaRecorder.setVideoSize(screenWidth, screenHeight);
-            mediaRecorder.setVideoFrameRate(30);
-            
-            // Use setVideoEncodingBitRate for modern Android
-            if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M) {
-                mediaRecorder.setVideoEncodingBitRate(6000000);
-            }
-            
-            // Create output file
-            File outputDir = new File(getExternalFilesDir(null), "recordings");
-            if (!outputDir.exists()) {
-                outputDir.mkdirs();
-            }
-            
-            String fileName = "recording_" + System.currentTimeMillis() + ".mp4";
-            File outputFile = new File(outputDir, fileName);
-            recordingPath = outputFile.getAbsolutePath();
-            
-            mediaRecorder.setOutputFile(recordingPath);
-            
-            // Prepare MediaRecorder
-            mediaRecorder.prepare();
-            
-            // Start recording
-            mediaRecorder.start();
-            
-            // Create MediaProjection
-            MediaProjectionManager mediaProjectionManager = 
-                (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
-            mediaProjection = mediaProjectionManager.getMediaProjection(Activity.RESULT_OK, data);
-            
-            // Create VirtualDisplay
-            virtualDisplay = mediaProjection.createVirtualDisplay(
-                "ScreenRecorder",
-                screenWidth, screenHeight, screenDensity,
-                DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                mediaRecorder.getSurface(),
-                null, null
-            );
-            
-            // Update UI
-            isRecording = true;
-            updateUI();
-            
-            Toast.makeText(this, "Recording started!", Toast.LENGTH_SHORT).show();
-            
-        } catch (Exception e) {
-            Toast.makeText(this, "Failed to start recording: " + e.getMessage(), Toast.LENGTH_LONG).show();
-            System.out.println("Recording start error: " + e.getMessage());
+    private void onSessionStateChanged(RecordingSession.State state) {
+        updateUI();
+        
+        RecordingSession session = recordingService != null ? recordingService.getSession() : null;
+        if (state == RecordingSession.State.RECORDING) {
+            runOnUiThread(() -> Toast.makeText(this, "Recording started!", Toast.LENGTH_SHORT).show());
+        } else if (state == RecordingSession.State.FINALIZED && session != null) {
+            String message = session.isFileReady()
+                    ? "Recording stopped and saved locally (" + session.getStopLatencyMillis() + " ms)"
+                    : "Recording stopped (with warnings)";
+            runOnUiThread(() -> Toast.makeText(this, message, Toast.LENGTH_SHORT).show());
+        } else if (state == RecordingSession.State.IDLE) {
+            runOnUiThread(() -> Toast.makeText(this, "Failed to start recording", Toast.LENGTH_LONG).show());
         }
     }
     
@@ -242,15 +188,28 @@ public class MainActivity extends Activity {
         // Ensure UI updates happen on the main thread
         runOnUiThread(() -> {
             try {
-                if (isRecording) {
-                    statusText.setText("Recording in progress...");
+                RecordingSession.State state = recordingService != null
+                        ? recordingService.getSession().getState() : RecordingSession.State.IDLE;
+                boolean replay = recordingService != null && recordingService.isReplayMode();
+                if (state == RecordingSession.State.RECORDING) {
+                    statusText.setText(replay ? "Replay buffer running (last 60 s)" : "Recording in progress...");
+                    startButton.setEnabled(false);
+                    stopButton.setEnabled(true);
+                } else if (state == RecordingSession.State.PREPARING) {
+                    statusText.setText("Starting recording...");
                     startButton.setEnabled(false);
                     stopButton.setEnabled(true);
+                } else if (state == RecordingSession.State.STOPPING) {
+                    statusText.setText("Finalizing recording...");
+                    startButton.setEnabled(false);
+                    stopButton.setEnabled(false);
                 } else {
                     statusText.setText("Ready to record");
                     startButton.setEnabled(true);
                     stopButton.setEnabled(false);
                 }
+                replayButton.setEnabled(startButton.isEnabled());
+                saveClipButton.setEnabled(replay && state == RecordingSession.State.RECORDING);
             } catch (Exception e) {
                 // Handle any UI update errors gracefully
                 System.out.println("UI update error: " + e.getMessage());
@@ -298,10 +257,11 @@ public class MainActivity extends Activity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Clean up resources when activity is destroyed
-        if (isRecording) {
-            stopRecording();
+        // Recording continues in the foreground service; only drop our connection to it
+        if (recordingService != null) {
+            recordingService.setListener(null);
         }
+        unbindService(serviceConnection);
     }
     
     @Override
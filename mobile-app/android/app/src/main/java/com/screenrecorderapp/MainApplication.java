@@ -1,11 +1,90 @@
 package com.screenrecorderapp;
 
 import android.app.Application;
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainApplication extends Application {
+    private static final String TAG = "MainApplication";
+    // Recordings are kept remotely until deleted; 0 turns the age limit off
+    private static final long RETENTION_MAX_AGE_MS = 0;
+    // Above a quota, the oldest uploaded recordings give up their copy on the device; 0 keeps every copy
+    private static final long LOCAL_QUOTA_BYTES = 0;
+    
+    // Opening the index and replaying the outbox journal are file I/O, so they stay off the main thread
+    private final ExecutorService startup = Executors.newSingleThreadExecutor();
+    private ResultFuture<RecordingIndex> recordingIndex;
+    private ResultFuture<SupabaseService> supabaseService;
     
     @Override
     public void onCreate() {
         super.onCreate();
+        recordingIndex = ResultFuture.supply(this::openRecordingIndex, startup);
+        // Created eagerly so jobs left in the outbox resume as soon as the process starts
+        supabaseService = recordingIndex.then(index -> {
+            SupabaseService service = new SupabaseService(this, index);
+            service.setRetentionPolicy(new RetentionPolicy(RETENTION_MAX_AGE_MS, LOCAL_QUOTA_BYTES));
+            return service;
+        }, startup);
+        // Nothing else ever runs there
+        supabaseService.whenComplete((service, error) -> startup.shutdown());
+    }
+    
+    private RecordingIndex openRecordingIndex() {
+        File indexFile = new File(getFilesDir(), "recordings.index");
+        boolean firstLaunch = !indexFile.exists();
+        try {
+            RecordingIndex index = RecordingIndex.open(indexFile);
+            if (firstLaunch) {
+                // Seed from recordings made before the index existed
+                index.rebuild(getRecordingsDir());
+            }
+            return index;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open recordings index, rebuilding it", e);
+            indexFile.delete();
+            try {
+                RecordingIndex index = RecordingIndex.open(indexFile);
+                index.rebuild(getRecordingsDir());
+                return index;
+            } catch (IOException retry) {
+                throw new IllegalStateException("Recordings index unavailable", retry);
+            }
+        }
+    }
+    
+    public File getRecordingsDir() {
+        return new File(getExternalFilesDir(null), "recordings");
+    }
+    
+    /**
+     * Waits for the index to be opened at startup, so call it from a
+     * background thread, as RecordingService does.
+     */
+    public RecordingIndex getRecordingIndex() {
+        return await(recordingIndex);
+    }
+    
+    /**
+     * Waits for the service to be created at startup; same as
+     * {@link #getRecordingIndex()}.
+     */
+    public SupabaseService getSupabaseService() {
+        return await(supabaseService);
+    }
+    
+    private static <T> T await(ResultFuture<T> startupResult) {
+        try {
+            return startupResult.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during startup", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Startup failed", e.getCause());
+        }
     }
-}
\ No newline at end of file
+}
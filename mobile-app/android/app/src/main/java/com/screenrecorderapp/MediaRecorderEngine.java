@@ -0,0 +1,157 @@
+package com.screenrecorderapp;
+
+import android.media.MediaRecorder;
+import android.media.projection.MediaProjection;
+import android.os.Build;
+import android.util.Log;
+import android.view.Surface;
+import java.io.IOException;
+
+/**
+ * The original MediaRecorder capture path. It gives no access to encoded
+ * samples, but works on every device, so it stays around as the fallback.
+ *
+ * Segmented output uses setNextOutputFile (API 26+), which MediaRecorder can
+ * only trigger on file size, so a duration bound is turned into a byte budget.
+ */
+public class MediaRecorderEngine implements RecordingEngine {
+    private static final String TAG = "MediaRecorderEngine";
+    private static final int AUDIO_BIT_RATE = 128000;
+
+    private MediaRecorder mediaRecorder;
+    private RecordingConfig config;
+    private SegmentListener segmentListener;
+    private boolean started;
+    private int segmentIndex;
+    private int nextSegmentIndex;
+
+    @Override
+    public void prepare(RecordingConfig config) throws IOException {
+        mediaRecorder = new MediaRecorder();
+        if (config.recordAudio) {
+            mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
+        }
+        mediaRecorder.setVideoSource(MediaRecorder.VideoSource.SURFACE);
+        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
+        if (config.recordAudio) {
+            mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
+        }
+        mediaRecorder.setVideoEncoder(MediaRecorder.VideoEncoder.H264);
+        mediaRecorder.setVideoSize(config.width, config.height);
+        mediaRecorder.setVideoFrameRate(config.frameRate);
+        mediaRecorder.setVideoEncodingBitRate(config.bitRate);
+        mediaRecorder.setOutputFile(config.segmentFile(0).getAbsolutePath());
+        this.config = config;
+        segmentIndex = 0;
+        nextSegmentIndex = 0;
+
+        if (config.isSegmented() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            mediaRecorder.setMaxFileSize(segmentBudgetBytes(config));
+            mediaRecorder.setOnInfoListener(this::onInfo);
+        }
+        mediaRecorder.prepare();
+    }
+
+    private static long segmentBudgetBytes(RecordingConfig config) {
+        long budget = config.segmentMaxBytes > 0 ? config.segmentMaxBytes : Long.MAX_VALUE;
+        if (config.segmentDurationMs > 0) {
+            long bitsPerSecond = config.bitRate + (config.recordAudio ? AUDIO_BIT_RATE : 0);
+            budget = Math.min(budget, bitsPerSecond / 8 * config.segmentDurationMs / 1000);
+        }
+        return budget;
+    }
+
+    private void onInfo(MediaRecorder recorder, int what, int extra) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        try {
+            if (what == MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_APPROACHING) {
+                // Queue the next file; MediaRecorder switches over on its own at the limit
+                nextSegmentIndex = segmentIndex + 1;
+                recorder.setNextOutputFile(config.segmentFile(nextSegmentIndex));
+            } else if (what == MediaRecorder.MEDIA_RECORDER_INFO_NEXT_OUTPUT_FILE_STARTED) {
+                int finished = segmentIndex;
+                segmentIndex = nextSegmentIndex;
+                notifySegment(finished, false);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not open next segment", e);
+        }
+    }
+
+    private void notifySegment(int index, boolean finalSegment) {
+        SegmentListener listener = segmentListener;
+        if (listener != null && config.isSegmented()) {
+            listener.onSegmentFinished(config.segmentFile(index), index, finalSegment);
+        }
+    }
+
+    @Override
+    public Surface getInputSurface() {
+        return mediaRecorder.getSurface();
+    }
+
+    @Override
+    public void start() {
+        mediaRecorder.start();
+        started = true;
+    }
+
+    @Override
+    public boolean stop() {
+        if (!started) {
+            return false;
+        }
+        started = false;
+        try {
+            // MediaRecorder.stop() only returns once the file has been written out
+            mediaRecorder.stop();
+            notifySegment(segmentIndex, true);
+            return true;
+        } catch (RuntimeException e) {
+            // Thrown when no frame was ever recorded; the output file is unusable
+            Log.e(TAG, "MediaRecorder stop error", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void release() {
+        if (mediaRecorder != null) {
+            mediaRecorder.release();
+            mediaRecorder = null;
+        }
+    }
+
+    @Override
+    public void setSegmentListener(SegmentListener listener) {
+        segmentListener = listener;
+    }
+
+    @Override
+    public void setInputSurfaceListener(InputSurfaceListener listener) {
+        // The recorder's surface stays the same for the whole recording
+    }
+
+    @Override
+    public void setSampleListener(SampleDrainer.Listener listener) {
+        // MediaRecorder writes straight to the file; there are no samples to report
+    }
+
+    @Override
+    public boolean requestSegmentBreak() {
+        // Segments only switch when MediaRecorder reaches its size limit
+        return false;
+    }
+
+    @Override
+    public void setMetrics(MetricsRegistry metrics) {
+        // Same here: only the finished segments can be measured, and the service does that
+    }
+
+    @Override
+    public void setPlaybackCapture(MediaProjection projection) {
+        // MediaRecorder takes a single audio source, so this engine stays on the microphone
+    }
+}
@@ -0,0 +1,127 @@
+package com.screenrecorderapp;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters, gauges and {@link LatencyHistogram}s.
+ *
+ * Looking an instrument up by name is the only step that allocates, so hot
+ * paths resolve their instruments once and keep the references. Updating one
+ * afterwards is a single atomic operation. Names carry their unit as a suffix,
+ * e.g. {@code capture.stop_latency_ms}.
+ */
+public class MetricsRegistry {
+
+    public static final class Counter {
+        private final AtomicLong value = new AtomicLong();
+
+        public void increment() {
+            value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * The last value set, e.g. a latency that is measured once per session.
+     */
+    public static final class Gauge {
+        private volatile long value;
+
+        public void set(long value) {
+            this.value = value;
+        }
+
+        public long get() {
+            return value;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = counters.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    public Gauge gauge(String name) {
+        Gauge gauge = gauges.get(name);
+        if (gauge == null) {
+            gauge = new Gauge();
+            Gauge existing = gauges.putIfAbsent(name, gauge);
+            if (existing != null) {
+                gauge = existing;
+            }
+        }
+        return gauge;
+    }
+
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = new LatencyHistogram();
+            LatencyHistogram existing = histograms.putIfAbsent(name, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Writes every instrument as one JSON object, names sorted. Histograms are
+     * summarized as count, min, mean, p50, p90, p99 and max.
+     */
+    public void writeJson(JsonWriter writer) throws IOException {
+        writer.beginObject();
+
+        writer.name("counters").beginObject();
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue().get());
+        }
+        writer.endObject();
+
+        writer.name("gauges").beginObject();
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            writer.name(entry.getKey()).value(entry.getValue().get());
+        }
+        writer.endObject();
+
+        writer.name("histograms").beginObject();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            writer.name(entry.getKey()).beginObject();
+            writer.name("count").value(histogram.getCount());
+            writer.name("min").value(histogram.getMin());
+            writer.name("mean").value(Math.round(histogram.getMean()));
+            writer.name("p50").value(histogram.getValueAtPercentile(50));
+            writer.name("p90").value(histogram.getValueAtPercentile(90));
+            writer.name("p99").value(histogram.getValueAtPercentile(99));
+            writer.name("max").value(histogram.getMax());
+            writer.endObject();
+        }
+        writer.endObject();
+
+        writer.endObject();
+    }
+}
@@ -0,0 +1,64 @@
+package com.screenrecorderapp;
+
+/**
+ * Stream metadata read from an MP4's boxes by {@link Mp4Parser}. Values that
+ * the file does not carry stay at 0 (or an empty array).
+ */
+public class Mp4Info {
+    public long fileSize;
+    public long durationUs;
+
+    // From the first video track
+    public int width;
+    public int height;
+    public int videoFrameCount;
+    public long videoDurationUs;
+    public long videoBytes;
+    public long[] keyFrameTimesUs = new long[0];
+
+    public boolean hasAudio;
+
+    // Top-level box layout, e.g. for moving moov in front of mdat
+    public long moovOffset = -1;
+    public long moovSize;
+    public long mdatOffset = -1;
+    public long mdatSize;
+
+    public long getDurationMs() {
+        return durationUs / 1000;
+    }
+
+    /**
+     * Average video bitrate in bits per second.
+     */
+    public long getVideoBitRate() {
+        long durationUs = videoDurationUs > 0 ? videoDurationUs : this.durationUs;
+        return durationUs > 0 ? videoBytes * 8 * 1000000 / durationUs : 0;
+    }
+
+    /**
+     * Average bitrate of the whole file in bits per second.
+     */
+    public long getBitRate() {
+        return durationUs > 0 ? fileSize * 8 * 1000000 / durationUs : 0;
+    }
+
+    public double getFrameRate() {
+        long durationUs = videoDurationUs > 0 ? videoDurationUs : this.durationUs;
+        return durationUs > 0 ? videoFrameCount * 1000000.0 / durationUs : 0;
+    }
+
+    /**
+     * True if moov comes before mdat, so players can start before the whole
+     * file has arrived.
+     */
+    public boolean isFastStart() {
+        return moovOffset >= 0 && (mdatOffset < 0 || moovOffset < mdatOffset);
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + ", " + getDurationMs() + " ms, " + videoFrameCount + " frames, "
+                + keyFrameTimesUs.length + " key frames, " + getVideoBitRate() + " bps";
+    }
+}
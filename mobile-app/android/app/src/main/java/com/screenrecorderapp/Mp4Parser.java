@@ -0,0 +1,311 @@
+package com.screenrecorderapp;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads duration, resolution, frame count, bitrate and key frame times from an
+ * MP4 (ISO-BMFF) file without decoding anything.
+ *
+ * Top-level box headers are read with small positional reads, so mdat is
+ * skipped over and never touched. Only the moov box is memory-mapped, and its
+ * tables (mvhd, tkhd, mdhd, hdlr, stsz, stss, stts) are read in place. The cost
+ * depends on the sample count, not on the file size.
+ */
+public class Mp4Parser {
+    // moov grows with the sample count; anything past this is not a file we wrote
+    static final long MAX_MOOV_SIZE = 64L * 1024 * 1024;
+
+    static final int MOOV = fourcc("moov");
+    static final int MDAT = fourcc("mdat");
+    private static final int MVHD = fourcc("mvhd");
+    static final int TRAK = fourcc("trak");
+    private static final int TKHD = fourcc("tkhd");
+    static final int MDIA = fourcc("mdia");
+    private static final int MDHD = fourcc("mdhd");
+    private static final int HDLR = fourcc("hdlr");
+    static final int MINF = fourcc("minf");
+    static final int STBL = fourcc("stbl");
+    private static final int STSZ = fourcc("stsz");
+    private static final int STSS = fourcc("stss");
+    private static final int STTS = fourcc("stts");
+    private static final int VIDE = fourcc("vide");
+    private static final int SOUN = fourcc("soun");
+
+    private static class Track {
+        int handler;
+        long timescale;
+        long duration;
+        int width;
+        int height;
+        int sampleCount;
+        long sampleBytes;
+        int syncOffset = -1;
+        int syncCount;
+        int timeToSampleOffset = -1;
+        int timeToSampleCount;
+    }
+
+    public static Mp4Info parse(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return parse(raf.getChannel());
+        }
+    }
+
+    /**
+     * A top-level box: its type, where it starts and its total size including
+     * the header.
+     */
+    static class Box {
+        final int type;
+        final long offset;
+        final long size;
+        final int headerSize;
+
+        Box(int type, long offset, long size, int headerSize) {
+            this.type = type;
+            this.offset = offset;
+            this.size = size;
+            this.headerSize = headerSize;
+        }
+    }
+
+    public static Mp4Info parse(FileChannel channel) throws IOException {
+        Mp4Info info = new Mp4Info();
+        info.fileSize = channel.size();
+
+        for (Box box : readTopLevelBoxes(channel)) {
+            if (box.type == MOOV) {
+                if (box.size > MAX_MOOV_SIZE) {
+                    throw new IOException("moov box too large: " + box.size);
+                }
+                info.moovOffset = box.offset;
+                info.moovSize = box.size;
+                ByteBuffer moov = channel.map(FileChannel.MapMode.READ_ONLY, box.offset, box.size);
+                try {
+                    parseMoov(moov, box.headerSize, (int) box.size, info);
+                } catch (IndexOutOfBoundsException e) {
+                    throw new IOException("Malformed moov box", e);
+                }
+            } else if (box.type == MDAT && info.mdatOffset < 0) {
+                info.mdatOffset = box.offset;
+                info.mdatSize = box.size;
+            }
+        }
+
+        if (info.moovOffset < 0) {
+            // MediaMuxer writes moov last, so an unfinished recording ends up here
+            throw new IOException("No moov box; the file was not finalized");
+        }
+        return info;
+    }
+
+    /**
+     * Lists the top-level boxes from their headers alone.
+     */
+    static List<Box> readTopLevelBoxes(FileChannel channel) throws IOException {
+        List<Box> boxes = new ArrayList<>();
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(16);
+
+        long position = 0;
+        while (position + 8 <= fileSize) {
+            header.clear();
+            header.limit((int) Math.min(16, fileSize - position));
+            readFully(channel, header, position);
+
+            long size = header.getInt(0) & 0xffffffffL;
+            int type = header.getInt(4);
+            int headerSize = 8;
+            if (size == 1) {
+                if (header.limit() < 16) {
+                    throw new EOFException("Truncated box header at " + position);
+                }
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = fileSize - position;
+            }
+            if (size < headerSize || position + size > fileSize) {
+                throw new EOFException("Box at " + position + " runs past the end of the file");
+            }
+
+            boxes.add(new Box(type, position, size, headerSize));
+            position += size;
+        }
+        return boxes;
+    }
+
+    private static void parseMoov(ByteBuffer moov, int start, int end, Mp4Info info) throws IOException {
+        long movieTimescale = 0;
+        long movieDuration = 0;
+        boolean haveVideo = false;
+
+        for (int position = start; position + 8 <= end; ) {
+            int size = boxSize(moov, position, end);
+            int type = moov.getInt(position + 4);
+            if (type == MVHD) {
+                int version = moov.get(position + 8);
+                if (version == 1) {
+                    movieTimescale = moov.getInt(position + 28) & 0xffffffffL;
+                    movieDuration = moov.getLong(position + 32);
+                } else {
+                    movieTimescale = moov.getInt(position + 20) & 0xffffffffL;
+                    movieDuration = moov.getInt(position + 24) & 0xffffffffL;
+                }
+            } else if (type == TRAK) {
+                Track track = new Track();
+                parseContainer(moov, position + 8, position + size, track);
+                if (track.handler == VIDE && !haveVideo) {
+                    haveVideo = true;
+                    fillVideo(moov, track, info);
+                } else if (track.handler == SOUN) {
+                    info.hasAudio = true;
+                }
+            }
+            position += size;
+        }
+
+        if (movieTimescale > 0) {
+            info.durationUs = movieDuration * 1000000 / movieTimescale;
+        }
+    }
+
+    private static void parseContainer(ByteBuffer buffer, int start, int end, Track track) throws IOException {
+        for (int position = start; position + 8 <= end; ) {
+            int size = boxSize(buffer, position, end);
+            int type = buffer.getInt(position + 4);
+            int body = position + 8;
+
+            if (type == MDIA || type == MINF || type == STBL) {
+                parseContainer(buffer, body, position + size, track);
+            } else if (type == TKHD) {
+                int version = buffer.get(body);
+                // Width and height are 16.16 fixed point at the very end of the box
+                int dimensions = body + (version == 1 ? 88 : 76);
+                track.width = buffer.getInt(dimensions) >>> 16;
+                track.height = buffer.getInt(dimensions + 4) >>> 16;
+            } else if (type == MDHD) {
+                int version = buffer.get(body);
+                if (version == 1) {
+                    track.timescale = buffer.getInt(body + 20) & 0xffffffffL;
+                    track.duration = buffer.getLong(body + 24);
+                } else {
+                    track.timescale = buffer.getInt(body + 12) & 0xffffffffL;
+                    track.duration = buffer.getInt(body + 16) & 0xffffffffL;
+                }
+            } else if (type == HDLR) {
+                track.handler = buffer.getInt(body + 8);
+            } else if (type == STSZ) {
+                int sampleSize = buffer.getInt(body + 4);
+                track.sampleCount = buffer.getInt(body + 8);
+                checkCount(track.sampleCount, sampleSize != 0 ? 0 : 4, body + 12, position + size);
+                if (sampleSize != 0) {
+                    track.sampleBytes = (long) sampleSize * track.sampleCount;
+                } else {
+                    long total = 0;
+                    int entries = body + 12;
+                    for (int i = 0; i < track.sampleCount; i++) {
+                        total += buffer.getInt(entries + i * 4) & 0xffffffffL;
+                    }
+                    track.sampleBytes = total;
+                }
+            } else if (type == STSS) {
+                track.syncCount = buffer.getInt(body + 4);
+                track.syncOffset = body + 8;
+                checkCount(track.syncCount, 4, track.syncOffset, position + size);
+            } else if (type == STTS) {
+                track.timeToSampleCount = buffer.getInt(body + 4);
+                track.timeToSampleOffset = body + 8;
+                checkCount(track.timeToSampleCount, 8, track.timeToSampleOffset, position + size);
+            }
+            position += size;
+        }
+    }
+
+    private static void fillVideo(ByteBuffer buffer, Track track, Mp4Info info) {
+        info.width = track.width;
+        info.height = track.height;
+        info.videoFrameCount = track.sampleCount;
+        info.videoBytes = track.sampleBytes;
+        if (track.timescale > 0) {
+            info.videoDurationUs = track.duration * 1000000 / track.timescale;
+            info.keyFrameTimesUs = keyFrameTimes(buffer, track);
+        }
+    }
+
+    /**
+     * Walks stss and stts side by side; both are sorted by sample number.
+     */
+    private static long[] keyFrameTimes(ByteBuffer buffer, Track track) {
+        if (track.timeToSampleOffset < 0) {
+            return new long[0];
+        }
+        // Without stss every sample is a sync sample
+        boolean allSync = track.syncOffset < 0;
+        int count = allSync ? track.sampleCount : track.syncCount;
+        long[] times = new long[count];
+
+        int entry = 0;
+        long entryFirstSample = 1;
+        long entryStartTime = 0;
+        long entrySamples = track.timeToSampleCount > 0 ? buffer.getInt(track.timeToSampleOffset) & 0xffffffffL : 0;
+        long entryDelta = track.timeToSampleCount > 0 ? buffer.getInt(track.timeToSampleOffset + 4) & 0xffffffffL : 0;
+
+        for (int i = 0; i < count; i++) {
+            long sample = allSync ? i + 1 : buffer.getInt(track.syncOffset + i * 4) & 0xffffffffL;
+            while (sample >= entryFirstSample + entrySamples && entry + 1 < track.timeToSampleCount) {
+                entryStartTime += entrySamples * entryDelta;
+                entryFirstSample += entrySamples;
+                entry++;
+                int offset = track.timeToSampleOffset + entry * 8;
+                entrySamples = buffer.getInt(offset) & 0xffffffffL;
+                entryDelta = buffer.getInt(offset + 4) & 0xffffffffL;
+            }
+            long time = entryStartTime + (sample - entryFirstSample) * entryDelta;
+            times[i] = time * 1000000 / track.timescale;
+        }
+        return times;
+    }
+
+    /**
+     * Checks that a table of {@code count} entries of {@code entrySize} bytes
+     * fits between {@code start} and {@code end}, so a corrupt count cannot
+     * size an array or send a loop out of the box.
+     */
+    static void checkCount(int count, int entrySize, int start, int end) throws IOException {
+        if (count < 0 || (long) count * entrySize > end - start) {
+            throw new IOException("Malformed sample table at " + start);
+        }
+    }
+
+    static int boxSize(ByteBuffer buffer, int position, int end) throws IOException {
+        long size = buffer.getInt(position) & 0xffffffffL;
+        if (size == 0) {
+            size = end - position;
+        }
+        if (size < 8 || position + size > end) {
+            throw new IOException("Malformed box at " + position);
+        }
+        return (int) size;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    static int fourcc(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+}
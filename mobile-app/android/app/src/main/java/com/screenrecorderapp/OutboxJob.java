@@ -0,0 +1,101 @@
+package com.screenrecorderapp;
+
+import java.util.UUID;
+
+/**
+ * A unit of pending Supabase work kept in the {@link UploadOutbox} journal.
+ * Jobs with the same key are the same piece of work and are only queued once.
+ */
+public class OutboxJob {
+    public enum Type {
+        UPLOAD,
+        METADATA,
+        DELETE
+    }
+
+    public Type type;
+    public String objectName;
+    // The recording's own file name; objectName is keyed by content when the hash is known
+    public String displayName;
+    public String contentHash;
+    public String filePath;
+    public long fileSize;
+    public boolean resumable;
+    public long enqueuedAt;
+    // Set for segments of a recording that was uploaded while it was still running
+    public String sessionId;
+    public int segmentIndex;
+    public boolean finalSegment = true;
+    // Metadata rows carry their own primary key, so a replayed insert is recognised as a duplicate
+    public String recordId;
+    public long createdAt;
+    // Stream metadata read from the finished file's moov box
+    public long durationMs;
+    public int width;
+    public int height;
+    public int frameCount;
+    public long bitRate;
+    // The session's metrics report, sent along with the final segment's row
+    public String metricsReportPath;
+
+    // Retry state only lives in memory; a restart simply gives every job a fresh budget
+    public transient int attempts;
+    public transient String result;
+
+    public static OutboxJob upload(String filePath, String objectName, long fileSize, boolean resumable) {
+        OutboxJob job = create(Type.UPLOAD, objectName);
+        job.filePath = filePath;
+        job.fileSize = fileSize;
+        job.resumable = resumable;
+        return job;
+    }
+
+    public static OutboxJob segmentUpload(String filePath, String objectName, long fileSize,
+                                          String sessionId, int segmentIndex, boolean finalSegment) {
+        OutboxJob job = upload(filePath, objectName, fileSize, true);
+        job.sessionId = sessionId;
+        job.segmentIndex = segmentIndex;
+        job.finalSegment = finalSegment;
+        return job;
+    }
+
+    public static OutboxJob metadataFor(OutboxJob upload) {
+        OutboxJob job = create(Type.METADATA, upload.objectName);
+        job.recordId = UUID.randomUUID().toString();
+        job.displayName = upload.displayName;
+        job.contentHash = upload.contentHash;
+        job.createdAt = upload.enqueuedAt;
+        job.filePath = upload.filePath;
+        job.fileSize = upload.fileSize;
+        job.sessionId = upload.sessionId;
+        job.segmentIndex = upload.segmentIndex;
+        job.finalSegment = upload.finalSegment;
+        job.durationMs = upload.durationMs;
+        job.width = upload.width;
+        job.height = upload.height;
+        job.frameCount = upload.frameCount;
+        job.bitRate = upload.bitRate;
+        job.metricsReportPath = upload.metricsReportPath;
+        return job;
+    }
+
+    public static OutboxJob delete(String objectName) {
+        return create(Type.DELETE, objectName);
+    }
+
+    private static OutboxJob create(Type type, String objectName) {
+        OutboxJob job = new OutboxJob();
+        job.type = type;
+        job.objectName = objectName;
+        job.enqueuedAt = System.currentTimeMillis();
+        return job;
+    }
+
+    public String key() {
+        return key(type, objectName);
+    }
+
+    public static String key(Type type, String objectName) {
+        return type.name() + ":" + objectName;
+    }
+}
@@ -0,0 +1,262 @@
+package com.screenrecorderapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mixes PCM from several {@link PcmRingBuffer}s into one 16-bit stream,
+ * converting each source's rate and channel count on the way.
+ *
+ * The first source added is the primary and sets the pace: {@link #mix} is
+ * only asked for as many frames as the primary can supply. Every other source
+ * runs on its own hardware clock, which drifts against the primary's by tens
+ * to hundreds of ppm. Left alone, its ring would slowly fill up or run dry. So
+ * each follower's resampling ratio is nudged, by at most
+ * {@link #MAX_CORRECTION}, to hold its buffered audio near the target
+ * latency. The correction it settles on is the measured drift. Beyond the
+ * maximum latency, the excess is skipped outright. A follower that runs dry is
+ * muted until it has buffered the target again.
+ *
+ * Resampling is linear interpolation, plenty for voice and game audio, and the
+ * mix saturates rather than wraps. All buffers are allocated up front; mixing
+ * allocates nothing. Only the thread calling {@link #mix} may touch the mixer
+ * and its sources once mixing has started.
+ */
+public class PcmMixer {
+    // 0.5%, far beyond any real clock mismatch, so the controller never saturates in practice
+    static final double MAX_CORRECTION = 0.005;
+    // Correction per unit of relative latency error; the steady-state error is drift / GAIN
+    private static final double GAIN = 0.01;
+    // Per mix call; about a second to follow a step change at 10 ms blocks
+    private static final double FILL_SMOOTHING = 0.01;
+    private static final int UNITY_GAIN = 1 << 15;
+
+    public static final class Source {
+        private final PcmRingBuffer ring;
+        private final int channels;
+        private final int sampleRate;
+        private final double nominalStep;
+        private final int gain;
+        private final boolean primary;
+        private final int targetFrames;
+        private final int maxFrames;
+        // Frame 0 holds the last frame consumed, the rest what this mix call looks at
+        private final short[] input;
+
+        private double step;
+        private double phase;
+        private double smoothedFill = -1;
+        private boolean primed;
+        private long underrunFrames;
+        private long skippedFrames;
+
+        private Source(PcmRingBuffer ring, int sampleRate, float gain, int outputRate, int maxOutputFrames,
+                       boolean primary, int targetLatencyMs, int maxLatencyMs) {
+            this.ring = ring;
+            this.channels = ring.getChannels();
+            this.sampleRate = sampleRate;
+            this.nominalStep = (double) sampleRate / outputRate;
+            this.step = nominalStep;
+            this.gain = Math.round(gain * UNITY_GAIN);
+            this.primary = primary;
+            this.primed = primary;
+            this.targetFrames = (int) ((long) sampleRate * targetLatencyMs / 1000);
+            this.maxFrames = (int) ((long) sampleRate * maxLatencyMs / 1000);
+            int maxInputFrames = (int) Math.ceil(maxOutputFrames * nominalStep * (1 + MAX_CORRECTION)) + 2;
+            this.input = new short[(maxInputFrames + 1) * channels];
+        }
+
+        /**
+         * Audio waiting in the ring, in microseconds; the latency this source
+         * adds before its samples reach the encoder.
+         */
+        public long getBufferedMicros() {
+            return ring.availableFrames() * 1000000L / sampleRate;
+        }
+
+        /**
+         * How much faster than nominal this source is being consumed, in ppm;
+         * in steady state, its clock's drift against the primary.
+         */
+        public double getDriftPpm() {
+            return (step / nominalStep - 1) * 1e6;
+        }
+
+        /**
+         * Output frames this source was silent for because its ring ran dry.
+         */
+        public long getUnderrunFrames() {
+            return underrunFrames;
+        }
+
+        /**
+         * Input frames thrown away to get back under the maximum latency.
+         */
+        public long getSkippedFrames() {
+            return skippedFrames;
+        }
+
+        public PcmRingBuffer getRing() {
+            return ring;
+        }
+    }
+
+    private final int outputRate;
+    private final int outputChannels;
+    private final int maxFramesPerMix;
+    private final int targetLatencyMs;
+    private final int maxLatencyMs;
+    private final List<Source> sources = new ArrayList<>();
+    private final int[] accumulator;
+
+    /**
+     * @param maxFramesPerMix the most output frames one {@link #mix} call produces
+     */
+    public PcmMixer(int outputRate, int outputChannels, int maxFramesPerMix, int targetLatencyMs, int maxLatencyMs) {
+        this.outputRate = outputRate;
+        this.outputChannels = outputChannels;
+        this.maxFramesPerMix = maxFramesPerMix;
+        this.targetLatencyMs = targetLatencyMs;
+        this.maxLatencyMs = maxLatencyMs;
+        this.accumulator = new int[maxFramesPerMix * outputChannels];
+    }
+
+    /**
+     * Adds a source at {@code sampleRate} with the ring's channel count. The
+     * first one added is the primary. Must be called before mixing starts.
+     */
+    public Source addSource(PcmRingBuffer ring, int sampleRate, float gain) {
+        Source source = new Source(ring, sampleRate, gain, outputRate, maxFramesPerMix, sources.isEmpty(),
+                targetLatencyMs, maxLatencyMs);
+        sources.add(source);
+        return source;
+    }
+
+    public int getOutputRate() {
+        return outputRate;
+    }
+
+    public int getOutputChannels() {
+        return outputChannels;
+    }
+
+    /**
+     * Output frames the primary has enough input for right now, up to the
+     * per-call maximum.
+     */
+    public int mixableFrames() {
+        if (sources.isEmpty()) {
+            return 0;
+        }
+        Source primary = sources.get(0);
+        double frames = (primary.ring.availableFrames() - 1 - primary.phase) / primary.step;
+        return (int) Math.max(0, Math.min(maxFramesPerMix, frames));
+    }
+
+    /**
+     * Mixes {@code frames} output frames (at most {@link #mixableFrames()})
+     * into {@code output}, interleaved.
+     */
+    public void mix(short[] output, int frames) {
+        int length = frames * outputChannels;
+        for (int i = 0; i < length; i++) {
+            accumulator[i] = 0;
+        }
+        for (int s = 0; s < sources.size(); s++) {
+            Source source = sources.get(s);
+            if (!source.primary) {
+                correctDrift(source);
+            }
+            render(source, frames);
+        }
+        for (int i = 0; i < length; i++) {
+            int sample = accumulator[i];
+            output[i] = (short) (sample > Short.MAX_VALUE ? Short.MAX_VALUE
+                    : sample < Short.MIN_VALUE ? Short.MIN_VALUE : sample);
+        }
+    }
+
+    private void correctDrift(Source source) {
+        int fill = source.ring.availableFrames();
+        if (fill > source.maxFrames) {
+            source.skippedFrames += source.ring.skip(fill - source.targetFrames);
+            fill = source.targetFrames;
+            source.smoothedFill = fill;
+        }
+        if (!source.primed) {
+            if (fill < source.targetFrames) {
+                return;
+            }
+            source.primed = true;
+            source.smoothedFill = fill;
+        }
+        source.smoothedFill = source.smoothedFill < 0 ? fill
+                : source.smoothedFill + (fill - source.smoothedFill) * FILL_SMOOTHING;
+        double error = (source.smoothedFill - source.targetFrames) / Math.max(1, source.targetFrames);
+        double correction = Math.max(-MAX_CORRECTION, Math.min(MAX_CORRECTION, error * GAIN));
+        // More buffered than wanted means the source runs fast: consume it faster
+        source.step = source.nominalStep * (1 + correction);
+    }
+
+    private void render(Source source, int frames) {
+        if (!source.primed) {
+            source.underrunFrames += frames;
+            return;
+        }
+        int channels = source.channels;
+        short[] input = source.input;
+        double end = source.phase + frames * source.step;
+        // Input frame i sits at position i + 1; position 0 is the last frame of the previous call
+        int needed = Math.max((int) (source.phase + (frames - 1) * source.step) + 1, (int) end);
+        int got = source.ring.peek(input, channels, needed);
+        if (got < needed) {
+            // Dry: stay silent and wait to buffer the target latency again, rather than stutter
+            source.primed = source.primary;
+            source.underrunFrames += frames;
+            return;
+        }
+
+        int gain = source.gain;
+        double position = source.phase;
+        for (int frame = 0, out = 0; frame < frames; frame++, out += outputChannels) {
+            int index = (int) position;
+            int fraction = (int) ((position - index) * UNITY_GAIN);
+            int a = index * channels;
+            int b = a + channels;
+            if (channels == outputChannels) {
+                for (int c = 0; c < channels; c++) {
+                    accumulator[out + c] += scale(interpolate(input[a + c], input[b + c], fraction), gain);
+                }
+            } else if (channels == 1) {
+                int sample = scale(interpolate(input[a], input[b], fraction), gain);
+                for (int c = 0; c < outputChannels; c++) {
+                    accumulator[out + c] += sample;
+                }
+            } else {
+                // Down to mono (or fewer channels): the average of all of them
+                int sum = 0;
+                for (int c = 0; c < channels; c++) {
+                    sum += interpolate(input[a + c], input[b + c], fraction);
+                }
+                int sample = scale(sum / channels, gain);
+                for (int c = 0; c < outputChannels; c++) {
+                    accumulator[out + c] += sample;
+                }
+            }
+            position += source.step;
+        }
+
+        int consumed = (int) end;
+        source.ring.skip(consumed);
+        System.arraycopy(input, consumed * channels, input, 0, channels);
+        source.phase = end - consumed;
+    }
+
+    private static int interpolate(short a, short b, int fraction) {
+        return a + (((b - a) * fraction) >> 15);
+    }
+
+    private static int scale(int sample, int gain) {
+        return (sample * gain) >> 15;
+    }
+}
@@ -0,0 +1,127 @@
+package com.screenrecorderapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer, single-consumer ring of interleaved 16-bit PCM frames.
+ *
+ * One capture thread writes and one mixing thread reads; neither ever blocks
+ * or takes a lock. Each side owns its own position and publishes it with an
+ * ordered store, which is all the other side needs to see the samples behind
+ * it. The array is allocated once, so moving audio through allocates nothing.
+ *
+ * When the ring is full, the frames that do not fit are dropped and counted:
+ * the producer cannot move the consumer's position, so it is the newest audio
+ * that goes.
+ */
+public class PcmRingBuffer {
+    private final short[] samples;
+    private final int mask;
+    private final int channels;
+    private final int capacityFrames;
+    // Positions in samples since the start; only their difference wraps
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+    // Producer side only, read for metrics
+    private volatile long droppedFrames;
+
+    /**
+     * @param capacityFrames rounded up so the ring holds a power of two samples
+     */
+    public PcmRingBuffer(int capacityFrames, int channels) {
+        int size = Integer.highestOneBit(Math.max(1, capacityFrames * channels - 1)) << 1;
+        this.samples = new short[size];
+        this.mask = size - 1;
+        this.channels = channels;
+        this.capacityFrames = size / channels;
+    }
+
+    public int getChannels() {
+        return channels;
+    }
+
+    public int getCapacityFrames() {
+        return capacityFrames;
+    }
+
+    /**
+     * Producer: appends up to {@code frames} frames from {@code source}.
+     *
+     * @return the frames written; the rest were dropped
+     */
+    public int write(short[] source, int offset, int frames) {
+        long write = writePosition.get();
+        int free = capacityFrames - (int) ((write - readPosition.get()) / channels);
+        int count = Math.min(frames, free);
+        if (count < frames) {
+            droppedFrames += frames - count;
+        }
+        copy(source, offset, samples, (int) (write & mask), count * channels, true);
+        writePosition.lazySet(write + (long) count * channels);
+        return count;
+    }
+
+    /**
+     * Consumer: copies up to {@code frames} frames into {@code target} without
+     * consuming them.
+     *
+     * @return the frames copied
+     */
+    public int peek(short[] target, int offset, int frames) {
+        long read = readPosition.get();
+        int count = Math.min(frames, (int) ((writePosition.get() - read) / channels));
+        copy(samples, (int) (read & mask), target, offset, count * channels, false);
+        return count;
+    }
+
+    /**
+     * Consumer: discards up to {@code frames} frames.
+     *
+     * @return the frames discarded
+     */
+    public int skip(int frames) {
+        long read = readPosition.get();
+        int count = Math.min(frames, (int) ((writePosition.get() - read) / channels));
+        readPosition.lazySet(read + (long) count * channels);
+        return count;
+    }
+
+    /**
+     * Consumer: reads up to {@code frames} frames into {@code target}.
+     *
+     * @return the frames read
+     */
+    public int read(short[] target, int offset, int frames) {
+        return skip(peek(target, offset, frames));
+    }
+
+    /**
+     * Frames written and not read yet. Exact on the consumer side, a lower
+     * bound anywhere else.
+     */
+    public int availableFrames() {
+        return (int) ((writePosition.get() - readPosition.get()) / channels);
+    }
+
+    public long getFramesWritten() {
+        return writePosition.get() / channels;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    // Copies between the ring and a linear array in at most two pieces, split where the ring wraps
+    private void copy(short[] from, int fromOffset, short[] to, int toOffset, int length, boolean intoRing) {
+        int ringOffset = intoRing ? toOffset : fromOffset;
+        int first = Math.min(length, samples.length - ringOffset);
+        System.arraycopy(from, fromOffset, to, toOffset, first);
+        if (first < length) {
+            if (intoRing) {
+                System.arraycopy(from, fromOffset + first, to, 0, length - first);
+            } else {
+                System.arraycopy(from, 0, to, toOffset + first, length - first);
+            }
+        }
+    }
+}
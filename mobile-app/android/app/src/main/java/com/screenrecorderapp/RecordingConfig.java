@@ -0,0 +1,98 @@
+package com.screenrecorderapp;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Everything an engine needs to know to set up one recording.
+ */
+public class RecordingConfig {
+    public final int width;
+    public final int height;
+    public final int densityDpi;
+    public final int frameRate;
+    public final int bitRate;
+    public final int keyFrameIntervalSec;
+    public final boolean recordAudio;
+    public final File outputFile;
+    // 0 for either bound means no limit; both 0 records a single file
+    public final long segmentDurationMs;
+    public final long segmentMaxBytes;
+    // null lets the engine pick the platform's default encoder
+    public final String encoderName;
+    public final int bitrateMode;
+    // Drop frames identical to the one before, for a variable frame rate stream
+    public final boolean skipStaticFrames;
+
+    public RecordingConfig(int width, int height, int densityDpi, int frameRate, int bitRate,
+                           int keyFrameIntervalSec, boolean recordAudio, File outputFile) {
+        this(width, height, densityDpi, frameRate, bitRate, keyFrameIntervalSec, recordAudio, outputFile, 0, 0,
+                null, EncoderProfile.BITRATE_MODE_DEFAULT, false);
+    }
+
+    private RecordingConfig(int width, int height, int densityDpi, int frameRate, int bitRate,
+                            int keyFrameIntervalSec, boolean recordAudio, File outputFile,
+                            long segmentDurationMs, long segmentMaxBytes, String encoderName, int bitrateMode,
+                            boolean skipStaticFrames) {
+        this.width = width;
+        this.height = height;
+        this.densityDpi = densityDpi;
+        this.frameRate = frameRate;
+        this.bitRate = bitRate;
+        this.keyFrameIntervalSec = keyFrameIntervalSec;
+        this.recordAudio = recordAudio;
+        this.outputFile = outputFile;
+        this.segmentDurationMs = segmentDurationMs;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.encoderName = encoderName;
+        this.bitrateMode = bitrateMode;
+        this.skipStaticFrames = skipStaticFrames;
+    }
+
+    /**
+     * Builds a config from a planned encoder profile.
+     */
+    public static RecordingConfig fromProfile(EncoderProfile profile, int densityDpi, int keyFrameIntervalSec,
+                                              boolean recordAudio, File outputFile) {
+        return new RecordingConfig(profile.width, profile.height, densityDpi, profile.frameRate, profile.bitRate,
+                keyFrameIntervalSec, recordAudio, outputFile, 0, 0, profile.encoderName, profile.bitrateMode, false);
+    }
+
+    /**
+     * Returns a copy that rolls the output over into segments bounded by time or size.
+     */
+    public RecordingConfig withSegments(long segmentDurationMs, long segmentMaxBytes) {
+        return new RecordingConfig(width, height, densityDpi, frameRate, bitRate, keyFrameIntervalSec,
+                recordAudio, outputFile, segmentDurationMs, segmentMaxBytes, encoderName, bitrateMode,
+                skipStaticFrames);
+    }
+
+    /**
+     * Returns a copy that, where the engine supports it, only encodes frames
+     * that differ from the one before.
+     */
+    public RecordingConfig withStaticFrameSkipping(boolean skipStaticFrames) {
+        return new RecordingConfig(width, height, densityDpi, frameRate, bitRate, keyFrameIntervalSec,
+                recordAudio, outputFile, segmentDurationMs, segmentMaxBytes, encoderName, bitrateMode,
+                skipStaticFrames);
+    }
+
+    public boolean isSegmented() {
+        return segmentDurationMs > 0 || segmentMaxBytes > 0;
+    }
+
+    /**
+     * The file segment {@code index} is written to, e.g. recording_123_seg002.mp4.
+     */
+    public File segmentFile(int index) {
+        if (!isSegmented()) {
+            return outputFile;
+        }
+        String name = outputFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return new File(outputFile.getParentFile(),
+                String.format(Locale.US, "%s_seg%03d%s", base, index, extension));
+    }
+}
@@ -0,0 +1,87 @@
+package com.screenrecorderapp;
+
+import android.media.projection.MediaProjection;
+import android.view.Surface;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Turns frames rendered into an input surface into a finished MP4 file.
+ *
+ * The caller prepares the engine, points a VirtualDisplay at
+ * {@link #getInputSurface()}, starts it, and later calls {@link #stop()}, which
+ * only returns once the output file is finalized.
+ */
+public interface RecordingEngine {
+
+    interface SegmentListener {
+        /**
+         * Called once a segment file is closed and complete. The last call of a
+         * recording, made from {@link #stop()}, has {@code finalSegment} set.
+         */
+        void onSegmentFinished(File segmentFile, int segmentIndex, boolean finalSegment);
+    }
+
+    interface InputSurfaceListener {
+        /**
+         * Called, on an engine thread, when frames have to go to {@code surface}
+         * instead of the surface {@link #getInputSurface()} returned. The caller
+         * points its VirtualDisplay there.
+         */
+        void onInputSurfaceChanged(Surface surface);
+    }
+
+    void prepare(RecordingConfig config) throws IOException;
+
+    Surface getInputSurface();
+
+    void start() throws IOException;
+
+    /**
+     * Stops capture and blocks until the output file is complete.
+     *
+     * @return true if a playable file was written
+     */
+    boolean stop();
+
+    void release();
+
+    /**
+     * Receives every encoded sample as it is muxed, on the engine's drain
+     * threads. Engines that never see encoded output ignore the listener.
+     */
+    void setSampleListener(SampleDrainer.Listener listener);
+
+    /**
+     * Receives closed segments when the config asks for segmented output.
+     */
+    void setSegmentListener(SegmentListener listener);
+
+    /**
+     * Receives a new input surface if the engine has to move its input while
+     * recording. Engines whose input never moves ignore the listener.
+     */
+    void setInputSurfaceListener(InputSurfaceListener listener);
+
+    /**
+     * Asks a segmented recording to close its current segment as soon as
+     * possible, so what was just captured shows up as a finished segment.
+     *
+     * @return false if the engine cannot break segments on demand
+     */
+    boolean requestSegmentBreak();
+
+    /**
+     * Where the engine records what it can observe of the encoder and muxer.
+     * Must be called before {@link #start()}.
+     */
+    void setMetrics(MetricsRegistry metrics);
+
+    /**
+     * Also records what other apps are playing, through {@code projection},
+     * mixed with the microphone. Needs Android 10; older devices, apps that
+     * opt out of capture, and engines that cannot mix keep recording the
+     * microphone alone. Must be called before {@link #start()}.
+     */
+    void setPlaybackCapture(MediaProjection projection);
+}
@@ -0,0 +1,322 @@
+package com.screenrecorderapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-device index of local recordings, kept in memory and persisted as an
+ * append-only binary log.
+ *
+ * Every change appends the full, compactly encoded entry, so the log replays
+ * into the in-memory map in one sequential read on a cold start and listing
+ * never touches the recordings directory. A torn tail after a crash costs at
+ * most the last update; the log is compacted once dead records outnumber live
+ * ones.
+ */
+public class RecordingIndex {
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final int COMPACT_MIN_RECORDS = 256;
+
+    // Stored by ordinal, so new states go last
+    public enum UploadState {
+        RECORDING,
+        LOCAL,
+        QUEUED,
+        UPLOADED,
+        FAILED,
+        // Uploaded, and the copy on the device was removed to free space
+        REMOTE_ONLY
+    }
+
+    public static class Entry {
+        public String path;
+        public String objectName;
+        public String sessionId;
+        public int segmentIndex;
+        public long size;
+        public long durationMs;
+        public long createdAt;
+        public String contentHash;
+        public UploadState uploadState = UploadState.LOCAL;
+        public String remoteId;
+
+        public Entry(String path) {
+            this.path = path;
+        }
+
+        Entry copy() {
+            Entry copy = new Entry(path);
+            copy.objectName = objectName;
+            copy.sessionId = sessionId;
+            copy.segmentIndex = segmentIndex;
+            copy.size = size;
+            copy.durationMs = durationMs;
+            copy.createdAt = createdAt;
+            copy.contentHash = contentHash;
+            copy.uploadState = uploadState;
+            copy.remoteId = remoteId;
+            return copy;
+        }
+    }
+
+    public interface Filter {
+        boolean accept(Entry entry);
+    }
+
+    public interface Mutation {
+        void apply(Entry entry);
+    }
+
+    private static final Comparator<Entry> NEWEST_FIRST = (a, b) -> Long.compare(b.createdAt, a.createdAt);
+
+    private final AppendOnlyJournal journal;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int records;
+
+    private RecordingIndex(File file) {
+        // The recordings themselves are the source of truth, so a power cut may lose the last
+        // few updates; a process crash loses nothing since every append reaches the OS
+        this.journal = new AppendOnlyJournal(file, false);
+    }
+
+    public static RecordingIndex open(File file) throws IOException {
+        RecordingIndex index = new RecordingIndex(file);
+        index.load();
+        return index;
+    }
+
+    private synchronized void load() throws IOException {
+        entries.clear();
+        records = 0;
+        journal.replay(record -> {
+            records++;
+            try {
+                apply(record);
+            } catch (IOException e) {
+                // A record from a newer format or a bad write; the rest of the log still counts
+            }
+        });
+        compactIfNeeded();
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        if (in.readByte() != FORMAT_VERSION) {
+            throw new IOException("Unknown index record version");
+        }
+        byte op = in.readByte();
+        String path = in.readUTF();
+        if (op == OP_REMOVE) {
+            entries.remove(path);
+            return;
+        }
+        Entry entry = new Entry(path);
+        entry.objectName = readNullable(in);
+        entry.sessionId = readNullable(in);
+        entry.segmentIndex = in.readInt();
+        entry.size = in.readLong();
+        entry.durationMs = in.readLong();
+        entry.createdAt = in.readLong();
+        entry.contentHash = readNullable(in);
+        int state = in.readByte();
+        if (state < 0 || state >= UploadState.values().length) {
+            throw new IOException("Unknown upload state " + state);
+        }
+        entry.uploadState = UploadState.values()[state];
+        entry.remoteId = readNullable(in);
+        entries.put(path, entry);
+    }
+
+    private static byte[] encode(byte op, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(op);
+        out.writeUTF(entry.path);
+        if (op == OP_PUT) {
+            writeNullable(out, entry.objectName);
+            writeNullable(out, entry.sessionId);
+            out.writeInt(entry.segmentIndex);
+            out.writeLong(entry.size);
+            out.writeLong(entry.durationMs);
+            out.writeLong(entry.createdAt);
+            writeNullable(out, entry.contentHash);
+            out.writeByte(entry.uploadState.ordinal());
+            writeNullable(out, entry.remoteId);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Adds or replaces the entry for {@code entry.path}.
+     */
+    public synchronized void put(Entry entry) throws IOException {
+        Entry stored = entry.copy();
+        if (stored.createdAt == 0) {
+            stored.createdAt = System.currentTimeMillis();
+        }
+        store(stored);
+    }
+
+    /**
+     * Applies {@code mutation} to the entry for {@code path} and persists it.
+     *
+     * @return false if no such entry exists
+     */
+    public synchronized boolean update(String path, Mutation mutation) throws IOException {
+        Entry current = entries.get(path);
+        if (current == null) {
+            return false;
+        }
+        Entry updated = current.copy();
+        mutation.apply(updated);
+        store(updated);
+        return true;
+    }
+
+    public synchronized boolean setUploadState(String path, UploadState state) throws IOException {
+        return update(path, entry -> entry.uploadState = state);
+    }
+
+    public synchronized void remove(String path) throws IOException {
+        if (entries.remove(path) != null) {
+            write(OP_REMOVE, new Entry(path));
+        }
+    }
+
+    public synchronized Entry get(String path) {
+        Entry entry = entries.get(path);
+        return entry != null ? entry.copy() : null;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Entries accepted by {@code filter} (all of them if null), newest first.
+     */
+    public synchronized List<Entry> list(Filter filter) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (filter == null || filter.accept(entry)) {
+                result.add(entry.copy());
+            }
+        }
+        Collections.sort(result, NEWEST_FIRST);
+        return result;
+    }
+
+    public List<Entry> listByState(UploadState state) {
+        return list(entry -> entry.uploadState == state);
+    }
+
+    /**
+     * Brings the index in line with the files in {@code recordingsDir}: files
+     * missing from the index are added as local recordings and entries whose
+     * file is gone are dropped, unless the recording is kept only remotely.
+     * Used to seed the index on first launch and to repair it if the log was
+     * lost.
+     */
+    public synchronized void rebuild(File recordingsDir) throws IOException {
+        List<String> missing = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.uploadState != UploadState.RECORDING && entry.uploadState != UploadState.REMOTE_ONLY
+                    && !new File(entry.path).exists()) {
+                missing.add(entry.path);
+            }
+        }
+        for (String path : missing) {
+            remove(path);
+        }
+
+        File[] files = recordingsDir.listFiles((dir, name) -> name.endsWith(".mp4"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!entries.containsKey(file.getAbsolutePath())) {
+                Entry entry = new Entry(file.getAbsolutePath());
+                entry.size = file.length();
+                entry.createdAt = file.lastModified();
+                put(entry);
+            }
+        }
+    }
+
+    /**
+     * Drops entries of {@code sessionId} that never finished recording, e.g.
+     * an empty last segment the engine threw away.
+     */
+    public synchronized void discardUnfinished(String sessionId) throws IOException {
+        List<String> unfinished = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.uploadState == UploadState.RECORDING && sessionId.equals(entry.sessionId)) {
+                unfinished.add(entry.path);
+            }
+        }
+        for (String path : unfinished) {
+            remove(path);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        journal.close();
+    }
+
+    private void store(Entry entry) throws IOException {
+        // The map is updated first so a compaction triggered by this write already includes it
+        Entry previous = entries.put(entry.path, entry);
+        try {
+            write(OP_PUT, entry);
+        } catch (IOException e) {
+            if (previous != null) {
+                entries.put(entry.path, previous);
+            } else {
+                entries.remove(entry.path);
+            }
+            throw e;
+        }
+    }
+
+    private void write(byte op, Entry entry) throws IOException {
+        journal.append(encode(op, entry));
+        records++;
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (records < COMPACT_MIN_RECORDS || records < entries.size() * 2) {
+            return;
+        }
+        List<byte[]> live = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            live.add(encode(OP_PUT, entry));
+        }
+        journal.rewrite(live);
+        records = live.size();
+    }
+}
@@ -0,0 +1,118 @@
+package com.screenrecorderapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pages through the {@code recordings} table newest first.
+ *
+ * Pages are cut by keyset, not offset: the cursor holds the created_at and id
+ * of the last row returned, and the next page asks for rows strictly after
+ * that pair in {@code created_at desc, id desc} order. The database walks
+ * straight into the (created_at, id) index at that point, so page 500 costs
+ * the same as page 1, and rows inserted meanwhile never shift a page or
+ * repeat a row. One row more than the limit is fetched to learn whether
+ * another page follows without a further request.
+ *
+ * With a {@link RecordingPageCache}, each page is sent with the ETag it was
+ * last seen with and reused when the server answers 304. Servers that send no
+ * ETag are simply not cached.
+ */
+public class RecordingLister {
+    public static final int MAX_LIMIT = 1000;
+    private static final String ORDER = "created_at.desc,id.desc";
+
+    private final SupabaseTransport transport;
+    private final RecordingPageCache cache;
+    private final Gson gson = new Gson();
+
+    /**
+     * @param cache may be null to always fetch
+     */
+    public RecordingLister(SupabaseTransport transport, RecordingPageCache cache) {
+        this.transport = transport;
+        this.cache = cache;
+    }
+
+    /**
+     * The page after {@code cursor} (the first page if null), at most
+     * {@code limit} rows.
+     */
+    public RecordingPage list(String cursor, int limit) throws IOException {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT + ": " + limit);
+        }
+        String url = pageUrl(cursor, limit);
+        RecordingPageCache.Entry cached = cache != null ? cache.get(url) : null;
+
+        Request.Builder request = transport.authorized(url).get();
+        if (cached != null) {
+            request.header("If-None-Match", cached.etag);
+        }
+        MetricsRegistry metrics = transport.metrics();
+        try (Response response = transport.execute(request.build())) {
+            if (response.code() == 304 && cached != null) {
+                metrics.counter("list.cache_revalidated").increment();
+                if (cached.page == null) {
+                    cached.page = parse(cached.body, limit, true);
+                }
+                return cached.page;
+            }
+            if (!response.isSuccessful()) {
+                throw new IOException("Listing failed: " + response.code());
+            }
+            String body = response.body() != null ? response.body().string() : "[]";
+            RecordingPage page = parse(body, limit, false);
+            metrics.counter("list.cache_misses").increment();
+            String etag = response.header("ETag");
+            if (cache != null && etag != null) {
+                cache.put(url, etag, body);
+            }
+            return page;
+        }
+    }
+
+    private String pageUrl(String cursor, int limit) {
+        HttpUrl.Builder url = HttpUrl.get(transport.getBaseUrl() + "/rest/v1/recordings").newBuilder()
+                .addQueryParameter("select", RemoteRecording.COLUMNS)
+                .addQueryParameter("order", ORDER)
+                .addQueryParameter("limit", String.valueOf(limit + 1));
+        if (cursor != null) {
+            int split = cursor.lastIndexOf('|');
+            if (split <= 0 || split == cursor.length() - 1) {
+                throw new IllegalArgumentException("Not a listing cursor: " + cursor);
+            }
+            // Timestamps contain '.' and ':', which PostgREST only takes quoted inside or()
+            String createdAt = "\"" + cursor.substring(0, split) + "\"";
+            String id = cursor.substring(split + 1);
+            url.addQueryParameter("or", "(created_at.lt." + createdAt
+                    + ",and(created_at.eq." + createdAt + ",id.lt." + id + "))");
+        }
+        return url.build().toString();
+    }
+
+    private RecordingPage parse(String body, int limit, boolean cached) throws IOException {
+        RemoteRecording[] rows;
+        try {
+            rows = gson.fromJson(body, RemoteRecording[].class);
+        } catch (JsonParseException e) {
+            throw new IOException("Unreadable listing", e);
+        }
+        if (rows == null) {
+            rows = new RemoteRecording[0];
+        }
+        if (rows.length <= limit) {
+            return new RecordingPage(new ArrayList<>(Arrays.asList(rows)), null, cached);
+        }
+        List<RemoteRecording> page = new ArrayList<>(Arrays.asList(rows).subList(0, limit));
+        RemoteRecording last = page.get(limit - 1);
+        return new RecordingPage(page, last.createdAt + "|" + last.id, cached);
+    }
+}
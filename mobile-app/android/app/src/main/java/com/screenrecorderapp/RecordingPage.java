@@ -0,0 +1,31 @@
+package com.screenrecorderapp;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of remote recordings, newest first, and the cursor that continues
+ * after it.
+ */
+public class RecordingPage {
+    public final List<RemoteRecording> recordings;
+    /**
+     * Opaque; pass it to the next listRecordings call. null on the last page.
+     */
+    public final String nextCursor;
+    /**
+     * Whether the page came from the local cache after the server confirmed
+     * it is unchanged.
+     */
+    public final boolean cached;
+
+    RecordingPage(List<RemoteRecording> recordings, String nextCursor, boolean cached) {
+        this.recordings = Collections.unmodifiableList(recordings);
+        this.nextCursor = nextCursor;
+        this.cached = cached;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
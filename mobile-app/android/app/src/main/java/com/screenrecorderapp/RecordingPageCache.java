@@ -0,0 +1,130 @@
+package com.screenrecorderapp;
+
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Listing responses kept on the device, each with the ETag the server gave it,
+ * so browsing the same pages again only costs a conditional request that
+ * comes back 304 with no body.
+ *
+ * Holds at most {@code maxPages} pages and drops the least recently used one
+ * beyond that. Every page is also written to its own file, so the cache
+ * survives a restart; on open, file modification times restore the LRU order.
+ */
+public class RecordingPageCache {
+    private static final String SUFFIX = ".page";
+
+    static final class Entry {
+        final String etag;
+        final String body;
+        // Parsed on first reuse, so a page revalidated again and again is only parsed once
+        volatile RecordingPage page;
+
+        Entry(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
+
+    private final File dir;
+    private final int maxPages;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    public RecordingPageCache(File dir, int maxPages) {
+        this.dir = dir;
+        this.maxPages = maxPages;
+        load();
+    }
+
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            // Only the order on disk; a failure just makes this page look older after a restart
+            fileFor(key).setLastModified(System.currentTimeMillis());
+        }
+        return entry;
+    }
+
+    public synchronized void put(String key, String etag, String body) {
+        entries.put(key, new Entry(etag, body));
+        File file = fileFor(key);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        try (BufferedSink sink = Okio.buffer(Okio.sink(tmp))) {
+            sink.writeUtf8(key).writeByte('\n');
+            sink.writeUtf8(etag).writeByte('\n');
+            sink.writeUtf8(body);
+        } catch (IOException e) {
+            // Still cached in memory; it just will not outlive the process
+            tmp.delete();
+        }
+        if (tmp.exists() && !tmp.renameTo(file)) {
+            tmp.delete();
+        }
+        trim();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        for (String key : entries.keySet()) {
+            fileFor(key).delete();
+        }
+        entries.clear();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxPages && eldest.hasNext()) {
+            fileFor(eldest.next().getKey()).delete();
+            eldest.remove();
+        }
+    }
+
+    private void load() {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        // Least recently used first, so insertion order doubles as access order
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (!file.getName().endsWith(SUFFIX)) {
+                // A write cut short by the process dying
+                file.delete();
+                continue;
+            }
+            try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+                String key = source.readUtf8LineStrict();
+                String etag = source.readUtf8LineStrict();
+                if (file.equals(fileFor(key))) {
+                    entries.put(key, new Entry(etag, source.readUtf8()));
+                    continue;
+                }
+            } catch (IOException e) {
+                // Truncated or foreign; dropped below
+            }
+            file.delete();
+        }
+        trim();
+    }
+
+    private File fileFor(String key) {
+        // Keys are full URLs; their hash makes a safe, fixed-length file name
+        byte[] digest = ContentHash.newDigest().digest(key.getBytes(StandardCharsets.UTF_8));
+        return new File(dir, ContentHash.hex(digest).substring(0, 32) + SUFFIX);
+    }
+}
@@ -0,0 +1,186 @@
+package com.screenrecorderapp;
+
+import com.google.gson.stream.JsonWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A JSON array of recordings rows, streamed straight into the request sink.
+ *
+ * Rows are written token by token with a JsonWriter instead of being built up
+ * as a JsonObject tree and then serialized to a String, so a batch costs no
+ * intermediate copies. Every row carries the same keys, which PostgREST
+ * requires for a bulk insert.
+ */
+public class RecordingRowsBody extends RequestBody {
+    /** The columns written for every row, for PostgREST's {@code columns} parameter. */
+    public static final String COLUMNS =
+            "id,file_name,file_path,file_size,created_at,session_id,segment_index,is_final_segment,"
+            + "duration_ms,width,height,frame_count,bit_rate,content_hash,metrics";
+
+    // Reports are a few KB; anything much bigger is not one we wrote
+    private static final long MAX_REPORT_SIZE = 256 * 1024;
+
+    private final List<OutboxJob> jobs;
+
+    public RecordingRowsBody(List<OutboxJob> jobs) {
+        this.jobs = jobs;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return SupabaseTransport.JSON;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        JsonWriter writer = new JsonWriter(new SinkWriter(sink));
+
+        writer.beginArray();
+        for (OutboxJob job : jobs) {
+            writer.beginObject();
+            writer.name("id").value(job.recordId);
+            writer.name("file_name").value(job.displayName != null ? job.displayName : fileName(job.objectName));
+            writer.name("file_path").value(job.objectName);
+            writer.name("file_size").value(job.fileSize);
+            writer.name("created_at").value(isoTimestamp(job.createdAt > 0 ? job.createdAt : job.enqueuedAt));
+            if (job.sessionId != null) {
+                writer.name("session_id").value(job.sessionId);
+            } else {
+                writer.name("session_id").nullValue();
+            }
+            writer.name("segment_index").value(job.segmentIndex);
+            writer.name("is_final_segment").value(job.finalSegment);
+            writer.name("duration_ms").value(job.durationMs);
+            writer.name("width").value(job.width);
+            writer.name("height").value(job.height);
+            writer.name("frame_count").value(job.frameCount);
+            writer.name("bit_rate").value(job.bitRate);
+            if (job.contentHash != null) {
+                writer.name("content_hash").value(job.contentHash);
+            } else {
+                writer.name("content_hash").nullValue();
+            }
+            String report = readReport(job.metricsReportPath);
+            if (report != null) {
+                writer.name("metrics").jsonValue(report);
+            } else {
+                writer.name("metrics").nullValue();
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Formats epoch millis as yyyy-MM-ddTHH:mm:ss.SSSZ in UTC. SimpleDateFormat
+     * costs more than the rest of a row put together, and java.time needs API 26.
+     */
+    static String isoTimestamp(long millis) {
+        long days = Math.floorDiv(millis, 86400000L);
+        long millisOfDay = millis - days * 86400000L;
+
+        // Civil date from days since the epoch (proleptic Gregorian, Hinnant's algorithm)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+
+        char[] out = new char[24];
+        digits(out, 0, year, 4);
+        out[4] = '-';
+        digits(out, 5, month, 2);
+        out[7] = '-';
+        digits(out, 8, day, 2);
+        out[10] = 'T';
+        digits(out, 11, (int) (millisOfDay / 3600000), 2);
+        out[13] = ':';
+        digits(out, 14, (int) (millisOfDay / 60000 % 60), 2);
+        out[16] = ':';
+        digits(out, 17, (int) (millisOfDay / 1000 % 60), 2);
+        out[19] = '.';
+        digits(out, 20, (int) (millisOfDay % 1000), 3);
+        out[23] = 'Z';
+        return new String(out);
+    }
+
+    private static void digits(char[] out, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Hands JsonWriter's tokens to Okio's own UTF-8 encoder. An OutputStreamWriter
+     * would run a charset encoder per token and allocate 8K of buffers per body.
+     */
+    private static class SinkWriter extends Writer {
+        private final BufferedSink sink;
+
+        SinkWriter(BufferedSink sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            sink.writeUtf8CodePoint(c);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            sink.writeUtf8(str, off, off + len);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            sink.writeUtf8(new String(cbuf, off, len));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // The sink belongs to OkHttp, which flushes it once the body is written
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * The session report as written by RecordingService, or null if there is
+     * none. It is our own JSON, so it goes into the body as is.
+     */
+    private static String readReport(String path) {
+        if (path == null) {
+            return null;
+        }
+        File file = new File(path);
+        if (!file.isFile() || file.length() > MAX_REPORT_SIZE) {
+            return null;
+        }
+        try (BufferedSource source = Okio.buffer(Okio.source(file))) {
+            return source.readUtf8();
+        } catch (IOException e) {
+            // A missing report never holds back the row itself
+            return null;
+        }
+    }
+
+    private static String fileName(String objectName) {
+        int slash = objectName.lastIndexOf('/');
+        return slash >= 0 ? objectName.substring(slash + 1) : objectName;
+    }
+}
@@ -0,0 +1,682 @@
+package com.screenrecorderapp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.hardware.display.DisplayManager;
+import android.hardware.display.VirtualDisplay;
+import android.media.projection.MediaProjection;
+import android.media.projection.MediaProjectionManager;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Process;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import com.google.gson.stream.JsonWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Foreground service that owns screen capture.
+ *
+ * All recorder, projection and display work runs on a dedicated capture
+ * HandlerThread, so VirtualDisplay and MediaProjection callbacks never land on
+ * the UI looper. While the consent dialog is showing, the encoder is prepared
+ * speculatively, so accepting only has to start it.
+ *
+ * In replay-buffer mode nothing is kept or uploaded by default: short segments
+ * go into a {@link ReplayBuffer} that holds the last minute, and
+ * {@link #saveClip} stitches it into a recording on demand.
+ */
+public class RecordingService extends Service {
+    private static final String TAG = "RecordingService";
+    private static final String CHANNEL_ID = "recording";
+    private static final int NOTIFICATION_ID = 1;
+    private static final long SEGMENT_DURATION_MS = 30000;
+    private static final long SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+    // Whether the session report goes up with the final segment's row or stays on the device
+    private static final boolean UPLOAD_METRICS_REPORTS = true;
+    // Short replay segments keep the clip cut close to the save tap and each eviction small
+    private static final long REPLAY_WINDOW_MS = 60000;
+    private static final long REPLAY_SEGMENT_MS = 5000;
+    private static final long REPLAY_SEGMENT_MAX_BYTES = 32L * 1024 * 1024;
+    private static final long REPLAY_MAX_BYTES = 256L * 1024 * 1024;
+    // A static screen produces no key frame to break on; save what exists after this long
+    private static final long CLIP_BREAK_TIMEOUT_MS = 2000;
+    private static final boolean UPLOAD_CLIPS = true;
+    // Encode only frames that changed. Off until it has run on more encoders; the MediaRecorder
+    // fallback always encodes every frame
+    private static final boolean SKIP_STATIC_FRAMES = false;
+
+    public interface Listener {
+        void onSessionStateChanged(RecordingSession.State state);
+    }
+
+    public interface ClipCallback {
+        void onClipSaved(File clip, long durationMs);
+
+        void onClipFailed(String error);
+    }
+
+    public class LocalBinder extends Binder {
+        public RecordingService getService() {
+            return RecordingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final RecordingSession session = new RecordingSession();
+    private HandlerThread captureThread;
+    private Handler captureHandler;
+    private volatile Listener listener;
+    // Finished segments are rewritten, indexed and queued for upload in order, off the capture path
+    private final ExecutorService postProcessor = Executors.newSingleThreadExecutor();
+    // Only touched on the post-processor; the final segment waits there for the session report
+    private File pendingFinalSegment;
+    private int pendingFinalSegmentIndex;
+    // Also post-processor only; saves waiting for the segment that holds the last seconds
+    private final List<ClipCallback> pendingClips = new ArrayList<>();
+
+    // Only touched on the capture thread
+    private RecordingEngine recordingEngine;
+    private RecordingConfig recordingConfig;
+    private String sessionId;
+    private MediaProjection mediaProjection;
+    private VirtualDisplay virtualDisplay;
+    private MetricsRegistry sessionMetrics;
+    private long recordingStartedNanos;
+    private ReplayBuffer replayBuffer;
+
+    private volatile boolean replayMode;
+    private volatile long tapNanos;
+    private volatile long firstFrameLatencyMs = -1;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        captureThread = new HandlerThread("capture", Process.THREAD_PRIORITY_DISPLAY);
+        captureThread.start();
+        captureHandler = new Handler(captureThread.getLooper());
+
+        session.setListener((from, to) -> {
+            Listener current = listener;
+            if (current != null) {
+                current.onSessionStateChanged(to);
+            }
+        });
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Started only to keep capture alive in the background; nothing to redeliver
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopCapture();
+        captureHandler.post(this::releasePrewarmed);
+        // After finishRecording, which still hands the last segment over; queued segments still get processed
+        captureHandler.post(postProcessor::shutdown);
+        captureThread.quitSafely();
+        super.onDestroy();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public RecordingSession getSession() {
+        return session;
+    }
+
+    /**
+     * Tap-to-first-encoded-frame latency of the last recording, or -1 if no
+     * frame has come out of the encoder yet.
+     */
+    public long getFirstFrameLatencyMillis() {
+        return firstFrameLatencyMs;
+    }
+
+    /**
+     * Whether the current or last session records into the replay buffer.
+     */
+    public boolean isReplayMode() {
+        return replayMode;
+    }
+
+    /**
+     * Prepares an engine while the user is still looking at the consent dialog.
+     * {@code tapNanos} is the System.nanoTime() of the start tap.
+     */
+    public void prewarm(long tapNanos) {
+        prewarm(tapNanos, false);
+    }
+
+    /**
+     * Like {@link #prewarm(long)}, and selects whether the session that
+     * follows records normally or into the replay buffer.
+     */
+    public void prewarm(long tapNanos, boolean replayBuffer) {
+        this.tapNanos = tapNanos;
+        this.firstFrameLatencyMs = -1;
+        captureHandler.post(() -> {
+            if (session.isActive() || (recordingEngine != null && replayMode == replayBuffer)) {
+                return;
+            }
+            // An engine prewarmed for the other mode writes to the wrong place
+            releasePrewarmed();
+            replayMode = replayBuffer;
+            try {
+                prepareEngine();
+            } catch (IOException e) {
+                // Not fatal; startCapture simply prepares again after consent
+                Log.w(TAG, "Speculative prepare failed", e);
+                releasePrewarmed();
+            }
+        });
+    }
+
+    /**
+     * Drops a prewarmed engine after the user declined the consent dialog.
+     */
+    public void cancelPrewarm() {
+        captureHandler.post(this::releasePrewarmed);
+    }
+
+    public void startCapture(int resultCode, Intent data) {
+        if (!session.beginPrepare()) {
+            return;
+        }
+        // Must be foreground before the projection is obtained
+        enterForeground();
+        captureHandler.post(() -> startOnCaptureThread(resultCode, data));
+    }
+
+    /**
+     * Saves the replay buffer's last minute as a recording. The encoder is
+     * asked to close its segment first, so the clip runs up to about now.
+     */
+    public void saveClip(ClipCallback callback) {
+        captureHandler.post(() -> {
+            ReplayBuffer buffer = replayBuffer;
+            if (buffer == null || session.getState() != RecordingSession.State.RECORDING) {
+                callback.onClipFailed("Replay buffer is not running");
+                return;
+            }
+            boolean breaking = recordingEngine.requestSegmentBreak();
+            postProcessor.execute(() -> pendingClips.add(callback));
+            if (breaking) {
+                // Normally the segment listener saves first and this finds nothing pending
+                captureHandler.postDelayed(() -> postProcessor.execute(() -> savePendingClips(buffer)),
+                        CLIP_BREAK_TIMEOUT_MS);
+            } else {
+                postProcessor.execute(() -> savePendingClips(buffer));
+            }
+        });
+    }
+
+    public void stopCapture() {
+        // Only the caller that wins RECORDING -> STOPPING tears down; a stop that lands
+        // while preparing is picked up by startOnCaptureThread once it finishes
+        if (session.beginStop()) {
+            captureHandler.post(this::finishRecording);
+        }
+    }
+
+    private void startOnCaptureThread(int resultCode, Intent data) {
+        long consentNanos = System.nanoTime();
+        try {
+            MetricsRegistry metrics = new MetricsRegistry();
+            sessionMetrics = metrics;
+            metrics.gauge("capture.prewarmed").set(recordingEngine != null ? 1 : 0);
+            if (recordingEngine == null) {
+                prepareEngine();
+                metrics.gauge("capture.prepare_ms").set((System.nanoTime() - consentNanos) / 1000000);
+            }
+            RecordingConfig config = recordingConfig;
+            String id = sessionId;
+            if (replayMode) {
+                ReplayBuffer buffer = new ReplayBuffer(REPLAY_WINDOW_MS, REPLAY_MAX_BYTES, REPLAY_SEGMENT_MAX_BYTES);
+                replayBuffer = buffer;
+                File replayDir = config.outputFile.getParentFile();
+                postProcessor.execute(() -> deleteStaleReplaySegments(replayDir, id));
+                // Replay segments are scratch space: no rewrite, index entry or upload until a save
+                recordingEngine.setSegmentListener((segmentFile, segmentIndex, finalSegment) ->
+                        postProcessor.execute(() -> {
+                            buffer.add(segmentFile);
+                            savePendingClips(buffer);
+                        }));
+            } else {
+                // Segments close on the drain thread; rewriting them there would stall the encoder
+                recordingEngine.setSegmentListener((segmentFile, segmentIndex, finalSegment) ->
+                        postProcessor.execute(() -> {
+                            onSegmentFinished(id, config, metrics, segmentFile, segmentIndex, finalSegment);
+                            if (finalSegment) {
+                                // Queued by finishRecording once the report exists, so its row can carry it
+                                pendingFinalSegment = segmentFile;
+                                pendingFinalSegmentIndex = segmentIndex;
+                            } else {
+                                uploadSegment(id, segmentFile, segmentIndex, false, null);
+                            }
+                        }));
+            }
+            MetricsRegistry.Gauge startLatency = metrics.gauge("capture.start_latency_ms");
+            recordingEngine.setSampleListener((buffer, sample) -> {
+                if (firstFrameLatencyMs < 0) {
+                    firstFrameLatencyMs = (System.nanoTime() - tapNanos) / 1000000;
+                    startLatency.set(firstFrameLatencyMs);
+                    Log.d(TAG, "Tap-to-first-frame latency: " + firstFrameLatencyMs + " ms");
+                }
+            });
+            recordingEngine.setMetrics(metrics);
+            // The display lives on this thread; a surface the engine moves to is taken up here
+            recordingEngine.setInputSurfaceListener(surface -> captureHandler.post(() -> {
+                if (virtualDisplay != null) {
+                    virtualDisplay.setSurface(surface);
+                }
+            }));
+
+            if (!replayMode) {
+                indexSegmentStarted(id, config.segmentFile(0), 0);
+            }
+
+            MediaProjectionManager mediaProjectionManager =
+                    (MediaProjectionManager) getSystemService(MEDIA_PROJECTION_SERVICE);
+            mediaProjection = mediaProjectionManager.getMediaProjection(resultCode, data);
+            mediaProjection.registerCallback(projectionCallback, captureHandler);
+            recordingEngine.setPlaybackCapture(mediaProjection);
+
+            // Start the encoder before the display starts rendering into it
+            recordingEngine.start();
+
+            virtualDisplay = mediaProjection.createVirtualDisplay(
+                    "ScreenRecorder",
+                    config.width, config.height, config.densityDpi,
+                    DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                    recordingEngine.getInputSurface(),
+                    displayCallback, captureHandler);
+
+            recordingStartedNanos = System.nanoTime();
+            metrics.gauge("capture.consent_to_recording_ms").set((recordingStartedNanos - consentNanos) / 1000000);
+            if (!session.markRecording()) {
+                // Stop was pressed while we were preparing; go straight to teardown
+                finishRecording();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Recording start error", e);
+            sessionMetrics = null;
+            replayBuffer = null;
+            releasePrewarmed();
+            releaseCapture();
+            session.abortPrepare();
+            leaveForeground();
+        }
+    }
+
+    private void prepareEngine() throws IOException {
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        int screenWidth = metrics.widthPixels;
+        int screenHeight = metrics.heightPixels;
+
+        File outputDir = ((MainApplication) getApplication()).getRecordingsDir();
+        if (replayMode) {
+            // Kept apart so index rebuilds and uploads never pick up scratch segments
+            outputDir = new File(outputDir, "replay");
+        }
+        if (!outputDir.exists()) {
+            outputDir.mkdirs();
+        }
+        sessionId = (replayMode ? "replay_" : "recording_") + System.currentTimeMillis();
+        File outputFile = new File(outputDir, sessionId + ".mp4");
+
+        // Fit resolution, fps and bitrate to what this device's encoders can actually sustain
+        EncoderCapabilities capabilities = new CodecCapabilityProbe(this).load(screenWidth, screenHeight);
+        EncoderProfile profile = new EncoderProfilePlanner().plan(capabilities, screenWidth, screenHeight,
+                EncoderProfilePlanner.Target.standard());
+        Log.d(TAG, "Encoder profile: " + profile);
+
+        // Roll the output into segments so each one can upload while recording continues
+        recordingConfig = RecordingConfig.fromProfile(profile, metrics.densityDpi, 1, true, outputFile)
+                .withSegments(replayMode ? REPLAY_SEGMENT_MS : SEGMENT_DURATION_MS,
+                        replayMode ? REPLAY_SEGMENT_MAX_BYTES : SEGMENT_MAX_BYTES)
+                .withStaticFrameSkipping(SKIP_STATIC_FRAMES);
+
+        RecordingEngine engine = new CodecRecordingEngine();
+        try {
+            engine.prepare(recordingConfig);
+            recordingEngine = engine;
+            return;
+        } catch (IOException | RuntimeException e) {
+            // Some devices cannot hand out a surface encoder; MediaRecorder still works there
+            Log.w(TAG, "Codec engine unavailable, falling back to MediaRecorder", e);
+            engine.release();
+        }
+
+        engine = new MediaRecorderEngine();
+        engine.prepare(recordingConfig);
+        recordingEngine = engine;
+    }
+
+    private void finishRecording() {
+        boolean fileReady = false;
+
+        // Stop the engine first; it only returns once the file is finalized
+        if (recordingEngine != null) {
+            try {
+                fileReady = recordingEngine.stop();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Recording engine stop error", e);
+            }
+            releasePrewarmed();
+        }
+
+        // Nothing renders into the encoder anymore, so display and projection can go right away
+        releaseCapture();
+
+        session.markFinalized(fileReady);
+        Log.d(TAG, "Stop-to-file-ready latency: " + session.getStopLatencyMillis() + " ms");
+
+        String id = sessionId;
+        MetricsRegistry metrics = sessionMetrics;
+        ReplayBuffer buffer = replayBuffer;
+        if (buffer != null) {
+            // Behind the final segment, so a save tapped just before stop still gets it
+            postProcessor.execute(() -> {
+                savePendingClips(buffer);
+                buffer.clear();
+            });
+        } else if (id != null && metrics != null) {
+            metrics.gauge("capture.stop_latency_ms").set(session.getStopLatencyMillis());
+            if (recordingStartedNanos > 0) {
+                metrics.gauge("capture.duration_ms").set((System.nanoTime() - recordingStartedNanos) / 1000000);
+            }
+            File reportFile = new File(recordingConfig.outputFile.getParentFile(), id + ".metrics.json");
+            // Queued behind the final segment, which must be indexed before leftovers are judged
+            postProcessor.execute(() -> {
+                try {
+                    // An empty last segment is deleted by the engine and never reported as finished
+                    recordingIndex().discardUnfinished(id);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not update recordings index", e);
+                }
+                boolean reportWritten = writeSessionReport(id, metrics, reportFile);
+                if (pendingFinalSegment != null) {
+                    uploadSegment(id, pendingFinalSegment, pendingFinalSegmentIndex, true,
+                            reportWritten && UPLOAD_METRICS_REPORTS ? reportFile : null);
+                    pendingFinalSegment = null;
+                }
+            });
+        }
+        sessionMetrics = null;
+        replayBuffer = null;
+        recordingStartedNanos = 0;
+        leaveForeground();
+    }
+
+    /**
+     * Writes the session's capture metrics, plus the process-wide upload and
+     * HTTP metrics as they stand, next to the recording.
+     */
+    private boolean writeSessionReport(String id, MetricsRegistry metrics, File reportFile) {
+        MetricsRegistry uploadMetrics = ((MainApplication) getApplication()).getSupabaseService().getMetrics();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            writer.name("session_id").value(id);
+            writer.name("written_at").value(RecordingRowsBody.isoTimestamp(System.currentTimeMillis()));
+            writer.name("recording");
+            metrics.writeJson(writer);
+            // Cumulative since the process started; the final segment's own upload is not in it yet
+            writer.name("uploads");
+            uploadMetrics.writeJson(writer);
+            writer.endObject();
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write metrics report for " + id, e);
+            reportFile.delete();
+            return false;
+        }
+    }
+
+    private void savePendingClips(ReplayBuffer buffer) {
+        if (pendingClips.isEmpty()) {
+            return;
+        }
+        List<ClipCallback> callbacks = new ArrayList<>(pendingClips);
+        pendingClips.clear();
+
+        File clip = new File(((MainApplication) getApplication()).getRecordingsDir(),
+                "clip_" + System.currentTimeMillis() + ".mp4");
+        long durationMs;
+        try {
+            long start = System.nanoTime();
+            durationMs = ClipStitcher.stitch(buffer.getSegments(), buffer.getWindowUs(), clip) / 1000;
+            FastStart.process(clip);
+            Log.d(TAG, "Saved " + clip.getName() + " (" + durationMs + " ms) in "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+        } catch (IOException e) {
+            Log.e(TAG, "Could not save clip", e);
+            for (ClipCallback callback : callbacks) {
+                callback.onClipFailed(e.getMessage());
+            }
+            return;
+        }
+
+        RecordingIndex.Entry entry = new RecordingIndex.Entry(clip.getAbsolutePath());
+        entry.size = clip.length();
+        entry.durationMs = durationMs;
+        try {
+            recordingIndex().put(entry);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not update recordings index", e);
+        }
+        if (UPLOAD_CLIPS) {
+            ((MainApplication) getApplication()).getSupabaseService()
+                    .uploadRecordingResumable(clip, clip.getName(), loggingCallback(clip.getName()));
+        }
+        for (ClipCallback callback : callbacks) {
+            callback.onClipSaved(clip, durationMs);
+        }
+    }
+
+    /**
+     * Deletes segments a replay session left behind when the process died
+     * under it. Runs on the post-processor, after any earlier session's saves.
+     */
+    private static void deleteStaleReplaySegments(File replayDir, String currentSessionId) {
+        File[] files = replayDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.getName().startsWith(currentSessionId)) {
+                file.delete();
+            }
+        }
+    }
+
+    private void releasePrewarmed() {
+        if (recordingEngine != null) {
+            recordingEngine.release();
+            recordingEngine = null;
+        }
+    }
+
+    private void releaseCapture() {
+        if (virtualDisplay != null) {
+            virtualDisplay.release();
+            virtualDisplay = null;
+        }
+        if (mediaProjection != null) {
+            mediaProjection.unregisterCallback(projectionCallback);
+            mediaProjection.stop();
+            mediaProjection = null;
+        }
+    }
+
+    private RecordingIndex recordingIndex() {
+        return ((MainApplication) getApplication()).getRecordingIndex();
+    }
+
+    private void indexSegmentStarted(String id, File segmentFile, int segmentIndex) {
+        RecordingIndex.Entry entry = new RecordingIndex.Entry(segmentFile.getAbsolutePath());
+        entry.sessionId = id;
+        entry.segmentIndex = segmentIndex;
+        entry.uploadState = RecordingIndex.UploadState.RECORDING;
+        try {
+            recordingIndex().put(entry);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not update recordings index", e);
+        }
+    }
+
+    private void onSegmentFinished(String id, RecordingConfig config, MetricsRegistry metrics, File segmentFile,
+                                   int segmentIndex, boolean finalSegment) {
+        try {
+            // MediaMuxer writes moov last; moving it up front lets the dashboards start playback
+            // as soon as the first bytes arrive instead of after the whole object
+            long start = System.nanoTime();
+            if (FastStart.process(segmentFile)) {
+                long elapsedMs = (System.nanoTime() - start) / 1000000;
+                metrics.histogram("postprocess.faststart_ms").record(elapsedMs);
+                Log.d(TAG, "Fast-start rewrite of " + segmentFile.getName() + " took " + elapsedMs + " ms");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Could not move moov to the front of " + segmentFile.getName(), e);
+        }
+
+        long durationMs = 0;
+        try {
+            Mp4Info info = Mp4Parser.parse(segmentFile);
+            durationMs = info.getDurationMs();
+            Log.d(TAG, "Segment " + segmentIndex + ": " + info);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + segmentFile.getName(), e);
+        }
+        String contentHash = null;
+        try {
+            // Hashed now, straight after the rewrite, while the whole file is still in the page cache
+            long start = System.nanoTime();
+            contentHash = ContentHash.sha256(segmentFile);
+            metrics.histogram("postprocess.hash_ms").record((System.nanoTime() - start) / 1000000);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not hash " + segmentFile.getName(), e);
+        }
+
+        long duration = durationMs;
+        String hash = contentHash;
+        try {
+            recordingIndex().update(segmentFile.getAbsolutePath(), entry -> {
+                entry.size = segmentFile.length();
+                entry.durationMs = duration;
+                entry.contentHash = hash;
+                entry.uploadState = RecordingIndex.UploadState.LOCAL;
+            });
+        } catch (IOException e) {
+            Log.w(TAG, "Could not update recordings index", e);
+        }
+        if (!finalSegment) {
+            indexSegmentStarted(id, config.segmentFile(segmentIndex + 1), segmentIndex + 1);
+        }
+    }
+
+    private void uploadSegment(String id, File segmentFile, int segmentIndex, boolean finalSegment,
+                               File metricsReport) {
+        SupabaseService supabaseService = ((MainApplication) getApplication()).getSupabaseService();
+        supabaseService.uploadSegment(segmentFile, id, segmentIndex, finalSegment, metricsReport,
+                loggingCallback("Segment " + segmentIndex));
+    }
+
+    private static SupabaseService.UploadCallback loggingCallback(String what) {
+        return new SupabaseService.UploadCallback() {
+            @Override
+            public void onSuccess(String fileUrl, String recordingId) {
+                Log.d(TAG, what + " uploaded: " + fileUrl);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, what + " upload error: " + error);
+            }
+
+            @Override
+            public void onProgress(long bytesUploaded, long totalBytes) {
+            }
+        };
+    }
+
+    // The system can end capture on its own (projection revoked, display torn down);
+    // both routes go through the same state transition as the stop button
+    private final MediaProjection.Callback projectionCallback = new MediaProjection.Callback() {
+        @Override
+        public void onStop() {
+            stopCapture();
+        }
+    };
+
+    private final VirtualDisplay.Callback displayCallback = new VirtualDisplay.Callback() {
+        @Override
+        public void onStopped() {
+            stopCapture();
+        }
+    };
+
+    private void enterForeground() {
+        // Started as well as bound, so capture survives the activity going away
+        Intent intent = new Intent(this, RecordingService.class);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            startForegroundService(intent);
+        } else {
+            startService(intent);
+        }
+
+        Notification notification = buildNotification();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PROJECTION);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+    }
+
+    private void leaveForeground() {
+        stopForeground(true);
+        stopSelf();
+    }
+
+    private Notification buildNotification() {
+        Notification.Builder builder;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Screen recording",
+                    NotificationManager.IMPORTANCE_LOW));
+            builder = new Notification.Builder(this, CHANNEL_ID);
+        } else {
+            builder = new Notification.Builder(this);
+        }
+        return builder
+                .setContentTitle("Screen Recorder App")
+                .setContentText("Recording in progress...")
+                .setSmallIcon(android.R.drawable.presence_video_online)
+                .setOngoing(true)
+                .build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.screenrecorderapp;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lifecycle of one recording: IDLE -> PREPARING -> RECORDING -> STOPPING -> FINALIZED.
+ *
+ * Every transition is a compare-and-set, so a start and a stop racing each other
+ * (button taps, projection callbacks, activity teardown) resolve to exactly one
+ * winner instead of both acting on half-initialized recorder state. A stop that
+ * arrives while the session is still preparing is remembered, and the preparer
+ * tears down as soon as it finishes. The listener hears about transitions one
+ * at a time, in the order they happened.
+ */
+public class RecordingSession {
+
+    public enum State {
+        IDLE,
+        PREPARING,
+        RECORDING,
+        STOPPING,
+        FINALIZED
+    }
+
+    public interface Listener {
+        void onStateChanged(State from, State to);
+    }
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+    private volatile Listener listener;
+    private volatile long stopRequestedNanos;
+    private volatile long stopLatencyNanos = -1;
+    private volatile boolean fileReady;
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isActive() {
+        State current = state.get();
+        return current == State.PREPARING || current == State.RECORDING || current == State.STOPPING;
+    }
+
+    /**
+     * Claims the session for a new recording. Fails while another one is running.
+     */
+    public boolean beginPrepare() {
+        if (transition(State.IDLE, State.PREPARING) || transition(State.FINALIZED, State.PREPARING)) {
+            stopLatencyNanos = -1;
+            fileReady = false;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called by the preparer once capture is running. Returns false if a stop
+     * came in meanwhile, in which case the caller must tear down and then call
+     * {@link #markFinalized(boolean)}.
+     */
+    public boolean markRecording() {
+        return transition(State.PREPARING, State.RECORDING);
+    }
+
+    /**
+     * Puts a failed preparation back to IDLE.
+     */
+    public void abortPrepare() {
+        if (!transition(State.PREPARING, State.IDLE)) {
+            // A stop raced the failure; there is nothing to finalize
+            transition(State.STOPPING, State.IDLE);
+        }
+    }
+
+    /**
+     * Requests a stop. Only the caller that gets true owns the teardown; stops
+     * while preparing are handed to the preparer via {@link #markRecording()}.
+     */
+    public boolean beginStop() {
+        if (transition(State.RECORDING, State.STOPPING)) {
+            stopRequestedNanos = System.nanoTime();
+            return true;
+        }
+        if (transition(State.PREPARING, State.STOPPING)) {
+            stopRequestedNanos = System.nanoTime();
+        }
+        return false;
+    }
+
+    /**
+     * Called once the engine has finalized the output file and every capture
+     * resource is released.
+     */
+    public void markFinalized(boolean fileReady) {
+        long requested = stopRequestedNanos;
+        if (transition(State.STOPPING, State.FINALIZED)) {
+            this.fileReady = fileReady;
+            stopLatencyNanos = System.nanoTime() - requested;
+        }
+    }
+
+    /**
+     * Time from the stop request to the file being ready, or -1 if no stop has
+     * completed yet.
+     */
+    public long getStopLatencyMillis() {
+        long latency = stopLatencyNanos;
+        return latency < 0 ? -1 : latency / 1000000;
+    }
+
+    public boolean isFileReady() {
+        return fileReady;
+    }
+
+    private boolean transition(State from, State to) {
+        // Otherwise a racing stop's STOPPING could be reported after the FINALIZED that followed it
+        synchronized (this) {
+            if (!state.compareAndSet(from, to)) {
+                return false;
+            }
+            Listener current = listener;
+            if (current != null) {
+                current.onStateChanged(from, to);
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.screenrecorderapp;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * One row of the {@code recordings} table as returned by a listing. Columns
+ * the row does not carry stay at 0 or null.
+ */
+public class RemoteRecording {
+    public String id;
+    @SerializedName("file_name")
+    public String fileName;
+    @SerializedName("file_path")
+    public String filePath;
+    // As PostgREST prints it; cursors hand it back verbatim, so it is never reformatted
+    @SerializedName("created_at")
+    public String createdAt;
+    @SerializedName("file_size")
+    public long fileSize;
+
+    @SerializedName("session_id")
+    public String sessionId;
+    @SerializedName("segment_index")
+    public int segmentIndex;
+    @SerializedName("is_final_segment")
+    public boolean finalSegment;
+
+    @SerializedName("duration_ms")
+    public long durationMs;
+    public int width;
+    public int height;
+    @SerializedName("content_hash")
+    public String contentHash;
+
+    /**
+     * The columns a listing selects; everything above, but not the metrics
+     * report, which can be far larger than the row itself.
+     */
+    static final String COLUMNS = "id,file_name,file_path,created_at,file_size,session_id,segment_index,"
+            + "is_final_segment,duration_ms,width,height,content_hash";
+}
@@ -0,0 +1,118 @@
+package com.screenrecorderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The finished segments of a replay-buffer recording, oldest first, trimmed to
+ * a time window and a disk budget.
+ *
+ * After every new segment the oldest ones are deleted while the rest still
+ * cover the window on their own, or while the ring plus one more segment in
+ * progress would exceed the budget. Disk use therefore stays constant no
+ * matter how long capture runs. Not thread-safe; RecordingService only touches
+ * it from its post-processing thread, which also runs the saves, so a segment
+ * is never deleted while a clip is being stitched from it.
+ */
+public class ReplayBuffer {
+
+    private static final class Segment {
+        final File file;
+        final long durationUs;
+        final long size;
+
+        Segment(File file, long durationUs, long size) {
+            this.file = file;
+            this.durationUs = durationUs;
+            this.size = size;
+        }
+    }
+
+    private final long windowUs;
+    private final long maxBytes;
+    private final long segmentMaxBytes;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long retainedUs;
+    private long retainedBytes;
+
+    /**
+     * @param segmentMaxBytes the most a segment in progress can grow to, which
+     *                        the budget keeps room for
+     */
+    public ReplayBuffer(long windowMs, long maxBytes, long segmentMaxBytes) {
+        this.windowUs = windowMs * 1000;
+        this.maxBytes = maxBytes;
+        this.segmentMaxBytes = segmentMaxBytes;
+    }
+
+    /**
+     * Takes ownership of a finished segment and evicts what is no longer needed.
+     */
+    public void add(File segmentFile) {
+        long durationUs = 0;
+        try {
+            durationUs = Mp4Parser.parse(segmentFile).durationUs;
+        } catch (IOException e) {
+            // Unreadable means unplayable; it would only break the clip
+            segmentFile.delete();
+            return;
+        }
+        Segment segment = new Segment(segmentFile, durationUs, segmentFile.length());
+        segments.addLast(segment);
+        retainedUs += segment.durationUs;
+        retainedBytes += segment.size;
+
+        while (segments.size() > 1) {
+            Segment oldest = segments.peekFirst();
+            boolean windowCovered = retainedUs - oldest.durationUs >= windowUs;
+            boolean overBudget = retainedBytes + segmentMaxBytes > maxBytes;
+            if (!windowCovered && !overBudget) {
+                break;
+            }
+            evictOldest();
+        }
+    }
+
+    /**
+     * The retained segments, oldest first.
+     */
+    public List<File> getSegments() {
+        List<File> files = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            files.add(segment.file);
+        }
+        return files;
+    }
+
+    public long getWindowUs() {
+        return windowUs;
+    }
+
+    public long getRetainedUs() {
+        return retainedUs;
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Deletes every retained segment.
+     */
+    public void clear() {
+        while (!segments.isEmpty()) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        Segment oldest = segments.removeFirst();
+        retainedUs -= oldest.durationUs;
+        retainedBytes -= oldest.size;
+        oldest.file.delete();
+    }
+}
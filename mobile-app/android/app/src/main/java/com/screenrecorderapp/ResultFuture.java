@@ -0,0 +1,251 @@
+package com.screenrecorderapp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A result that arrives later, for the asynchronous upload and HTTP calls.
+ * CompletableFuture does the same but needs API 24.
+ *
+ * A future completes once, with a result, a failure, or a
+ * CancellationException when it is cancelled. Listeners run on the thread
+ * that completes it, or on the thread adding them if it already has, unless
+ * they are given an executor. Futures derived with {@link #then} or
+ * {@link #compose} pass a cancel or any other early failure back upstream,
+ * so giving up on the last step of a chain stops the work before it.
+ */
+public class ResultFuture<T> implements Future<T> {
+
+    public interface Listener<T> {
+        void onComplete(T result, Throwable error);
+    }
+
+    public interface Transform<T, R> {
+        R apply(T value) throws Exception;
+    }
+
+    private boolean done;
+    private T result;
+    private Throwable error;
+    private List<Runnable> listeners = new ArrayList<>();
+
+    public static <T> ResultFuture<T> failed(Throwable error) {
+        ResultFuture<T> future = new ResultFuture<>();
+        future.fail(error);
+        return future;
+    }
+
+    /**
+     * Runs {@code task} on {@code executor}, unless the future is cancelled
+     * before it gets there.
+     */
+    public static <T> ResultFuture<T> supply(Callable<T> task, Executor executor) {
+        ResultFuture<T> future = new ResultFuture<>();
+        executor.execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.fail(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Completes once all of {@code futures} have, with the first failure among
+     * them if there was one. Cancelling it leaves them alone.
+     */
+    public static ResultFuture<Void> allOf(Collection<? extends ResultFuture<?>> futures) {
+        ResultFuture<Void> all = new ResultFuture<>();
+        if (futures.isEmpty()) {
+            all.complete(null);
+            return all;
+        }
+        Object lock = new Object();
+        int[] remaining = {futures.size()};
+        Throwable[] firstError = new Throwable[1];
+        for (ResultFuture<?> future : futures) {
+            future.whenComplete((result, error) -> {
+                Throwable failure;
+                synchronized (lock) {
+                    if (error != null && firstError[0] == null) {
+                        firstError[0] = error;
+                    }
+                    if (--remaining[0] > 0) {
+                        return;
+                    }
+                    failure = firstError[0];
+                }
+                all.settle(null, failure);
+            });
+        }
+        return all;
+    }
+
+    public boolean complete(T result) {
+        return settle(result, null);
+    }
+
+    public boolean fail(Throwable error) {
+        return settle(null, error);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return settle(null, new CancellationException());
+    }
+
+    private boolean settle(T result, Throwable error) {
+        List<Runnable> notify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            this.result = result;
+            this.error = error;
+            notify = listeners;
+            listeners = null;
+            notifyAll();
+        }
+        for (Runnable listener : notify) {
+            listener.run();
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return error instanceof CancellationException;
+    }
+
+    public ResultFuture<T> whenComplete(Listener<? super T> listener) {
+        Runnable notify = () -> listener.onComplete(result, error);
+        synchronized (this) {
+            if (!done) {
+                listeners.add(notify);
+                return this;
+            }
+        }
+        notify.run();
+        return this;
+    }
+
+    public ResultFuture<T> whenComplete(Listener<? super T> listener, Executor executor) {
+        return whenComplete((result, error) -> executor.execute(() -> listener.onComplete(result, error)));
+    }
+
+    /**
+     * A future that completes along with this one, but can be cancelled or
+     * time out on its own, for callers sharing one piece of work.
+     */
+    public ResultFuture<T> dependent() {
+        ResultFuture<T> dependent = new ResultFuture<>();
+        whenComplete(dependent::settle);
+        return dependent;
+    }
+
+    /**
+     * Maps the result on {@code executor}; a failure passes straight through.
+     */
+    public <R> ResultFuture<R> then(Transform<? super T, ? extends R> transform, Executor executor) {
+        ResultFuture<R> next = new ResultFuture<>();
+        whenComplete((result, error) -> {
+            if (error != null) {
+                next.fail(error);
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    next.complete(transform.apply(result));
+                } catch (Exception e) {
+                    next.fail(e);
+                }
+            });
+        });
+        cancelWith(next);
+        return next;
+    }
+
+    /**
+     * Starts the next asynchronous step once this one succeeds, on the thread
+     * that completes this one.
+     */
+    public <R> ResultFuture<R> compose(Transform<? super T, ResultFuture<R>> step) {
+        ResultFuture<R> next = new ResultFuture<>();
+        whenComplete((result, error) -> {
+            if (error != null) {
+                next.fail(error);
+                return;
+            }
+            ResultFuture<R> started;
+            try {
+                started = step.apply(result);
+            } catch (Exception e) {
+                next.fail(e);
+                return;
+            }
+            started.whenComplete(next::settle);
+            started.cancelWith(next);
+        });
+        cancelWith(next);
+        return next;
+    }
+
+    // Once next fails, whatever this was still doing for it is wasted
+    private void cancelWith(ResultFuture<?> next) {
+        next.whenComplete((result, error) -> {
+            if (error != null) {
+                cancel(false);
+            }
+        });
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return report();
+    }
+
+    private T report() throws ExecutionException {
+        if (error instanceof CancellationException) {
+            throw (CancellationException) error;
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+}
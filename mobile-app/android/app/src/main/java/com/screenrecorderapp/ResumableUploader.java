@@ -0,0 +1,217 @@
+package com.screenrecorderapp;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.ByteString;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Uploads a file to Supabase storage through its TUS resumable endpoint.
+ *
+ * The file is sent in fixed-size parts read straight from a FileChannel. Every
+ * acknowledged part is recorded in an {@link UploadManifest}, so a dropped
+ * connection only costs the part in flight and an app restart picks the upload
+ * back up from the last committed offset.
+ */
+public class ResumableUploader {
+    // Supabase only accepts 6 MB parts (except for the last one)
+    public static final long PART_SIZE = 6 * 1024 * 1024;
+    private static final int MAX_PART_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final String TUS_VERSION = "1.0.0";
+    private static final MediaType OFFSET_STREAM = MediaType.parse("application/offset+octet-stream");
+
+    public interface ProgressListener {
+        void onProgress(long bytesUploaded, long totalBytes);
+    }
+
+    private final SupabaseTransport transport;
+    private final File manifestDir;
+    private final TokenBucket bandwidth;
+    private final long retryDelayMs;
+
+    /**
+     * @param bandwidth shared limit on part bodies, or null for none
+     */
+    public ResumableUploader(SupabaseTransport transport, File manifestDir, TokenBucket bandwidth) {
+        this(transport, manifestDir, bandwidth, RETRY_DELAY_MS);
+    }
+
+    ResumableUploader(SupabaseTransport transport, File manifestDir, TokenBucket bandwidth, long retryDelayMs) {
+        this.transport = transport;
+        this.manifestDir = manifestDir;
+        this.bandwidth = bandwidth;
+        this.retryDelayMs = retryDelayMs;
+    }
+
+    public void upload(File file, String bucket, String objectName, String contentType,
+                       ProgressListener listener) throws IOException {
+        File manifestFile = UploadManifest.fileFor(manifestDir, objectName);
+        UploadManifest manifest = UploadManifest.load(manifestFile);
+        long offset = -1;
+
+        if (manifest != null && manifest.matches(file, objectName)) {
+            // The server is authoritative about how much of the upload it kept
+            offset = queryOffset(manifest.uploadUrl);
+        }
+        if (offset < 0) {
+            manifest = new UploadManifest();
+            manifest.filePath = file.getAbsolutePath();
+            manifest.objectName = objectName;
+            manifest.fileSize = file.length();
+            manifest.lastModified = file.lastModified();
+            manifest.partSize = PART_SIZE;
+            manifest.uploadUrl = createUpload(bucket, objectName, contentType, manifest.fileSize);
+            offset = 0;
+        }
+        manifest.committedOffset = offset;
+        manifest.save(manifestFile);
+
+        long total = manifest.fileSize;
+        if (listener != null) {
+            listener.onProgress(offset, total);
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            int attempts = 0;
+            IOException lastError = null;
+
+            while (offset < total) {
+                try {
+                    if (lastError != null) {
+                        // Part of the failed PATCH may have landed; the server says where to pick up.
+                        // A failed query is just another attempt, since the network is likely still down.
+                        long serverOffset = queryOffset(manifest.uploadUrl);
+                        if (serverOffset < 0) {
+                            throw new UploadExpiredException(lastError);
+                        }
+                        offset = serverOffset;
+                        lastError = null;
+                    }
+                    long length = Math.min(manifest.partSize, total - offset);
+                    offset = sendPart(manifest.uploadUrl, channel, offset, length, total, listener);
+                    attempts = 0;
+                } catch (UploadExpiredException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (++attempts >= MAX_PART_ATTEMPTS) {
+                        throw e;
+                    }
+                    lastError = e;
+                    sleepBeforeRetry(attempts);
+                    continue;
+                }
+                manifest.committedOffset = offset;
+                manifest.save(manifestFile);
+            }
+        }
+
+        manifestFile.delete();
+    }
+
+    /**
+     * Forgets the upload of {@code objectName}, so the next attempt starts a
+     * fresh one instead of resuming.
+     */
+    public void discard(String objectName) {
+        UploadManifest.fileFor(manifestDir, objectName).delete();
+    }
+
+    private String createUpload(String bucket, String objectName, String contentType, long length)
+            throws IOException {
+        String metadata = "bucketName " + base64(bucket)
+                + ",objectName " + base64(objectName)
+                + ",contentType " + base64(contentType);
+
+        Request request = transport.request("/storage/v1/upload/resumable")
+                .addHeader("Tus-Resumable", TUS_VERSION)
+                .addHeader("Upload-Length", String.valueOf(length))
+                .addHeader("Upload-Metadata", metadata)
+                .addHeader("x-upsert", "true")
+                .post(RequestBody.create(new byte[0], null))
+                .build();
+
+        try (Response response = transport.execute(request)) {
+            String location = response.header("Location");
+            if (!response.isSuccessful() || location == null) {
+                throw new IOException("Could not create resumable upload: " + response.code());
+            }
+            return location;
+        }
+    }
+
+    private long sendPart(String uploadUrl, FileChannel channel, long offset, long length, long total,
+                          ProgressListener listener) throws IOException {
+        RequestBody body = new FileRangeRequestBody(channel, offset, length, OFFSET_STREAM,
+                written -> {
+                    if (listener != null) {
+                        listener.onProgress(offset + written, total);
+                    }
+                }, bandwidth);
+
+        Request request = transport.authorized(uploadUrl)
+                .addHeader("Tus-Resumable", TUS_VERSION)
+                .addHeader("Upload-Offset", String.valueOf(offset))
+                .patch(body)
+                .build();
+
+        try (Response response = transport.execute(request)) {
+            String newOffset = response.header("Upload-Offset");
+            if (!response.isSuccessful() || newOffset == null) {
+                throw new IOException("Part upload failed at offset " + offset + ": " + response.code());
+            }
+            return Long.parseLong(newOffset);
+        }
+    }
+
+    private long queryOffset(String uploadUrl) throws IOException {
+        if (uploadUrl == null) {
+            return -1;
+        }
+
+        Request request = transport.authorized(uploadUrl)
+                .addHeader("Tus-Resumable", TUS_VERSION)
+                .head()
+                .build();
+
+        try (Response response = transport.execute(request)) {
+            if (response.code() == 404 || response.code() == 410) {
+                return -1;
+            }
+            // A server error says nothing about the upload; retry it like a dropped connection
+            if (!response.isSuccessful()) {
+                throw new IOException("Could not query upload offset: " + response.code());
+            }
+            String offset = response.header("Upload-Offset");
+            return offset != null ? Long.parseLong(offset) : -1;
+        }
+    }
+
+    private void sleepBeforeRetry(int attempt) throws InterruptedIOException {
+        try {
+            Thread.sleep(retryDelayMs * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Upload interrupted");
+        }
+    }
+
+    private static String base64(String value) {
+        return ByteString.encodeUtf8(value).base64();
+    }
+
+    private static final class UploadExpiredException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UploadExpiredException(IOException cause) {
+            super("Resumable upload expired on the server", cause);
+        }
+    }
+}
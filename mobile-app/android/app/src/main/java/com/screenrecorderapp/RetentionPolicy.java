@@ -0,0 +1,82 @@
+package com.screenrecorderapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Which recordings to clean up, by age and by local disk use.
+ * <ul>
+ * <li>Recordings older than {@code maxAgeMs} are deleted everywhere: the file
+ * on the device, the stored object and its row.</li>
+ * <li>While the files on the device add up to more than
+ * {@code maxLocalBytes}, the oldest uploaded recordings lose their local copy
+ * and stay in storage, and in the index as remote only. Recordings not
+ * uploaded yet only ever go by age, so running out of quota never loses the
+ * only copy.</li>
+ * </ul>
+ * Either limit is off at 0. Recordings still being written or uploaded are
+ * left alone.
+ */
+public class RetentionPolicy {
+    public final long maxAgeMs;
+    public final long maxLocalBytes;
+
+    public static final class Plan {
+        // Delete everywhere
+        public final List<RecordingIndex.Entry> expired = new ArrayList<>();
+        // Delete the local copy only, and keep the entry as remote only
+        public final List<RecordingIndex.Entry> evicted = new ArrayList<>();
+    }
+
+    public RetentionPolicy(long maxAgeMs, long maxLocalBytes) {
+        this.maxAgeMs = maxAgeMs;
+        this.maxLocalBytes = maxLocalBytes;
+    }
+
+    /**
+     * Recordings created before this are expired, or 0 with no age limit.
+     */
+    public long cutoffMillis(long nowMs) {
+        return maxAgeMs > 0 ? nowMs - maxAgeMs : 0;
+    }
+
+    public Plan plan(List<RecordingIndex.Entry> entries, long nowMs) {
+        List<RecordingIndex.Entry> oldestFirst = new ArrayList<>(entries);
+        Collections.sort(oldestFirst, (a, b) -> Long.compare(a.createdAt, b.createdAt));
+        long cutoff = cutoffMillis(nowMs);
+        long localBytes = 0;
+        for (RecordingIndex.Entry entry : oldestFirst) {
+            if (isLocal(entry)) {
+                localBytes += entry.size;
+            }
+        }
+
+        Plan plan = new Plan();
+        for (RecordingIndex.Entry entry : oldestFirst) {
+            if (inProgress(entry)) {
+                continue;
+            }
+            if (entry.createdAt < cutoff) {
+                plan.expired.add(entry);
+                if (isLocal(entry)) {
+                    localBytes -= entry.size;
+                }
+            } else if (maxLocalBytes > 0 && localBytes > maxLocalBytes
+                    && entry.uploadState == RecordingIndex.UploadState.UPLOADED) {
+                plan.evicted.add(entry);
+                localBytes -= entry.size;
+            }
+        }
+        return plan;
+    }
+
+    private static boolean isLocal(RecordingIndex.Entry entry) {
+        return entry.uploadState != RecordingIndex.UploadState.REMOTE_ONLY;
+    }
+
+    private static boolean inProgress(RecordingIndex.Entry entry) {
+        return entry.uploadState == RecordingIndex.UploadState.RECORDING
+                || entry.uploadState == RecordingIndex.UploadState.QUEUED;
+    }
+}
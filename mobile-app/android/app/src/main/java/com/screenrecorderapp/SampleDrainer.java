@@ -0,0 +1,138 @@
+package com.screenrecorderapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pulls encoded samples out of an encoder and hands them to the muxer and to an
+ * optional listener. Meant to run on its own thread; the codec's output buffers
+ * and a single {@link EncodedSample} are reused for every sample, so the loop
+ * does not allocate once it is running.
+ *
+ * @param <F> the encoder's format type (MediaFormat on Android)
+ */
+public class SampleDrainer<F> implements Runnable {
+    private static final long DEQUEUE_TIMEOUT_US = 10000;
+
+    public interface Listener {
+        void onSample(ByteBuffer data, EncodedSample sample);
+    }
+
+    private final EncoderOutput<F> output;
+    private final SampleMuxer<F> muxer;
+    private final boolean primary;
+    private final EncodedSample sample = new EncodedSample();
+    private volatile Listener listener;
+    private volatile boolean cancelled;
+    private volatile boolean reachedEndOfStream;
+    private int trackIndex = -1;
+    // Resolved once in setMetrics so the loop only does atomic adds
+    private MetricsRegistry.Counter samplesCounter;
+    private MetricsRegistry.Counter bytesCounter;
+    private MetricsRegistry.Counter gapCounter;
+    private LatencyHistogram intervalHistogram;
+    private long gapThresholdUs;
+    private long lastPresentationTimeUs = -1;
+
+    /**
+     * @param primary whether this is the track whose key frames decide segment boundaries
+     */
+    public SampleDrainer(EncoderOutput<F> output, SampleMuxer<F> muxer, boolean primary) {
+        this.output = output;
+        this.muxer = muxer;
+        this.primary = primary;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Records sample counts, bytes and the interval between samples under
+     * {@code track}. With a {@code frameIntervalUs}, intervals longer than two
+     * frames are counted as gaps: frames the encoder never produced, which a
+     * static screen causes as well as a stalled one. Must be called before the
+     * drain starts.
+     */
+    public void setMetrics(MetricsRegistry metrics, String track, long frameIntervalUs) {
+        samplesCounter = metrics.counter(track + ".samples");
+        bytesCounter = metrics.counter(track + ".bytes");
+        intervalHistogram = metrics.histogram(track + ".sample_interval_us");
+        gapCounter = frameIntervalUs > 0 ? metrics.counter(track + ".frame_gaps") : null;
+        gapThresholdUs = frameIntervalUs * 2;
+    }
+
+    @Override
+    public void run() {
+        try {
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalStateException e) {
+            // The encoder was released underneath a cancelled drain; nothing left to do
+            if (!cancelled) {
+                throw e;
+            }
+        }
+    }
+
+    public void drain() throws InterruptedException {
+        while (!cancelled) {
+            int index = output.dequeueOutput(sample, DEQUEUE_TIMEOUT_US);
+            if (index == EncoderOutput.INFO_OUTPUT_FORMAT_CHANGED) {
+                trackIndex = muxer.addTrack(output.getOutputFormat(), primary);
+                continue;
+            }
+            if (index < 0) {
+                continue;
+            }
+
+            boolean endOfStream = sample.isEndOfStream();
+            ByteBuffer data = output.getOutputBuffer(index);
+
+            // Codec config already travels in the track format, so it is never muxed as a sample
+            if (data != null && !sample.isCodecConfig() && sample.size > 0 && trackIndex >= 0) {
+                sample.trackIndex = trackIndex;
+                data.limit(sample.offset + sample.size);
+                data.position(sample.offset);
+                muxer.writeSample(trackIndex, data, sample);
+                if (samplesCounter != null) {
+                    recordMetrics();
+                }
+
+                Listener current = listener;
+                if (current != null) {
+                    data.limit(sample.offset + sample.size);
+                    data.position(sample.offset);
+                    current.onSample(data, sample);
+                }
+            }
+            output.releaseOutput(index);
+
+            if (endOfStream) {
+                reachedEndOfStream = true;
+                break;
+            }
+        }
+    }
+
+    private void recordMetrics() {
+        samplesCounter.increment();
+        bytesCounter.add(sample.size);
+        if (lastPresentationTimeUs >= 0) {
+            long intervalUs = sample.presentationTimeUs - lastPresentationTimeUs;
+            intervalHistogram.record(intervalUs);
+            if (gapCounter != null && intervalUs > gapThresholdUs) {
+                gapCounter.increment();
+            }
+        }
+        lastPresentationTimeUs = sample.presentationTimeUs;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean reachedEndOfStream() {
+        return reachedEndOfStream;
+    }
+}
@@ -0,0 +1,251 @@
+package com.screenrecorderapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Funnels samples from several drain threads into one container muxer.
+ *
+ * A muxer can only start once every track has been added, so writers block
+ * until the last expected track format has arrived. With a segment policy the
+ * output rolls over to a fresh container on the first primary-track key frame
+ * past the duration or size bound, so each closed segment is playable on its own.
+ *
+ * @param <F> the track format type (MediaFormat on Android)
+ */
+public class SampleMuxer<F> {
+
+    public interface Backend<F> {
+        int addTrack(F format);
+        void start();
+        void writeSampleData(int trackIndex, ByteBuffer data, EncodedSample sample);
+        void stop();
+        void release();
+    }
+
+    public interface BackendFactory<F> {
+        Backend<F> create(int segmentIndex) throws IOException;
+    }
+
+    public interface SegmentListener {
+        void onSegmentFinished(int segmentIndex, boolean finalSegment, boolean playable);
+    }
+
+    private final BackendFactory<F> factory;
+    private final int expectedTracks;
+    private final long maxSegmentDurationUs;
+    private final long maxSegmentBytes;
+    private final SegmentListener segmentListener;
+    private final List<F> trackFormats = new ArrayList<>();
+    private Backend<F> backend;
+    private int primaryTrack = -1;
+    private boolean started;
+    private boolean stopped;
+    private long samplesWritten;
+    private long bytesWritten;
+    private long samplesDropped;
+    private int segmentIndex;
+    private long segmentStartUs = -1;
+    private long segmentSamples;
+    private long segmentBytes;
+    private boolean rollRequested;
+    private IOException failure;
+
+    public SampleMuxer(Backend<F> backend, int expectedTracks) {
+        this.backend = backend;
+        this.factory = null;
+        this.expectedTracks = expectedTracks;
+        this.maxSegmentDurationUs = 0;
+        this.maxSegmentBytes = 0;
+        this.segmentListener = null;
+    }
+
+    /**
+     * Creates a segmenting muxer. A bound of 0 disables that limit.
+     */
+    public SampleMuxer(BackendFactory<F> factory, int expectedTracks, long maxSegmentDurationUs,
+                       long maxSegmentBytes, SegmentListener segmentListener) throws IOException {
+        this.factory = factory;
+        this.backend = factory.create(0);
+        this.expectedTracks = expectedTracks;
+        this.maxSegmentDurationUs = maxSegmentDurationUs;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.segmentListener = segmentListener;
+    }
+
+    /**
+     * Adds a track. Segments only roll over on key frames of the primary track.
+     */
+    public synchronized int addTrack(F format, boolean primary) {
+        if (started || stopped) {
+            throw new IllegalStateException("Track formats can only be added before the muxer starts");
+        }
+        int trackIndex = backend.addTrack(format);
+        trackFormats.add(format);
+        if (primary) {
+            primaryTrack = trackIndex;
+        }
+        if (trackFormats.size() == expectedTracks) {
+            backend.start();
+            started = true;
+            notifyAll();
+        }
+        return trackIndex;
+    }
+
+    /**
+     * Writes one sample, waiting for the muxer to start if other tracks are still
+     * missing their format. Samples that arrive after {@link #stop()} are dropped.
+     */
+    public synchronized void writeSample(int trackIndex, ByteBuffer data, EncodedSample sample)
+            throws InterruptedException {
+        while (!started && !stopped) {
+            wait();
+        }
+        if (stopped) {
+            samplesDropped++;
+            return;
+        }
+
+        if (trackIndex == primaryTrack) {
+            if (sample.isKeyFrame() && shouldRoll(sample.presentationTimeUs)) {
+                try {
+                    roll();
+                } catch (IOException | RuntimeException e) {
+                    failure = e instanceof IOException ? (IOException) e
+                            : new IOException("Could not roll over to segment " + segmentIndex, e);
+                    // Released by now, or never created
+                    backend = null;
+                    samplesDropped++;
+                    stopped = true;
+                    notifyAll();
+                    return;
+                }
+            }
+            if (segmentStartUs < 0) {
+                segmentStartUs = sample.presentationTimeUs;
+            }
+        }
+
+        backend.writeSampleData(trackIndex, data, sample);
+        samplesWritten++;
+        bytesWritten += sample.size;
+        segmentSamples++;
+        segmentBytes += sample.size;
+    }
+
+    private boolean shouldRoll(long presentationTimeUs) {
+        if (factory == null || segmentSamples == 0 || segmentStartUs < 0) {
+            return false;
+        }
+        return rollRequested
+                || (maxSegmentDurationUs > 0 && presentationTimeUs - segmentStartUs >= maxSegmentDurationUs)
+                || (maxSegmentBytes > 0 && segmentBytes >= maxSegmentBytes);
+    }
+
+    private void roll() throws IOException {
+        boolean playable = finishSegment();
+        if (segmentListener != null) {
+            segmentListener.onSegmentFinished(segmentIndex, false, playable);
+        }
+
+        segmentIndex++;
+        // Cleared first so a failed create never leaves a released backend in place
+        backend = null;
+        backend = factory.create(segmentIndex);
+        try {
+            // Re-adding in the original order keeps every track at the same index
+            for (F format : trackFormats) {
+                backend.addTrack(format);
+            }
+            backend.start();
+        } catch (RuntimeException e) {
+            // MediaMuxer refuses a track or a start with unchecked exceptions
+            backend.release();
+            backend = null;
+            throw new IOException("Could not start segment " + segmentIndex, e);
+        }
+        rollRequested = false;
+        segmentStartUs = -1;
+        segmentSamples = 0;
+        segmentBytes = 0;
+    }
+
+    private boolean finishSegment() {
+        boolean finalized = false;
+        try {
+            backend.stop();
+            finalized = segmentSamples > 0;
+        } catch (RuntimeException e) {
+            // Container backends refuse to finalize a file they could not write
+            finalized = false;
+        } finally {
+            backend.release();
+        }
+        return finalized;
+    }
+
+    /**
+     * Closes the current segment at the next primary-track key frame,
+     * regardless of the bounds.
+     */
+    public synchronized void requestRoll() {
+        rollRequested = true;
+    }
+
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    public synchronized long getSamplesWritten() {
+        return samplesWritten;
+    }
+
+    public synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Samples that arrived after the muxer stopped or failed and never made it
+     * into a file.
+     */
+    public synchronized long getSamplesDropped() {
+        return samplesDropped;
+    }
+
+    public synchronized int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Finalizes the current container. Returns false if no sample ever made it
+     * into it, in which case there is no playable file.
+     */
+    public synchronized boolean stop() {
+        if (stopped && backend == null) {
+            return false;
+        }
+        stopped = true;
+        notifyAll();
+
+        boolean finalized;
+        if (started) {
+            finalized = finishSegment();
+        } else {
+            backend.release();
+            finalized = false;
+        }
+        backend = null;
+
+        if (segmentListener != null) {
+            segmentListener.onSegmentFinished(segmentIndex, true, finalized);
+        }
+        return finalized;
+    }
+}
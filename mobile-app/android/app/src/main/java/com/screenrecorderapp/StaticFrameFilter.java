@@ -0,0 +1,62 @@
+package com.screenrecorderapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decides which captured frames are worth encoding. A frame identical to the
+ * one before it, going by {@link TileDiff}, is dropped, so a static screen
+ * costs the encoder nothing and the stream becomes variable frame rate: the
+ * last frame kept simply stays on screen longer.
+ *
+ * A static stretch still lets one frame through every {@code maxStaticMs}, so
+ * key frames keep coming for segment rolls and the replay buffer, and a change
+ * too small for the sampling grid shows up within that interval. Only the
+ * thread feeding frames may call {@link #accept}; {@link #forceNext()} may be
+ * called from anywhere.
+ */
+public class StaticFrameFilter {
+    private final TileDiff diff;
+    private final long maxStaticNanos;
+    private volatile boolean forceNext;
+    private long lastKeptNanos;
+    private long framesSeen;
+    private long framesSkipped;
+
+    public StaticFrameFilter(TileDiff diff, long maxStaticMs) {
+        this.diff = diff;
+        this.maxStaticNanos = maxStaticMs * 1000000;
+    }
+
+    /**
+     * @param timestampNanos when the frame was captured, on any monotonic clock
+     * @return true if the frame should be encoded
+     */
+    public boolean accept(ByteBuffer pixels, int rowStride, long timestampNanos) {
+        framesSeen++;
+        // Always hashed, so the next comparison is against this frame even when it is kept anyway
+        boolean changed = diff.compare(pixels, rowStride) > 0;
+        if (changed || forceNext || timestampNanos - lastKeptNanos >= maxStaticNanos) {
+            forceNext = false;
+            lastKeptNanos = timestampNanos;
+            return true;
+        }
+        framesSkipped++;
+        return false;
+    }
+
+    /**
+     * Lets the next frame through whether or not it changed, e.g. so a
+     * requested key frame is not held back by a static screen.
+     */
+    public void forceNext() {
+        forceNext = true;
+    }
+
+    public long getFramesSeen() {
+        return framesSeen;
+    }
+
+    public long getFramesSkipped() {
+        return framesSkipped;
+    }
+}
@@ -0,0 +1,115 @@
+package com.screenrecorderapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds which parts of a screen changed between consecutive RGBA frames.
+ *
+ * The frame is cut into square tiles, and each tile is hashed from a grid of
+ * every {@code sampleStep}th pixel in both directions, which is the tile
+ * downscaled by point sampling. A tile whose hash differs from the previous
+ * frame's has changed. Hashing is word-wise FNV-1a: each step is a bijection of
+ * both the running hash and the sample, so a change to any single sampled
+ * pixel always changes the tile's hash. Changes that fall entirely between
+ * sample points go unseen.
+ *
+ * Both hash tables are allocated up front and swapped each frame; comparing
+ * allocates nothing. Not thread-safe.
+ */
+public class TileDiff {
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int sampleStep;
+    private final int tilesX;
+    private final int tilesY;
+    private int[] hashes;
+    private int[] previousHashes;
+    private boolean primed;
+    private int changedTiles;
+
+    /**
+     * @param tileSize   edge of a tile in pixels
+     * @param sampleStep distance between sampled pixels; 1 hashes every pixel
+     */
+    public TileDiff(int width, int height, int tileSize, int sampleStep) {
+        if (width <= 0 || height <= 0 || tileSize <= 0 || sampleStep <= 0 || sampleStep > tileSize) {
+            throw new IllegalArgumentException("Bad tile geometry: " + width + "x" + height + ", tile "
+                    + tileSize + ", step " + sampleStep);
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.sampleStep = sampleStep;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.hashes = new int[tilesX * tilesY];
+        this.previousHashes = new int[tilesX * tilesY];
+    }
+
+    /**
+     * Hashes the frame in {@code pixels}, read from index 0 with 4 bytes per
+     * pixel and {@code rowStride} bytes per row, and compares it with the one
+     * before. The first frame, and the first after {@link #reset()}, counts as
+     * entirely changed.
+     *
+     * @return the number of tiles that changed
+     */
+    public int compare(ByteBuffer pixels, int rowStride) {
+        int[] swap = previousHashes;
+        previousHashes = hashes;
+        hashes = swap;
+
+        int changed = 0;
+        for (int ty = 0; ty < tilesY; ty++) {
+            int first = ty * tilesX;
+            for (int tx = 0; tx < tilesX; tx++) {
+                hashes[first + tx] = FNV_OFFSET;
+            }
+            // Row by row across all of this row's tiles, so memory is read in order
+            int yEnd = Math.min(height, (ty + 1) * tileSize);
+            for (int y = ty * tileSize; y < yEnd; y += sampleStep) {
+                int row = y * rowStride;
+                for (int tx = 0; tx < tilesX; tx++) {
+                    int hash = hashes[first + tx];
+                    int xEnd = Math.min(width, (tx + 1) * tileSize);
+                    for (int x = tx * tileSize; x < xEnd; x += sampleStep) {
+                        hash = (hash ^ pixels.getInt(row + x * BYTES_PER_PIXEL)) * FNV_PRIME;
+                    }
+                    hashes[first + tx] = hash;
+                }
+            }
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (hashes[first + tx] != previousHashes[first + tx]) {
+                    changed++;
+                }
+            }
+        }
+
+        changedTiles = primed ? changed : tilesX * tilesY;
+        primed = true;
+        return changedTiles;
+    }
+
+    /**
+     * Forgets the previous frame, so the next one counts as entirely changed.
+     */
+    public void reset() {
+        primed = false;
+    }
+
+    /**
+     * Tiles that changed in the last compared frame.
+     */
+    public int getChangedTiles() {
+        return changedTiles;
+    }
+
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+}
@@ -0,0 +1,72 @@
+package com.screenrecorderapp;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Byte-rate limiter shared by every upload body.
+ *
+ * Tokens refill at the configured rate up to a burst size. A writer takes what
+ * it is about to send and, if that leaves the bucket in debt, sleeps until the
+ * debt would have been paid off. Debt is allowed so a write larger than the
+ * burst still goes through, and concurrent writers queue up behind each other's
+ * debt, which splits the rate between them.
+ */
+public class TokenBucket {
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long burstBytes;
+    private long bytesPerSecond = UNLIMITED;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public TokenBucket(long burstBytes) {
+        this.burstBytes = burstBytes;
+        this.tokens = burstBytes;
+    }
+
+    /**
+     * Changes the rate. Writers already sleeping keep the wait they were given.
+     */
+    public synchronized void setRate(long bytesPerSecond) {
+        refill(System.nanoTime());
+        this.bytesPerSecond = Math.max(1, bytesPerSecond);
+        if (this.bytesPerSecond == UNLIMITED) {
+            tokens = burstBytes;
+        }
+    }
+
+    public synchronized long getRate() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Blocks until {@code bytes} may be sent.
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        long waitNanos;
+        synchronized (this) {
+            if (bytesPerSecond == UNLIMITED) {
+                return;
+            }
+            long now = System.nanoTime();
+            refill(now);
+            tokens -= bytes;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * 1e9 / bytesPerSecond);
+        }
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1000000, (int) (waitNanos % 1000000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Upload interrupted");
+            }
+        }
+    }
+
+    private void refill(long now) {
+        if (bytesPerSecond != UNLIMITED) {
+            tokens = Math.min(burstBytes, tokens + (now - lastRefillNanos) * bytesPerSecond / 1e9);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,72 @@
+package com.screenrecorderapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Local record of an in-flight resumable upload, so an interrupted transfer can
+ * continue from the last acknowledged part instead of from byte zero.
+ */
+public class UploadManifest {
+    private static final Gson GSON = new Gson();
+
+    public String filePath;
+    public String objectName;
+    public long fileSize;
+    public long lastModified;
+    public long partSize;
+    public String uploadUrl;
+    public long committedOffset;
+
+    public boolean matches(File file, String objectName) {
+        return file.getAbsolutePath().equals(filePath)
+                && objectName.equals(this.objectName)
+                && file.length() == fileSize
+                && file.lastModified() == lastModified;
+    }
+
+    public static File fileFor(File manifestDir, String objectName) {
+        return new File(manifestDir, objectName.replaceAll("[^A-Za-z0-9._-]", "_") + ".upload.json");
+    }
+
+    public static UploadManifest load(File manifestFile) {
+        if (!manifestFile.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8)) {
+            return GSON.fromJson(reader, UploadManifest.class);
+        } catch (IOException | JsonSyntaxException e) {
+            // A torn manifest only costs us a fresh upload
+            manifestFile.delete();
+            return null;
+        }
+    }
+
+    public void save(File manifestFile) throws IOException {
+        File dir = manifestFile.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }
+
+        // Write then rename so a crash never leaves a half-written manifest behind
+        File tmp = new File(manifestFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            GSON.toJson(this, writer);
+            writer.flush();
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(manifestFile)) {
+            throw new IOException("Could not commit upload manifest " + manifestFile);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.screenrecorderapp;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Follows the device's network and sets how uploads may use it:
+ * <ul>
+ * <li>PAUSED with no network, behind a captive portal, or on a metered link
+ * while Data Saver restricts this app</li>
+ * <li>CAPPED on other metered links: one transfer at a time, at a byte rate
+ * that leaves room for everything else on the device</li>
+ * <li>UNTHROTTLED on unmetered links, where the {@link ConcurrencyController}
+ * alone decides how many transfers run</li>
+ * </ul>
+ */
+public class UploadNetworkPolicy {
+    private static final String TAG = "UploadNetworkPolicy";
+    // 2 Mbit/s, unless the link's own estimate says half of it is less
+    private static final long METERED_RATE_BYTES_PER_SECOND = 256 * 1024;
+
+    public enum Mode {
+        PAUSED,
+        CAPPED,
+        UNTHROTTLED
+    }
+
+    private final ConnectivityManager connectivityManager;
+    private final UploadOutbox outbox;
+    private final TokenBucket bandwidth;
+    private final ConcurrencyController concurrency;
+    private final MetricsRegistry metrics;
+    private Mode mode;
+
+    public UploadNetworkPolicy(Context context, UploadOutbox outbox, TokenBucket bandwidth,
+                               ConcurrencyController concurrency, MetricsRegistry metrics) {
+        this.connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        this.outbox = outbox;
+        this.bandwidth = bandwidth;
+        this.concurrency = concurrency;
+        this.metrics = metrics;
+    }
+
+    public void start() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            // The default network is the one our sockets actually use
+            connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                    apply(fromCapabilities(capabilities), upstreamBytesPerSecond(capabilities));
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    apply(Mode.PAUSED, 0);
+                }
+            });
+        } else {
+            NetworkRequest request = new NetworkRequest.Builder()
+                    .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                    .build();
+            // Any change may move the default network, so re-read it rather than trust the callback's network
+            connectivityManager.registerNetworkCallback(request, new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    applyActiveNetwork();
+                }
+
+                @Override
+                public void onCapabilitiesChanged(Network network, NetworkCapabilities capabilities) {
+                    applyActiveNetwork();
+                }
+
+                @Override
+                public void onLost(Network network) {
+                    applyActiveNetwork();
+                }
+            });
+            applyActiveNetwork();
+        }
+    }
+
+    public synchronized Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * The mode for a link with the given properties.
+     */
+    static Mode decide(boolean connected, boolean validated, boolean metered, boolean dataSaver) {
+        if (!connected || !validated || (metered && dataSaver)) {
+            return Mode.PAUSED;
+        }
+        return metered ? Mode.CAPPED : Mode.UNTHROTTLED;
+    }
+
+    private Mode fromCapabilities(NetworkCapabilities capabilities) {
+        boolean validated = Build.VERSION.SDK_INT < Build.VERSION_CODES.M
+                || capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED);
+        boolean metered = !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+        return decide(capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET), validated,
+                metered, dataSaverEnabled());
+    }
+
+    private static long upstreamBytesPerSecond(NetworkCapabilities capabilities) {
+        return capabilities.getLinkUpstreamBandwidthKbps() * 1000L / 8;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void applyActiveNetwork() {
+        NetworkInfo info = connectivityManager.getActiveNetworkInfo();
+        boolean connected = info != null && info.isConnected();
+        apply(decide(connected, true, connectivityManager.isActiveNetworkMetered(), dataSaverEnabled()), 0);
+    }
+
+    private boolean dataSaverEnabled() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && connectivityManager.getRestrictBackgroundStatus()
+                        == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED;
+    }
+
+    private synchronized void apply(Mode next, long upstreamBytesPerSecond) {
+        long rate = TokenBucket.UNLIMITED;
+        if (next == Mode.CAPPED) {
+            rate = METERED_RATE_BYTES_PER_SECOND;
+            if (upstreamBytesPerSecond > 0) {
+                rate = Math.min(rate, upstreamBytesPerSecond / 2);
+            }
+        }
+        bandwidth.setRate(rate);
+        metrics.gauge("upload.rate_limit_bytes_per_second").set(rate == TokenBucket.UNLIMITED ? 0 : rate);
+        if (next == mode) {
+            return;
+        }
+
+        Log.d(TAG, "Uploads " + next + (next == Mode.CAPPED ? " at " + rate + " B/s" : ""));
+        mode = next;
+        concurrency.setCeiling(next == Mode.CAPPED ? 1 : 0);
+        outbox.setPaused(next == Mode.PAUSED);
+        metrics.counter("upload.network_changes").increment();
+    }
+}
@@ -0,0 +1,378 @@
+package com.screenrecorderapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durable queue of pending uploads, deletes and metadata writes.
+ *
+ * Every job is journaled before it runs and acknowledged once it finishes, so
+ * the queue survives process death and is rebuilt from the journal alone on the
+ * next launch. A fixed-size worker pool caps how many jobs talk to Supabase at
+ * once, and failed jobs are retried with jittered exponential backoff.
+ *
+ * Job types can be batched: their jobs collect in a buffer per type that is
+ * handed to a {@link BatchHandler} once it is full or has lingered long
+ * enough, so many small writes cost one round trip. Each job is still
+ * journaled and acknowledged on its own. Batches and their linger timers run
+ * on a small pool of their own, so a flush never waits for an upload worker.
+ */
+public class UploadOutbox {
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_RETRY_DELAY_MS = 2000;
+    private static final long MAX_RETRY_DELAY_MS = 5 * 60 * 1000;
+    private static final int COMPACT_THRESHOLD = 64;
+    // One per batched job type, so a slow metadata insert does not hold up a delete batch
+    private static final int BATCH_THREADS = 2;
+
+    public interface JobHandler {
+        void handle(OutboxJob job) throws IOException;
+    }
+
+    public interface BatchHandler {
+        void handleBatch(List<OutboxJob> jobs) throws IOException;
+    }
+
+    public interface Listener {
+        void onJobSucceeded(OutboxJob job);
+        void onJobRetrying(OutboxJob job, long delayMs, IOException error);
+        void onJobAbandoned(OutboxJob job, IOException error);
+    }
+
+    /**
+     * Thrown by a {@link JobHandler} when retrying cannot help, e.g. a 4xx answer.
+     */
+    public static class PermanentFailureException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public PermanentFailureException(String message) {
+            super(message);
+        }
+    }
+
+    private static class Batch {
+        final BatchHandler handler;
+        final int maxSize;
+        final long lingerMs;
+        final List<OutboxJob> jobs = new ArrayList<>();
+        ScheduledFuture<?> flush;
+
+        Batch(BatchHandler handler, int maxSize, long lingerMs) {
+            this.handler = handler;
+            this.maxSize = maxSize;
+            this.lingerMs = lingerMs;
+        }
+    }
+
+    private static class Entry {
+        String op;
+        String key;
+        OutboxJob job;
+    }
+
+    private final Gson gson = new Gson();
+    private final AppendOnlyJournal journal;
+    private final JobHandler handler;
+    private final Listener listener;
+    private final Backoff backoff;
+    private final ScheduledThreadPoolExecutor workers;
+    private final ScheduledThreadPoolExecutor batchWorkers = new ScheduledThreadPoolExecutor(BATCH_THREADS);
+    private final Map<String, OutboxJob> pending = new LinkedHashMap<>();
+    private int acknowledgedSinceCompaction;
+    private final Map<OutboxJob.Type, Batch> batches = new EnumMap<>(OutboxJob.Type.class);
+    private boolean paused;
+    // Jobs that came due while paused; they run again once the outbox resumes
+    private final List<OutboxJob> parked = new ArrayList<>();
+
+    public UploadOutbox(File journalFile, int concurrency, JobHandler handler, Listener listener) {
+        this(journalFile, concurrency, handler, listener, new Backoff(BASE_RETRY_DELAY_MS, MAX_RETRY_DELAY_MS));
+    }
+
+    UploadOutbox(File journalFile, int concurrency, JobHandler handler, Listener listener, Backoff backoff) {
+        this.journal = new AppendOnlyJournal(journalFile, true);
+        this.handler = handler;
+        this.listener = listener;
+        this.backoff = backoff;
+        this.workers = new ScheduledThreadPoolExecutor(concurrency);
+    }
+
+    /**
+     * Routes jobs of {@code type} through {@code handler} in batches of up to
+     * {@code maxBatchSize}, flushing a partial batch after {@code lingerMs}.
+     * Must be called before {@link #start()}.
+     */
+    public synchronized void setBatching(OutboxJob.Type type, int maxBatchSize, long lingerMs,
+                                         BatchHandler handler) {
+        batches.put(type, new Batch(handler, Math.max(1, maxBatchSize), lingerMs));
+    }
+
+    /**
+     * Rebuilds the queue from the journal and starts draining it.
+     */
+    public synchronized void start() throws IOException {
+        pending.clear();
+        journal.replay(record -> {
+            Entry entry;
+            try {
+                entry = gson.fromJson(new String(record, StandardCharsets.UTF_8), Entry.class);
+            } catch (JsonSyntaxException e) {
+                return;
+            }
+            if ("enqueue".equals(entry.op) && entry.job != null) {
+                pending.put(entry.job.key(), entry.job);
+            } else if ("ack".equals(entry.op)) {
+                pending.remove(entry.key);
+            }
+        });
+        compact();
+
+        for (OutboxJob job : pending.values()) {
+            schedule(job, 0);
+        }
+    }
+
+    /**
+     * Queues a job unless an identical one is already pending.
+     *
+     * @return false if the job was a duplicate
+     */
+    public synchronized boolean enqueue(OutboxJob job) throws IOException {
+        String key = job.key();
+        if (pending.containsKey(key)) {
+            return false;
+        }
+
+        Entry entry = new Entry();
+        entry.op = "enqueue";
+        entry.job = job;
+        journal.append(gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+        pending.put(key, job);
+        schedule(job, 0);
+        return true;
+    }
+
+    /**
+     * Drops a pending job, e.g. the upload of a recording that was deleted
+     * meanwhile. A job that is already running still finishes, but if it
+     * fails, it is not retried.
+     *
+     * @return false if no such job was pending
+     */
+    public synchronized boolean cancel(String key) {
+        if (!pending.containsKey(key)) {
+            return false;
+        }
+        acknowledge(pending.get(key));
+        return true;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Sets how many unbatched jobs run at once. Batches are not counted; they
+     * have their own threads.
+     */
+    public void setConcurrency(int concurrency) {
+        workers.setCorePoolSize(Math.max(1, concurrency));
+    }
+
+    /**
+     * Holds back jobs while paused, e.g. with no usable network. Jobs already
+     * running finish; the rest wait without using up their retry budget.
+     */
+    public synchronized void setPaused(boolean paused) {
+        if (this.paused == paused) {
+            return;
+        }
+        this.paused = paused;
+        if (!paused) {
+            for (OutboxJob job : parked) {
+                schedule(job, 0);
+            }
+            parked.clear();
+        }
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        batchWorkers.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            // Nothing left to flush; every append was synced when it was written
+        }
+    }
+
+    private void schedule(OutboxJob job, long delayMs) {
+        Batch batch = batches.get(job.type);
+        if (batch != null) {
+            batchWorkers.schedule(() -> addToBatch(batch, job), delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            workers.schedule(() -> run(job), delayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized boolean parkIfPaused(List<OutboxJob> jobs) {
+        if (paused) {
+            parked.addAll(jobs);
+        }
+        return paused;
+    }
+
+    private synchronized boolean isPending(OutboxJob job) {
+        return pending.get(job.key()) == job;
+    }
+
+    private synchronized List<OutboxJob> stillPending(List<OutboxJob> jobs) {
+        List<OutboxJob> live = new ArrayList<>(jobs.size());
+        for (OutboxJob job : jobs) {
+            if (isPending(job)) {
+                live.add(job);
+            }
+        }
+        return live;
+    }
+
+    private void run(OutboxJob job) {
+        if (!isPending(job) || parkIfPaused(Collections.singletonList(job))) {
+            return;
+        }
+        try {
+            handler.handle(job);
+            acknowledge(job);
+            listener.onJobSucceeded(job);
+        } catch (PermanentFailureException e) {
+            acknowledge(job);
+            listener.onJobAbandoned(job, e);
+        } catch (IOException e) {
+            retryOrAbandon(job, e);
+        } catch (RuntimeException e) {
+            acknowledge(job);
+            listener.onJobAbandoned(job, new IOException(e));
+        }
+    }
+
+    private synchronized void addToBatch(Batch batch, OutboxJob job) {
+        if (!isPending(job)) {
+            return;
+        }
+        batch.jobs.add(job);
+        if (batch.jobs.size() >= batch.maxSize) {
+            flushBatch(batch);
+        } else if (batch.flush == null) {
+            batch.flush = batchWorkers.schedule(() -> {
+                synchronized (UploadOutbox.this) {
+                    flushBatch(batch);
+                }
+            }, batch.lingerMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Called with the outbox lock held
+    private void flushBatch(Batch batch) {
+        if (batch.flush != null) {
+            batch.flush.cancel(false);
+            batch.flush = null;
+        }
+        // Jobs cancelled while they waited in the buffer, e.g. the row of a recording deleted meanwhile
+        List<OutboxJob> jobs = stillPending(batch.jobs);
+        batch.jobs.clear();
+        if (jobs.isEmpty()) {
+            return;
+        }
+        batchWorkers.execute(() -> runBatch(batch.handler, jobs));
+    }
+
+    private void runBatch(BatchHandler handler, List<OutboxJob> queued) {
+        // And those cancelled since the flush
+        List<OutboxJob> jobs = stillPending(queued);
+        if (jobs.isEmpty() || parkIfPaused(jobs)) {
+            return;
+        }
+        try {
+            handler.handleBatch(jobs);
+            for (OutboxJob job : jobs) {
+                acknowledge(job);
+                listener.onJobSucceeded(job);
+            }
+        } catch (PermanentFailureException e) {
+            for (OutboxJob job : jobs) {
+                acknowledge(job);
+                listener.onJobAbandoned(job, e);
+            }
+        } catch (IOException e) {
+            // Each job backs off on its own and joins whatever batch is open when it is due
+            for (OutboxJob job : jobs) {
+                retryOrAbandon(job, e);
+            }
+        } catch (RuntimeException e) {
+            for (OutboxJob job : jobs) {
+                acknowledge(job);
+                listener.onJobAbandoned(job, new IOException(e));
+            }
+        }
+    }
+
+    private void retryOrAbandon(OutboxJob job, IOException e) {
+        if (!isPending(job)) {
+            // Cancelled while it ran, quite likely by aborting its calls; the failure is expected
+            return;
+        }
+        job.attempts++;
+        if (job.attempts >= MAX_ATTEMPTS) {
+            acknowledge(job);
+            listener.onJobAbandoned(job, e);
+            return;
+        }
+        long delayMs = backoff.delayMillis(job.attempts);
+        listener.onJobRetrying(job, delayMs, e);
+        schedule(job, delayMs);
+    }
+
+    private synchronized void acknowledge(OutboxJob job) {
+        String key = job.key();
+        pending.remove(key);
+
+        Entry entry = new Entry();
+        entry.op = "ack";
+        entry.key = key;
+        try {
+            journal.append(gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+            if (++acknowledgedSinceCompaction >= COMPACT_THRESHOLD) {
+                compact();
+            }
+        } catch (IOException e) {
+            // The job already ran; worst case it is replayed once after a restart
+        }
+    }
+
+    private void compact() throws IOException {
+        List<byte[]> live = new ArrayList<>(pending.size());
+        for (OutboxJob job : pending.values()) {
+            Entry entry = new Entry();
+            entry.op = "enqueue";
+            entry.job = job;
+            live.add(gson.toJson(entry).getBytes(StandardCharsets.UTF_8));
+        }
+        journal.rewrite(live);
+        acknowledgedSinceCompaction = 0;
+    }
+}
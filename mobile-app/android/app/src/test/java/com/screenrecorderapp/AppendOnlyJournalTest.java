@@ -0,0 +1,132 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AppendOnlyJournalTest {
+    // Lengths chosen so records end at uneven offsets; the empty one is a header alone
+    private static final List<String> RECORDS = Arrays.asList("a", "", "second record",
+            new String(new char[300]).replace('\0', 'x'), "last");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayReturnsWhatWasAppended() throws IOException {
+        for (boolean sync : new boolean[] {false, true}) {
+            File file = new File(folder.getRoot(), "journal-" + sync);
+            long[] ends = write(file, sync);
+
+            AppendOnlyJournal journal = new AppendOnlyJournal(file, sync);
+            assertEquals(RECORDS, replay(journal));
+            assertEquals(ends[ends.length - 1], journal.length());
+            assertEquals(file.length(), journal.length());
+        }
+    }
+
+    @Test
+    public void tailTruncatedAtEveryOffsetReplaysCompleteRecords() throws IOException {
+        File original = new File(folder.getRoot(), "journal");
+        long[] ends = write(original, false);
+        byte[] bytes = Files.readAllBytes(original.toPath());
+
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            File file = copy(Arrays.copyOf(bytes, cut), "cut-" + cut);
+            int complete = recordsEndingBy(ends, cut);
+
+            AppendOnlyJournal journal = new AppendOnlyJournal(file, false);
+            assertEquals("cut at " + cut, RECORDS.subList(0, complete), replay(journal));
+            // The torn part is gone, so the next append lands right after the last good record
+            long good = complete == 0 ? 0 : ends[complete - 1];
+            assertEquals("cut at " + cut, good, file.length());
+
+            journal.append(bytes("after"));
+            journal.close();
+            List<String> expected = new ArrayList<>(RECORDS.subList(0, complete));
+            expected.add("after");
+            assertEquals("cut at " + cut, expected, replay(new AppendOnlyJournal(file, false)));
+        }
+    }
+
+    @Test
+    public void corruptByteAtEveryOffsetReplaysRecordsBeforeIt() throws IOException {
+        File original = new File(folder.getRoot(), "journal");
+        long[] ends = write(original, false);
+        byte[] bytes = Files.readAllBytes(original.toPath());
+
+        for (int offset = 0; offset < bytes.length; offset++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[offset] ^= (byte) 0xff;
+            File file = copy(corrupt, "corrupt-" + offset);
+            int intact = recordsEndingBy(ends, offset);
+
+            AppendOnlyJournal journal = new AppendOnlyJournal(file, false);
+            assertEquals("corrupt at " + offset, RECORDS.subList(0, intact), replay(journal));
+            assertEquals("corrupt at " + offset, intact == 0 ? 0 : ends[intact - 1], file.length());
+        }
+    }
+
+    @Test
+    public void rewriteReplacesTheLogWithLiveRecords() throws IOException {
+        File file = new File(folder.getRoot(), "journal");
+        write(file, true);
+
+        AppendOnlyJournal journal = new AppendOnlyJournal(file, true);
+        replay(journal);
+        journal.rewrite(Arrays.asList(bytes("kept"), bytes("also kept")));
+        journal.append(bytes("appended"));
+        journal.close();
+
+        assertEquals(Arrays.asList("kept", "also kept", "appended"), replay(new AppendOnlyJournal(file, true)));
+        assertFalse(new File(file.getPath() + ".compact").exists());
+    }
+
+    /**
+     * Writes {@link #RECORDS} and returns the offset each one ends at.
+     */
+    private static long[] write(File file, boolean sync) throws IOException {
+        AppendOnlyJournal journal = new AppendOnlyJournal(file, sync);
+        long[] ends = new long[RECORDS.size()];
+        for (int i = 0; i < RECORDS.size(); i++) {
+            journal.append(bytes(RECORDS.get(i)));
+            ends[i] = file.length();
+        }
+        journal.close();
+        return ends;
+    }
+
+    private static int recordsEndingBy(long[] ends, long offset) {
+        int count = 0;
+        while (count < ends.length && ends[count] <= offset) {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<String> replay(AppendOnlyJournal journal) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.replay(record -> records.add(new String(record, StandardCharsets.UTF_8)));
+        return records;
+    }
+
+    private File copy(byte[] bytes, String name) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,205 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ConcurrencyControllerTest {
+    // Decimal, so a transfer at full speed ends exactly on a step
+    private static final long MB = 1000 * 1000;
+    private static final long MINUTE_MS = 60 * 1000;
+
+    @Test
+    public void rampsUpWhileTransfersAreEachLimited() {
+        // Every transfer manages 1 MB/s on its own, the link takes 4
+        Link link = new Link(4 * MB, MB, 8);
+        link.run(10 * MINUTE_MS);
+
+        // It reaches 4, keeps probing 5, and never gets further since 5 gains nothing
+        assertEquals(5, link.maxConcurrency());
+        assertTrue(link.describe(), link.shareOfTimeAt(4, 3 * MINUTE_MS) > 0.7);
+        assertTrue(link.describe(), link.throughput(3 * MINUTE_MS) > 3.8 * MB);
+    }
+
+    @Test
+    public void staysLowWhenOneTransferFillsTheLink() {
+        Link link = new Link(2 * MB, 2 * MB, 8);
+        link.run(10 * MINUTE_MS);
+
+        // A second transfer is tried now and then, found useless and dropped again
+        assertEquals(2, link.maxConcurrency());
+        assertTrue(link.describe(), link.shareOfTimeAt(1, 0) > 0.8);
+        assertEquals(1, link.controller.getConcurrency());
+    }
+
+    @Test
+    public void neverGoesPastTheMaximum() {
+        // Parallelism would keep paying off well past what is allowed
+        Link link = new Link(100 * MB, MB, 3);
+        link.run(10 * MINUTE_MS);
+
+        assertEquals(3, link.maxConcurrency());
+        assertEquals(3, link.controller.getConcurrency());
+    }
+
+    @Test
+    public void failuresHalveConcurrency() {
+        Link link = new Link(100 * MB, MB, 8);
+        link.run(10 * MINUTE_MS);
+        assertEquals(8, link.controller.getConcurrency());
+
+        // The link turns bad: every transfer fails
+        link.failing = true;
+        int before = link.changes.size();
+        link.run(link.nowMs + 40000);
+
+        assertEquals("[4, 2, 1]", link.changes.subList(before, link.changes.size()).toString());
+    }
+
+    @Test
+    public void occasionalFailureIsTolerated() {
+        Link link = new Link(100 * MB, MB, 4);
+        // One transfer in ten fails, under the 20 % that counts as a bad link
+        link.failEvery = 10;
+        link.run(10 * MINUTE_MS);
+
+        assertEquals(4, link.controller.getConcurrency());
+        assertEquals("[2, 3, 4]", link.changes.toString());
+    }
+
+    @Test
+    public void ceilingCapsRightAwayAndLiftsAgain() {
+        Link link = new Link(100 * MB, MB, 6);
+        link.run(10 * MINUTE_MS);
+        assertEquals(6, link.controller.getConcurrency());
+
+        // A metered link
+        link.controller.setCeiling(1);
+        assertEquals(1, link.controller.getConcurrency());
+        link.run(link.nowMs + 10 * MINUTE_MS);
+        assertEquals(1, link.maxConcurrencySince(link.nowMs - 10 * MINUTE_MS));
+
+        link.controller.setCeiling(0);
+        link.run(link.nowMs + 10 * MINUTE_MS);
+        assertEquals(6, link.controller.getConcurrency());
+    }
+
+    @Test
+    public void freeSlotsNeverRaiseConcurrency() {
+        // Only two recordings waiting at a time, however many slots there are
+        Link link = new Link(100 * MB, MB, 8);
+        link.backlog = 2;
+        link.run(10 * MINUTE_MS);
+
+        // A third slot is probed, stays partly idle and is given up; nothing goes past it
+        assertEquals(3, link.maxConcurrency());
+        assertTrue(link.describe(), link.shareOfTimeAt(2, MINUTE_MS) > 0.7);
+    }
+
+    /**
+     * A simulated uplink of {@code capacity} bytes per second that a single
+     * transfer can use at most {@code perTransfer} of, as when a connection is
+     * limited by its window and round trip. Transfers of {@link #TRANSFER_BYTES}
+     * start whenever the controller allows one more, and the link is shared
+     * evenly between the ones running. The clock advances in steps of
+     * {@link #STEP_MS}.
+     */
+    private static final class Link implements ConcurrencyController.Sink {
+        static final long STEP_MS = 100;
+        static final long TRANSFER_BYTES = MB;
+
+        final ConcurrencyController controller;
+        final List<Integer> changes = new ArrayList<>();
+        private final long capacity;
+        private final long perTransfer;
+        private final List<long[]> transfers = new ArrayList<>();
+        // Concurrency and bytes sent, per step
+        private final List<int[]> steps = new ArrayList<>();
+        long nowMs;
+        int backlog = Integer.MAX_VALUE;
+        boolean failing;
+        int failEvery;
+        private int finished;
+
+        Link(long capacity, long perTransfer, int maxConcurrency) {
+            this.capacity = capacity;
+            this.perTransfer = perTransfer;
+            this.controller = new ConcurrencyController(1, maxConcurrency, 1, this);
+        }
+
+        @Override
+        public void setConcurrency(int concurrency) {
+            changes.add(concurrency);
+        }
+
+        void run(long untilMs) {
+            while (nowMs < untilMs) {
+                while (transfers.size() < Math.min(backlog, controller.getConcurrency())) {
+                    controller.onTransferStarted(nowMs);
+                    transfers.add(new long[] {TRANSFER_BYTES});
+                }
+                nowMs += STEP_MS;
+                long rate = Math.min(perTransfer, capacity / transfers.size());
+                long stepBytes = rate * STEP_MS / 1000;
+                long sent = 0;
+                for (int i = transfers.size() - 1; i >= 0; i--) {
+                    long[] remaining = transfers.get(i);
+                    long bytes = Math.min(stepBytes, remaining[0]);
+                    remaining[0] -= bytes;
+                    sent += bytes;
+                    if (!failing) {
+                        controller.onBytesSent(bytes, nowMs);
+                    }
+                    if (failing || remaining[0] == 0) {
+                        transfers.remove(i);
+                        finished++;
+                        boolean failed = failing || (failEvery > 0 && finished % failEvery == 0);
+                        controller.onTransferFinished(!failed, nowMs);
+                    }
+                }
+                controller.roll(nowMs);
+                steps.add(new int[] {controller.getConcurrency(), (int) sent});
+            }
+        }
+
+        int maxConcurrency() {
+            return maxConcurrencySince(0);
+        }
+
+        int maxConcurrencySince(long fromMs) {
+            int max = 0;
+            for (int i = (int) (fromMs / STEP_MS); i < steps.size(); i++) {
+                max = Math.max(max, steps.get(i)[0]);
+            }
+            return max;
+        }
+
+        double shareOfTimeAt(int concurrency, long fromMs) {
+            int first = (int) (fromMs / STEP_MS);
+            int at = 0;
+            for (int i = first; i < steps.size(); i++) {
+                if (steps.get(i)[0] == concurrency) {
+                    at++;
+                }
+            }
+            return (double) at / (steps.size() - first);
+        }
+
+        // Bytes per second
+        double throughput(long fromMs) {
+            int first = (int) (fromMs / STEP_MS);
+            long bytes = 0;
+            for (int i = first; i < steps.size(); i++) {
+                bytes += steps.get(i)[1];
+            }
+            return bytes * 1000.0 / ((steps.size() - first) * STEP_MS);
+        }
+
+        String describe() {
+            return "changes " + changes;
+        }
+    }
+}
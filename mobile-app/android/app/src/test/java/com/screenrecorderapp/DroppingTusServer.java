@@ -0,0 +1,251 @@
+package com.screenrecorderapp;
+
+import okio.ByteString;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A TUS endpoint on a raw socket, so it can do what a real network does to a
+ * long PATCH: keep the first part of the body and cut the connection without
+ * answering. Uploaded bytes are kept, so a test can compare them with the file.
+ * Every response closes its connection.
+ */
+final class DroppingTusServer implements Closeable {
+    private static final String RESUMABLE = "/storage/v1/upload/resumable";
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final Map<String, ByteArrayOutputStream> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> objectNames = new ConcurrentHashMap<>();
+    private final AtomicInteger patchesToDrop = new AtomicInteger();
+    private final AtomicInteger headsToFail = new AtomicInteger();
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger patches = new AtomicInteger();
+    private final AtomicInteger heads = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private volatile long dropAfterBytes;
+    private volatile int headFailureStatus;
+
+    DroppingTusServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort();
+    }
+
+    /**
+     * The next {@code count} PATCHes keep {@code afterBytes} of their body and
+     * then lose the connection.
+     */
+    void dropPatches(int count, long afterBytes) {
+        dropAfterBytes = afterBytes;
+        patchesToDrop.set(count);
+    }
+
+    /**
+     * The next {@code count} offset queries fail: with {@code status}, or by
+     * losing the connection if it is 0.
+     */
+    void failHeads(int count, int status) {
+        headFailureStatus = status;
+        headsToFail.set(count);
+    }
+
+    /**
+     * Everything received for the upload of {@code objectName}, or null.
+     */
+    byte[] contents(String objectName) {
+        for (Map.Entry<String, String> entry : objectNames.entrySet()) {
+            if (entry.getValue().equals(objectName)) {
+                ByteArrayOutputStream upload = uploads.get(entry.getKey());
+                synchronized (upload) {
+                    return upload.toByteArray();
+                }
+            }
+        }
+        return null;
+    }
+
+    int createCount() {
+        return creates.get();
+    }
+
+    int patchCount() {
+        return patches.get();
+    }
+
+    int headCount() {
+        return heads.get();
+    }
+
+    int droppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            String[] requestLine = readLine(in).split(" ");
+            Map<String, String> headers = new HashMap<>();
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.US), line.substring(colon + 1).trim());
+            }
+            String method = requestLine[0];
+            String path = requestLine[1];
+            long length = headers.containsKey("content-length") ? Long.parseLong(headers.get("content-length")) : 0;
+
+            if (method.equals("POST") && path.equals(RESUMABLE)) {
+                skip(in, length);
+                String id = "u" + creates.incrementAndGet();
+                uploads.put(id, new ByteArrayOutputStream());
+                objectNames.put(id, objectName(headers.get("upload-metadata")));
+                respond(s, "201 Created", "Location: " + baseUrl() + RESUMABLE + "/" + id);
+            } else if (method.equals("PATCH") && path.startsWith(RESUMABLE + "/")) {
+                patch(s, in, uploads.get(path.substring(RESUMABLE.length() + 1)), headers, length);
+            } else if (method.equals("HEAD") && path.startsWith(RESUMABLE + "/")) {
+                heads.incrementAndGet();
+                ByteArrayOutputStream upload = uploads.get(path.substring(RESUMABLE.length() + 1));
+                if (headsToFail.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    if (headFailureStatus == 0) {
+                        drop(s);
+                    } else {
+                        respond(s, headFailureStatus + " Failed", null);
+                    }
+                } else if (upload == null) {
+                    respond(s, "404 Not Found", null);
+                } else {
+                    synchronized (upload) {
+                        respond(s, "200 OK", "Upload-Offset: " + upload.size());
+                    }
+                }
+            } else {
+                skip(in, length);
+                respond(s, "404 Not Found", null);
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to answer
+        }
+    }
+
+    private void patch(Socket socket, InputStream in, ByteArrayOutputStream upload, Map<String, String> headers,
+                       long length) throws IOException {
+        patches.incrementAndGet();
+        if (upload == null) {
+            skip(in, length);
+            respond(socket, "404 Not Found", null);
+            return;
+        }
+        long offset = Long.parseLong(headers.get("upload-offset"));
+        boolean drop = patchesToDrop.getAndUpdate(n -> Math.max(0, n - 1)) > 0;
+        long keep = drop ? Math.min(length, dropAfterBytes) : length;
+        byte[] body = new byte[(int) keep];
+        readFully(in, body);
+        synchronized (upload) {
+            if (offset != upload.size()) {
+                respond(socket, "409 Conflict", null);
+                return;
+            }
+            // Like a real TUS server, whatever arrived before the drop is kept
+            upload.write(body, 0, body.length);
+        }
+        if (drop) {
+            dropped.incrementAndGet();
+            drop(socket);
+            return;
+        }
+        synchronized (upload) {
+            respond(socket, "204 No Content", "Upload-Offset: " + upload.size());
+        }
+    }
+
+    private static String objectName(String metadata) {
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].equals("objectName")) {
+                return ByteString.decodeBase64(parts[1]).utf8();
+            }
+        }
+        return null;
+    }
+
+    private static void respond(Socket socket, String status, String header) throws IOException {
+        StringBuilder response = new StringBuilder("HTTP/1.1 ").append(status).append("\r\n");
+        if (header != null) {
+            response.append(header).append("\r\n");
+        }
+        response.append("Tus-Resumable: 1.0.0\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+        OutputStream out = socket.getOutputStream();
+        out.write(response.toString().getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    // Resets the connection rather than closing it cleanly, as a dead link would look to the client
+    private static void drop(Socket socket) throws IOException {
+        socket.setSoLinger(true, 0);
+        socket.close();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        if (c == -1 && line.length() == 0) {
+            throw new IOException("Connection closed");
+        }
+        return line.toString();
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                throw new IOException("Body cut short");
+            }
+            read += n;
+        }
+    }
+
+    private static void skip(InputStream in, long length) throws IOException {
+        readFully(in, new byte[(int) length]);
+    }
+}
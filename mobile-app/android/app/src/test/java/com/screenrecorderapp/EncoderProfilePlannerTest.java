@@ -0,0 +1,130 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.google.gson.Gson;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Runs the planner over capability snapshots in the probe's own cache format,
+ * under src/test/resources/codec-capabilities.
+ */
+public class EncoderProfilePlannerTest {
+    private final EncoderProfilePlanner planner = new EncoderProfilePlanner();
+
+    @Test
+    public void hardwareEncoderIsPreferredOverEarlierSoftwareOne() throws IOException {
+        EncoderProfile profile = plan("qcom-1080x2400", 1080, 2400, EncoderProfilePlanner.Target.standard());
+
+        // 1080x2400 at 30 fps wants 7.8 Mbps, over the 6 Mbps budget; the next size down fits
+        assertProfile(profile, "c2.qti.avc.encoder", 810, 1800, 30, 4374000, EncoderProfile.BITRATE_MODE_VBR);
+    }
+
+    @Test
+    public void largestSizeWithinBudgetWins() throws IOException {
+        EncoderProfile profile = plan("qcom-1080x2400", 1080, 2400,
+                new EncoderProfilePlanner.Target(30, 15, 800000, 0.1));
+
+        assertProfile(profile, "c2.qti.avc.encoder", 270, 600, 30, 486000, EncoderProfile.BITRATE_MODE_VBR);
+    }
+
+    @Test
+    public void higherFrameRateTradesResolution() throws IOException {
+        EncoderProfile profile = plan("qcom-1080x2400", 1080, 2400,
+                new EncoderProfilePlanner.Target(60, 15, 6000000, 0.1));
+
+        assertProfile(profile, "c2.qti.avc.encoder", 540, 1200, 60, 3888000, EncoderProfile.BITRATE_MODE_VBR);
+    }
+
+    @Test
+    public void budgetBelowEverySizeCapsTheSmallest() throws IOException {
+        EncoderProfile profile = plan("qcom-1080x2400", 1080, 2400,
+                new EncoderProfilePlanner.Target(30, 15, 400000, 0.1));
+
+        assertProfile(profile, "c2.qti.avc.encoder", 270, 600, 30, 400000, EncoderProfile.BITRATE_MODE_VBR);
+    }
+
+    @Test
+    public void frameRateAndBitrateAreClampedToTheEncoder() throws IOException {
+        EncoderProfile profile = plan("mtk-720x1600", 720, 1600, EncoderProfilePlanner.Target.standard());
+
+        // The full size only runs at 24 fps; 2.76 Mbps is then cut to the encoder's 2 Mbps ceiling
+        assertProfile(profile, "OMX.MTK.VIDEO.ENCODER.AVC", 720, 1600, 24, 2000000,
+                EncoderProfile.BITRATE_MODE_CBR);
+    }
+
+    @Test
+    public void bitrateIsRaisedToTheEncoderFloor() throws IOException {
+        EncoderProfile profile = plan("mtk-720x1600", 720, 1600,
+                new EncoderProfilePlanner.Target(30, 15, 300000, 0.1));
+
+        assertProfile(profile, "OMX.MTK.VIDEO.ENCODER.AVC", 180, 400, 30, 500000,
+                EncoderProfile.BITRATE_MODE_CBR);
+    }
+
+    @Test
+    public void hardwareEncoderTooSlowAtEverySizeFallsBackToSoftware() throws IOException {
+        EncoderProfile profile = plan("exynos-1440x3200", 1440, 3200, EncoderProfilePlanner.Target.standard());
+
+        // Neither VBR nor CBR is advertised, so the codec's default mode is kept
+        assertProfile(profile, "OMX.google.h264.encoder", 720, 1600, 30, 3456000,
+                EncoderProfile.BITRATE_MODE_DEFAULT);
+    }
+
+    @Test
+    public void lowerMinimumFrameRateKeepsTheHardwareEncoder() throws IOException {
+        EncoderProfile profile = plan("exynos-1440x3200", 1440, 3200,
+                new EncoderProfilePlanner.Target(30, 8, 6000000, 0.1));
+
+        assertProfile(profile, "OMX.Exynos.AVC.Encoder", 1440, 3200, 8, 3686400, EncoderProfile.BITRATE_MODE_VBR);
+    }
+
+    @Test
+    public void noUsableAvcEncoderAsksForEvenScreenSize() throws IOException {
+        EncoderProfile profile = plan("hevc-only", 1081, 2401, EncoderProfilePlanner.Target.standard());
+
+        assertProfile(profile, null, 1080, 2400, 30, 6000000, EncoderProfile.BITRATE_MODE_DEFAULT);
+    }
+
+    @Test
+    public void missingCapabilitiesAskForScreenSize() {
+        EncoderProfile profile = planner.plan(null, 720, 1600, EncoderProfilePlanner.Target.standard());
+
+        assertProfile(profile, null, 720, 1600, 30, 3456000, EncoderProfile.BITRATE_MODE_DEFAULT);
+    }
+
+    private EncoderProfile plan(String fixture, int screenWidth, int screenHeight,
+                                EncoderProfilePlanner.Target target) throws IOException {
+        return planner.plan(load(fixture), screenWidth, screenHeight, target);
+    }
+
+    private static EncoderCapabilities load(String fixture) throws IOException {
+        InputStream in = EncoderProfilePlannerTest.class.getResourceAsStream(
+                "/codec-capabilities/" + fixture + ".json");
+        assertNotNull(fixture, in);
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new Gson().fromJson(reader, EncoderCapabilities.class);
+        }
+    }
+
+    private static void assertProfile(EncoderProfile profile, String encoderName, int width, int height,
+                                      int frameRate, int bitRate, int bitrateMode) {
+        if (encoderName == null) {
+            assertNull(profile.encoderName);
+        } else {
+            assertEquals(encoderName, profile.encoderName);
+        }
+        assertEquals("width", width, profile.width);
+        assertEquals("height", height, profile.height);
+        assertEquals("frame rate", frameRate, profile.frameRate);
+        assertEquals("bitrate", bitRate, profile.bitRate);
+        assertEquals("bitrate mode", bitrateMode, profile.bitrateMode);
+    }
+}
@@ -0,0 +1,255 @@
+package com.screenrecorderapp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A stand-in for PostgREST's GET /rest/v1/recordings, holding a table of
+ * synthetic rows in memory.
+ *
+ * It understands exactly what RecordingLister sends: created_at/id descending
+ * order, a limit, and the keyset {@code or=} filter. Like a caching proxy in
+ * front of PostgREST, it tags each response with a hash of its body and
+ * answers a matching If-None-Match with 304.
+ *
+ * The benchmarks module compiles this class too, for its listing and async
+ * call benchmarks.
+ */
+public class FakeRecordingsEndpoint {
+    private static final Pattern KEYSET = Pattern.compile(
+            "\\(created_at\\.lt\\.\"([^\"]+)\",and\\(created_at\\.eq\\.\"([^\"]+)\",id\\.lt\\.([^)]+)\\)\\)");
+
+    public static final class Row {
+        public final String id;
+        public final String createdAt;
+        final String json;
+
+        Row(String id, String createdAt, String json) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.json = json;
+        }
+    }
+
+    private static final long BASE_MICROS = 1735689600000000L;
+
+    static {
+        // Small pages otherwise wait out a delayed ACK on every keep-alive request
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    // Newest first, the order every listing asks for; replaced whole when rows are added
+    private volatile List<Row> rows;
+    private final Random random;
+    private int generatedRows;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicLong bodyBytes = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    /**
+     * {@code rowCount} rows, three to a created_at so the id tie-break matters.
+     */
+    public FakeRecordingsEndpoint(int rowCount) throws IOException {
+        random = new Random(rowCount);
+        rows = Collections.unmodifiableList(generate(rowCount));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/v1/recordings", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public List<Row> rows() {
+        return rows;
+    }
+
+    /**
+     * Inserts {@code count} rows newer than any so far, as recordings uploaded
+     * while someone is paging through the list.
+     */
+    public synchronized void addNewest(int count) {
+        // Start a fresh created_at, so none of them ties with an existing row
+        generatedRows = (generatedRows + 2) / 3 * 3;
+        List<Row> updated = generate(count);
+        updated.addAll(rows);
+        rows = Collections.unmodifiableList(updated);
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Response body bytes sent so far; 304s send none.
+     */
+    public long bodyBytes() {
+        return bodyBytes.get();
+    }
+
+    public long notModifiedCount() {
+        return notModified.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // Newest first, all of them newer than the rows generated before
+    private synchronized List<Row> generate(int count) {
+        List<Row> generated = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            int i = generatedRows++;
+            long micros = BASE_MICROS + (i / 3) * 1234567L;
+            String createdAt = timestamp(micros);
+            String id = String.format("%08x-%04x-4%03x-8%03x-%012x", random.nextInt(), random.nextInt(0x10000),
+                    random.nextInt(0x1000), random.nextInt(0x1000), random.nextLong() & 0xffffffffffffL);
+            String json = "{\"id\":\"" + id + "\",\"file_name\":\"recording_" + i + ".mp4\","
+                    + "\"file_path\":\"" + id + ".mp4\",\"created_at\":\"" + createdAt + "\","
+                    + "\"file_size\":" + (1000000 + random.nextInt(50000000)) + ",\"session_id\":null,"
+                    + "\"segment_index\":0,\"is_final_segment\":true,\"duration_ms\":" + random.nextInt(600000)
+                    + ",\"width\":1080,\"height\":2400,\"content_hash\":null}";
+            generated.add(new Row(id, createdAt, json));
+        }
+        generated.sort((a, b) -> {
+            int byTime = b.createdAt.compareTo(a.createdAt);
+            return byTime != 0 ? byTime : b.id.compareTo(a.id);
+        });
+        return generated;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        List<Row> rows = this.rows;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int limit = Integer.parseInt(query.getOrDefault("limit", "1000"));
+            int start = 0;
+            String or = query.get("or");
+            if (or != null) {
+                Matcher keyset = KEYSET.matcher(or);
+                if (!keyset.matches() || !keyset.group(1).equals(keyset.group(2))) {
+                    respond(exchange, 400, "{\"message\":\"unsupported filter\"}".getBytes(StandardCharsets.UTF_8), null);
+                    return;
+                }
+                start = firstAfter(rows, keyset.group(1), keyset.group(3));
+            }
+
+            StringBuilder body = new StringBuilder(limit * 300).append('[');
+            for (int i = start; i < Math.min(rows.size(), start + limit); i++) {
+                if (i > start) {
+                    body.append(',');
+                }
+                body.append(rows.get(i).json);
+            }
+            byte[] bytes = body.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            String etag = "\"" + sha1(bytes) + "\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                respond(exchange, 304, null, etag);
+            } else {
+                respond(exchange, 200, bytes, etag);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Index of the first row ordered after (createdAt, id), by binary search
+     * as the database would seek its index.
+     */
+    private static int firstAfter(List<Row> rows, String createdAt, String id) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            Row row = rows.get(mid);
+            int byTime = row.createdAt.compareTo(createdAt);
+            boolean before = byTime > 0 || (byTime == 0 && row.id.compareTo(id) >= 0);
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void respond(HttpExchange exchange, int code, byte[] body, String etag) throws IOException {
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, body == null ? -1 : body.length);
+        if (body != null) {
+            bodyBytes.addAndGet(body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return query;
+    }
+
+    private static String timestamp(long epochMicros) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(epochMicros / 1000))
+                + String.format(".%06d+00:00", epochMicros % 1000000);
+    }
+
+    private static String sha1(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.screenrecorderapp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okio.ByteString;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stand-in for the parts of a Supabase project the app calls, kept in
+ * memory: storage uploads (multipart and TUS resumable), object HEAD and bulk
+ * delete, inserting, deleting and counting rows of recordings, and the bucket
+ * lookup SupabaseTest makes. Object contents are counted, not kept. Listing
+ * pages is FakeRecordingsEndpoint's job.
+ *
+ * {@link Conditions} make it behave like a network and a server under strain:
+ * a delay before every response, a cap on how fast each request body is read,
+ * and a share of requests answered with 503 before their body is read.
+ *
+ * The benchmarks module compiles this class too, for its fleet load test.
+ */
+public class FakeSupabase {
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final String RESUMABLE = "/storage/v1/upload/resumable";
+
+    public static final class Conditions {
+        public final long latencyMs;
+        public final long jitterMs;
+        // Per request body, 0 for no limit
+        public final long bytesPerSecond;
+        public final double failureRate;
+
+        public Conditions(long latencyMs, long jitterMs, long bytesPerSecond, double failureRate) {
+            this.latencyMs = latencyMs;
+            this.jitterMs = jitterMs;
+            this.bytesPerSecond = bytesPerSecond;
+            this.failureRate = failureRate;
+        }
+
+        public static final Conditions IDEAL = new Conditions(0, 0, 0, 0);
+    }
+
+    private static final class Upload {
+        final String objectName;
+        final long length;
+        long offset;
+
+        Upload(String objectName, long length) {
+            this.objectName = objectName;
+            this.length = length;
+        }
+    }
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile Conditions conditions;
+    private volatile boolean reportObjectLength = true;
+    private final Map<String, Long> objects = new ConcurrentHashMap<>();
+    private final Map<String, String> rows = new ConcurrentHashMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final AtomicLong uploadIds = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param threads requests served at once; a slow request holds its thread
+     */
+    public FakeSupabase(Conditions conditions, int threads) throws IOException {
+        this.conditions = conditions;
+        this.executor = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void setConditions(Conditions conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Whether HEAD on an object says how long it is. Some proxies drop the
+     * Content-Length of a response with no body.
+     */
+    public void setReportObjectLength(boolean reportObjectLength) {
+        this.reportObjectLength = reportObjectLength;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public void reset() {
+        objects.clear();
+        rows.clear();
+        uploads.clear();
+    }
+
+    /**
+     * Size of a stored object, or -1 if there is none.
+     */
+    public long objectSize(String objectName) {
+        Long size = objects.get(objectName);
+        return size != null ? size : -1;
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    /**
+     * Object key each row points to, by row id.
+     */
+    public Map<String, String> rows() {
+        return rows;
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    public long injectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    public long bytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Client connections seen so far, told apart by their source port.
+     */
+    public int connectionCount() {
+        return clients.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        clients.add(exchange.getRemoteAddress());
+        Conditions now = conditions;
+        try {
+            if (now.failureRate > 0 && ThreadLocalRandom.current().nextDouble() < now.failureRate) {
+                injectedFailures.incrementAndGet();
+                delay(now);
+                respond(exchange, 503, "{\"message\":\"injected failure\"}");
+                return;
+            }
+            route(exchange, now);
+        } catch (RuntimeException e) {
+            respond(exchange, 500, "{\"message\":\"" + e + "\"}");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, Conditions now) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getRawPath();
+
+        if (path.startsWith(RESUMABLE)) {
+            String id = path.length() > RESUMABLE.length() + 1 ? path.substring(RESUMABLE.length() + 1) : null;
+            if (id == null && method.equals("POST")) {
+                createUpload(exchange, now);
+            } else if (id != null && method.equals("PATCH")) {
+                appendUpload(exchange, id, now);
+            } else if (id != null && method.equals("HEAD")) {
+                uploadOffset(exchange, id, now);
+            } else {
+                respond(exchange, 405, "");
+            }
+        } else if (path.startsWith("/storage/v1/object/authenticated/") && method.equals("HEAD")) {
+            String objectName = objectName(path, "/storage/v1/object/authenticated/");
+            delay(now);
+            Long size = objects.get(objectName);
+            if (size == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                if (reportObjectLength) {
+                    exchange.getResponseHeaders().set("Content-Length", String.valueOf(size));
+                }
+                exchange.sendResponseHeaders(200, -1);
+            }
+        } else if (path.startsWith("/storage/v1/object/")) {
+            if (method.equals("POST")) {
+                storeMultipart(exchange, objectName(path, "/storage/v1/object/"), now);
+            } else if (method.equals("DELETE")) {
+                deleteObjects(exchange, now);
+            } else {
+                respond(exchange, 405, "");
+            }
+        } else if (path.startsWith("/storage/v1/bucket/") && method.equals("GET")) {
+            String bucket = path.substring("/storage/v1/bucket/".length());
+            delay(now);
+            respond(exchange, 200, "{\"id\":\"" + bucket + "\",\"name\":\"" + bucket + "\",\"public\":true}");
+        } else if (path.equals("/rest/v1/recordings")) {
+            if (method.equals("POST")) {
+                insertRows(exchange, now);
+            } else if (method.equals("DELETE")) {
+                deleteRows(exchange, now);
+            } else if (method.equals("GET")) {
+                delay(now);
+                respond(exchange, 200, "[{\"count\":" + rows.size() + "}]");
+            } else {
+                respond(exchange, 405, "");
+            }
+        } else {
+            respond(exchange, 404, "{\"message\":\"not found\"}");
+        }
+    }
+
+    private void createUpload(HttpExchange exchange, Conditions now) throws IOException {
+        long length = Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Length"));
+        String objectName = null;
+        for (String pair : exchange.getRequestHeaders().getFirst("Upload-Metadata").split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].equals("objectName") && parts.length == 2) {
+                objectName = ByteString.decodeBase64(parts[1]).utf8();
+            }
+        }
+        if (objectName == null) {
+            respond(exchange, 400, "{\"message\":\"objectName missing\"}");
+            return;
+        }
+        readBody(exchange, now);
+        String id = "u" + uploadIds.incrementAndGet();
+        uploads.put(id, new Upload(objectName, length));
+        delay(now);
+        exchange.getResponseHeaders().set("Location", baseUrl() + RESUMABLE + "/" + id);
+        exchange.getResponseHeaders().set("Tus-Resumable", "1.0.0");
+        exchange.sendResponseHeaders(201, -1);
+    }
+
+    private void appendUpload(HttpExchange exchange, String id, Conditions now) throws IOException {
+        Upload upload = uploads.get(id);
+        if (upload == null) {
+            respond(exchange, 404, "");
+            return;
+        }
+        long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Offset"));
+        synchronized (upload) {
+            if (offset != upload.offset) {
+                respond(exchange, 409, "{\"message\":\"offset mismatch\"}");
+                return;
+            }
+        }
+        long received = readBody(exchange, now);
+        long newOffset;
+        synchronized (upload) {
+            upload.offset = Math.min(upload.length, offset + received);
+            newOffset = upload.offset;
+        }
+        if (newOffset == upload.length) {
+            objects.put(upload.objectName, upload.length);
+        }
+        delay(now);
+        exchange.getResponseHeaders().set("Upload-Offset", String.valueOf(newOffset));
+        exchange.getResponseHeaders().set("Tus-Resumable", "1.0.0");
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void uploadOffset(HttpExchange exchange, String id, Conditions now) throws IOException {
+        Upload upload = uploads.get(id);
+        delay(now);
+        if (upload == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        synchronized (upload) {
+            exchange.getResponseHeaders().set("Upload-Offset", String.valueOf(upload.offset));
+        }
+        exchange.getResponseHeaders().set("Upload-Length", String.valueOf(upload.length));
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void storeMultipart(HttpExchange exchange, String objectName, Conditions now) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int boundaryAt = contentType != null ? contentType.indexOf("boundary=") : -1;
+        if (boundaryAt < 0) {
+            respond(exchange, 400, "{\"message\":\"not multipart\"}");
+            return;
+        }
+        String boundary = contentType.substring(boundaryAt + "boundary=".length());
+        byte[] head = new byte[READ_CHUNK];
+        InputStream body = exchange.getRequestBody();
+        int headLength = body.read(head);
+        String start = new String(head, 0, Math.max(0, headLength), StandardCharsets.ISO_8859_1);
+        int partStart = start.indexOf("\r\n\r\n");
+        long total = Math.max(0, headLength) + throttledDrain(body, now, Math.max(0, headLength));
+        bytesReceived.addAndGet(total);
+        if (partStart < 0) {
+            respond(exchange, 400, "{\"message\":\"no part\"}");
+            return;
+        }
+        // The file part runs to the closing "\r\n--boundary--\r\n"
+        long size = total - (partStart + 4) - (boundary.length() + 8);
+        objects.put(objectName, size);
+        delay(now);
+        respond(exchange, 200, "{\"Key\":\"" + objectName + "\"}");
+    }
+
+    private void deleteObjects(HttpExchange exchange, Conditions now) throws IOException {
+        JsonObject request;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = gson.fromJson(reader, JsonObject.class);
+        }
+        JsonArray deleted = new JsonArray();
+        for (JsonElement prefix : request.getAsJsonArray("prefixes")) {
+            if (objects.remove(prefix.getAsString()) != null) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("name", prefix.getAsString());
+                deleted.add(entry);
+            }
+        }
+        delay(now);
+        respond(exchange, 200, deleted.toString());
+    }
+
+    private void insertRows(HttpExchange exchange, Conditions now) throws IOException {
+        JsonArray inserted;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            inserted = gson.fromJson(reader, JsonArray.class);
+        }
+        for (JsonElement element : inserted) {
+            JsonObject row = element.getAsJsonObject();
+            // on_conflict=id with ignore-duplicates, as the app asks for
+            rows.putIfAbsent(row.get("id").getAsString(), row.get("file_path").getAsString());
+        }
+        delay(now);
+        exchange.sendResponseHeaders(201, -1);
+    }
+
+    private void deleteRows(HttpExchange exchange, Conditions now) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        for (String pair : query != null ? query.split("&") : new String[0]) {
+            int eq = pair.indexOf('=');
+            String column = decode(pair.substring(0, eq));
+            String filter = decode(pair.substring(eq + 1));
+            if (!filter.startsWith("in.(") || !filter.endsWith(")")) {
+                continue;
+            }
+            for (String quoted : filter.substring(4, filter.length() - 1).split(",")) {
+                String value = quoted.replaceAll("^\"|\"$", "").replace("\\\"", "\"").replace("\\\\", "\\");
+                if (column.equals("id")) {
+                    rows.remove(value);
+                } else if (column.equals("file_path")) {
+                    rows.values().removeIf(value::equals);
+                }
+            }
+        }
+        delay(now);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private long readBody(HttpExchange exchange, Conditions now) throws IOException {
+        long read = throttledDrain(exchange.getRequestBody(), now, 0);
+        bytesReceived.addAndGet(read);
+        return read;
+    }
+
+    /**
+     * Reads {@code body} to the end no faster than the conditions allow,
+     * counting {@code alreadyRead} bytes toward the rate.
+     */
+    private static long throttledDrain(InputStream body, Conditions now, long alreadyRead) throws IOException {
+        byte[] buffer = new byte[READ_CHUNK];
+        long start = System.nanoTime();
+        long read = 0;
+        int n;
+        while ((n = body.read(buffer)) > 0) {
+            read += n;
+            if (now.bytesPerSecond > 0) {
+                long dueNanos = (alreadyRead + read) * 1000000000L / now.bytesPerSecond;
+                long aheadMs = (dueNanos - (System.nanoTime() - start)) / 1000000;
+                if (aheadMs > 0) {
+                    sleep(aheadMs);
+                }
+            }
+        }
+        return read;
+    }
+
+    private static void delay(Conditions now) {
+        long jitter = now.jitterMs > 0 ? ThreadLocalRandom.current().nextLong(now.jitterMs + 1) : 0;
+        sleep(now.latencyMs + jitter);
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String objectName(String path, String prefix) {
+        // Drop the bucket: keys are unique across the one bucket the app uses
+        String rest = decode(path.substring(prefix.length()));
+        int slash = rest.indexOf('/');
+        return slash >= 0 ? rest.substring(slash + 1) : rest;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (bytes.length == 0) {
+            exchange.sendResponseHeaders(code, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+
+public class FakeSupabaseTest {
+    private static final String BUCKET = "screen-recordings";
+    private static final String RESUMABLE = "/storage/v1/upload/resumable";
+
+    private FakeSupabase supabase;
+    private SupabaseTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        supabase = new FakeSupabase(FakeSupabase.Conditions.IDEAL, 4);
+        transport = new SupabaseTransport(supabase.baseUrl(), "test");
+    }
+
+    @After
+    public void tearDown() {
+        supabase.stop();
+    }
+
+    @Test
+    public void multipartUploadIsStoredWithItsSize() throws IOException {
+        byte[] data = new byte[123457];
+        try (Response response = execute(multipart("a/b.mp4", data))) {
+            assertEquals(200, response.code());
+            assertEquals("{\"Key\":\"a/b.mp4\"}", response.body().string());
+        }
+        assertEquals(data.length, supabase.objectSize("a/b.mp4"));
+        assertTrue(supabase.bytesReceived() > data.length);
+
+        try (Response response = execute(objectHead("a/b.mp4"))) {
+            assertEquals(200, response.code());
+            assertEquals(String.valueOf(data.length), response.header("Content-Length"));
+        }
+        try (Response response = execute(objectHead("a/missing.mp4"))) {
+            assertEquals(404, response.code());
+        }
+    }
+
+    @Test
+    public void bulkDeleteReportsOnlyObjectsThatExisted() throws IOException {
+        execute(multipart("a/one.mp4", new byte[10])).close();
+        execute(multipart("a/two.mp4", new byte[10])).close();
+
+        Request delete = transport.request("/storage/v1/object/" + BUCKET)
+                .delete(SupabaseTransport.json("{\"prefixes\":[\"a/one.mp4\",\"a/none.mp4\"]}"))
+                .build();
+        try (Response response = execute(delete)) {
+            assertEquals(200, response.code());
+            assertEquals("[{\"name\":\"a/one.mp4\"}]", response.body().string());
+        }
+        assertEquals(-1, supabase.objectSize("a/one.mp4"));
+        assertEquals(1, supabase.objectCount());
+    }
+
+    @Test
+    public void resumableUploadTracksOffsetAndRejectsGaps() throws IOException {
+        String location;
+        try (Response response = execute(transport.request(RESUMABLE)
+                .addHeader("Upload-Length", "10")
+                .addHeader("Upload-Metadata", "bucketName " + base64(BUCKET) + ",objectName " + base64("r.mp4"))
+                .post(RequestBody.create(new byte[0], null))
+                .build())) {
+            assertEquals(201, response.code());
+            location = response.header("Location");
+        }
+
+        assertEquals("6", patch(location, 0, 6).header("Upload-Offset"));
+        assertEquals(-1, supabase.objectSize("r.mp4"));
+        // Not at the upload's current offset
+        assertEquals(409, patch(location, 2, 4).code());
+        try (Response response = execute(transport.authorized(location).head().build())) {
+            assertEquals("6", response.header("Upload-Offset"));
+            assertEquals("10", response.header("Upload-Length"));
+        }
+
+        assertEquals("10", patch(location, 6, 4).header("Upload-Offset"));
+        assertEquals(10, supabase.objectSize("r.mp4"));
+        try (Response response = execute(transport.authorized(location + "x").head().build())) {
+            assertEquals(404, response.code());
+        }
+    }
+
+    @Test
+    public void rowsIgnoreDuplicatesAndDeleteByFilter() throws IOException {
+        insert("[{\"id\":\"1\",\"file_path\":\"a.mp4\"},{\"id\":\"2\",\"file_path\":\"q\\\"z.mp4\"}]");
+        insert("[{\"id\":\"1\",\"file_path\":\"changed.mp4\"},{\"id\":\"3\",\"file_path\":\"c.mp4\"}]");
+        assertEquals(3, supabase.rows().size());
+        assertEquals("a.mp4", supabase.rows().get("1"));
+
+        try (Response response = execute(transport.request("/rest/v1/recordings?select=count").build())) {
+            assertEquals("[{\"count\":3}]", response.body().string());
+        }
+
+        HttpUrl byPath = HttpUrl.get(supabase.baseUrl() + "/rest/v1/recordings").newBuilder()
+                .addQueryParameter("file_path", "in.(\"q\\\"z.mp4\")")
+                .build();
+        try (Response response = execute(transport.authorized(byPath.toString()).delete().build())) {
+            assertEquals(204, response.code());
+        }
+        HttpUrl byId = HttpUrl.get(supabase.baseUrl() + "/rest/v1/recordings").newBuilder()
+                .addQueryParameter("id", "in.(\"3\")")
+                .build();
+        execute(transport.authorized(byId.toString()).delete().build()).close();
+
+        assertEquals(1, supabase.rows().size());
+        assertTrue(supabase.rows().containsKey("1"));
+    }
+
+    @Test
+    public void bucketLookupAndUnknownPaths() throws IOException {
+        try (Response response = execute(transport.request("/storage/v1/bucket/" + BUCKET).build())) {
+            assertEquals(200, response.code());
+            assertTrue(response.body().string().contains("\"id\":\"" + BUCKET + "\""));
+        }
+        try (Response response = execute(transport.request("/rest/v1/other").build())) {
+            assertEquals(404, response.code());
+        }
+    }
+
+    @Test
+    public void injectedFailuresAnswer503WithoutStoring() throws IOException {
+        supabase.setConditions(new FakeSupabase.Conditions(0, 0, 0, 1.0));
+        try (Response response = execute(multipart("a/b.mp4", new byte[100]))) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, supabase.injectedFailureCount());
+        assertEquals(-1, supabase.objectSize("a/b.mp4"));
+
+        supabase.setConditions(FakeSupabase.Conditions.IDEAL);
+        try (Response response = execute(multipart("a/b.mp4", new byte[100]))) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, supabase.requestCount());
+    }
+
+    @Test
+    public void latencyAndBandwidthSlowResponsesDown() throws IOException {
+        supabase.setConditions(new FakeSupabase.Conditions(150, 0, 0, 0));
+        long start = System.nanoTime();
+        execute(transport.request("/storage/v1/bucket/" + BUCKET).build()).close();
+        assertTrue(elapsedMs(start) >= 150);
+
+        // 512 KB at 1 MB/s
+        supabase.setConditions(new FakeSupabase.Conditions(0, 0, 1024 * 1024, 0));
+        start = System.nanoTime();
+        execute(multipart("a/slow.mp4", new byte[512 * 1024])).close();
+        assertTrue(elapsedMs(start) >= 450);
+    }
+
+    @Test
+    public void resetForgetsObjectsAndRows() throws IOException {
+        execute(multipart("a/b.mp4", new byte[10])).close();
+        insert("[{\"id\":\"1\",\"file_path\":\"a/b.mp4\"}]");
+
+        supabase.reset();
+
+        assertEquals(0, supabase.objectCount());
+        assertFalse(supabase.rows().containsKey("1"));
+    }
+
+    private Request multipart(String objectName, byte[] data) {
+        MultipartBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", objectName, RequestBody.create(data, MediaType.parse("video/mp4")))
+                .build();
+        return transport.request("/storage/v1/object/" + BUCKET + "/" + objectName).post(body).build();
+    }
+
+    private Request objectHead(String objectName) {
+        return transport.request("/storage/v1/object/authenticated/" + BUCKET + "/" + objectName).head().build();
+    }
+
+    private Response patch(String location, long offset, int length) throws IOException {
+        try (Response response = execute(transport.authorized(location)
+                .addHeader("Upload-Offset", String.valueOf(offset))
+                .patch(RequestBody.create(new byte[length], MediaType.parse("application/offset+octet-stream")))
+                .build())) {
+            return response;
+        }
+    }
+
+    private void insert(String rows) throws IOException {
+        try (Response response = execute(transport.request("/rest/v1/recordings")
+                .post(SupabaseTransport.json(rows))
+                .build())) {
+            assertEquals(201, response.code());
+        }
+    }
+
+    private Response execute(Request request) throws IOException {
+        return transport.execute(request);
+    }
+
+    private static String base64(String value) {
+        return ByteString.encodeUtf8(value).base64();
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+}
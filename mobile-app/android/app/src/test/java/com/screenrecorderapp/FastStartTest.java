@@ -0,0 +1,209 @@
+package com.screenrecorderapp;
+
+import static com.screenrecorderapp.Mp4Fixture.VIDEO_TIMESCALE;
+import static com.screenrecorderapp.Mp4Fixture.box;
+import static com.screenrecorderapp.Mp4Fixture.co64;
+import static com.screenrecorderapp.Mp4Fixture.concat;
+import static com.screenrecorderapp.Mp4Fixture.ftyp;
+import static com.screenrecorderapp.Mp4Fixture.largeBox;
+import static com.screenrecorderapp.Mp4Fixture.mdat;
+import static com.screenrecorderapp.Mp4Fixture.mdhd;
+import static com.screenrecorderapp.Mp4Fixture.moov;
+import static com.screenrecorderapp.Mp4Fixture.mvhd;
+import static com.screenrecorderapp.Mp4Fixture.stco;
+import static com.screenrecorderapp.Mp4Fixture.stsc;
+import static com.screenrecorderapp.Mp4Fixture.stss;
+import static com.screenrecorderapp.Mp4Fixture.stszUniform;
+import static com.screenrecorderapp.Mp4Fixture.stts;
+import static com.screenrecorderapp.Mp4Fixture.tkhd;
+import static com.screenrecorderapp.Mp4Fixture.trak;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class FastStartTest {
+    private static final int FRAMES = 30;
+    private static final int FRAME_SIZE = 97;
+    private static final int AUDIO_FRAMES = 20;
+    private static final int AUDIO_FRAME_SIZE = 31;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void moovMovesInFrontOfMdatWithShiftedStco() throws IOException {
+        byte[] payload = payload(FRAMES * FRAME_SIZE);
+        byte[] free = box("free", new byte[16]);
+        int mdatStart = ftyp().length + free.length;
+        byte[] moov = moov(mvhd(0, 1000, 1000), video(offsets(mdatStart + 8, FRAMES, FRAME_SIZE, 0)));
+        byte[] meta = box("meta", new byte[5]);
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), free, mdat(payload), moov, meta);
+
+        assertTrue(FastStart.process(file));
+
+        byte[] shifted = moov(mvhd(0, 1000, 1000), video(offsets(mdatStart + 8, FRAMES, FRAME_SIZE, moov.length)));
+        assertArrayEquals(concat(ftyp(), free, shifted, mdat(payload), meta), Files.readAllBytes(file.toPath()));
+        assertFalse(new File(file.getPath() + ".faststart").exists());
+    }
+
+    @Test
+    public void co64AndEveryTrackAreShifted() throws IOException {
+        byte[] video = payload(FRAMES * FRAME_SIZE);
+        byte[] audio = payload(AUDIO_FRAMES * AUDIO_FRAME_SIZE);
+        // A 64-bit mdat header, as written past 4 GB, with audio chunks after the video ones
+        int videoStart = ftyp().length + 16;
+        int audioStart = videoStart + video.length;
+        byte[] moov = moov(mvhd(0, 1000, 1000),
+                video(offsets(videoStart, FRAMES, FRAME_SIZE, 0)),
+                audio(offsets(audioStart, AUDIO_FRAMES, AUDIO_FRAME_SIZE, 0)));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), largeBox("mdat", concat(video, audio)), moov);
+
+        assertTrue(FastStart.process(file));
+
+        byte[] shifted = moov(mvhd(0, 1000, 1000),
+                video(offsets(videoStart, FRAMES, FRAME_SIZE, moov.length)),
+                audio(offsets(audioStart, AUDIO_FRAMES, AUDIO_FRAME_SIZE, moov.length)));
+        assertArrayEquals(concat(ftyp(), shifted, largeBox("mdat", concat(video, audio))),
+                Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void chunksInEveryMdatBeforeMoovAreShifted() throws IOException {
+        byte[] first = payload(15 * FRAME_SIZE);
+        byte[] second = payload(15 * FRAME_SIZE);
+        int firstStart = ftyp().length + 8;
+        int secondStart = firstStart + first.length + 8;
+        long[] before = concatOffsets(offsets(firstStart, 15, FRAME_SIZE, 0), offsets(secondStart, 15, FRAME_SIZE, 0));
+        byte[] moov = moov(mvhd(0, 1000, 1000), video(before));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), mdat(first), mdat(second), moov);
+
+        assertTrue(FastStart.process(file));
+
+        long[] after = concatOffsets(offsets(firstStart, 15, FRAME_SIZE, moov.length),
+                offsets(secondStart, 15, FRAME_SIZE, moov.length));
+        assertArrayEquals(concat(ftyp(), moov(mvhd(0, 1000, 1000), video(after)), mdat(first), mdat(second)),
+                Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void samplesAreStillWhereTheTablesSay() throws IOException {
+        File file = SyntheticMp4.write(folder.newFile(), 2 * 1024 * 1024, true);
+        byte[] original = Files.readAllBytes(file.toPath());
+        Mp4Info before = Mp4Parser.parse(file);
+
+        assertTrue(FastStart.process(file));
+
+        Mp4Info after = Mp4Parser.parse(file);
+        assertTrue(after.isFastStart());
+        assertEquals(before.videoFrameCount, after.videoFrameCount);
+        assertEquals(before.durationUs, after.durationUs);
+        assertArrayEquals(before.keyFrameTimesUs, after.keyFrameTimesUs);
+        assertEquals(original.length, file.length());
+        // The first sample now sits where the shifted stco points
+        byte[] rewritten = Files.readAllBytes(file.toPath());
+        assertArrayEquals(Arrays.copyOfRange(original, (int) before.mdatOffset + 8,
+                        (int) before.mdatOffset + 8 + SyntheticMp4.SAMPLE_SIZE),
+                Arrays.copyOfRange(rewritten, (int) after.mdatOffset + 8,
+                        (int) after.mdatOffset + 8 + SyntheticMp4.SAMPLE_SIZE));
+    }
+
+    @Test
+    public void fastStartFileIsLeftAlone() throws IOException {
+        byte[] bytes = concat(ftyp(), moov(mvhd(0, 1000, 1000), video(offsets(0, FRAMES, FRAME_SIZE, 0))),
+                mdat(payload(FRAMES * FRAME_SIZE)));
+        File file = Mp4Fixture.write(folder.newFile(), bytes);
+
+        assertFalse(FastStart.process(file));
+        assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void offsetsThatOutgrowStcoAreRefused() throws IOException {
+        // moov sits past 4 GB, so the last chunk's offset no longer fits in 32 bits once moved
+        long mdatSize = 0x100000000L;
+        long lastChunk = 0xffffff00L;
+        byte[] moov = moov(mvhd(0, 1000, 1000), video(new long[] {ftyp().length + 16, lastChunk}));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length());
+            raf.writeInt(1);
+            raf.write(Mp4Fixture.ascii("mdat"));
+            raf.writeLong(mdatSize);
+            // Sparse; the rewrite is refused before any of it is read
+            raf.seek(ftyp().length + mdatSize);
+            raf.write(moov);
+        }
+        long length = file.length();
+
+        try {
+            FastStart.process(file);
+            fail("stco overflowed");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("stco"));
+        }
+        assertEquals(length, file.length());
+        assertFalse(new File(file.getPath() + ".faststart").exists());
+    }
+
+    @Test
+    public void truncatedFileIsRejectedAndLeftAlone() throws IOException {
+        byte[] bytes = concat(ftyp(), mdat(payload(FRAMES * FRAME_SIZE)),
+                moov(mvhd(0, 1000, 1000), video(offsets(ftyp().length + 8, FRAMES, FRAME_SIZE, 0))));
+        for (int cut = 0; cut < bytes.length; cut++) {
+            byte[] truncated = Arrays.copyOf(bytes, cut);
+            File file = Mp4Fixture.write(new File(folder.getRoot(), "cut-" + cut), truncated);
+            try {
+                FastStart.process(file);
+                fail("Rewrote a file cut at " + cut);
+            } catch (IOException expected) {
+                // Truncated box or no moov
+            }
+            assertArrayEquals(truncated, Files.readAllBytes(file.toPath()));
+            assertFalse(new File(file.getPath() + ".faststart").exists());
+        }
+    }
+
+    private static byte[] video(long[] chunkOffsets) {
+        int frames = chunkOffsets.length;
+        return trak(tkhd(0, 1000, 1280, 720), mdhd(0, VIDEO_TIMESCALE, (long) frames * 3000), "vide",
+                stts(frames, 3000), stss(1), stszUniform(FRAME_SIZE, frames), stsc(1), stco(chunkOffsets));
+    }
+
+    private static byte[] audio(long[] chunkOffsets) {
+        int frames = chunkOffsets.length;
+        return trak(tkhd(0, 1000, 0, 0), mdhd(0, 48000, frames * 1024L), "soun",
+                stts(frames, 1024), stszUniform(AUDIO_FRAME_SIZE, frames), stsc(1), co64(chunkOffsets));
+    }
+
+    private static long[] offsets(long first, int count, int size, long shift) {
+        long[] offsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = first + (long) i * size + shift;
+        }
+        return offsets;
+    }
+
+    private static long[] concatOffsets(long[] a, long[] b) {
+        long[] all = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, all, a.length, b.length);
+        return all;
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        new Random(length).nextBytes(payload);
+        return payload;
+    }
+}
@@ -0,0 +1,91 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 64; value++) {
+            histogram.record(value);
+        }
+
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, histogram.getValueAtPercentile(100.0 * (value + 1) / 64));
+        }
+    }
+
+    @Test
+    public void bucketsTileTheRangeWithoutGaps() {
+        long[] values = {63, 64, 65, 66, 127, 128, 1000, 4095, 4096, 1L << 20, (1L << 20) + 1,
+                LatencyHistogram.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.bucketUpperBound(index);
+            long lower = LatencyHistogram.bucketUpperBound(index - 1) + 1;
+            assertTrue(value + " in [" + lower + ", " + upper + "]", lower <= value && value <= upper);
+            // A bucket is at most 1/32 of the values it holds wide
+            assertTrue(value + ": bucket " + lower + ".." + upper, (upper - lower + 1) * 32 <= Math.max(64, lower));
+            assertEquals(index + 1, LatencyHistogram.bucketIndex(upper + 1));
+        }
+        assertEquals(64, LatencyHistogram.bucketIndex(64));
+        assertEquals(65, LatencyHistogram.bucketUpperBound(64));
+    }
+
+    @Test
+    public void percentilesAreWithinTheBucketResolution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(15);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Spread over six orders of magnitude, like upload durations
+            values[i] = (long) Math.pow(10, 1 + 5 * random.nextDouble());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {1, 50, 90, 99, 99.9, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            // Reported as the top of the bucket, so never below the exact value
+            assertTrue(percentile + "%: " + reported + " for " + exact,
+                    reported >= exact && reported <= exact + exact / 32);
+        }
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean(), 0);
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void valuesOutOfRangeAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(LatencyHistogram.MAX_VALUE + 1);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(3, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getValueAtPercentile(30));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getMax());
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.getValueAtPercentile(100));
+        assertEquals(2.0 * LatencyHistogram.MAX_VALUE / 3, histogram.getMean(), 1);
+    }
+}
@@ -0,0 +1,45 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.google.gson.stream.JsonWriter;
+import org.junit.Test;
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void oneInstrumentPerName() {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        assertSame(metrics.counter("upload.bytes"), metrics.counter("upload.bytes"));
+        assertSame(metrics.gauge("upload.concurrency"), metrics.gauge("upload.concurrency"));
+        assertSame(metrics.histogram("upload.duration_ms"), metrics.histogram("upload.duration_ms"));
+    }
+
+    @Test
+    public void reportSortsNamesAndSummarizesHistograms() throws IOException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("upload.bytes").add(2048);
+        metrics.counter("delete.objects").increment();
+        metrics.gauge("upload.concurrency").set(3);
+        LatencyHistogram durations = metrics.histogram("upload.duration_ms");
+        for (int value = 1; value <= 10; value++) {
+            durations.record(value * 10);
+        }
+        metrics.histogram("metadata.batch_rows");
+
+        StringWriter json = new StringWriter();
+        metrics.writeJson(new JsonWriter(json));
+
+        // Percentiles are the top of their bucket: 90 shares one with 91
+        assertEquals("{\"counters\":{\"delete.objects\":1,\"upload.bytes\":2048},"
+                + "\"gauges\":{\"upload.concurrency\":3},"
+                + "\"histograms\":{"
+                + "\"metadata.batch_rows\":{\"count\":0,\"min\":0,\"mean\":0,\"p50\":0,\"p90\":0,\"p99\":0,\"max\":0},"
+                + "\"upload.duration_ms\":{\"count\":10,\"min\":10,\"mean\":55,\"p50\":50,\"p90\":91,\"p99\":100,"
+                + "\"max\":100}}}", json.toString());
+    }
+}
@@ -0,0 +1,180 @@
+package com.screenrecorderapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Builds small MP4 files box by box, laid out the way the ISO-BMFF spec and
+ * MediaMuxer lay them out, so a test can spell out exactly which boxes, box
+ * versions and table shapes a file has.
+ */
+final class Mp4Fixture {
+    static final int VIDEO_TIMESCALE = 90000;
+
+    private Mp4Fixture() {
+    }
+
+    static byte[] box(String type, byte[]... children) {
+        byte[] body = concat(children);
+        return ByteBuffer.allocate(8 + body.length).putInt(8 + body.length).put(ascii(type)).put(body).array();
+    }
+
+    /**
+     * A box with a 64-bit size field, as muxers write mdat past 4 GB.
+     */
+    static byte[] largeBox(String type, byte[] body) {
+        return ByteBuffer.allocate(16 + body.length)
+                .putInt(1).put(ascii(type)).putLong(16 + body.length).put(body).array();
+    }
+
+    static byte[] ftyp() {
+        return box("ftyp", ascii("isom"), ByteBuffer.allocate(4).putInt(0x200).array(), ascii("isomiso2avc1mp41"));
+    }
+
+    static byte[] mdat(byte[] payload) {
+        return box("mdat", payload);
+    }
+
+    static byte[] moov(byte[]... children) {
+        return box("moov", children);
+    }
+
+    static byte[] mvhd(int version, long timescale, long duration) {
+        ByteBuffer body = fullBox(version, version == 1 ? 108 : 96);
+        if (version == 1) {
+            body.putLong(0).putLong(0).putInt((int) timescale).putLong(duration);
+        } else {
+            body.putInt(0).putInt(0).putInt((int) timescale).putInt((int) duration);
+        }
+        // Rate, volume, matrix and next track ID stay zero
+        return box("mvhd", body.array());
+    }
+
+    static byte[] trak(byte[] tkhd, byte[] mdhd, String handler, byte[]... sampleTables) {
+        return box("trak", tkhd,
+                box("mdia", mdhd, hdlr(handler),
+                        box("minf", box("stbl", sampleTables))));
+    }
+
+    static byte[] tkhd(int version, long duration, int width, int height) {
+        ByteBuffer body = fullBox(version, version == 1 ? 92 : 80);
+        if (version == 1) {
+            body.putLong(0).putLong(0).putInt(1).putInt(0).putLong(duration);
+        } else {
+            body.putInt(0).putInt(0).putInt(1).putInt(0).putInt((int) duration);
+        }
+        // Reserved, layer, alternate group, volume, reserved, matrix
+        body.position(body.position() + 8 + 8 + 36);
+        body.putInt(width << 16).putInt(height << 16);
+        return box("tkhd", body.array());
+    }
+
+    static byte[] mdhd(int version, long timescale, long duration) {
+        ByteBuffer body = fullBox(version, version == 1 ? 32 : 20);
+        if (version == 1) {
+            body.putLong(0).putLong(0).putInt((int) timescale).putLong(duration);
+        } else {
+            body.putInt(0).putInt(0).putInt((int) timescale).putInt((int) duration);
+        }
+        return box("mdhd", body.array());
+    }
+
+    static byte[] hdlr(String handler) {
+        ByteBuffer body = fullBox(0, 4 + 4 + 12 + 1);
+        body.putInt(0).put(ascii(handler));
+        return box("hdlr", body.array());
+    }
+
+    /**
+     * @param runs sample count and delta pairs
+     */
+    static byte[] stts(int... runs) {
+        ByteBuffer body = fullBox(0, 4 + runs.length * 4);
+        body.putInt(runs.length / 2);
+        for (int value : runs) {
+            body.putInt(value);
+        }
+        return box("stts", body.array());
+    }
+
+    static byte[] stss(int... samples) {
+        return table("stss", samples);
+    }
+
+    static byte[] stsz(int... sizes) {
+        ByteBuffer body = fullBox(0, 8 + sizes.length * 4);
+        body.putInt(0).putInt(sizes.length);
+        for (int size : sizes) {
+            body.putInt(size);
+        }
+        return box("stsz", body.array());
+    }
+
+    /**
+     * An stsz that gives one size for every sample instead of a table.
+     */
+    static byte[] stszUniform(int size, int count) {
+        ByteBuffer body = fullBox(0, 8);
+        body.putInt(size).putInt(count);
+        return box("stsz", body.array());
+    }
+
+    static byte[] stsc(int samplesPerChunk) {
+        ByteBuffer body = fullBox(0, 4 + 12);
+        body.putInt(1).putInt(1).putInt(samplesPerChunk).putInt(1);
+        return box("stsc", body.array());
+    }
+
+    static byte[] stco(long... offsets) {
+        ByteBuffer body = fullBox(0, 4 + offsets.length * 4);
+        body.putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putInt((int) offset);
+        }
+        return box("stco", body.array());
+    }
+
+    static byte[] co64(long... offsets) {
+        ByteBuffer body = fullBox(0, 4 + offsets.length * 8);
+        body.putInt(offsets.length);
+        for (long offset : offsets) {
+            body.putLong(offset);
+        }
+        return box("co64", body.array());
+    }
+
+    static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    static File write(File file, byte[]... boxes) throws IOException {
+        Files.write(file.toPath(), concat(boxes));
+        return file;
+    }
+
+    static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] table(String type, int[] entries) {
+        ByteBuffer body = fullBox(0, 4 + entries.length * 4);
+        body.putInt(entries.length);
+        for (int entry : entries) {
+            body.putInt(entry);
+        }
+        return box(type, body.array());
+    }
+
+    // Version and flags, then room for the rest of the body
+    private static ByteBuffer fullBox(int version, int bodySize) {
+        return ByteBuffer.allocate(4 + bodySize).putInt(version << 24);
+    }
+}
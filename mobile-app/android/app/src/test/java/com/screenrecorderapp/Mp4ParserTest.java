@@ -0,0 +1,264 @@
+package com.screenrecorderapp;
+
+import static com.screenrecorderapp.Mp4Fixture.VIDEO_TIMESCALE;
+import static com.screenrecorderapp.Mp4Fixture.box;
+import static com.screenrecorderapp.Mp4Fixture.ftyp;
+import static com.screenrecorderapp.Mp4Fixture.largeBox;
+import static com.screenrecorderapp.Mp4Fixture.mdat;
+import static com.screenrecorderapp.Mp4Fixture.mdhd;
+import static com.screenrecorderapp.Mp4Fixture.moov;
+import static com.screenrecorderapp.Mp4Fixture.mvhd;
+import static com.screenrecorderapp.Mp4Fixture.stco;
+import static com.screenrecorderapp.Mp4Fixture.stsc;
+import static com.screenrecorderapp.Mp4Fixture.stss;
+import static com.screenrecorderapp.Mp4Fixture.stsz;
+import static com.screenrecorderapp.Mp4Fixture.stszUniform;
+import static com.screenrecorderapp.Mp4Fixture.stts;
+import static com.screenrecorderapp.Mp4Fixture.tkhd;
+import static com.screenrecorderapp.Mp4Fixture.trak;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class Mp4ParserTest {
+    private static final int FRAMES = 60;
+    private static final int FRAME_DELTA = VIDEO_TIMESCALE / 30;
+    private static final int FRAME_SIZE = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void muxerShapedFile() throws IOException {
+        File file = SyntheticMp4.write(folder.newFile(), 3 * 1024 * 1024, false);
+        int samples = (3 * 1024 * 1024 - 28) / SyntheticMp4.SAMPLE_SIZE;
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertEquals(1280, info.width);
+        assertEquals(720, info.height);
+        assertEquals(samples, info.videoFrameCount);
+        assertEquals(samples * 1000000L / 30, info.durationUs);
+        assertEquals(info.durationUs, info.videoDurationUs);
+        assertEquals((long) samples * SyntheticMp4.SAMPLE_SIZE, info.videoBytes);
+        // 25 KB a frame at 30 fps
+        assertEquals(6000000, info.getVideoBitRate());
+        assertEquals(30.0, info.getFrameRate(), 0.001);
+        long[] keyFrames = info.keyFrameTimesUs;
+        assertEquals((samples + 29) / 30, keyFrames.length);
+        for (int i = 0; i < keyFrames.length; i++) {
+            assertEquals(i * 1000000L, keyFrames[i]);
+        }
+        assertFalse(info.hasAudio);
+        assertFalse(info.isFastStart());
+        assertEquals(20, info.mdatOffset);
+        assertEquals(info.mdatOffset + info.mdatSize, info.moovOffset);
+        assertEquals(file.length(), info.moovOffset + info.moovSize);
+    }
+
+    @Test
+    public void moovFirstIsFastStart() throws IOException {
+        byte[] moov = moov(mvhd(0, 1000, 2000), videoTrak(0, 0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), moov, mdat(new byte[FRAMES * FRAME_SIZE]));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertTrue(info.isFastStart());
+        assertEquals(ftyp().length, info.moovOffset);
+        assertEquals(moov.length, info.moovSize);
+        assertEquals(info.moovOffset + info.moovSize, info.mdatOffset);
+        assertEquals(2000000, info.durationUs);
+    }
+
+    @Test
+    public void version1BoxesAndLargeMdat() throws IOException {
+        long duration = 5L * 48000;
+        byte[] trak = trak(tkhd(1, duration, 1920, 1080), mdhd(1, 48000, duration), "vide",
+                stts(FRAMES, (int) (duration / FRAMES)), stsz(sizes()), stsc(1), stco(0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), largeBox("mdat", new byte[FRAMES * FRAME_SIZE]),
+                moov(mvhd(1, 600, 3000), trak));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertEquals(1920, info.width);
+        assertEquals(1080, info.height);
+        assertEquals(5000000, info.durationUs);
+        assertEquals(5000000, info.videoDurationUs);
+        assertEquals(16 + FRAMES * FRAME_SIZE, info.mdatSize);
+        assertEquals(info.mdatOffset + info.mdatSize, info.moovOffset);
+    }
+
+    @Test
+    public void keyFramesFollowVariableFrameDurations() throws IOException {
+        // 10 frames at 30 fps, 5 at 15 fps, 10 at 30 fps again
+        byte[] stts = stts(10, 3000, 5, 6000, 10, 3000);
+        byte[] trak = trak(tkhd(0, 90000, 720, 1600), mdhd(0, VIDEO_TIMESCALE, 90000), "vide",
+                stts, stss(1, 11, 16, 25), stszUniform(FRAME_SIZE, 25), stsc(1), stco(0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), mdat(new byte[25 * FRAME_SIZE]),
+                moov(mvhd(0, 1000, 1000), trak));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertArrayEquals(new long[] {0, 333333, 666666, 966666}, info.keyFrameTimesUs);
+        assertEquals(25, info.videoFrameCount);
+        assertEquals(25 * FRAME_SIZE, info.videoBytes);
+    }
+
+    @Test
+    public void withoutStssEverySampleIsAKeyFrame() throws IOException {
+        byte[] stts = stts(2, 3000, 2, 6000);
+        byte[] trak = trak(tkhd(0, 18000, 720, 1600), mdhd(0, VIDEO_TIMESCALE, 18000), "vide",
+                stts, stsz(10, 20, 30, 40), stsc(1), stco(0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), mdat(new byte[100]), moov(mvhd(0, 1000, 200), trak));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertArrayEquals(new long[] {0, 33333, 66666, 133333}, info.keyFrameTimesUs);
+        assertEquals(100, info.videoBytes);
+    }
+
+    @Test
+    public void audioTrackIsNotedAndFirstVideoTrackWins() throws IOException {
+        byte[] audio = trak(tkhd(0, 2000, 0, 0), mdhd(0, 48000, 96000), "soun",
+                stts(94, 1024), stszUniform(300, 94), stsc(1), stco(0));
+        byte[] secondVideo = trak(tkhd(0, 2000, 320, 240), mdhd(0, VIDEO_TIMESCALE, 180000), "vide",
+                stts(10, 18000), stszUniform(5, 10), stsc(1), stco(0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), mdat(new byte[FRAMES * FRAME_SIZE]),
+                moov(mvhd(0, 1000, 2000), audio, videoTrak(0, 0), secondVideo));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertTrue(info.hasAudio);
+        assertEquals(1280, info.width);
+        assertEquals(FRAMES, info.videoFrameCount);
+        assertEquals(FRAMES * FRAME_SIZE, info.videoBytes);
+    }
+
+    @Test
+    public void unknownBoxesAreSkipped() throws IOException {
+        byte[] moov = moov(box("udta", box("meta", new byte[12])), mvhd(0, 1000, 2000), videoTrak(0, 0));
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), box("free", new byte[32]),
+                mdat(new byte[FRAMES * FRAME_SIZE]), moov, box("skip", new byte[3]));
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertEquals(FRAMES, info.videoFrameCount);
+        assertEquals(ftyp().length + 40, info.mdatOffset);
+    }
+
+    @Test
+    public void lastBoxWithSizeZeroRunsToTheEnd() throws IOException {
+        byte[] moov = moov(mvhd(0, 1000, 2000), videoTrak(0, 0));
+        byte[] openMdat = ByteBuffer.allocate(8 + 500).putInt(0).put(Mp4Fixture.ascii("mdat")).array();
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), moov, openMdat);
+
+        Mp4Info info = Mp4Parser.parse(file);
+
+        assertEquals(508, info.mdatSize);
+        assertEquals(file.length(), info.mdatOffset + info.mdatSize);
+    }
+
+    @Test
+    public void unfinishedRecordingHasNoMoov() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), ftyp(), mdat(new byte[1000]));
+        try {
+            Mp4Parser.parse(file);
+            fail("Parsed a file without moov");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("not finalized"));
+        }
+    }
+
+    @Test
+    public void oversizedMoovIsRejectedWithoutMappingIt() throws IOException {
+        File file = Mp4Fixture.write(folder.newFile(), ftyp());
+        long moovSize = Mp4Parser.MAX_MOOV_SIZE + 8;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length());
+            raf.writeInt((int) moovSize);
+            raf.write(Mp4Fixture.ascii("moov"));
+            // Sparse, so the test does not write 64 MB
+            raf.setLength(ftyp().length + moovSize);
+        }
+        try {
+            Mp4Parser.parse(file);
+            fail("Mapped an oversized moov");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("too large"));
+        }
+    }
+
+    @Test
+    public void truncationAtEveryOffsetIsAnIOException() throws IOException {
+        byte[] bytes = Files.readAllBytes(standardFile().toPath());
+        for (int cut = 0; cut < bytes.length; cut++) {
+            File file = Mp4Fixture.write(new File(folder.getRoot(), "cut-" + cut), Arrays.copyOf(bytes, cut));
+            try {
+                Mp4Parser.parse(file);
+                fail("Parsed a file cut at " + cut);
+            } catch (IOException expected) {
+                // Truncated box or no moov
+            }
+        }
+    }
+
+    @Test
+    public void corruptMoovIsParsedOrRejectedButNeverCrashes() throws IOException {
+        File original = standardFile();
+        byte[] bytes = Files.readAllBytes(original.toPath());
+        long moovOffset = Mp4Parser.parse(original).moovOffset;
+
+        for (int offset = (int) moovOffset; offset < bytes.length; offset++) {
+            for (int flip : new int[] {0x01, 0x80, 0xff}) {
+                byte[] corrupt = bytes.clone();
+                corrupt[offset] ^= (byte) flip;
+                File file = Mp4Fixture.write(new File(folder.getRoot(), "corrupt"), corrupt);
+                try {
+                    Mp4Parser.parse(file);
+                } catch (IOException expected) {
+                    // Malformed, and said so
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    throw new AssertionError("Byte " + offset + " ^ " + flip + " escaped as " + e, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * ftyp, mdat, then moov with mvhd and one 60-frame 30 fps video track with
+     * a key frame every second, as MediaMuxer writes it.
+     */
+    private File standardFile() throws IOException {
+        int mdatOffset = ftyp().length;
+        return Mp4Fixture.write(folder.newFile(), ftyp(), mdat(new byte[FRAMES * FRAME_SIZE]),
+                moov(mvhd(0, 1000, 2000), videoTrak(0, mdatOffset + 8)));
+    }
+
+    private static byte[] videoTrak(int version, long firstSampleOffset) {
+        long duration = (long) FRAMES * FRAME_DELTA;
+        long[] offsets = new long[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            offsets[i] = firstSampleOffset + (long) i * FRAME_SIZE;
+        }
+        return trak(tkhd(version, 2000, 1280, 720), mdhd(version, VIDEO_TIMESCALE, duration), "vide",
+                stts(FRAMES, FRAME_DELTA), stss(1, 31), stsz(sizes()), stsc(1), stco(offsets));
+    }
+
+    private static int[] sizes() {
+        int[] sizes = new int[FRAMES];
+        Arrays.fill(sizes, FRAME_SIZE);
+        return sizes;
+    }
+}
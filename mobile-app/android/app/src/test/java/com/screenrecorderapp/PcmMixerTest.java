@@ -0,0 +1,195 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.util.Arrays;
+
+public class PcmMixerTest {
+    private static final int MIC_RATE = 44100;
+    private static final int PLAYBACK_RATE = 48000;
+    private static final int OUTPUT_RATE = 48000;
+    private static final int BLOCK_FRAMES = 480;
+    private static final int TARGET_LATENCY_MS = 40;
+    private static final int MAX_LATENCY_MS = 200;
+
+    @Test
+    public void resampledSineStaysWithinOnePercentRms() {
+        int seconds = 2;
+        PcmRingBuffer ring = new PcmRingBuffer(MIC_RATE * seconds, 1);
+        ring.write(sine(MIC_RATE * seconds, 1, 1000, MIC_RATE), 0, MIC_RATE * seconds);
+        PcmMixer mono = new PcmMixer(OUTPUT_RATE, 1, BLOCK_FRAMES, TARGET_LATENCY_MS, MAX_LATENCY_MS);
+        mono.addSource(ring, MIC_RATE, 1f);
+
+        short[] block = new short[BLOCK_FRAMES];
+        double errorEnergy = 0;
+        double signalEnergy = 0;
+        long k = 0;
+        int frames;
+        while ((frames = mono.mixableFrames()) > 0) {
+            mono.mix(block, frames);
+            for (int i = 0; i < frames; i++, k++) {
+                // Output frame k sits one input frame behind, after the silent frame the mixer starts from
+                double inputPosition = (double) k * MIC_RATE / OUTPUT_RATE - 1;
+                if (inputPosition < 0) {
+                    continue;
+                }
+                double ideal = 16000 * Math.sin(2 * Math.PI * 1000 * inputPosition / MIC_RATE);
+                errorEnergy += (block[i] - ideal) * (block[i] - ideal);
+                signalEnergy += ideal * ideal;
+            }
+        }
+
+        assertTrue(k + " frames", k >= OUTPUT_RATE * seconds - 2 * BLOCK_FRAMES);
+        double relativeError = Math.sqrt(errorEnergy / signalEnergy);
+        assertTrue(relativeError * 100 + "% RMS error", relativeError < 0.01);
+    }
+
+    @Test
+    public void followerDriftIsMeasuredAndAbsorbed() {
+        double driftPpm = 300;
+        PcmRingBuffer mic = new PcmRingBuffer(MIC_RATE, 1);
+        PcmRingBuffer playback = new PcmRingBuffer(PLAYBACK_RATE, 2);
+        PcmMixer mixer = new PcmMixer(OUTPUT_RATE, 2, BLOCK_FRAMES, TARGET_LATENCY_MS, MAX_LATENCY_MS);
+        mixer.addSource(mic, MIC_RATE, 1f);
+        PcmMixer.Source follower = mixer.addSource(playback, PLAYBACK_RATE, 1f);
+
+        // Captures deliver in 20 ms bursts, like AudioRecord reads, from clocks 300 ppm apart
+        short[] micBurst = new short[MIC_RATE / 50 + 1];
+        short[] playbackBurst = new short[(PLAYBACK_RATE / 50 + 1) * 2];
+        short[] out = new short[BLOCK_FRAMES * 2];
+        double playbackRate = PLAYBACK_RATE * (1 + driftPpm / 1e6);
+        double micDue = 0;
+        double playbackDue = 0;
+        long maxBufferedUs = 0;
+        int minutes = 10;
+        for (int tick = 0; tick < minutes * 60 * 50; tick++) {
+            micDue += MIC_RATE / 50.0;
+            playbackDue += playbackRate / 50.0;
+            mic.write(micBurst, 0, (int) micDue);
+            playback.write(playbackBurst, 0, (int) playbackDue);
+            micDue -= (int) micDue;
+            playbackDue -= (int) playbackDue;
+            int frames;
+            while ((frames = mixer.mixableFrames()) > 0) {
+                mixer.mix(out, frames);
+            }
+            // After a minute to settle
+            if (tick > 60 * 50) {
+                maxBufferedUs = Math.max(maxBufferedUs, follower.getBufferedMicros());
+            }
+        }
+
+        assertEquals(driftPpm, follower.getDriftPpm(), 50);
+        assertTrue("latency " + maxBufferedUs + " us", maxBufferedUs <= MAX_LATENCY_MS * 1000L);
+        assertEquals(0, follower.getSkippedFrames());
+        assertEquals(0, playback.getDroppedFrames());
+    }
+
+    @Test
+    public void sourcesAreSummedAndSaturate() {
+        PcmRingBuffer first = new PcmRingBuffer(1024, 2);
+        PcmRingBuffer second = new PcmRingBuffer(1024, 2);
+        PcmMixer mixer = new PcmMixer(OUTPUT_RATE, 2, BLOCK_FRAMES, 0, MAX_LATENCY_MS);
+        mixer.addSource(first, OUTPUT_RATE, 1f);
+        mixer.addSource(second, OUTPUT_RATE, 1f);
+        first.write(constant(101, 2, 20000), 0, 101);
+        second.write(constant(101, 2, 20000), 0, 101);
+
+        short[] out = new short[100 * 2];
+        assertEquals(100, mixer.mixableFrames());
+        mixer.mix(out, 100);
+
+        // Frame 0 interpolates from the silence before the first input frame
+        assertEquals(0, out[0]);
+        for (int i = 2; i < out.length; i++) {
+            assertEquals("sample " + i, Short.MAX_VALUE, out[i]);
+        }
+    }
+
+    @Test
+    public void channelsAreSpreadAndAveraged() {
+        PcmRingBuffer mono = new PcmRingBuffer(1024, 1);
+        PcmMixer toStereo = new PcmMixer(OUTPUT_RATE, 2, BLOCK_FRAMES, 0, MAX_LATENCY_MS);
+        toStereo.addSource(mono, OUTPUT_RATE, 0.5f);
+        mono.write(constant(11, 1, 8000), 0, 11);
+        short[] stereo = new short[10 * 2];
+        toStereo.mix(stereo, 10);
+        assertEquals(4000, stereo[18]);
+        assertEquals(4000, stereo[19]);
+
+        PcmRingBuffer stereoIn = new PcmRingBuffer(1024, 2);
+        PcmMixer toMono = new PcmMixer(OUTPUT_RATE, 1, BLOCK_FRAMES, 0, MAX_LATENCY_MS);
+        toMono.addSource(stereoIn, OUTPUT_RATE, 1f);
+        short[] leftAndRight = new short[11 * 2];
+        for (int i = 0; i < leftAndRight.length; i += 2) {
+            leftAndRight[i] = 1000;
+            leftAndRight[i + 1] = 3000;
+        }
+        stereoIn.write(leftAndRight, 0, 11);
+        short[] monoOut = new short[10];
+        toMono.mix(monoOut, 10);
+        assertEquals(2000, monoOut[9]);
+    }
+
+    @Test
+    public void followerIsMutedUntilItHasBufferedTheTarget() {
+        PcmRingBuffer primary = new PcmRingBuffer(OUTPUT_RATE, 1);
+        PcmRingBuffer follower = new PcmRingBuffer(OUTPUT_RATE, 1);
+        PcmMixer mixer = new PcmMixer(OUTPUT_RATE, 1, BLOCK_FRAMES, TARGET_LATENCY_MS, MAX_LATENCY_MS);
+        mixer.addSource(primary, OUTPUT_RATE, 1f);
+        PcmMixer.Source source = mixer.addSource(follower, OUTPUT_RATE, 1f);
+        short[] out = new short[BLOCK_FRAMES];
+
+        // 10 ms of follower audio, under the 40 ms it waits for
+        follower.write(constant(BLOCK_FRAMES, 1, 1000), 0, BLOCK_FRAMES);
+        primary.write(new short[BLOCK_FRAMES + 1], 0, BLOCK_FRAMES + 1);
+        mixer.mix(out, BLOCK_FRAMES);
+        assertArrayEquals(new short[BLOCK_FRAMES], out);
+        assertEquals(BLOCK_FRAMES, source.getUnderrunFrames());
+
+        // Topped up to the target, it joins the mix
+        follower.write(constant(4 * BLOCK_FRAMES, 1, 1000), 0, 4 * BLOCK_FRAMES);
+        primary.write(new short[BLOCK_FRAMES], 0, BLOCK_FRAMES);
+        mixer.mix(out, BLOCK_FRAMES);
+        assertEquals(1000, out[BLOCK_FRAMES - 1]);
+        assertEquals(BLOCK_FRAMES, source.getUnderrunFrames());
+    }
+
+    @Test
+    public void followerPastMaxLatencyIsCutBackToTarget() {
+        PcmRingBuffer primary = new PcmRingBuffer(OUTPUT_RATE, 1);
+        PcmRingBuffer follower = new PcmRingBuffer(OUTPUT_RATE, 1);
+        PcmMixer mixer = new PcmMixer(OUTPUT_RATE, 1, BLOCK_FRAMES, TARGET_LATENCY_MS, MAX_LATENCY_MS);
+        mixer.addSource(primary, OUTPUT_RATE, 1f);
+        PcmMixer.Source source = mixer.addSource(follower, OUTPUT_RATE, 1f);
+
+        // A stalled mix thread: 300 ms piled up against a 200 ms bound
+        int piled = OUTPUT_RATE * 300 / 1000;
+        follower.write(new short[piled], 0, piled);
+        primary.write(new short[BLOCK_FRAMES + 1], 0, BLOCK_FRAMES + 1);
+        mixer.mix(new short[BLOCK_FRAMES], BLOCK_FRAMES);
+
+        int target = OUTPUT_RATE * TARGET_LATENCY_MS / 1000;
+        assertEquals(piled - target, source.getSkippedFrames());
+        // Then the block itself was consumed, give or take the drift correction
+        assertEquals(target - BLOCK_FRAMES, follower.availableFrames(), 2);
+    }
+
+    private static short[] sine(int frames, int channels, double frequency, int sampleRate) {
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(16000 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+            Arrays.fill(samples, i * channels, (i + 1) * channels, value);
+        }
+        return samples;
+    }
+
+    private static short[] constant(int frames, int channels, int value) {
+        short[] samples = new short[frames * channels];
+        Arrays.fill(samples, (short) value);
+        return samples;
+    }
+}
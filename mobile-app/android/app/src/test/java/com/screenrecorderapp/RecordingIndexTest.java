@@ -0,0 +1,233 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.screenrecorderapp.RecordingIndex.UploadState;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RecordingIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private interface Step {
+        void apply(RecordingIndex index) throws IOException;
+    }
+
+    // One log record each
+    private static final List<Step> HISTORY = Arrays.asList(
+            index -> index.put(entry("/r/a.mp4", 1000)),
+            index -> index.put(entry("/r/b.mp4", 2000)),
+            index -> index.setUploadState("/r/a.mp4", UploadState.QUEUED),
+            index -> {
+                RecordingIndex.Entry c = entry("/r/c.mp4", 3000);
+                c.sessionId = "session";
+                c.segmentIndex = 2;
+                c.contentHash = "abc123";
+                index.put(c);
+            },
+            index -> index.remove("/r/b.mp4"),
+            index -> index.update("/r/c.mp4", entry -> entry.durationMs = 5000),
+            index -> index.update("/r/a.mp4", entry -> {
+                entry.uploadState = UploadState.UPLOADED;
+                entry.remoteId = "remote-a";
+            }),
+            index -> index.put(entry("/r/b.mp4", 2500)));
+
+    @Test
+    public void tailTruncatedAtEveryOffsetRecoversLastCompleteUpdate() throws IOException {
+        File log = new File(folder.getRoot(), "index.log");
+        List<String> states = new ArrayList<>();
+        long[] ends = record(log, states);
+        byte[] bytes = Files.readAllBytes(log.toPath());
+
+        for (int cut = 0; cut <= bytes.length; cut++) {
+            File file = copy(Arrays.copyOf(bytes, cut), "cut-" + cut);
+            RecordingIndex index = RecordingIndex.open(file);
+            assertEquals("cut at " + cut, states.get(completeBy(ends, cut)), describe(index));
+
+            // Still writable, and the write lands after the last good record
+            index.put(entry("/r/new.mp4", 1));
+            index.close();
+            assertTrue(describe(RecordingIndex.open(file)).contains("/r/new.mp4"));
+        }
+    }
+
+    @Test
+    public void corruptByteAtEveryOffsetRecoversUpdatesBeforeIt() throws IOException {
+        File log = new File(folder.getRoot(), "index.log");
+        List<String> states = new ArrayList<>();
+        long[] ends = record(log, states);
+        byte[] bytes = Files.readAllBytes(log.toPath());
+
+        for (int offset = 0; offset < bytes.length; offset++) {
+            byte[] corrupt = bytes.clone();
+            corrupt[offset] ^= (byte) 0xff;
+            File file = copy(corrupt, "corrupt-" + offset);
+            assertEquals("corrupt at " + offset, states.get(completeBy(ends, offset)),
+                    describe(RecordingIndex.open(file)));
+        }
+    }
+
+    @Test
+    public void compactionKeepsStateAndTornTailsAfterItRecover() throws IOException {
+        File log = new File(folder.getRoot(), "index.log");
+        RecordingIndex index = RecordingIndex.open(log);
+        for (int i = 0; i < 10; i++) {
+            index.put(entry("/r/" + i + ".mp4", i));
+        }
+        // 310 records for 10 entries; the log is compacted along the way
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < 10; i++) {
+                long size = round * 100 + i;
+                index.update("/r/" + i + ".mp4", entry -> entry.size = size);
+            }
+        }
+        String compactedState = describe(index);
+        long lengthAfterCompaction = log.length();
+        // Well under the 310 records written
+        assertTrue("log is " + lengthAfterCompaction + " bytes", lengthAfterCompaction < 100 * 40);
+
+        List<String> states = new ArrayList<>();
+        states.add(compactedState);
+        List<Long> ends = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            long size = 10000 + i;
+            index.update("/r/" + i + ".mp4", entry -> entry.size = size);
+            states.add(describe(index));
+            ends.add(log.length());
+        }
+        index.close();
+        assertEquals(states.get(3), describe(RecordingIndex.open(log)));
+
+        // A crash never leaves a half-compacted log, since compaction replaces it by renaming;
+        // only the records appended after it can be torn
+        byte[] bytes = Files.readAllBytes(log.toPath());
+        for (int cut = (int) lengthAfterCompaction; cut <= bytes.length; cut++) {
+            File file = copy(Arrays.copyOf(bytes, cut), "cut-" + cut);
+            int complete = 0;
+            while (complete < ends.size() && ends.get(complete) <= cut) {
+                complete++;
+            }
+            assertEquals("cut at " + cut, states.get(complete), describe(RecordingIndex.open(file)));
+        }
+    }
+
+    @Test
+    public void leftoverCompactionFileIsIgnored() throws IOException {
+        File log = new File(folder.getRoot(), "index.log");
+        List<String> states = new ArrayList<>();
+        record(log, states);
+        // A crash between writing the compacted copy and renaming it
+        Files.write(new File(log.getPath() + ".compact").toPath(), new byte[] {1, 2, 3});
+
+        assertEquals(states.get(states.size() - 1), describe(RecordingIndex.open(log)));
+    }
+
+    @Test
+    public void rebuildMatchesTheRecordingsDirectory() throws IOException {
+        File dir = folder.newFolder("recordings");
+        File kept = write(new File(dir, "kept.mp4"), 10);
+        File deleted = write(new File(dir, "deleted.mp4"), 20);
+        File running = new File(dir, "running.mp4");
+        File untracked = write(new File(dir, "untracked.mp4"), 30);
+        File evicted = new File(dir, "evicted.mp4");
+        write(new File(dir, "notes.txt"), 5);
+
+        RecordingIndex index = RecordingIndex.open(new File(folder.getRoot(), "index.log"));
+        RecordingIndex.Entry keptEntry = entry(kept.getAbsolutePath(), 10);
+        keptEntry.uploadState = UploadState.UPLOADED;
+        index.put(keptEntry);
+        index.put(entry(deleted.getAbsolutePath(), 20));
+        RecordingIndex.Entry runningEntry = entry(running.getAbsolutePath(), 0);
+        runningEntry.uploadState = UploadState.RECORDING;
+        index.put(runningEntry);
+        RecordingIndex.Entry evictedEntry = entry(evicted.getAbsolutePath(), 40);
+        evictedEntry.uploadState = UploadState.REMOTE_ONLY;
+        index.put(evictedEntry);
+        assertTrue(deleted.delete());
+
+        index.rebuild(dir);
+
+        assertEquals(UploadState.UPLOADED, index.get(kept.getAbsolutePath()).uploadState);
+        assertNull(index.get(deleted.getAbsolutePath()));
+        // Its file is created by the encoder once the first sample arrives
+        assertEquals(UploadState.RECORDING, index.get(running.getAbsolutePath()).uploadState);
+        // Its local copy was given up on purpose; it is still stored
+        assertEquals(UploadState.REMOTE_ONLY, index.get(evicted.getAbsolutePath()).uploadState);
+        assertEquals(30, index.get(untracked.getAbsolutePath()).size);
+        assertEquals(UploadState.LOCAL, index.get(untracked.getAbsolutePath()).uploadState);
+        assertEquals(4, index.size());
+
+        // And it all reached the log
+        String state = describe(index);
+        index.close();
+        assertEquals(state, describe(RecordingIndex.open(new File(folder.getRoot(), "index.log"))));
+    }
+
+    /**
+     * Applies {@link #HISTORY} to a fresh index at {@code log}, adding the
+     * state before the first step and after every step to {@code states}, and
+     * returns the log length after every step.
+     */
+    private static long[] record(File log, List<String> states) throws IOException {
+        RecordingIndex index = RecordingIndex.open(log);
+        states.add(describe(index));
+        long[] ends = new long[HISTORY.size()];
+        for (int i = 0; i < HISTORY.size(); i++) {
+            HISTORY.get(i).apply(index);
+            states.add(describe(index));
+            ends[i] = log.length();
+        }
+        index.close();
+        return ends;
+    }
+
+    private static int completeBy(long[] ends, long offset) {
+        int count = 0;
+        while (count < ends.length && ends[count] <= offset) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String describe(RecordingIndex index) {
+        List<String> lines = new ArrayList<>();
+        for (RecordingIndex.Entry entry : index.list(null)) {
+            lines.add(entry.path + " " + entry.uploadState + " size=" + entry.size + " duration="
+                    + entry.durationMs + " created=" + entry.createdAt + " session=" + entry.sessionId + "/"
+                    + entry.segmentIndex + " hash=" + entry.contentHash + " remote=" + entry.remoteId);
+        }
+        Collections.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    private static RecordingIndex.Entry entry(String path, long size) {
+        RecordingIndex.Entry entry = new RecordingIndex.Entry(path);
+        entry.size = size;
+        // Fixed, so the states of separate runs compare equal
+        entry.createdAt = 1700000000000L + size;
+        return entry;
+    }
+
+    private File copy(byte[] bytes, String name) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private static File write(File file, int length) throws IOException {
+        Files.write(file.toPath(), new byte[length]);
+        return file;
+    }
+}
@@ -0,0 +1,219 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RecordingListerTest {
+    private static final int ROWS = 30000;
+    private static final int PAGE_SIZE = 200;
+    private static final int PAGES = ROWS / PAGE_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeRecordingsEndpoint endpoint;
+    private SupabaseTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        endpoint = new FakeRecordingsEndpoint(ROWS);
+        transport = new SupabaseTransport(endpoint.baseUrl(), "test");
+    }
+
+    @After
+    public void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    public void walkReturnsEveryRowOnceAndInOrder() throws IOException {
+        RecordingLister lister = new RecordingLister(transport, null);
+
+        List<RecordingPage> pages = walk(lister, PAGE_SIZE);
+
+        assertEquals(ids(endpoint.rows()), idsOf(pages));
+        // One request a page: the extra row fetched tells whether another follows
+        assertEquals(PAGES, pages.size());
+        assertEquals(PAGES, endpoint.requestCount());
+        assertFalse(pages.get(PAGES - 1).hasMore());
+    }
+
+    @Test
+    public void pagesSplitRowsThatShareATimestamp() throws IOException {
+        // Three rows to a created_at; pages of 1, 2 and 7 cut through those groups at every position
+        endpoint.stop();
+        endpoint = new FakeRecordingsEndpoint(300);
+        transport = new SupabaseTransport(endpoint.baseUrl(), "test");
+        RecordingLister lister = new RecordingLister(transport, null);
+
+        for (int pageSize : new int[] {1, 2, 7, 300, RecordingLister.MAX_LIMIT}) {
+            assertEquals("pages of " + pageSize, ids(endpoint.rows()), idsOf(walk(lister, pageSize)));
+        }
+    }
+
+    @Test
+    public void rowsAddedMidWalkNeitherShiftNorRepeatRows() throws IOException {
+        RecordingLister lister = new RecordingLister(transport, null);
+        List<String> expected = ids(endpoint.rows());
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int page = 0;
+        do {
+            if (page++ == PAGES / 2) {
+                // A phone on the same account uploads a burst meanwhile
+                endpoint.addNewest(500);
+            }
+            RecordingPage next = lister.list(cursor, PAGE_SIZE);
+            for (RemoteRecording recording : next.recordings) {
+                seen.add(recording.id);
+            }
+            cursor = next.nextCursor;
+        } while (cursor != null);
+
+        assertEquals(expected, seen);
+        // And a fresh walk starts with them
+        assertEquals(ids(endpoint.rows().subList(0, PAGE_SIZE)), idsOf(lister.list(null, PAGE_SIZE)));
+    }
+
+    @Test
+    public void warmCacheRevalidatesEveryPageWithoutABody() throws IOException {
+        RecordingPageCache cache = new RecordingPageCache(folder.newFolder("pages"), PAGES);
+        RecordingLister lister = new RecordingLister(transport, cache);
+
+        List<RecordingPage> first = walk(lister, PAGE_SIZE);
+        long downloaded = endpoint.bodyBytes();
+        List<RecordingPage> second = walk(lister, PAGE_SIZE);
+
+        for (RecordingPage page : first) {
+            assertFalse(page.cached);
+        }
+        for (RecordingPage page : second) {
+            assertTrue(page.cached);
+        }
+        assertEquals(idsOf(first), idsOf(second));
+        assertTrue(downloaded > ROWS * 200L);
+        assertEquals(downloaded, endpoint.bodyBytes());
+        assertEquals(PAGES, endpoint.notModifiedCount());
+        assertEquals(PAGES, transport.metrics().counter("list.cache_revalidated").get());
+        assertEquals(PAGES, transport.metrics().counter("list.cache_misses").get());
+    }
+
+    @Test
+    public void changedPagesAreDownloadedAgain() throws IOException {
+        RecordingLister lister = new RecordingLister(transport,
+                new RecordingPageCache(folder.newFolder("pages"), PAGES));
+        List<RecordingPage> pages = walk(lister, PAGE_SIZE);
+
+        endpoint.addNewest(1);
+        RecordingPage head = lister.list(null, PAGE_SIZE);
+
+        assertFalse(head.cached);
+        assertEquals(ids(endpoint.rows().subList(0, PAGE_SIZE)), idsOf(head));
+        // Rows past a cursor do not change when newer ones arrive, so its page is still good
+        RecordingPage second = lister.list(pages.get(0).nextCursor, PAGE_SIZE);
+        assertTrue(second.cached);
+        assertEquals(idsOf(pages.get(1)), idsOf(second));
+    }
+
+    @Test
+    public void cacheOutlivesTheProcessAndStaysBounded() throws IOException {
+        File dir = folder.newFolder("pages");
+        RecordingLister lister = new RecordingLister(transport, new RecordingPageCache(dir, 10));
+        List<RecordingPage> pages = walk(lister, PAGE_SIZE);
+        assertEquals(10, dir.listFiles().length);
+
+        // A restart: the last ten pages of the walk come back from disk, the rest are gone
+        RecordingPageCache reopened = new RecordingPageCache(dir, 10);
+        assertEquals(10, reopened.size());
+        RecordingLister restarted = new RecordingLister(transport, reopened);
+        for (int i = PAGES - 10; i < PAGES; i++) {
+            assertTrue("page " + i, restarted.list(pages.get(i - 1).nextCursor, PAGE_SIZE).cached);
+        }
+        assertFalse(restarted.list(null, PAGE_SIZE).cached);
+        assertEquals(10, reopened.size());
+        assertEquals(10, dir.listFiles().length);
+    }
+
+    @Test
+    public void badArgumentsAreRejectedBeforeAnyRequest() throws IOException {
+        RecordingLister lister = new RecordingLister(transport, null);
+        for (int limit : new int[] {0, -1, RecordingLister.MAX_LIMIT + 1}) {
+            try {
+                lister.list(null, limit);
+                fail("limit " + limit);
+            } catch (IllegalArgumentException expected) {
+                // Bounded by what PostgREST serves in one page
+            }
+        }
+        for (String cursor : new String[] {"", "no-separator", "|id", "2025-01-01T00:00:00+00:00|"}) {
+            try {
+                lister.list(cursor, PAGE_SIZE);
+                fail("cursor " + cursor);
+            } catch (IllegalArgumentException expected) {
+                // Not a cursor this lister handed out
+            }
+        }
+        assertEquals(0, endpoint.requestCount());
+    }
+
+    @Test
+    public void emptyTableIsOneEmptyPage() throws IOException {
+        endpoint.stop();
+        endpoint = new FakeRecordingsEndpoint(0);
+        transport = new SupabaseTransport(endpoint.baseUrl(), "test");
+
+        RecordingPage page = new RecordingLister(transport, null).list(null, PAGE_SIZE);
+
+        assertTrue(page.recordings.isEmpty());
+        assertNull(page.nextCursor);
+    }
+
+    private static List<RecordingPage> walk(RecordingLister lister, int pageSize) throws IOException {
+        List<RecordingPage> pages = new ArrayList<>();
+        String cursor = null;
+        do {
+            RecordingPage page = lister.list(cursor, pageSize);
+            pages.add(page);
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        return pages;
+    }
+
+    private static List<String> idsOf(List<RecordingPage> pages) {
+        List<String> ids = new ArrayList<>();
+        for (RecordingPage page : pages) {
+            ids.addAll(idsOf(page));
+        }
+        return ids;
+    }
+
+    private static List<String> idsOf(RecordingPage page) {
+        List<String> ids = new ArrayList<>();
+        for (RemoteRecording recording : page.recordings) {
+            ids.add(recording.id);
+        }
+        return ids;
+    }
+
+    private static List<String> ids(List<FakeRecordingsEndpoint.Row> rows) {
+        List<String> ids = new ArrayList<>();
+        for (FakeRecordingsEndpoint.Row row : rows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+}
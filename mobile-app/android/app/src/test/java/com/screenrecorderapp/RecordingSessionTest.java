@@ -0,0 +1,245 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.screenrecorderapp.RecordingSession.State;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RecordingSessionTest {
+    private static final int RACE_ROUNDS = 2000;
+    private static final int STOPPERS = 4;
+
+    private interface Call {
+        // Returns the call's result; void calls return null
+        Boolean apply(RecordingSession session);
+    }
+
+    @Test
+    public void beginPrepareOnlyFromIdleOrFinalized() {
+        Map<State, Object[]> expected = new EnumMap<>(State.class);
+        expected.put(State.IDLE, new Object[] {true, State.PREPARING});
+        expected.put(State.PREPARING, new Object[] {false, State.PREPARING});
+        expected.put(State.RECORDING, new Object[] {false, State.RECORDING});
+        expected.put(State.STOPPING, new Object[] {false, State.STOPPING});
+        expected.put(State.FINALIZED, new Object[] {true, State.PREPARING});
+        check("beginPrepare", RecordingSession::beginPrepare, expected);
+    }
+
+    @Test
+    public void markRecordingOnlyFromPreparing() {
+        Map<State, Object[]> expected = new EnumMap<>(State.class);
+        expected.put(State.IDLE, new Object[] {false, State.IDLE});
+        expected.put(State.PREPARING, new Object[] {true, State.RECORDING});
+        expected.put(State.RECORDING, new Object[] {false, State.RECORDING});
+        // A stop came in while preparing; the preparer owns the teardown
+        expected.put(State.STOPPING, new Object[] {false, State.STOPPING});
+        expected.put(State.FINALIZED, new Object[] {false, State.FINALIZED});
+        check("markRecording", RecordingSession::markRecording, expected);
+    }
+
+    @Test
+    public void abortPrepareReturnsPreparingOrStoppingToIdle() {
+        Map<State, Object[]> expected = new EnumMap<>(State.class);
+        expected.put(State.IDLE, new Object[] {null, State.IDLE});
+        expected.put(State.PREPARING, new Object[] {null, State.IDLE});
+        expected.put(State.RECORDING, new Object[] {null, State.RECORDING});
+        expected.put(State.STOPPING, new Object[] {null, State.IDLE});
+        expected.put(State.FINALIZED, new Object[] {null, State.FINALIZED});
+        check("abortPrepare", session -> {
+            session.abortPrepare();
+            return null;
+        }, expected);
+    }
+
+    @Test
+    public void beginStopOwnsTeardownOnlyWhileRecording() {
+        Map<State, Object[]> expected = new EnumMap<>(State.class);
+        expected.put(State.IDLE, new Object[] {false, State.IDLE});
+        // Remembered, but the preparer tears down
+        expected.put(State.PREPARING, new Object[] {false, State.STOPPING});
+        expected.put(State.RECORDING, new Object[] {true, State.STOPPING});
+        expected.put(State.STOPPING, new Object[] {false, State.STOPPING});
+        expected.put(State.FINALIZED, new Object[] {false, State.FINALIZED});
+        check("beginStop", RecordingSession::beginStop, expected);
+    }
+
+    @Test
+    public void markFinalizedOnlyFromStopping() {
+        Map<State, Object[]> expected = new EnumMap<>(State.class);
+        expected.put(State.IDLE, new Object[] {null, State.IDLE});
+        expected.put(State.PREPARING, new Object[] {null, State.PREPARING});
+        expected.put(State.RECORDING, new Object[] {null, State.RECORDING});
+        expected.put(State.STOPPING, new Object[] {null, State.FINALIZED});
+        expected.put(State.FINALIZED, new Object[] {null, State.FINALIZED});
+        check("markFinalized", session -> {
+            session.markFinalized(true);
+            return null;
+        }, expected);
+    }
+
+    @Test
+    public void listenerSeesEveryTransitionOfAFullRecording() {
+        RecordingSession session = new RecordingSession();
+        List<String> transitions = new ArrayList<>();
+        session.setListener((from, to) -> transitions.add(from + "->" + to));
+
+        session.beginPrepare();
+        session.markRecording();
+        session.beginStop();
+        session.markFinalized(true);
+        // A failed second start
+        session.beginPrepare();
+        session.abortPrepare();
+
+        assertEquals(Arrays.asList("IDLE->PREPARING", "PREPARING->RECORDING", "RECORDING->STOPPING",
+                "STOPPING->FINALIZED", "FINALIZED->PREPARING", "PREPARING->IDLE"), transitions);
+    }
+
+    @Test
+    public void stopLatencyAndFileReadyAreResetByTheNextRecording() throws InterruptedException {
+        RecordingSession session = new RecordingSession();
+        assertEquals(-1, session.getStopLatencyMillis());
+
+        session.beginPrepare();
+        session.markRecording();
+        session.beginStop();
+        Thread.sleep(20);
+        session.markFinalized(true);
+        assertTrue(session.getStopLatencyMillis() >= 20);
+        assertTrue(session.isFileReady());
+        assertFalse(session.isActive());
+
+        session.beginPrepare();
+        assertTrue(session.isActive());
+        assertEquals(-1, session.getStopLatencyMillis());
+        assertFalse(session.isFileReady());
+    }
+
+    @Test
+    public void concurrentStartsHaveOneWinner() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(STOPPERS);
+        try {
+            for (int round = 0; round < RACE_ROUNDS; round++) {
+                RecordingSession session = new RecordingSession();
+                CyclicBarrier barrier = new CyclicBarrier(STOPPERS);
+                List<Future<Boolean>> starts = new ArrayList<>();
+                for (int i = 0; i < STOPPERS; i++) {
+                    starts.add(threads.submit(() -> {
+                        barrier.await();
+                        return session.beginPrepare();
+                    }));
+                }
+                int winners = 0;
+                for (Future<Boolean> start : starts) {
+                    winners += start.get(10, TimeUnit.SECONDS) ? 1 : 0;
+                }
+                assertEquals(1, winners);
+                assertEquals(State.PREPARING, session.getState());
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void stopsRacingPreparationHaveExactlyOneTeardownOwner() throws Exception {
+        ExecutorService threads = Executors.newFixedThreadPool(STOPPERS + 1);
+        try {
+            for (int round = 0; round < RACE_ROUNDS; round++) {
+                RecordingSession session = new RecordingSession();
+                List<String> transitions = Collections.synchronizedList(new ArrayList<>());
+                session.setListener((from, to) -> transitions.add(from + "->" + to));
+                AtomicInteger owners = new AtomicInteger();
+                AtomicInteger handedToPreparer = new AtomicInteger();
+                CyclicBarrier barrier = new CyclicBarrier(STOPPERS + 1);
+
+                List<Future<?>> tasks = new ArrayList<>();
+                tasks.add(threads.submit(() -> {
+                    assertTrue(session.beginPrepare());
+                    barrier.await();
+                    if (!session.markRecording()) {
+                        // A stop arrived while preparing: the preparer tears down
+                        owners.incrementAndGet();
+                        handedToPreparer.incrementAndGet();
+                        session.markFinalized(false);
+                    }
+                    return null;
+                }));
+                for (int i = 0; i < STOPPERS; i++) {
+                    tasks.add(threads.submit(() -> {
+                        barrier.await();
+                        if (session.beginStop()) {
+                            owners.incrementAndGet();
+                            session.markFinalized(true);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get(10, TimeUnit.SECONDS);
+                }
+
+                assertEquals("round " + round + ": " + transitions, 1, owners.get());
+                assertEquals(State.FINALIZED, session.getState());
+                List<String> expected = handedToPreparer.get() > 0
+                        ? Arrays.asList("IDLE->PREPARING", "PREPARING->STOPPING", "STOPPING->FINALIZED")
+                        : Arrays.asList("IDLE->PREPARING", "PREPARING->RECORDING", "RECORDING->STOPPING",
+                                "STOPPING->FINALIZED");
+                assertEquals(expected, transitions);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private static void check(String name, Call call, Map<State, Object[]> expected) {
+        for (State from : State.values()) {
+            RecordingSession session = sessionIn(from);
+            Boolean result = call.apply(session);
+            assertEquals(name + " from " + from, expected.get(from)[0], result);
+            assertEquals(name + " from " + from, expected.get(from)[1], session.getState());
+        }
+    }
+
+    private static RecordingSession sessionIn(State state) {
+        RecordingSession session = new RecordingSession();
+        switch (state) {
+            case FINALIZED:
+                session.beginPrepare();
+                session.markRecording();
+                session.beginStop();
+                session.markFinalized(true);
+                break;
+            case STOPPING:
+                session.beginPrepare();
+                session.markRecording();
+                session.beginStop();
+                break;
+            case RECORDING:
+                session.beginPrepare();
+                session.markRecording();
+                break;
+            case PREPARING:
+                session.beginPrepare();
+                break;
+            default:
+                break;
+        }
+        assertEquals(state, session.getState());
+        return session;
+    }
+}
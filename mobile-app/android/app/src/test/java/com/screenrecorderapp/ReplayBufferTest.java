@@ -0,0 +1,101 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ReplayBufferTest {
+    private static final long HOUR_MS = 60 * 60 * 1000;
+    // Two seconds at 30 fps
+    private static final int SEGMENT_SAMPLES = 60;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void oldestSegmentsGoOnceTheRestCoverTheWindow() throws IOException {
+        ReplayBuffer buffer = new ReplayBuffer(5000, Long.MAX_VALUE / 2, 0);
+        List<File> added = addSegments(buffer, 5);
+
+        // 6 s kept: dropping the oldest of those would leave 4 s of a 5 s window
+        assertEquals(added.subList(2, 5), buffer.getSegments());
+        assertEquals(6000000, buffer.getRetainedUs());
+        assertFalse(added.get(0).exists());
+        assertFalse(added.get(1).exists());
+        assertTrue(added.get(2).exists());
+    }
+
+    @Test
+    public void budgetKeepsRoomForTheSegmentInProgress() throws IOException {
+        long segmentSize = segment("probe").length();
+        ReplayBuffer buffer = new ReplayBuffer(HOUR_MS, 4 * segmentSize, segmentSize);
+        List<File> added = addSegments(buffer, 6);
+
+        // Three finished segments and a fourth still being written fill the budget
+        assertEquals(added.subList(3, 6), buffer.getSegments());
+        assertEquals(3 * segmentSize, buffer.getRetainedBytes());
+        for (File file : added.subList(0, 3)) {
+            assertFalse(file + " kept", file.exists());
+        }
+    }
+
+    @Test
+    public void newestSegmentStaysEvenOverBudget() throws IOException {
+        long segmentSize = segment("probe").length();
+        ReplayBuffer buffer = new ReplayBuffer(1000, segmentSize / 2, segmentSize);
+
+        for (int i = 0; i < 3; i++) {
+            File file = segment("segment-" + i);
+            buffer.add(file);
+
+            // Past the budget on its own, yet it is the only footage there is
+            assertEquals(Collections.singletonList(file), buffer.getSegments());
+            assertTrue(file.exists());
+        }
+        assertEquals(segmentSize, buffer.getRetainedBytes());
+    }
+
+    @Test
+    public void unreadableSegmentIsDroppedAndClearDeletesTheRest() throws IOException {
+        ReplayBuffer buffer = new ReplayBuffer(HOUR_MS, Long.MAX_VALUE / 2, 0);
+        List<File> added = addSegments(buffer, 2);
+        File torn = folder.newFile("torn.mp4");
+
+        buffer.add(torn);
+
+        assertFalse(torn.exists());
+        assertEquals(added, buffer.getSegments());
+
+        buffer.clear();
+
+        assertTrue(buffer.getSegments().isEmpty());
+        assertEquals(0, buffer.getRetainedBytes());
+        assertEquals(0, buffer.getRetainedUs());
+        assertFalse(added.get(0).exists());
+        assertFalse(added.get(1).exists());
+    }
+
+    private List<File> addSegments(ReplayBuffer buffer, int count) throws IOException {
+        List<File> added = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            File file = segment("segment-" + i);
+            added.add(file);
+            buffer.add(file);
+        }
+        return added;
+    }
+
+    private File segment(String name) throws IOException {
+        long size = 28 + (long) SEGMENT_SAMPLES * SyntheticMp4.SAMPLE_SIZE;
+        return SyntheticMp4.write(new File(folder.getRoot(), name + ".mp4"), size, false);
+    }
+}
@@ -0,0 +1,178 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ResultFutureTest {
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        worker.shutdownNow();
+    }
+
+    @Test
+    public void completesOnceAndTellsEveryListener() throws Exception {
+        ResultFuture<String> future = new ResultFuture<>();
+        List<String> heard = new ArrayList<>();
+        future.whenComplete((result, error) -> heard.add("before " + result));
+
+        assertTrue(future.complete("a"));
+        assertFalse(future.complete("b"));
+        assertFalse(future.fail(new IOException()));
+        assertFalse(future.cancel(false));
+        // Added late, it runs right away on this thread
+        future.whenComplete((result, error) -> heard.add("after " + result));
+
+        assertEquals(Arrays.asList("before a", "after a"), heard);
+        assertEquals("a", future.get());
+        assertFalse(future.isCancelled());
+    }
+
+    @Test
+    public void failureAndCancelAreReportedAsFutureDoes() throws Exception {
+        IOException error = new IOException("gone");
+        try {
+            ResultFuture.failed(error).get();
+            fail("Failed future returned");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+
+        ResultFuture<String> cancelled = new ResultFuture<>();
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        try {
+            cancelled.get();
+            fail("Cancelled future returned");
+        } catch (CancellationException expected) {
+            // Not wrapped, as with any Future
+        }
+
+        try {
+            new ResultFuture<String>().get(10, TimeUnit.MILLISECONDS);
+            fail("Returned before completing");
+        } catch (TimeoutException expected) {
+            // Nothing completes it
+        }
+    }
+
+    @Test
+    public void dependentsCanBeCancelledOnTheirOwn() throws Exception {
+        ResultFuture<String> shared = new ResultFuture<>();
+        ResultFuture<String> first = shared.dependent();
+        ResultFuture<String> second = shared.dependent();
+
+        first.cancel(false);
+        assertFalse(shared.isDone());
+        shared.complete("done");
+
+        assertTrue(first.isCancelled());
+        assertEquals("done", second.get());
+    }
+
+    @Test
+    public void cancellingAChainStopsTheWorkUpstream() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResultFuture<String> first = ResultFuture.supply(() -> {
+            started.countDown();
+            release.await();
+            return "first";
+        }, worker);
+        AtomicBoolean secondRan = new AtomicBoolean();
+        ResultFuture<String> second = ResultFuture.supply(() -> {
+            secondRan.set(true);
+            return "second";
+        }, worker);
+        ResultFuture<String> inner = new ResultFuture<>();
+        ResultFuture<String> chain = second.compose(value -> inner).then(value -> value + "!", worker);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        chain.cancel(false);
+        release.countDown();
+
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        // Cancelled while still queued behind the first, so it never ran
+        assertTrue(second.isCancelled());
+        worker.submit(() -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(secondRan.get());
+        assertFalse(inner.isDone());
+    }
+
+    @Test
+    public void composeCancelsTheStepItStarted() {
+        ResultFuture<String> first = new ResultFuture<>();
+        ResultFuture<String> step = new ResultFuture<>();
+        ResultFuture<String> chain = first.compose(value -> step);
+        first.complete("go");
+
+        chain.fail(new TimeoutException());
+
+        assertTrue(step.isCancelled());
+    }
+
+    @Test
+    public void failuresPassDownAChain() throws Exception {
+        IOException error = new IOException("no");
+        ResultFuture<Integer> chain = ResultFuture.<String>failed(error)
+                .compose(value -> ResultFuture.<String>failed(new IOException("not this one")))
+                .then(String::length, worker);
+        try {
+            chain.get(5, TimeUnit.SECONDS);
+            fail("Failure swallowed");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+
+        ResultFuture<Integer> thrown = ResultFuture.supply(() -> "x", worker).then(value -> {
+            throw error;
+        }, worker);
+        try {
+            thrown.get(5, TimeUnit.SECONDS);
+            fail("Exception swallowed");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void allOfWaitsForEveryOneAndKeepsTheFirstFailure() throws Exception {
+        ResultFuture<String> a = new ResultFuture<>();
+        ResultFuture<String> b = new ResultFuture<>();
+        ResultFuture<String> c = new ResultFuture<>();
+        ResultFuture<Void> all = ResultFuture.allOf(Arrays.asList(a, b, c));
+        IOException error = new IOException("b failed");
+
+        b.fail(error);
+        a.complete("a");
+        assertFalse(all.isDone());
+        c.fail(new IOException("c failed"));
+
+        try {
+            all.get();
+            fail("Failure swallowed");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        assertTrue(ResultFuture.allOf(new ArrayList<ResultFuture<String>>()).isDone());
+    }
+}
@@ -0,0 +1,184 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class ResumableUploaderTest {
+    private static final String BUCKET = "screen-recordings";
+    private static final String OBJECT = "device/recording.mp4";
+    // Two full parts and a short one
+    private static final int FILE_SIZE = (int) (2 * ResumableUploader.PART_SIZE + 1024 * 1024);
+    private static final int MAX_PART_ATTEMPTS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DroppingTusServer server;
+    private SupabaseTransport transport;
+    private File recording;
+    private File manifestDir;
+    private byte[] contents;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new DroppingTusServer();
+        transport = new SupabaseTransport(server.baseUrl(), "test");
+        contents = new byte[FILE_SIZE];
+        new Random(1).nextBytes(contents);
+        recording = folder.newFile("recording.mp4");
+        try (FileOutputStream out = new FileOutputStream(recording)) {
+            out.write(contents);
+        }
+        manifestDir = new File(folder.getRoot(), "uploads");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void uploadsWholeFileInParts() throws IOException {
+        long[] lastProgress = new long[2];
+        uploader().upload(recording, BUCKET, OBJECT, "video/mp4", (uploaded, total) -> {
+            lastProgress[0] = uploaded;
+            lastProgress[1] = total;
+        });
+
+        assertArrayEquals(contents, server.contents(OBJECT));
+        assertEquals(3, server.patchCount());
+        assertEquals(FILE_SIZE, lastProgress[0]);
+        assertEquals(FILE_SIZE, lastProgress[1]);
+        assertFalse(UploadManifest.fileFor(manifestDir, OBJECT).exists());
+    }
+
+    @Test
+    public void resumesFromServerOffsetAfterConnectionDropsMidPart() throws IOException {
+        server.dropPatches(1, 1024 * 1024 + 17);
+
+        uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+
+        assertArrayEquals(contents, server.contents(OBJECT));
+        assertEquals(1, server.droppedCount());
+        assertEquals(1, server.headCount());
+        assertEquals(1, server.createCount());
+    }
+
+    @Test
+    public void failedOffsetQueryCountsAsAnotherAttempt() throws IOException {
+        server.dropPatches(1, 4096);
+        // Still down when the uploader asks where to resume, then a server error
+        server.failHeads(2, 0);
+
+        uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+        assertArrayEquals(contents, server.contents(OBJECT));
+        assertEquals(3, server.headCount());
+
+        server.failHeads(1, 503);
+        server.dropPatches(1, 0);
+        uploader().upload(recording, BUCKET, "device/second.mp4", "video/mp4", null);
+        assertArrayEquals(contents, server.contents("device/second.mp4"));
+    }
+
+    @Test
+    public void givesUpOnceAttemptsRunOutAndKeepsManifest() {
+        server.dropPatches(Integer.MAX_VALUE, 0);
+        server.failHeads(Integer.MAX_VALUE, 0);
+
+        try {
+            uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+            fail("Upload should have failed");
+        } catch (IOException expected) {
+            // Attempt budget spent
+        }
+
+        // The first PATCH, then a failed offset query for every retry
+        assertEquals(1, server.patchCount());
+        assertEquals(MAX_PART_ATTEMPTS - 1, server.headCount());
+        assertTrue(UploadManifest.fileFor(manifestDir, OBJECT).exists());
+    }
+
+    @Test
+    public void restartResumesSameUploadFromManifest() throws IOException {
+        ResumableUploader first = uploader();
+        try {
+            first.upload(recording, BUCKET, OBJECT, "video/mp4", (uploaded, total) -> {
+                // Once the first part is through, the link goes down for good
+                if (uploaded >= ResumableUploader.PART_SIZE) {
+                    server.dropPatches(Integer.MAX_VALUE, 0);
+                }
+            });
+            fail("Upload should have failed");
+        } catch (IOException expected) {
+            // Link down
+        }
+        UploadManifest manifest = UploadManifest.load(UploadManifest.fileFor(manifestDir, OBJECT));
+        assertEquals(ResumableUploader.PART_SIZE, manifest.committedOffset);
+
+        server.dropPatches(0, 0);
+        long[] firstProgress = {-1};
+        uploader().upload(recording, BUCKET, OBJECT, "video/mp4", (uploaded, total) -> {
+            if (firstProgress[0] < 0) {
+                firstProgress[0] = uploaded;
+            }
+        });
+
+        assertArrayEquals(contents, server.contents(OBJECT));
+        assertEquals(1, server.createCount());
+        assertEquals(ResumableUploader.PART_SIZE, firstProgress[0]);
+    }
+
+    @Test
+    public void discardedUploadStartsOver() throws IOException {
+        server.dropPatches(Integer.MAX_VALUE, 0);
+        server.failHeads(Integer.MAX_VALUE, 0);
+        try {
+            uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+            fail("Upload should have failed");
+        } catch (IOException expected) {
+            // Leaves its manifest behind
+        }
+
+        uploader().discard(OBJECT);
+
+        assertFalse(UploadManifest.fileFor(manifestDir, OBJECT).exists());
+        server.dropPatches(0, 0);
+        server.failHeads(0, 0);
+        uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+        // A new upload, not a query for the old one's offset
+        assertEquals(2, server.createCount());
+        assertEquals(MAX_PART_ATTEMPTS - 1, server.headCount());
+    }
+
+    @Test
+    public void expiredUploadIsNotRetried() {
+        server.dropPatches(1, 0);
+        server.failHeads(1, 404);
+
+        try {
+            uploader().upload(recording, BUCKET, OBJECT, "video/mp4", null);
+            fail("Upload should have failed");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("expired"));
+        }
+        assertEquals(1, server.patchCount());
+        assertEquals(1, server.headCount());
+    }
+
+    private ResumableUploader uploader() {
+        return new ResumableUploader(transport, manifestDir, null, 1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+
+import com.screenrecorderapp.RecordingIndex.UploadState;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class RetentionPolicyTest {
+    private static final long NOW = 1700000000000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void quotaOffKeepsEveryCopy() {
+        RetentionPolicy.Plan plan = new RetentionPolicy(0, 0).plan(Arrays.asList(
+                entry("a", 10, 1000, UploadState.UPLOADED),
+                entry("b", 5, 1000, UploadState.UPLOADED)), NOW);
+
+        assertEquals("[]", paths(plan.expired));
+        assertEquals("[]", paths(plan.evicted));
+    }
+
+    @Test
+    public void oldestUploadedCopiesGoUntilUnderQuota() {
+        RetentionPolicy.Plan plan = new RetentionPolicy(0, 1200).plan(Arrays.asList(
+                entry("newest", 1, 400, UploadState.UPLOADED),
+                entry("not-uploaded", 4, 400, UploadState.LOCAL),
+                entry("failed", 5, 400, UploadState.FAILED),
+                entry("older", 3, 400, UploadState.UPLOADED),
+                entry("oldest", 6, 400, UploadState.UPLOADED)), NOW);
+
+        // 2000 bytes on the device; only uploaded copies may go, and two of them are enough
+        assertEquals("[oldest, older]", paths(plan.evicted));
+        assertEquals("[]", paths(plan.expired));
+    }
+
+    @Test
+    public void remoteOnlyRecordingsTakeNoLocalSpace() {
+        RetentionPolicy.Plan plan = new RetentionPolicy(0, 1000).plan(Arrays.asList(
+                entry("evicted-before", 9, 5000, UploadState.REMOTE_ONLY),
+                entry("kept", 1, 800, UploadState.UPLOADED)), NOW);
+
+        assertEquals("[]", paths(plan.evicted));
+    }
+
+    @Test
+    public void expiryCoversEveryFinishedRecordingAndFreesQuotaFirst() {
+        RetentionPolicy.Plan plan = new RetentionPolicy(7 * DAY_MS, 1000).plan(Arrays.asList(
+                entry("expired-remote-only", 30, 900, UploadState.REMOTE_ONLY),
+                entry("expired-local", 20, 900, UploadState.LOCAL),
+                entry("recent", 2, 600, UploadState.UPLOADED),
+                entry("newest", 1, 600, UploadState.UPLOADED)), NOW);
+
+        assertEquals("[expired-remote-only, expired-local]", paths(plan.expired));
+        // 2100 local bytes, 1200 once the expired one is gone
+        assertEquals("[recent]", paths(plan.evicted));
+    }
+
+    @Test
+    public void recordingsInProgressAreLeftAlone() {
+        RetentionPolicy.Plan plan = new RetentionPolicy(DAY_MS, 1).plan(Arrays.asList(
+                entry("recording", 10, 1000, UploadState.RECORDING),
+                entry("queued", 10, 1000, UploadState.QUEUED)), NOW);
+
+        assertEquals("[]", paths(plan.expired));
+        assertEquals("[]", paths(plan.evicted));
+    }
+
+    private static RecordingIndex.Entry entry(String path, int daysOld, long size, UploadState state) {
+        RecordingIndex.Entry entry = new RecordingIndex.Entry(path);
+        entry.createdAt = NOW - daysOld * DAY_MS;
+        entry.size = size;
+        entry.uploadState = state;
+        return entry;
+    }
+
+    private static String paths(List<RecordingIndex.Entry> entries) {
+        List<String> paths = new ArrayList<>();
+        for (RecordingIndex.Entry entry : entries) {
+            paths.add(entry.path);
+        }
+        return paths.toString();
+    }
+}
@@ -0,0 +1,282 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SampleMuxerTest {
+    private static final long SECOND_US = 1000000;
+
+    private final List<FakeBackend> backends = new ArrayList<>();
+    private IOException createFailure;
+    private RuntimeException startFailure;
+
+    @Test
+    public void writesWaitUntilEveryTrackIsAdded() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        SampleMuxer<String> muxer = new SampleMuxer<>(backend, 2);
+        int video = muxer.addTrack("video", true);
+        Thread writer = new Thread(() -> {
+            try {
+                write(muxer, video, 0, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+        awaitWaiting(writer);
+        assertFalse(muxer.isStarted());
+        assertTrue(backend.written.isEmpty());
+
+        muxer.addTrack("audio", false);
+        writer.join(5000);
+
+        assertFalse(writer.isAlive());
+        assertTrue(backend.started);
+        assertEquals(Arrays.asList("0@0"), backend.written);
+    }
+
+    @Test
+    public void samplesAfterStopAreDropped() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        SampleMuxer<String> muxer = new SampleMuxer<>(backend, 2);
+        int video = muxer.addTrack("video", true);
+        // Still waiting for the audio format when the recording ends
+        Thread writer = new Thread(() -> {
+            try {
+                write(muxer, video, 0, true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+        awaitWaiting(writer);
+
+        assertFalse(muxer.stop());
+        writer.join(5000);
+        write(muxer, video, 33000, false);
+
+        assertFalse(writer.isAlive());
+        assertEquals(2, muxer.getSamplesDropped());
+        assertEquals(0, muxer.getSamplesWritten());
+        assertTrue(backend.written.isEmpty());
+        assertTrue(backend.released);
+    }
+
+    @Test
+    public void trackIndexesStayTheSameAcrossSegments() throws Exception {
+        SampleMuxer<String> muxer = segmenting(2, SECOND_US, 0, null);
+        int audio = muxer.addTrack("audio", false);
+        int video = muxer.addTrack("video", true);
+        write(muxer, video, 0, true);
+        write(muxer, audio, 0, false);
+        write(muxer, video, SECOND_US, true);
+        write(muxer, audio, SECOND_US, false);
+        muxer.stop();
+
+        assertEquals(2, backends.size());
+        for (FakeBackend backend : backends) {
+            assertEquals(Arrays.asList("audio", "video"), backend.tracks);
+        }
+        assertEquals(Arrays.asList(video + "@0", audio + "@0"), backends.get(0).written);
+        assertEquals(Arrays.asList(video + "@" + SECOND_US, audio + "@" + SECOND_US), backends.get(1).written);
+    }
+
+    @Test
+    public void failureIsKeptAndLaterSamplesDropped() throws Exception {
+        SampleMuxer<String> muxer = segmenting(1, SECOND_US, 0, null);
+        int video = muxer.addTrack("video", true);
+        write(muxer, video, 0, true);
+        createFailure = new IOException("No space left on device");
+
+        write(muxer, video, SECOND_US, true);
+        write(muxer, video, SECOND_US + 33000, false);
+
+        assertSame(createFailure, muxer.getFailure());
+        assertEquals(1, muxer.getSamplesWritten());
+        assertEquals(2, muxer.getSamplesDropped());
+        // The first segment was finished before the next one failed, and nothing is left open
+        assertTrue(backends.get(0).stopped);
+        assertTrue(backends.get(0).released);
+        assertFalse(muxer.stop());
+    }
+
+    @Test
+    public void rollsOnlyOnAPrimaryKeyFrameOnceTheDurationIsUp() throws Exception {
+        SampleMuxer<String> muxer = segmenting(2, SECOND_US, 0, null);
+        int video = muxer.addTrack("video", true);
+        int audio = muxer.addTrack("audio", false);
+        write(muxer, video, 0, true);
+        // Past the bound, but neither a key frame nor on the primary track
+        write(muxer, video, SECOND_US, false);
+        write(muxer, audio, SECOND_US + 200000, true);
+        assertEquals(1, backends.size());
+
+        write(muxer, video, SECOND_US + 500000, true);
+
+        assertEquals(2, backends.size());
+        assertEquals(1, muxer.getSegmentIndex());
+        assertTrue(backends.get(0).stopped);
+        assertEquals(Arrays.asList(video + "@" + (SECOND_US + 500000)), backends.get(1).written);
+        // The new segment's clock starts at its first frame, not at the bound
+        write(muxer, video, 2 * SECOND_US, true);
+        assertEquals(2, backends.size());
+    }
+
+    @Test
+    public void rollsOnceTheSegmentHoldsTheByteBound() throws Exception {
+        SampleMuxer<String> muxer = segmenting(1, 0, 250, null);
+        int video = muxer.addTrack("video", true);
+        write(muxer, video, 0, true);
+        write(muxer, video, 33000, false);
+        write(muxer, video, 66000, true);
+        assertEquals(1, backends.size());
+        write(muxer, video, 99000, false);
+
+        write(muxer, video, 133000, true);
+
+        assertEquals(2, backends.size());
+        assertEquals(4, backends.get(0).written.size());
+        assertEquals(1, backends.get(1).written.size());
+    }
+
+    @Test
+    public void requestedRollWaitsForAKeyFrameInANonEmptySegment() throws Exception {
+        SampleMuxer<String> muxer = segmenting(1, 60 * SECOND_US, 0, null);
+        int video = muxer.addTrack("video", true);
+        muxer.requestRoll();
+        // Nothing in the segment yet, so there is nothing to close
+        write(muxer, video, 0, true);
+        write(muxer, video, 33000, false);
+        assertEquals(1, backends.size());
+
+        write(muxer, video, 66000, true);
+        assertEquals(2, backends.size());
+        // Asked for once, it happens once
+        write(muxer, video, 99000, true);
+        assertEquals(2, backends.size());
+    }
+
+    @Test
+    public void listenerHearsOfEverySegmentAndTheFinalOne() throws Exception {
+        List<String> finished = new ArrayList<>();
+        SampleMuxer<String> muxer = segmenting(1, SECOND_US, 0,
+                (index, finalSegment, playable) -> finished.add(index + " " + finalSegment + " " + playable));
+        int video = muxer.addTrack("video", true);
+        for (long t = 0; t <= 2 * SECOND_US; t += SECOND_US / 2) {
+            write(muxer, video, t, true);
+        }
+        assertEquals(Arrays.asList("0 false true", "1 false true"), finished);
+
+        assertTrue(muxer.stop());
+
+        assertEquals(Arrays.asList("0 false true", "1 false true", "2 true true"), finished);
+        assertFalse(muxer.stop());
+        assertEquals(3, finished.size());
+    }
+
+    @Test
+    public void backendRefusingTheNextSegmentFailsTheMuxer() throws Exception {
+        SampleMuxer<String> muxer = segmenting(1, SECOND_US, 0, null);
+        int video = muxer.addTrack("video", true);
+        write(muxer, video, 0, true);
+        startFailure = new IllegalStateException("Failed to start the muxer");
+
+        write(muxer, video, SECOND_US, true);
+        write(muxer, video, SECOND_US + 33000, false);
+
+        IOException failure = muxer.getFailure();
+        assertSame(startFailure, failure.getCause());
+        assertEquals(2, muxer.getSamplesDropped());
+        // Not left half started
+        assertTrue(backends.get(1).released);
+        assertFalse(muxer.stop());
+    }
+
+    private SampleMuxer<String> segmenting(int tracks, long maxDurationUs, long maxBytes,
+                                           SampleMuxer.SegmentListener listener) throws IOException {
+        return new SampleMuxer<>(segmentIndex -> {
+            if (createFailure != null) {
+                throw createFailure;
+            }
+            FakeBackend backend = new FakeBackend();
+            backend.startFailure = startFailure;
+            backends.add(backend);
+            return backend;
+        }, tracks, maxDurationUs, maxBytes, listener);
+    }
+
+    private static void write(SampleMuxer<String> muxer, int track, long presentationTimeUs, boolean keyFrame)
+            throws InterruptedException {
+        EncodedSample sample = new EncodedSample();
+        sample.set(0, 100, presentationTimeUs, keyFrame ? EncodedSample.FLAG_KEY_FRAME : 0);
+        muxer.writeSample(track, ByteBuffer.allocate(100), sample);
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING) {
+            assertTrue(thread.getState().toString(), System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Records what a muxer is asked to do, and refuses what MediaMuxer would.
+     */
+    private static final class FakeBackend implements SampleMuxer.Backend<String> {
+        final List<String> tracks = new ArrayList<>();
+        // "track@presentationTimeUs" for every sample written
+        final List<String> written = new ArrayList<>();
+        RuntimeException startFailure;
+        boolean started;
+        boolean stopped;
+        boolean released;
+
+        @Override
+        public int addTrack(String format) {
+            if (started) {
+                throw new IllegalStateException("Muxer is not initialized");
+            }
+            tracks.add(format);
+            return tracks.size() - 1;
+        }
+
+        @Override
+        public void start() {
+            if (startFailure != null) {
+                throw startFailure;
+            }
+            started = true;
+        }
+
+        @Override
+        public void writeSampleData(int trackIndex, ByteBuffer data, EncodedSample sample) {
+            if (!started || stopped) {
+                throw new IllegalStateException("Can't write, muxer is not started");
+            }
+            written.add(trackIndex + "@" + sample.presentationTimeUs);
+        }
+
+        @Override
+        public void stop() {
+            if (!started) {
+                throw new IllegalStateException("Can't stop due to wrong state");
+            }
+            stopped = true;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+    }
+}
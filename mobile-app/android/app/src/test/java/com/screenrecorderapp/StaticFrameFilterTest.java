@@ -0,0 +1,232 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class StaticFrameFilterTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+    // Padded, as ImageReader planes often are
+    private static final int ROW_STRIDE = WIDTH * 4 + 64;
+    private static final int TILE_SIZE = 32;
+    private static final int SAMPLE_STEP = 4;
+    private static final int SCROLL_ROWS = 8;
+    private static final int SCROLL_FRAMES = 64;
+    private static final int FPS = 30;
+    private static final long MAX_STATIC_MS = 1000;
+
+    private static ByteBuffer[] scrolling;
+    private static ByteBuffer caretOff;
+    private static ByteBuffer caretOn;
+
+    @BeforeClass
+    public static void drawScreens() {
+        ByteBuffer page = textPage(HEIGHT + SCROLL_ROWS * SCROLL_FRAMES);
+        scrolling = new ByteBuffer[SCROLL_FRAMES];
+        for (int i = 0; i < SCROLL_FRAMES; i++) {
+            scrolling[i] = window(page, i * SCROLL_ROWS);
+        }
+        caretOff = window(page, 0);
+        caretOn = copy(caretOff);
+        // A 2dp caret at 440 dpi
+        fill(caretOn, 517, 1203, 5, 36, 0xff202020);
+    }
+
+    @Test
+    public void staticScreenKeepsTheFirstFrameAndOneASecond() {
+        assertEquals(10, kept(filter(), new ByteBuffer[] {caretOff}));
+    }
+
+    @Test
+    public void everyScrolledFrameIsKept() {
+        assertEquals(10 * FPS, kept(filter(), scrolling));
+    }
+
+    @Test
+    public void everyCaretBlinkIsKept() {
+        ByteBuffer[] blinking = new ByteBuffer[FPS];
+        for (int i = 0; i < FPS; i++) {
+            blinking[i] = i < FPS / 2 ? caretOff : caretOn;
+        }
+
+        // The first frame and a blink every half second
+        assertEquals(20, kept(filter(), blinking));
+    }
+
+    @Test
+    public void forcedFrameGetsThroughAStaticScreen() {
+        StaticFrameFilter filter = filter();
+        assertTrue(filter.accept(caretOff, ROW_STRIDE, 0));
+        assertFalse(filter.accept(caretOff, ROW_STRIDE, 33000000L));
+
+        filter.forceNext();
+        assertTrue(filter.accept(caretOff, ROW_STRIDE, 66000000L));
+        assertFalse(filter.accept(caretOff, ROW_STRIDE, 99000000L));
+        assertEquals(4, filter.getFramesSeen());
+        assertEquals(2, filter.getFramesSkipped());
+    }
+
+    @Test
+    public void singleSampledPixelChangesExactlyOneTile() {
+        for (int step : new int[] {1, 2, 4, 8}) {
+            TileDiff diff = new TileDiff(WIDTH, HEIGHT, TILE_SIZE, step);
+            assertEquals(diff.getTileCount(), diff.compare(caretOff, ROW_STRIDE));
+            ByteBuffer changed = copy(caretOff);
+            // On the sampling grid for any step that divides 8
+            flipLowBit(changed, 800, 1600);
+
+            assertEquals("step " + step, 1, diff.compare(changed, ROW_STRIDE));
+            assertEquals("step " + step, 0, diff.compare(changed, ROW_STRIDE));
+            assertEquals("step " + step, 1, diff.compare(caretOff, ROW_STRIDE));
+        }
+    }
+
+    @Test
+    public void partialTilesAtTheEdgesAreCompared() {
+        // 1080 is not a multiple of 32, so the last column of tiles is 24 pixels wide
+        TileDiff diff = new TileDiff(WIDTH, HEIGHT, TILE_SIZE, SAMPLE_STEP);
+        assertEquals(34 * 75, diff.getTileCount());
+        diff.compare(caretOff, ROW_STRIDE);
+        ByteBuffer changed = copy(caretOff);
+        flipLowBit(changed, WIDTH - 4, HEIGHT - 4);
+
+        assertEquals(1, diff.compare(changed, ROW_STRIDE));
+    }
+
+    @Test
+    public void changeBetweenSamplePointsWaitsForTheNextForcedFrame() {
+        StaticFrameFilter filter = filter();
+        filter.accept(caretOff, ROW_STRIDE, 0);
+        ByteBuffer changed = copy(caretOff);
+        flipLowBit(changed, 801, 1601);
+
+        assertFalse(filter.accept(changed, ROW_STRIDE, 33000000L));
+        assertTrue(filter.accept(changed, ROW_STRIDE, MAX_STATIC_MS * 1000000));
+    }
+
+    @Test
+    public void resetCountsTheNextFrameAsEntirelyChanged() {
+        TileDiff diff = new TileDiff(WIDTH, HEIGHT, TILE_SIZE, SAMPLE_STEP);
+        diff.compare(caretOff, ROW_STRIDE);
+        assertEquals(0, diff.compare(caretOff, ROW_STRIDE));
+
+        diff.reset();
+
+        assertEquals(diff.getTileCount(), diff.compare(caretOff, ROW_STRIDE));
+        assertEquals(diff.getTileCount(), diff.getChangedTiles());
+    }
+
+    @Test
+    public void badGeometryIsRejected() {
+        int[][] geometries = {{0, HEIGHT, TILE_SIZE, 1}, {WIDTH, -1, TILE_SIZE, 1}, {WIDTH, HEIGHT, 0, 1},
+                {WIDTH, HEIGHT, TILE_SIZE, 0}, {WIDTH, HEIGHT, TILE_SIZE, TILE_SIZE + 1}};
+        for (int[] g : geometries) {
+            try {
+                new TileDiff(g[0], g[1], g[2], g[3]);
+                fail(g[0] + "x" + g[1] + ", tile " + g[2] + ", step " + g[3]);
+            } catch (IllegalArgumentException expected) {
+                // Would divide by zero or sample outside a tile
+            }
+        }
+    }
+
+    @Test
+    public void comparingAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        TileDiff diff = new TileDiff(WIDTH, HEIGHT, TILE_SIZE, SAMPLE_STEP);
+        for (int i = 0; i < 200; i++) {
+            diff.compare(scrolling[i % SCROLL_FRAMES], ROW_STRIDE);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 200; i++) {
+            diff.compare(scrolling[i % SCROLL_FRAMES], ROW_STRIDE);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        // The allocation counter itself costs a few bytes per read
+        assertTrue(allocated + " bytes", allocated < 1024);
+    }
+
+    private static StaticFrameFilter filter() {
+        return new StaticFrameFilter(new TileDiff(WIDTH, HEIGHT, TILE_SIZE, SAMPLE_STEP), MAX_STATIC_MS);
+    }
+
+    // Ten seconds at 30 fps, cycling through the sequence
+    private static int kept(StaticFrameFilter filter, ByteBuffer[] sequence) {
+        int kept = 0;
+        for (int i = 0; i < 10 * FPS; i++) {
+            if (filter.accept(sequence[i % sequence.length], ROW_STRIDE, i * 1000000000L / FPS)) {
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Dark 8x12 glyphs on white in lines 24 rows apart, with margins, like a
+     * page of text.
+     */
+    private static ByteBuffer textPage(int rows) {
+        ByteBuffer page = ByteBuffer.allocateDirect(rows * ROW_STRIDE);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                page.putInt(y * ROW_STRIDE + x * 4, 0xffffffff);
+            }
+        }
+        Random random = new Random(23);
+        for (int line = 48; line + 12 < rows; line += 24) {
+            int length = 20 + random.nextInt(100);
+            for (int column = 0; column < length; column++) {
+                if (random.nextInt(6) == 0) {
+                    continue;
+                }
+                int left = 48 + column * 8;
+                for (int y = 0; y < 12; y++) {
+                    for (int x = 1; x < 7; x++) {
+                        if (random.nextInt(3) == 0) {
+                            page.putInt((line + y) * ROW_STRIDE + (left + x) * 4, 0xff202020);
+                        }
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    private static ByteBuffer window(ByteBuffer page, int firstRow) {
+        ByteBuffer window = page.duplicate();
+        window.position(firstRow * ROW_STRIDE);
+        window.limit(firstRow * ROW_STRIDE + HEIGHT * ROW_STRIDE);
+        return window.slice();
+    }
+
+    private static ByteBuffer copy(ByteBuffer frame) {
+        ByteBuffer copy = ByteBuffer.allocateDirect(frame.capacity());
+        copy.put(frame.duplicate());
+        copy.clear();
+        return copy;
+    }
+
+    private static void fill(ByteBuffer frame, int left, int top, int width, int height, int color) {
+        for (int y = top; y < top + height; y++) {
+            for (int x = left; x < left + width; x++) {
+                frame.putInt(y * ROW_STRIDE + x * 4, color);
+            }
+        }
+    }
+
+    private static void flipLowBit(ByteBuffer frame, int x, int y) {
+        int offset = y * ROW_STRIDE + x * 4;
+        frame.putInt(offset, frame.getInt(offset) ^ 1);
+    }
+}
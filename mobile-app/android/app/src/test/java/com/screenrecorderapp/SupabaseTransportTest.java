@@ -0,0 +1,304 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import okhttp3.Dispatcher;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SupabaseTransportTest {
+    private static final String BUCKET_PATH = "/storage/v1/bucket/screen-recordings";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeSupabase supabase;
+    private SupabaseTransport transport;
+
+    @Before
+    public void setUp() throws IOException {
+        supabase = new FakeSupabase(FakeSupabase.Conditions.IDEAL, 8);
+        transport = new SupabaseTransport(supabase.baseUrl(), "test");
+    }
+
+    @After
+    public void tearDown() {
+        supabase.stop();
+    }
+
+    @Test
+    public void sequentialRequestsReuseOneConnection() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            get(BUCKET_PATH);
+        }
+
+        assertEquals(20, transport.getRequestCount());
+        assertEquals(20, supabase.requestCount());
+        assertEquals(1, transport.getConnectionCount());
+        assertEquals(1, supabase.connectionCount());
+    }
+
+    @Test
+    public void concurrentRequestsOpenOneConnectionPerCallInFlight() throws Exception {
+        supabase.setConditions(new FakeSupabase.Conditions(50, 0, 0, 0));
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            burst(callers, 4, 5);
+            long connections = transport.getConnectionCount();
+            assertTrue("opened " + connections, connections >= 1 && connections <= 4);
+            assertEquals(connections, supabase.connectionCount());
+
+            // The pool keeps them all, so a second burst opens none
+            burst(callers, 4, 5);
+            assertEquals(connections, transport.getConnectionCount());
+            assertEquals(40, transport.getRequestCount());
+            assertEquals(40, supabase.requestCount());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void requestsAreTimedPerEndpoint() throws IOException {
+        Request upload = transport.request("/storage/v1/object/screen-recordings/device/a.mp4")
+                .post(SupabaseTransport.json("{}"))
+                .build();
+        assertEquals("http POST /storage/v1/object_ms", SupabaseTransport.endpointMetric(upload));
+        assertEquals("http GET /rest/v1/recordings_ms",
+                SupabaseTransport.endpointMetric(transport.request("/rest/v1/recordings?select=count").build()));
+
+        get(BUCKET_PATH);
+        get("/rest/v1/unknown");
+
+        MetricsRegistry metrics = transport.metrics();
+        assertEquals(1, metrics.histogram("http GET /storage/v1/bucket_ms").getCount());
+        assertEquals(1, metrics.histogram("http GET /rest/v1/unknown_ms").getCount());
+        assertEquals(1, metrics.counter("http.error_responses").get());
+        assertEquals(0, metrics.counter("http.failures").get());
+    }
+
+    @Test
+    public void connectionFailuresAreCounted() throws IOException {
+        SupabaseTransport unreachable = new SupabaseTransport("http://127.0.0.1:" + closedPort(), "test");
+        try {
+            unreachable.execute(unreachable.request(BUCKET_PATH).build()).close();
+            fail("Nothing is listening");
+        } catch (IOException expected) {
+            // Connection refused
+        }
+        assertEquals(1, unreachable.metrics().counter("http.failures").get());
+        assertEquals(1, unreachable.getRequestCount());
+    }
+
+    @Test
+    public void asyncCallsShareTheClientAndAreTimed() throws Exception {
+        List<ResultFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            calls.add(transport.executeAsync(transport.request(BUCKET_PATH).build()).then(response -> {
+                try (Response r = response) {
+                    return r.body().string().length();
+                }
+            }, transport.executor()));
+        }
+        for (ResultFuture<Integer> call : calls) {
+            assertTrue(call.get(10, TimeUnit.SECONDS) > 0);
+        }
+
+        assertEquals(20, supabase.requestCount());
+        assertEquals(20, transport.metrics().histogram("http GET /storage/v1/bucket_ms").getCount());
+    }
+
+    @Test
+    public void cancellingABurstCancelsEveryCall() throws Exception {
+        supabase.setConditions(new FakeSupabase.Conditions(200, 0, 0, 0));
+        List<ResultFuture<Response>> calls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            calls.add(transport.executeAsync(transport.request(BUCKET_PATH).build()));
+        }
+        for (ResultFuture<Response> call : calls) {
+            assertTrue(call.cancel(false));
+        }
+
+        // Queued ones never start and running ones are torn down, well before the server would answer them all
+        awaitDispatcherDrained(2000);
+        for (ResultFuture<Response> call : calls) {
+            try {
+                call.get();
+                fail("Completed after its cancel");
+            } catch (CancellationException expected) {
+                // What every caller sees
+            }
+        }
+    }
+
+    @Test
+    public void deadlineFailsTheCallWithATimeout() throws Exception {
+        supabase.setConditions(new FakeSupabase.Conditions(2000, 0, 0, 0));
+        ResultFuture<Response> call = transport.withDeadline(
+                transport.executeAsync(transport.request(BUCKET_PATH).build()), 50, TimeUnit.MILLISECONDS);
+
+        try {
+            call.get(1, TimeUnit.SECONDS);
+            fail("No deadline");
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof TimeoutException);
+        }
+        awaitDispatcherDrained(1000);
+
+        // One that answers in time is left alone
+        supabase.setConditions(FakeSupabase.Conditions.IDEAL);
+        try (Response response = transport.withDeadline(
+                transport.executeAsync(transport.request(BUCKET_PATH).build()), 5, TimeUnit.SECONDS).get()) {
+            assertEquals(200, response.code());
+        }
+    }
+
+    @Test
+    public void objectIsOnlyTakenAsStoredWithAMatchingLength() throws IOException {
+        File recording = folder.newFile("recording.mp4");
+        try (FileOutputStream out = new FileOutputStream(recording)) {
+            out.write(new byte[300 * 1024]);
+        }
+        ResumableUploader uploader = new ResumableUploader(transport, folder.newFolder("uploads"), null);
+        uploader.upload(recording, "screen-recordings", "device/a.mp4", "video/mp4", (sent, total) -> { });
+
+        assertTrue(transport.objectExists("screen-recordings", "device/a.mp4", recording.length()));
+        assertFalse(transport.objectExists("screen-recordings", "device/a.mp4", recording.length() - 1));
+        assertFalse(transport.objectExists("screen-recordings", "device/missing.mp4", 0));
+
+        // No length is no answer, so the retry uploads again instead of pointing a row at nothing
+        supabase.setReportObjectLength(false);
+        long received = supabase.bytesReceived();
+        if (!transport.objectExists("screen-recordings", "device/a.mp4", recording.length())) {
+            uploader.upload(recording, "screen-recordings", "device/a.mp4", "video/mp4", (sent, total) -> { });
+        }
+        assertEquals(received + recording.length(), supabase.bytesReceived());
+        assertEquals(recording.length(), supabase.objectSize("device/a.mp4"));
+    }
+
+    @Test
+    public void concurrentHealthChecksShareOneRequestAndItsResult() throws InterruptedException {
+        supabase.setConditions(new FakeSupabase.Conditions(200, 0, 0, 0));
+        CountDownLatch answered = new CountDownLatch(10);
+        List<SupabaseTransport.HealthStatus> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            transport.checkHealth(BUCKET_PATH, status -> {
+                synchronized (results) {
+                    results.add(status);
+                }
+                answered.countDown();
+            });
+        }
+        assertTrue(answered.await(10, TimeUnit.SECONDS));
+
+        assertEquals(1, supabase.requestCount());
+        for (SupabaseTransport.HealthStatus status : results) {
+            assertSame(results.get(0), status);
+        }
+        assertTrue(results.get(0).healthy);
+        assertEquals(200, results.get(0).code);
+    }
+
+    @Test
+    public void healthIsCachedUntilInvalidated() throws InterruptedException {
+        SupabaseTransport.HealthStatus first = checkHealth(transport);
+        assertTrue(first.healthy);
+
+        // Answered from the cache on the calling thread
+        SupabaseTransport.HealthStatus[] cached = new SupabaseTransport.HealthStatus[1];
+        transport.checkHealth(BUCKET_PATH, status -> cached[0] = status);
+        assertSame(first, cached[0]);
+        assertEquals(1, supabase.requestCount());
+
+        transport.invalidateHealth();
+        checkHealth(transport);
+        assertEquals(2, supabase.requestCount());
+    }
+
+    @Test
+    public void failedHealthCheckIsNotCached() throws IOException, InterruptedException {
+        SupabaseTransport unreachable = new SupabaseTransport("http://127.0.0.1:" + closedPort(), "test");
+
+        SupabaseTransport.HealthStatus status = checkHealth(unreachable);
+        assertFalse(status.healthy);
+        assertEquals(-1, status.code);
+        assertNotNull(status.error);
+
+        checkHealth(unreachable);
+        assertEquals(2, unreachable.getRequestCount());
+    }
+
+    private void get(String path) throws IOException {
+        try (Response response = transport.execute(transport.request(path).build())) {
+            // Reading the body to the end is what hands the connection back to the pool
+            response.body().string();
+        }
+    }
+
+    private void awaitDispatcherDrained(long timeoutMs) throws InterruptedException {
+        Dispatcher dispatcher = transport.client().dispatcher();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (dispatcher.runningCallsCount() + dispatcher.queuedCallsCount() > 0) {
+            assertTrue(dispatcher.runningCallsCount() + " calls still running", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private void burst(ExecutorService callers, int threads, int requestsEach) throws Exception {
+        List<Future<?>> running = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            running.add(callers.submit(() -> {
+                for (int i = 0; i < requestsEach; i++) {
+                    get(BUCKET_PATH);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static SupabaseTransport.HealthStatus checkHealth(SupabaseTransport transport)
+            throws InterruptedException {
+        CountDownLatch answered = new CountDownLatch(1);
+        SupabaseTransport.HealthStatus[] result = new SupabaseTransport.HealthStatus[1];
+        transport.checkHealth(BUCKET_PATH, status -> {
+            result[0] = status;
+            answered.countDown();
+        });
+        assertTrue(answered.await(10, TimeUnit.SECONDS));
+        return result[0];
+    }
+
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
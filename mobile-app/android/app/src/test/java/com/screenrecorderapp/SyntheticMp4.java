@@ -0,0 +1,127 @@
+package com.screenrecorderapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Writes MP4 files shaped like MediaMuxer output (ftyp, mdat, then moov) at
+ * any size, with one 30 fps video track, a key frame every second and one
+ * chunk per sample.
+ *
+ * The benchmarks module compiles this class too, for its parsing, hashing and
+ * upload benchmarks.
+ */
+public final class SyntheticMp4 {
+    public static final int SAMPLE_SIZE = 25000;
+    private static final int TIMESCALE = 90000;
+    private static final int SAMPLE_DELTA = TIMESCALE / 30;
+    private static final int KEY_FRAME_INTERVAL = 30;
+    private static final int FTYP_SIZE = 20;
+
+    private SyntheticMp4() {
+    }
+
+    /**
+     * @param fillPayload write real bytes into mdat; otherwise it is left sparse,
+     *                    which is enough for anything that only reads moov
+     */
+    public static File write(File file, long targetSize, boolean fillPayload) throws IOException {
+        int samples = (int) Math.max(1, (targetSize - FTYP_SIZE - 8) / SAMPLE_SIZE);
+        long mdatSize = 8 + (long) samples * SAMPLE_SIZE;
+        if (mdatSize > 0xffffffffL) {
+            throw new IllegalArgumentException("Synthetic files stay below 4 GB");
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+
+            ByteBuffer head = ByteBuffer.allocate(FTYP_SIZE + 8);
+            head.putInt(FTYP_SIZE).put(ascii("ftyp")).put(ascii("isom")).putInt(0).put(ascii("isom"));
+            head.putInt((int) mdatSize).put(ascii("mdat"));
+            head.flip();
+            channel.write(head, 0);
+
+            long mdatEnd = FTYP_SIZE + mdatSize;
+            if (fillPayload) {
+                ByteBuffer chunk = ByteBuffer.allocate(1024 * 1024);
+                new Random(42).nextBytes(chunk.array());
+                for (long position = FTYP_SIZE + 8; position < mdatEnd; ) {
+                    chunk.clear();
+                    chunk.limit((int) Math.min(chunk.capacity(), mdatEnd - position));
+                    position += channel.write(chunk, position);
+                }
+            } else {
+                raf.setLength(mdatEnd);
+            }
+
+            ByteBuffer moov = moov(samples, FTYP_SIZE + 8);
+            channel.write(moov, mdatEnd);
+        }
+        return file;
+    }
+
+    private static ByteBuffer moov(int samples, long firstChunkOffset) {
+        int keyFrames = (samples + KEY_FRAME_INTERVAL - 1) / KEY_FRAME_INTERVAL;
+        int stts = 8 + 8 + 8;
+        int stss = 8 + 8 + keyFrames * 4;
+        int stsz = 8 + 12 + samples * 4;
+        int stco = 8 + 8 + samples * 4;
+        int stbl = 8 + stts + stss + stsz + stco;
+        int minf = 8 + stbl;
+        int hdlr = 8 + 25;
+        int mdhd = 8 + 24;
+        int mdia = 8 + mdhd + hdlr + minf;
+        int tkhd = 8 + 84;
+        int trak = 8 + tkhd + mdia;
+        int mvhd = 8 + 100;
+        int moov = 8 + mvhd + trak;
+        long duration = (long) samples * SAMPLE_DELTA;
+
+        ByteBuffer buffer = ByteBuffer.allocate(moov);
+        buffer.putInt(moov).put(ascii("moov"));
+
+        buffer.putInt(mvhd).put(ascii("mvhd")).putInt(0).putInt(0).putInt(0)
+                .putInt(TIMESCALE).putInt((int) duration);
+        buffer.position(buffer.position() + 80);
+
+        buffer.putInt(trak).put(ascii("trak"));
+        buffer.putInt(tkhd).put(ascii("tkhd")).putInt(0).putInt(0).putInt(0).putInt(1).putInt(0)
+                .putInt((int) duration);
+        buffer.position(buffer.position() + 8 + 8 + 36);
+        buffer.putInt(1280 << 16).putInt(720 << 16);
+
+        buffer.putInt(mdia).put(ascii("mdia"));
+        buffer.putInt(mdhd).put(ascii("mdhd")).putInt(0).putInt(0).putInt(0)
+                .putInt(TIMESCALE).putInt((int) duration).putInt(0);
+        buffer.putInt(hdlr).put(ascii("hdlr")).putInt(0).putInt(0).put(ascii("vide"));
+        buffer.position(buffer.position() + 13);
+
+        buffer.putInt(minf).put(ascii("minf"));
+        buffer.putInt(stbl).put(ascii("stbl"));
+        buffer.putInt(stts).put(ascii("stts")).putInt(0).putInt(1).putInt(samples).putInt(SAMPLE_DELTA);
+        buffer.putInt(stss).put(ascii("stss")).putInt(0).putInt(keyFrames);
+        for (int i = 0; i < keyFrames; i++) {
+            buffer.putInt(1 + i * KEY_FRAME_INTERVAL);
+        }
+        buffer.putInt(stsz).put(ascii("stsz")).putInt(0).putInt(0).putInt(samples);
+        for (int i = 0; i < samples; i++) {
+            buffer.putInt(SAMPLE_SIZE);
+        }
+        buffer.putInt(stco).put(ascii("stco")).putInt(0).putInt(samples);
+        for (int i = 0; i < samples; i++) {
+            buffer.putInt((int) (firstChunkOffset + (long) i * SAMPLE_SIZE));
+        }
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] ascii(String type) {
+        return new byte[] {(byte) type.charAt(0), (byte) type.charAt(1), (byte) type.charAt(2), (byte) type.charAt(3)};
+    }
+}
@@ -0,0 +1,393 @@
+package com.screenrecorderapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class UploadOutboxTest {
+    private static final String BUCKET = "screen-recordings";
+    private static final int RECORDING_BYTES = 64 * 1024;
+    private static final int MAX_ATTEMPTS = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FakeSupabase supabase;
+    private SupabaseTransport transport;
+    private File journalFile;
+    private File recording;
+    private final List<UploadOutbox> outboxes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        supabase = new FakeSupabase(FakeSupabase.Conditions.IDEAL, 16);
+        transport = new SupabaseTransport(supabase.baseUrl(), "test");
+        journalFile = new File(folder.getRoot(), "outbox.journal");
+        recording = folder.newFile("recording.mp4");
+        try (FileOutputStream out = new FileOutputStream(recording)) {
+            out.write(new byte[RECORDING_BYTES]);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (UploadOutbox outbox : outboxes) {
+            outbox.shutdown();
+        }
+        supabase.stop();
+    }
+
+    @Test
+    public void everyJobCompletesAgainstFlakyServer() throws Exception {
+        // A third of all requests fail, the insert batches included
+        supabase.setConditions(new FakeSupabase.Conditions(0, 0, 0, 0.33));
+        Device device = new Device(4, 40, true);
+        device.outbox.start();
+
+        List<String> objectNames = device.enqueueRecordings(40);
+
+        assertTrue(device.done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, device.abandoned.get());
+        assertTrue(device.retries.get() > 0);
+        for (String objectName : objectNames) {
+            assertEquals(RECORDING_BYTES, supabase.objectSize(objectName));
+            assertTrue(objectName, supabase.rows().containsValue(objectName));
+        }
+        // Inserts that failed were retried, never doubled
+        assertEquals(objectNames.size(), supabase.rows().size());
+        assertEquals(0, device.outbox.pendingCount());
+    }
+
+    @Test
+    public void restartReplaysOnlyUnacknowledgedJobs() throws Exception {
+        Device first = new Device(2, 1, false);
+        first.outbox.start();
+        first.enqueueRecordings(1);
+        assertTrue(first.done.await(10, TimeUnit.SECONDS));
+
+        first.outbox.setPaused(true);
+        OutboxJob stuck = upload("device/stuck.mp4");
+        first.outbox.enqueue(stuck);
+        first.outbox.enqueue(OutboxJob.delete("device/old.mp4"));
+        // Process death: nothing is acknowledged, nothing else is written
+        first.outbox.shutdown();
+
+        Device second = new Device(2, 2, false);
+        second.outbox.start();
+        assertEquals(2, second.outbox.pendingCount());
+        assertTrue(second.done.await(10, TimeUnit.SECONDS));
+
+        assertEquals(RECORDING_BYTES, supabase.objectSize("device/stuck.mp4"));
+        List<String> handled = new ArrayList<>(second.handled);
+        Collections.sort(handled);
+        assertEquals("[DELETE:device/old.mp4, UPLOAD:device/stuck.mp4]", handled.toString());
+        // The upload that finished before the restart is not sent again
+        assertEquals(2, supabase.requestCount());
+    }
+
+    @Test
+    public void duplicateJobIsQueuedOnce() throws Exception {
+        Device device = new Device(1, 1, false);
+        device.outbox.setPaused(true);
+        device.outbox.start();
+
+        assertTrue(device.outbox.enqueue(upload("device/a.mp4")));
+        assertFalse(device.outbox.enqueue(upload("device/a.mp4")));
+        assertEquals(1, device.outbox.pendingCount());
+
+        device.outbox.setPaused(false);
+        assertTrue(device.done.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("UPLOAD:device/a.mp4"), device.handled);
+    }
+
+    @Test
+    public void permanentFailureIsNotRetried() throws Exception {
+        List<IOException> abandoned = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        UploadOutbox outbox = outbox(1, job -> {
+            calls.incrementAndGet();
+            throw new UploadOutbox.PermanentFailureException("400");
+        }, new RecordingListener(done, abandoned));
+        outbox.start();
+        outbox.enqueue(upload("device/a.mp4"));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, calls.get());
+        assertEquals(1, abandoned.size());
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    public void jobIsAbandonedOnceItsAttemptsRunOut() throws Exception {
+        List<IOException> abandoned = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        UploadOutbox outbox = outbox(1, job -> {
+            calls.incrementAndGet();
+            throw new IOException("unreachable");
+        }, new RecordingListener(done, abandoned));
+        outbox.start();
+        outbox.enqueue(upload("device/a.mp4"));
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(MAX_ATTEMPTS, calls.get());
+        assertEquals("unreachable", abandoned.get(0).getMessage());
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    public void concurrencyBoundsJobsInFlightAndSetsThroughput() throws Exception {
+        supabase.setConditions(new FakeSupabase.Conditions(100, 0, 0, 0));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(16);
+        UploadOutbox outbox = outbox(4, job -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                put(job.objectName);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }, new RecordingListener(done, new ArrayList<>()));
+        outbox.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 16; i++) {
+            outbox.enqueue(upload("device/recording-" + i + ".mp4"));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(4, maxInFlight.get());
+        // Four rounds of 100 ms, nowhere near the 1.6 s of running them one by one
+        assertTrue("took " + elapsedMs + " ms", elapsedMs >= 400 && elapsedMs < 1200);
+        assertEquals(16, supabase.objectCount());
+    }
+
+    @Test
+    public void batchesDoNotWaitForUploadWorkers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch uploading = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        // The controller starts out at a single upload worker
+        UploadOutbox outbox = outbox(1, job -> {
+            uploading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }, new RecordingListener(done, new ArrayList<>()));
+        outbox.setBatching(OutboxJob.Type.METADATA, 8, 20, jobs -> saved.countDown());
+        outbox.start();
+
+        outbox.enqueue(upload("device/long.mp4"));
+        assertTrue(uploading.await(5, TimeUnit.SECONDS));
+        outbox.enqueue(metadata("device/short.mp4"));
+
+        // Saved while the only upload worker is still busy
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledJobLeavesItsBatch() throws Exception {
+        List<String> inserted = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        UploadOutbox outbox = outbox(1, job -> {
+        }, new RecordingListener(done, new ArrayList<>()));
+        outbox.setBatching(OutboxJob.Type.METADATA, 8, 500, jobs -> {
+            for (OutboxJob job : jobs) {
+                inserted.add(job.objectName);
+            }
+        });
+        outbox.start();
+
+        OutboxJob deleted = metadata("device/deleted.mp4");
+        outbox.enqueue(deleted);
+        outbox.enqueue(metadata("device/kept.mp4"));
+        // The recording is deleted while its row waits in the buffer for the batch to fill
+        Thread.sleep(100);
+        assertTrue(outbox.cancel(deleted.key()));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("device/kept.mp4"), inserted);
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    public void batchWithEveryJobCancelledIsNotSent() throws Exception {
+        AtomicInteger batches = new AtomicInteger();
+        UploadOutbox outbox = outbox(1, job -> {
+        }, new RecordingListener(new CountDownLatch(1), new ArrayList<>()));
+        outbox.setBatching(OutboxJob.Type.METADATA, 8, 200, jobs -> batches.incrementAndGet());
+        outbox.start();
+
+        OutboxJob row = metadata("device/deleted.mp4");
+        outbox.enqueue(row);
+        Thread.sleep(100);
+        assertTrue(outbox.cancel(row.key()));
+        // Past the linger, so the flush has had its chance
+        Thread.sleep(400);
+
+        assertEquals(0, batches.get());
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    private UploadOutbox outbox(int concurrency, UploadOutbox.JobHandler handler, UploadOutbox.Listener listener) {
+        UploadOutbox outbox = new UploadOutbox(journalFile, concurrency, handler, listener, new Backoff(1, 20));
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    private OutboxJob upload(String objectName) {
+        return OutboxJob.upload(recording.getAbsolutePath(), objectName, RECORDING_BYTES, false);
+    }
+
+    private OutboxJob metadata(String objectName) {
+        OutboxJob upload = upload(objectName);
+        upload.displayName = objectName.substring(objectName.indexOf('/') + 1);
+        return OutboxJob.metadataFor(upload);
+    }
+
+    private void put(String objectName) throws IOException {
+        MultipartBody body = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("file", objectName,
+                        RequestBody.create(recording, MediaType.parse("video/mp4")))
+                .build();
+        Request request = transport.request("/storage/v1/object/" + BUCKET + "/" + objectName).post(body).build();
+        try (Response response = transport.execute(request)) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Upload failed: " + response.code());
+            }
+        }
+    }
+
+    /**
+     * One outbox wired the way SupabaseService wires it. With rows, an upload
+     * that succeeds queues its metadata row, which goes out in a batched insert.
+     */
+    private final class Device implements UploadOutbox.JobHandler, UploadOutbox.Listener {
+        final UploadOutbox outbox;
+        final boolean withRows;
+        final CountDownLatch done;
+        final AtomicInteger abandoned = new AtomicInteger();
+        final AtomicInteger retries = new AtomicInteger();
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+
+        Device(int concurrency, int expectedJobs, boolean withRows) {
+            outbox = outbox(concurrency, this, this);
+            this.withRows = withRows;
+            if (withRows) {
+                outbox.setBatching(OutboxJob.Type.METADATA, 8, 20, this::saveRows);
+            }
+            done = new CountDownLatch(expectedJobs);
+        }
+
+        List<String> enqueueRecordings(int count) throws IOException {
+            List<String> objectNames = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String objectName = "device/recording-" + i + ".mp4";
+                objectNames.add(objectName);
+                OutboxJob job = upload(objectName);
+                job.displayName = objectName.substring(objectName.indexOf('/') + 1);
+                outbox.enqueue(job);
+            }
+            return objectNames;
+        }
+
+        @Override
+        public void handle(OutboxJob job) throws IOException {
+            handled.add(job.key());
+            if (job.type == OutboxJob.Type.UPLOAD) {
+                put(job.objectName);
+            }
+        }
+
+        void saveRows(List<OutboxJob> jobs) throws IOException {
+            Request request = transport.request("/rest/v1/recordings?on_conflict=id&columns="
+                    + RecordingRowsBody.COLUMNS)
+                    .addHeader("Prefer", "resolution=ignore-duplicates,return=minimal")
+                    .post(new RecordingRowsBody(jobs))
+                    .build();
+            try (Response response = transport.execute(request)) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("Insert failed: " + response.code());
+                }
+            }
+        }
+
+        @Override
+        public void onJobSucceeded(OutboxJob job) {
+            if (withRows && job.type == OutboxJob.Type.UPLOAD) {
+                try {
+                    outbox.enqueue(OutboxJob.metadataFor(job));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return;
+            }
+            done.countDown();
+        }
+
+        @Override
+        public void onJobRetrying(OutboxJob job, long delayMs, IOException error) {
+            retries.incrementAndGet();
+        }
+
+        @Override
+        public void onJobAbandoned(OutboxJob job, IOException error) {
+            abandoned.incrementAndGet();
+            done.countDown();
+        }
+    }
+
+    private static final class RecordingListener implements UploadOutbox.Listener {
+        private final CountDownLatch done;
+        private final List<IOException> abandoned;
+
+        RecordingListener(CountDownLatch done, List<IOException> abandoned) {
+            this.done = done;
+            this.abandoned = abandoned;
+        }
+
+        @Override
+        public void onJobSucceeded(OutboxJob job) {
+            done.countDown();
+        }
+
+        @Override
+        public void onJobRetrying(OutboxJob job, long delayMs, IOException error) {
+        }
+
+        @Override
+        public void onJobAbandoned(OutboxJob job, IOException error) {
+            abandoned.add(error);
+            done.countDown();
+        }
+    }
+}
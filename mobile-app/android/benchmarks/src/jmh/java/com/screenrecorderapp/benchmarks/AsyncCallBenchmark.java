@@ -0,0 +1,138 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.FakeRecordingsEndpoint;
+import com.screenrecorderapp.LatencyHistogram;
+import com.screenrecorderapp.ResultFuture;
+import com.screenrecorderapp.SupabaseTransport;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A burst of {@code operations} listing requests all issued at once: with a
+ * thread blocked on each, and through SupabaseTransport.executeAsync, where
+ * OkHttp's dispatcher and the shared pool carry them all.
+ *
+ * Setup prints the peak thread count and per-request latency of one burst
+ * each way. Cancellation and deadlines are covered by SupabaseTransportTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AsyncCallBenchmark {
+    private static final String PATH = "/rest/v1/recordings?select=id&order=created_at.desc,id.desc&limit=20";
+
+    @Param({"100", "500"})
+    public int operations;
+
+    private FakeRecordingsEndpoint endpoint;
+    private SupabaseTransport transport;
+
+    @Setup
+    public void setUp() throws Exception {
+        endpoint = new FakeRecordingsEndpoint(2000);
+        transport = new SupabaseTransport(endpoint.baseUrl(), "benchmark");
+        // Connections and classes warmed up before anything is measured
+        asyncBurst(null);
+
+        report("thread per call", this::threadPerCallBurst);
+        report("async", this::asyncBurst);
+    }
+
+    @TearDown
+    public void tearDown() {
+        endpoint.stop();
+    }
+
+    @Benchmark
+    public int threadPerCall() throws InterruptedException {
+        return threadPerCallBurst(null);
+    }
+
+    @Benchmark
+    public int async() throws Exception {
+        return asyncBurst(null);
+    }
+
+    // Latency, if recorded, runs from issuing a call to having read its body
+    private int threadPerCallBurst(LatencyHistogram latency) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(operations);
+        int[] ok = new int[1];
+        for (int i = 0; i < operations; i++) {
+            long issued = System.nanoTime();
+            Thread thread = new Thread(() -> {
+                try (Response response = transport.execute(transport.request(PATH).build())) {
+                    response.body().string();
+                    synchronized (ok) {
+                        ok[0]++;
+                        if (latency != null) {
+                            latency.record((System.nanoTime() - issued) / 1000000);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return ok[0];
+    }
+
+    private int asyncBurst(LatencyHistogram latency) throws Exception {
+        List<ResultFuture<Integer>> calls = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            long issued = System.nanoTime();
+            calls.add(transport.executeAsync(transport.request(PATH).build())
+                    .then(response -> {
+                        try (Response r = response) {
+                            int length = r.body().string().length();
+                            if (latency != null) {
+                                synchronized (latency) {
+                                    latency.record((System.nanoTime() - issued) / 1000000);
+                                }
+                            }
+                            return length;
+                        }
+                    }, transport.executor()));
+        }
+        ResultFuture.allOf(calls).get();
+        return calls.size();
+    }
+
+    private interface Burst {
+        int run(LatencyHistogram latency) throws Exception;
+    }
+
+    private void report(String name, Burst burst) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int before = threads.getThreadCount();
+        threads.resetPeakThreadCount();
+        LatencyHistogram latency = new LatencyHistogram();
+        long start = System.nanoTime();
+        int completed = burst.run(latency);
+        long elapsedMs = (System.nanoTime() - start) / 1000000;
+        if (completed != operations) {
+            throw new IllegalStateException(name + ": " + completed + " of " + operations + " completed");
+        }
+        System.out.printf("%s, %d calls: %d ms, peak %d threads (%d before), latency p50 %d ms, p99 %d ms%n",
+                name, operations, elapsedMs, threads.getPeakThreadCount(), before,
+                latency.getValueAtPercentile(50), latency.getValueAtPercentile(99));
+    }
+}
@@ -0,0 +1,108 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.PcmMixer;
+import com.screenrecorderapp.PcmRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The audio path the codec engine runs during capture: a 44.1 kHz mono mic
+ * and 48 kHz stereo playback capture, mixed to 48 kHz stereo in 10 ms blocks.
+ * Run with {@code -prof gc}; mixing is meant to allocate nothing.
+ * Resampling accuracy and drift correction are covered by PcmMixerTest.
+ *
+ * The {@code ring} group moves 48 kHz stereo blocks between two threads
+ * through a ring, as capture and mixing do.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AudioMixBenchmark {
+    private static final int MIC_RATE = 44100;
+    private static final int PLAYBACK_RATE = 48000;
+    private static final int OUTPUT_RATE = 48000;
+    private static final int BLOCK_FRAMES = 480;
+    private static final int TARGET_LATENCY_MS = 40;
+    private static final int MAX_LATENCY_MS = 200;
+
+    private PcmRingBuffer micRing;
+    private PcmRingBuffer playbackRing;
+    private PcmMixer mixer;
+    private short[] micBlock;
+    private short[] playbackBlock;
+    private short[] output;
+
+    private PcmRingBuffer spscRing;
+    private short[] producerBlock;
+    private short[] consumerBlock;
+
+    @Setup
+    public void setUp() {
+        micRing = new PcmRingBuffer(MIC_RATE / 2, 1);
+        playbackRing = new PcmRingBuffer(PLAYBACK_RATE / 2, 2);
+        mixer = new PcmMixer(OUTPUT_RATE, 2, BLOCK_FRAMES, TARGET_LATENCY_MS, MAX_LATENCY_MS);
+        mixer.addSource(micRing, MIC_RATE, 1f);
+        mixer.addSource(playbackRing, PLAYBACK_RATE, 1f);
+        micBlock = sine(MIC_RATE / 100, 1, 440, MIC_RATE);
+        playbackBlock = sine(PLAYBACK_RATE / 100, 2, 1000, PLAYBACK_RATE);
+        output = new short[BLOCK_FRAMES * 2];
+        // Prime the playback source so every measured block mixes both
+        for (int i = 0; i < TARGET_LATENCY_MS / 10 + 1; i++) {
+            playbackRing.write(playbackBlock, 0, playbackBlock.length / 2);
+        }
+
+        spscRing = new PcmRingBuffer(PLAYBACK_RATE / 5, 2);
+        producerBlock = sine(BLOCK_FRAMES, 2, 1000, PLAYBACK_RATE);
+        consumerBlock = new short[BLOCK_FRAMES * 2];
+    }
+
+    /**
+     * One 10 ms block: both captures deliver, the mixer takes what the mic
+     * paces it to.
+     */
+    @Benchmark
+    @Group("mix")
+    public int mixBlock() {
+        micRing.write(micBlock, 0, micBlock.length);
+        playbackRing.write(playbackBlock, 0, playbackBlock.length / 2);
+        int mixed = 0;
+        int frames;
+        while ((frames = mixer.mixableFrames()) > 0) {
+            mixer.mix(output, frames);
+            mixed += frames;
+        }
+        return mixed;
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public int ringWrite() {
+        return spscRing.write(producerBlock, 0, BLOCK_FRAMES);
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public int ringRead() {
+        return spscRing.read(consumerBlock, 0, BLOCK_FRAMES);
+    }
+
+    private static short[] sine(int frames, int channels, double frequency, int sampleRate) {
+        short[] samples = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(16000 * Math.sin(2 * Math.PI * frequency * i / sampleRate));
+            Arrays.fill(samples, i * channels, (i + 1) * channels, value);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,272 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.FakeSupabase;
+import com.screenrecorderapp.LatencyHistogram;
+import com.screenrecorderapp.OutboxJob;
+import com.screenrecorderapp.RecordingRowsBody;
+import com.screenrecorderapp.ResumableUploader;
+import com.screenrecorderapp.SupabaseTransport;
+import com.screenrecorderapp.UploadOutbox;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fleet of {@code devices} simulated phones, each uploading
+ * {@code recordingsPerDevice} recordings to a {@link FakeSupabase} at once.
+ * Every device has its own SupabaseTransport, UploadOutbox and
+ * ResumableUploader, wired the way SupabaseService wires them: the recording
+ * goes up through TUS, then its row joins a batched metadata insert. One
+ * operation is the whole fleet finishing.
+ *
+ * Each run prints recordings and megabytes per second, and p50/p99 of the
+ * time from queueing a recording to its row being written; PATCH and insert
+ * latency come from the first device's transport. The run fails if any
+ * recording is missing its object or its row. {@code network} picks the
+ * conditions: {@code ideal} is plain loopback, {@code mobile} adds 40-80 ms
+ * per response, 2 MB/s per request body and 2% of requests failing.
+ *
+ * Each recording is 8 MB, so every upload sends one full 6 MB part and a
+ * partial one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FleetUploadBenchmark {
+    private static final long RECORDING_BYTES = 8 * 1024 * 1024;
+    private static final String BUCKET = "screen-recordings";
+    private static final int UPLOADS_PER_DEVICE = 2;
+    private static final int METADATA_BATCH_SIZE = 50;
+    private static final long METADATA_LINGER_MS = 200;
+    private static final long FLEET_TIMEOUT_MINUTES = 10;
+
+    @Param({"1", "8", "32"})
+    public int devices;
+
+    @Param({"4"})
+    public int recordingsPerDevice;
+
+    @Param({"ideal", "mobile"})
+    public String network;
+
+    private FakeSupabase supabase;
+    private File workDir;
+    private File recording;
+    private Fleet fleet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        FakeSupabase.Conditions conditions = network.equals("mobile")
+                ? new FakeSupabase.Conditions(40, 40, 2 * 1024 * 1024, 0.02)
+                : FakeSupabase.Conditions.IDEAL;
+        // Every device's uploads in flight at once, plus room for rows and offset checks
+        supabase = new FakeSupabase(conditions, devices * UPLOADS_PER_DEVICE + 16);
+        workDir = Files.createTempDirectory("fleet").toFile();
+        recording = new File(workDir, "recording.mp4");
+        try (RandomAccessFile file = new RandomAccessFile(recording, "rw")) {
+            file.setLength(RECORDING_BYTES);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void startFleet() throws IOException {
+        supabase.reset();
+        fleet = new Fleet();
+    }
+
+    @TearDown(Level.Invocation)
+    public void finishFleet() {
+        fleet.shutdown();
+        fleet.report();
+        fleet.verify();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        supabase.stop();
+        deleteRecursively(workDir);
+    }
+
+    @Benchmark
+    public int upload() throws InterruptedException {
+        return fleet.run();
+    }
+
+    /**
+     * One run's devices and what they measured.
+     */
+    private final class Fleet {
+        final List<Device> members = new ArrayList<>();
+        final CountDownLatch remaining = new CountDownLatch(devices * recordingsPerDevice);
+        final LatencyHistogram endToEnd = new LatencyHistogram();
+        final AtomicInteger abandoned = new AtomicInteger();
+        final List<String> objectNames = new ArrayList<>();
+        final long requestsBefore = supabase.requestCount();
+        final long failuresBefore = supabase.injectedFailureCount();
+        long startNanos;
+        long elapsedNanos;
+
+        Fleet() throws IOException {
+            File runDir = Files.createTempDirectory(workDir.toPath(), "run").toFile();
+            for (int i = 0; i < devices; i++) {
+                members.add(new Device(this, i, new File(runDir, "device-" + i)));
+            }
+        }
+
+        int run() throws InterruptedException {
+            startNanos = System.nanoTime();
+            for (Device device : members) {
+                for (int r = 0; r < recordingsPerDevice; r++) {
+                    String objectName = "device-" + device.index + "/recording-" + r + ".mp4";
+                    objectNames.add(objectName);
+                    device.enqueue(objectName);
+                }
+            }
+            if (!remaining.await(FLEET_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new IllegalStateException(remaining.getCount() + " recordings never finished");
+            }
+            elapsedNanos = System.nanoTime() - startNanos;
+            return objectNames.size();
+        }
+
+        void shutdown() {
+            for (Device device : members) {
+                device.outbox.shutdown();
+            }
+        }
+
+        void report() {
+            double seconds = elapsedNanos / 1e9;
+            int recordings = objectNames.size();
+            LatencyHistogram patch = members.get(0).transport.metrics().histogram("http PATCH /storage/v1/upload_ms");
+            LatencyHistogram insert = members.get(0).transport.metrics().histogram("http POST /rest/v1/recordings_ms");
+            System.out.printf("%n%d devices x %d recordings (%s): %.1f recordings/s, %.1f MB/s; "
+                            + "queued to row p50 %d ms, p99 %d ms; PATCH p50 %d ms, p99 %d ms; "
+                            + "insert p50 %d ms, p99 %d ms; %d requests, %d failures injected%n",
+                    devices, recordingsPerDevice, network, recordings / seconds,
+                    recordings * (RECORDING_BYTES / 1048576.0) / seconds,
+                    endToEnd.getValueAtPercentile(50), endToEnd.getValueAtPercentile(99),
+                    patch.getValueAtPercentile(50), patch.getValueAtPercentile(99),
+                    insert.getValueAtPercentile(50), insert.getValueAtPercentile(99),
+                    supabase.requestCount() - requestsBefore, supabase.injectedFailureCount() - failuresBefore);
+        }
+
+        void verify() {
+            if (abandoned.get() > 0) {
+                throw new IllegalStateException(abandoned.get() + " jobs abandoned");
+            }
+            for (String objectName : objectNames) {
+                if (supabase.objectSize(objectName) != RECORDING_BYTES) {
+                    throw new IllegalStateException(objectName + " stored with " + supabase.objectSize(objectName)
+                            + " bytes");
+                }
+                if (!supabase.rows().containsValue(objectName)) {
+                    throw new IllegalStateException(objectName + " has no row");
+                }
+            }
+            if (supabase.rows().size() != objectNames.size()) {
+                throw new IllegalStateException(supabase.rows().size() + " rows for " + objectNames.size()
+                        + " recordings");
+            }
+        }
+    }
+
+    private final class Device implements UploadOutbox.JobHandler, UploadOutbox.Listener {
+        final Fleet fleet;
+        final int index;
+        final SupabaseTransport transport;
+        final ResumableUploader uploader;
+        final UploadOutbox outbox;
+
+        Device(Fleet fleet, int index, File dir) throws IOException {
+            this.fleet = fleet;
+            this.index = index;
+            dir.mkdirs();
+            transport = new SupabaseTransport(supabase.baseUrl(), "benchmark");
+            uploader = new ResumableUploader(transport, new File(dir, "uploads"), null);
+            outbox = new UploadOutbox(new File(dir, "outbox.journal"), UPLOADS_PER_DEVICE, this, this);
+            outbox.setBatching(OutboxJob.Type.METADATA, METADATA_BATCH_SIZE, METADATA_LINGER_MS, this::saveRows);
+            outbox.start();
+        }
+
+        void enqueue(String objectName) {
+            OutboxJob job = OutboxJob.upload(recording.getAbsolutePath(), objectName, RECORDING_BYTES, true);
+            job.displayName = objectName.substring(objectName.lastIndexOf('/') + 1);
+            try {
+                outbox.enqueue(job);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void handle(OutboxJob job) throws IOException {
+            uploader.upload(new File(job.filePath), BUCKET, job.objectName, "video/mp4", null);
+        }
+
+        private void saveRows(List<OutboxJob> jobs) throws IOException {
+            Request request = transport.request("/rest/v1/recordings?on_conflict=id&columns="
+                    + RecordingRowsBody.COLUMNS)
+                    .addHeader("Prefer", "resolution=ignore-duplicates,return=minimal")
+                    .post(new RecordingRowsBody(jobs))
+                    .build();
+            try (Response response = transport.execute(request)) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("Insert failed: " + response.code());
+                }
+            }
+        }
+
+        @Override
+        public void onJobSucceeded(OutboxJob job) {
+            if (job.type == OutboxJob.Type.UPLOAD) {
+                try {
+                    outbox.enqueue(OutboxJob.metadataFor(job));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return;
+            }
+            fleet.endToEnd.record((System.nanoTime() - fleet.startNanos) / 1000000);
+            fleet.remaining.countDown();
+        }
+
+        @Override
+        public void onJobRetrying(OutboxJob job, long delayMs, IOException error) {
+        }
+
+        @Override
+        public void onJobAbandoned(OutboxJob job, IOException error) {
+            fleet.abandoned.incrementAndGet();
+            fleet.remaining.countDown();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
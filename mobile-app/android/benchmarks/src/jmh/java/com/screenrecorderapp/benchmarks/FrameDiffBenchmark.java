@@ -0,0 +1,102 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.TileDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparing one 1080x2400 RGBA frame with the last, as the codec engine does
+ * for every frame the display renders, on synthetic screens of text:
+ * {@code static} repeats one frame, {@code scrolling} moves the page up 8 rows
+ * a frame. Rows are padded, as ImageReader planes often are. Run with
+ * {@code -prof gc}; comparing is meant to allocate nothing.
+ *
+ * Which frames the filter keeps is covered by StaticFrameFilterTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameDiffBenchmark {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2400;
+    private static final int ROW_STRIDE = WIDTH * 4 + 64;
+    private static final int TILE_SIZE = 32;
+    private static final int SCROLL_ROWS = 8;
+    private static final int SCROLL_FRAMES = 64;
+
+    @Param({"static", "scrolling"})
+    public String content;
+
+    @Param({"1", "4"})
+    public int sampleStep;
+
+    private ByteBuffer[] frames;
+    private TileDiff diff;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ByteBuffer page = textPage(HEIGHT + SCROLL_ROWS * SCROLL_FRAMES);
+        ByteBuffer[] scrolling = new ByteBuffer[SCROLL_FRAMES];
+        for (int i = 0; i < SCROLL_FRAMES; i++) {
+            scrolling[i] = window(page, i * SCROLL_ROWS);
+        }
+        ByteBuffer[] still = {scrolling[0]};
+        frames = content.equals("static") ? still : scrolling;
+        diff = new TileDiff(WIDTH, HEIGHT, TILE_SIZE, sampleStep);
+    }
+
+    @Benchmark
+    public int compare() {
+        ByteBuffer frame = frames[next];
+        next = (next + 1) % frames.length;
+        return diff.compare(frame, ROW_STRIDE);
+    }
+
+    /**
+     * Dark 8x12 glyphs on white in lines 24 rows apart, with margins, like a
+     * page of text.
+     */
+    private static ByteBuffer textPage(int rows) {
+        ByteBuffer page = ByteBuffer.allocateDirect(rows * ROW_STRIDE);
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                page.putInt(y * ROW_STRIDE + x * 4, 0xffffffff);
+            }
+        }
+        Random random = new Random(23);
+        for (int line = 48; line + 12 < rows; line += 24) {
+            int length = 20 + random.nextInt(100);
+            for (int column = 0; column < length; column++) {
+                if (random.nextInt(6) == 0) {
+                    continue;
+                }
+                int left = 48 + column * 8;
+                for (int y = 0; y < 12; y++) {
+                    for (int x = 1; x < 7; x++) {
+                        if (random.nextInt(3) == 0) {
+                            page.putInt((line + y) * ROW_STRIDE + (left + x) * 4, 0xff202020);
+                        }
+                    }
+                }
+            }
+        }
+        return page;
+    }
+
+    private static ByteBuffer window(ByteBuffer page, int firstRow) {
+        ByteBuffer window = page.duplicate();
+        window.position(firstRow * ROW_STRIDE);
+        window.limit(firstRow * ROW_STRIDE + HEIGHT * ROW_STRIDE);
+        return window.slice();
+    }
+}
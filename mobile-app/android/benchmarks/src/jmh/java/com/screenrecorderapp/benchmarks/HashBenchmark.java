@@ -0,0 +1,65 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.ContentHash;
+import com.screenrecorderapp.SyntheticMp4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHA-256 over memory-mapped windows against the usual read-into-a-heap-buffer
+ * loop. Both run against a warm page cache, which is the case right after a
+ * segment is finalized.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HashBenchmark {
+
+    @Param({"1", "64", "256", "1024"})
+    public int sizeMb;
+
+    private File file;
+    private final byte[] buffer = new byte[64 * 1024];
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("hash", ".mp4");
+        SyntheticMp4.write(file, sizeMb * 1024L * 1024, true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String mapped() throws IOException {
+        return ContentHash.sha256(file);
+    }
+
+    @Benchmark
+    public byte[] streamed() throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+}
@@ -0,0 +1,90 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.FakeRecordingsEndpoint;
+import com.screenrecorderapp.RecordingLister;
+import com.screenrecorderapp.RecordingPage;
+import com.screenrecorderapp.RecordingPageCache;
+import com.screenrecorderapp.SupabaseTransport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walking every page of a large recordings table through RecordingLister,
+ * against a local stand-in for the REST endpoint: with no cache, where every
+ * page is downloaded, and with a warm page cache, where every page is a 304.
+ *
+ * Over loopback both walks take about as long, since the stand-in builds and
+ * hashes every page either way; what the cache saves is the page bodies.
+ * RecordingListerTest checks what a walk returns and what it downloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListingBenchmark {
+
+    @Param({"20000", "50000"})
+    public int rows;
+
+    @Param({"50", "200"})
+    public int pageSize;
+
+    private FakeRecordingsEndpoint endpoint;
+    private File cacheDir;
+    private RecordingLister uncached;
+    private RecordingLister cached;
+
+    @Setup
+    public void setUp() throws IOException {
+        endpoint = new FakeRecordingsEndpoint(rows);
+        SupabaseTransport transport = new SupabaseTransport(endpoint.baseUrl(), "benchmark");
+        cacheDir = Files.createTempDirectory("pages").toFile();
+        uncached = new RecordingLister(transport, null);
+        cached = new RecordingLister(transport, new RecordingPageCache(cacheDir, rows / pageSize + 1));
+        // Fills the cache, so every measured walk revalidates
+        walk(cached);
+    }
+
+    @TearDown
+    public void tearDown() {
+        endpoint.stop();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    public int walkUncached() throws IOException {
+        return walk(uncached);
+    }
+
+    @Benchmark
+    public int walkRevalidated() throws IOException {
+        return walk(cached);
+    }
+
+    private int walk(RecordingLister lister) throws IOException {
+        int count = 0;
+        String cursor = null;
+        do {
+            RecordingPage page = lister.list(cursor, pageSize);
+            count += page.recordings.size();
+            cursor = page.nextCursor;
+        } while (cursor != null);
+        return count;
+    }
+}
@@ -0,0 +1,121 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.screenrecorderapp.OutboxJob;
+import com.screenrecorderapp.RecordingRowsBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metadata row serialization and response parsing.
+ *
+ * {@code tree*} reproduce what saveRecordingMetadata and extractRecordingId
+ * used to do: a JsonObject per row turned into a String, and the
+ * representation response parsed into a tree to pull out the id. The other
+ * benchmarks are the streaming JsonWriter body now sent for each batch, and a
+ * JsonReader scan for comparison with the tree parse.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MetadataBenchmark {
+
+    @Param({"1", "50"})
+    public int rows;
+
+    private final Gson gson = new Gson();
+    private List<OutboxJob> jobs;
+    private String representation;
+
+    @Setup
+    public void setUp() {
+        jobs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            OutboxJob upload = OutboxJob.segmentUpload("/data/recordings/recording_" + i + "_seg000.mp4",
+                    "recording_" + i + "/seg000.mp4", 48L * 1024 * 1024, "recording_" + i, i, i == rows - 1);
+            upload.durationMs = 30000;
+            upload.width = 1080;
+            upload.height = 2400;
+            upload.frameCount = 900;
+            upload.bitRate = 6000000;
+            jobs.add(OutboxJob.metadataFor(upload));
+        }
+
+        Buffer buffer = new Buffer();
+        try {
+            new RecordingRowsBody(jobs).writeTo(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        representation = buffer.readUtf8();
+    }
+
+    @Benchmark
+    public String treeSerialize() {
+        JsonArray array = new JsonArray();
+        for (OutboxJob job : jobs) {
+            JsonObject metadata = new JsonObject();
+            metadata.addProperty("id", job.recordId);
+            metadata.addProperty("file_name", job.displayName);
+            metadata.addProperty("file_path", job.objectName);
+            metadata.addProperty("file_size", job.fileSize);
+            metadata.addProperty("created_at", job.createdAt);
+            metadata.addProperty("session_id", job.sessionId);
+            metadata.addProperty("segment_index", job.segmentIndex);
+            metadata.addProperty("is_final_segment", job.finalSegment);
+            metadata.addProperty("duration_ms", job.durationMs);
+            metadata.addProperty("width", job.width);
+            metadata.addProperty("height", job.height);
+            metadata.addProperty("frame_count", job.frameCount);
+            metadata.addProperty("bit_rate", job.bitRate);
+            array.add(metadata);
+        }
+        return gson.toJson(array);
+    }
+
+    @Benchmark
+    public long streamingSerialize() throws IOException {
+        Buffer sink = new Buffer();
+        new RecordingRowsBody(jobs).writeTo(sink);
+        long size = sink.size();
+        sink.clear();
+        return size;
+    }
+
+    @Benchmark
+    public String treeParseId() {
+        JsonArray response = gson.fromJson(representation, JsonArray.class);
+        JsonObject first = response.get(0).getAsJsonObject();
+        return first.has("id") ? first.get("id").getAsString() : "unknown";
+    }
+
+    @Benchmark
+    public String streamingParseId() throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(representation))) {
+            reader.beginArray();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("id".equals(reader.nextName())) {
+                    return reader.nextString();
+                }
+                reader.skipValue();
+            }
+            return "unknown";
+        }
+    }
+}
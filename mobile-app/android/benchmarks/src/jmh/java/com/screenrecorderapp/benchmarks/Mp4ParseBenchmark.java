@@ -0,0 +1,49 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.Mp4Info;
+import com.screenrecorderapp.Mp4Parser;
+import com.screenrecorderapp.SyntheticMp4;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header parsing cost across recording sizes. The parser only maps moov, so
+ * the time should follow the sample count rather than the bytes on disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Mp4ParseBenchmark {
+
+    @Param({"1", "16", "256", "1024"})
+    public int sizeMb;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("parse", ".mp4");
+        // mdat is never read, so it can stay sparse even at 1 GB
+        SyntheticMp4.write(file, sizeMb * 1024L * 1024, false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public Mp4Info parse() throws IOException {
+        return Mp4Parser.parse(file);
+    }
+}
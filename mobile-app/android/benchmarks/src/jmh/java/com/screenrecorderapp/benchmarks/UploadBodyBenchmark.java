@@ -0,0 +1,72 @@
+package com.screenrecorderapp.benchmarks;
+
+import com.screenrecorderapp.FileRangeRequestBody;
+import com.screenrecorderapp.SyntheticMp4;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing an upload body into a sink: streamed from the file channel the way
+ * uploadRecording does it now, against reading the whole file into a byte
+ * array first. Run with {@code -prof gc} to see the allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UploadBodyBenchmark {
+    private static final MediaType VIDEO = MediaType.parse("video/mp4");
+
+    @Param({"1", "16", "64"})
+    public int sizeMb;
+
+    private File file;
+    private RandomAccessFile raf;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("upload", ".mp4");
+        SyntheticMp4.write(file, sizeMb * 1024L * 1024, true);
+        raf = new RandomAccessFile(file, "r");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        raf.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public long streamed() throws IOException {
+        RequestBody body = new FileRangeRequestBody(raf.getChannel(), 0, raf.length(), VIDEO, null);
+        return writeToBlackhole(body);
+    }
+
+    @Benchmark
+    public long buffered() throws IOException {
+        RequestBody body = RequestBody.create(Files.readAllBytes(file.toPath()), VIDEO);
+        return writeToBlackhole(body);
+    }
+
+    private static long writeToBlackhole(RequestBody body) throws IOException {
+        try (BufferedSink sink = Okio.buffer(Okio.blackhole())) {
+            body.writeTo(sink);
+            return body.contentLength();
+        }
+    }
+}
@@ -10,6 +10,29 @@ CREATE TABLE IF NOT EXISTS recordings (
 -- Create an index on created_at for better query performance
 CREATE INDEX IF NOT EXISTS idx_recordings_created_at ON recordings(created_at DESC);
 
+-- Recordings uploaded while still running are stored as segments sharing a session_id
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS session_id TEXT;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS segment_index INTEGER DEFAULT 0;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS is_final_segment BOOLEAN DEFAULT TRUE;
+CREATE INDEX IF NOT EXISTS idx_recordings_session ON recordings(session_id, segment_index);
+
+-- Stream metadata read on the device from the finished file's moov box
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS duration_ms BIGINT DEFAULT 0;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS width INTEGER DEFAULT 0;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS height INTEGER DEFAULT 0;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS frame_count INTEGER DEFAULT 0;
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS bit_rate BIGINT DEFAULT 0;
+
+-- SHA-256 of the uploaded file; also part of its storage key
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS content_hash TEXT;
+CREATE INDEX IF NOT EXISTS idx_recordings_content_hash ON recordings(content_hash);
+
+-- Per-session recording and upload metrics, stored with the final segment's row
+ALTER TABLE recordings ADD COLUMN IF NOT EXISTS metrics JSONB;
+
+-- Listings page by (created_at, id) keyset; id breaks ties between rows created in the same instant
+CREATE INDEX IF NOT EXISTS idx_recordings_created_at_id ON recordings(created_at DESC, id DESC);
+
 -- Create a storage bucket for screen recordings
 INSERT INTO storage.buckets (id, name, public)
 VALUES ('screen-recordings', 'screen-recordings', false)